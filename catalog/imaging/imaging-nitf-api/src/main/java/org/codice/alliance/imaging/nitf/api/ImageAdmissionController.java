@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.nitf.api;
+
+/**
+ * Admits image decoding and rendering work based on the estimated heap memory it needs. All of the
+ * imaging components share a single instance so that the total amount of decoded pixel data held
+ * at any one time stays within a configured heap budget, regardless of how the work is spread
+ * across threads.
+ */
+public interface ImageAdmissionController {
+
+  /** The number of bytes assumed for each decoded pixel, which matches a packed ARGB raster. */
+  long BYTES_PER_DECODED_PIXEL = 4L;
+
+  /**
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @return the estimated number of heap bytes needed to hold the decoded image.
+   */
+  static long estimateDecodedBytes(long width, long height) {
+    return Math.max(0L, width) * Math.max(0L, height) * BYTES_PER_DECODED_PIXEL;
+  }
+
+  /**
+   * Blocks until the estimated number of bytes fits within the heap budget. Requests are admitted
+   * in the order they arrive. A request that is larger than the whole budget is admitted once no
+   * other work is in progress.
+   *
+   * @param estimatedBytes the estimated number of heap bytes the work needs.
+   * @return a permit that must be closed once the memory is no longer in use.
+   * @throws InterruptedException when interrupted while waiting to be admitted.
+   */
+  Permit acquire(long estimatedBytes) throws InterruptedException;
+
+  /** @return the heap budget in bytes. */
+  long getBudgetBytes();
+
+  /** @return the number of bytes held by the permits that are currently open. */
+  long getBytesInUse();
+
+  /** @return the number of requests waiting to be admitted. */
+  int getQueueDepth();
+
+  /** @return the average time, in milliseconds, that admitted requests waited. */
+  long getAverageWaitMillis();
+
+  /** @return the longest time, in milliseconds, that an admitted request waited. */
+  long getMaxWaitMillis();
+
+  /** A grant of heap memory that is returned to the budget when closed. */
+  interface Permit extends AutoCloseable {
+
+    /** @return the number of bytes held by this permit. */
+    long getBytes();
+
+    /** Returns the memory held by this permit to the budget. Closing more than once is a no-op. */
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.nitf.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ImageAdmissionController} that admits work in arrival order while the sum of the
+ * admitted estimates fits within a percentage of the maximum heap. The budget usage and wait times
+ * are registered as an MBean once {@link #init()} has been called.
+ */
+public class ImageAdmissionControllerImpl
+    implements ImageAdmissionController, ImageAdmissionControllerImplMBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImageAdmissionControllerImpl.class);
+
+  private static final int DEFAULT_HEAP_BUDGET_PERCENT = 25;
+
+  private static final int MAX_HEAP_BUDGET_PERCENT = 100;
+
+  private final ReentrantLock lock = new ReentrantLock(true);
+
+  private final Condition budgetChanged = lock.newCondition();
+
+  private final Deque<Object> waiting = new ArrayDeque<>();
+
+  private final LongSupplier maxHeapSupplier;
+
+  private long budgetBytes;
+
+  private long bytesInUse;
+
+  private long admittedCount;
+
+  private long totalWaitNanos;
+
+  private long maxWaitNanos;
+
+  private ObjectName objectName;
+
+  private MBeanServer mBeanServer;
+
+  public ImageAdmissionControllerImpl() {
+    this(Runtime.getRuntime()::maxMemory);
+  }
+
+  ImageAdmissionControllerImpl(LongSupplier maxHeapSupplier) {
+    this.maxHeapSupplier = maxHeapSupplier;
+    setHeapBudgetPercent(DEFAULT_HEAP_BUDGET_PERCENT);
+  }
+
+  public void init() {
+    registerMbean();
+  }
+
+  public void destroy() {
+    unregisterMbean();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Permit acquire(long estimatedBytes) throws InterruptedException {
+    if (estimatedBytes < 0) {
+      throw new IllegalArgumentException("method argument 'estimatedBytes' may not be negative.");
+    }
+
+    long start = System.nanoTime();
+    Object ticket = new Object();
+
+    lock.lockInterruptibly();
+    try {
+      waiting.addLast(ticket);
+      try {
+        while (waiting.peekFirst() != ticket || !fits(estimatedBytes)) {
+          budgetChanged.await();
+        }
+      } catch (InterruptedException e) {
+        waiting.remove(ticket);
+        budgetChanged.signalAll();
+        throw e;
+      }
+
+      waiting.removeFirst();
+      bytesInUse += estimatedBytes;
+      recordWait(System.nanoTime() - start, estimatedBytes);
+
+      // the next request in line may fit in what is left of the budget
+      budgetChanged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+
+    return new PermitImpl(estimatedBytes);
+  }
+
+  private boolean fits(long estimatedBytes) {
+    return bytesInUse == 0 || bytesInUse + estimatedBytes <= budgetBytes;
+  }
+
+  private void recordWait(long waitNanos, long estimatedBytes) {
+    admittedCount++;
+    totalWaitNanos += waitNanos;
+    maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+
+    LOGGER.trace(
+        "Admitted {} bytes after waiting {} ms ({} of {} bytes in use, {} waiting).",
+        estimatedBytes,
+        TimeUnit.NANOSECONDS.toMillis(waitNanos),
+        bytesInUse,
+        budgetBytes,
+        waiting.size());
+  }
+
+  private void release(long bytes) {
+    lock.lock();
+    try {
+      bytesInUse -= bytes;
+      budgetChanged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getBudgetBytes() {
+    lock.lock();
+    try {
+      return budgetBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getBytesInUse() {
+    lock.lock();
+    try {
+      return bytesInUse;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return waiting.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getAverageWaitMillis() {
+    lock.lock();
+    try {
+      return admittedCount == 0
+          ? 0
+          : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / admittedCount);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getMaxWaitMillis() {
+    lock.lock();
+    try {
+      return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void setHeapBudgetPercent(int heapBudgetPercent) {
+    int percent = heapBudgetPercent;
+    if (percent <= 0 || percent > MAX_HEAP_BUDGET_PERCENT) {
+      LOGGER.debug(
+          "Invalid `heapBudgetPercent` value [{}], must be between 1 and {}. Default value [{}] will be used instead.",
+          heapBudgetPercent,
+          MAX_HEAP_BUDGET_PERCENT,
+          DEFAULT_HEAP_BUDGET_PERCENT);
+      percent = DEFAULT_HEAP_BUDGET_PERCENT;
+    }
+
+    lock.lock();
+    try {
+      budgetBytes = maxHeapSupplier.getAsLong() / MAX_HEAP_BUDGET_PERCENT * percent;
+      LOGGER.trace("Setting image admission heap budget to {} bytes", budgetBytes);
+      budgetChanged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void registerMbean() {
+    try {
+      objectName =
+          new ObjectName(ImageAdmissionControllerImpl.class.getName() + ":service=admission");
+      mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    } catch (MalformedObjectNameException e) {
+      LOGGER.info("Unable to create Image Admission Controller MBean.", e);
+    }
+    if (mBeanServer == null) {
+      return;
+    }
+    try {
+      try {
+        mBeanServer.registerMBean(this, objectName);
+      } catch (InstanceAlreadyExistsException e) {
+        mBeanServer.unregisterMBean(objectName);
+        mBeanServer.registerMBean(this, objectName);
+      }
+    } catch (MBeanRegistrationException
+        | InstanceNotFoundException
+        | InstanceAlreadyExistsException
+        | NotCompliantMBeanException e) {
+      LOGGER.info("Could not register MBean [{}].", objectName, e);
+    }
+  }
+
+  private void unregisterMbean() {
+    try {
+      if (objectName != null && mBeanServer != null && mBeanServer.isRegistered(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+    } catch (MBeanRegistrationException | InstanceNotFoundException e) {
+      LOGGER.debug("Exception unregistering MBean: ", e);
+    }
+  }
+
+  private class PermitImpl implements Permit {
+
+    private final long bytes;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private PermitImpl(long bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public long getBytes() {
+      return bytes;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(bytes);
+      }
+    }
+  }
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.nitf.impl;
+
+/** Heap budget usage and wait times of the image admission controller, exposed for monitoring. */
+public interface ImageAdmissionControllerImplMBean {
+
+  /** @return the heap budget in bytes. */
+  long getBudgetBytes();
+
+  /** @return the number of bytes held by the permits that are currently open. */
+  long getBytesInUse();
+
+  /** @return the number of requests waiting to be admitted. */
+  int getQueueDepth();
+
+  /** @return the average time, in milliseconds, that admitted requests waited. */
+  long getAverageWaitMillis();
+
+  /** @return the longest time, in milliseconds, that an admitted request waited. */
+  long getMaxWaitMillis();
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.nitf.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController.Permit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImageAdmissionControllerImplTest {
+
+  private static final long MAX_HEAP = 1000L;
+
+  private ImageAdmissionControllerImpl admissionController;
+
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() {
+    admissionController = new ImageAdmissionControllerImpl(() -> MAX_HEAP);
+    admissionController.setHeapBudgetPercent(50);
+    executorService = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testEstimateDecodedBytes() {
+    assertThat(ImageAdmissionController.estimateDecodedBytes(10, 20), is(800L));
+    assertThat(ImageAdmissionController.estimateDecodedBytes(-10, 20), is(0L));
+  }
+
+  @Test
+  public void testInvalidHeapBudgetPercent() {
+    admissionController.setHeapBudgetPercent(0);
+    assertThat(admissionController.getBudgetBytes(), is(250L));
+
+    admissionController.setHeapBudgetPercent(101);
+    assertThat(admissionController.getBudgetBytes(), is(250L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeEstimate() throws InterruptedException {
+    admissionController.acquire(-1);
+  }
+
+  @Test
+  public void testPermitReleasesBytes() throws InterruptedException {
+    Permit permit = admissionController.acquire(300);
+    assertThat(admissionController.getBytesInUse(), is(300L));
+
+    permit.close();
+    permit.close();
+    assertThat(admissionController.getBytesInUse(), is(0L));
+  }
+
+  @Test
+  public void testOversizedRequestAdmittedWhenIdle() throws InterruptedException {
+    try (Permit permit = admissionController.acquire(MAX_HEAP * 2)) {
+      assertThat(permit.getBytes(), is(MAX_HEAP * 2));
+      assertThat(admissionController.getBytesInUse(), is(MAX_HEAP * 2));
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testRequestWaitsForBudget() throws Exception {
+    Permit first = admissionController.acquire(400);
+
+    CompletableFuture<Permit> second = acquireAsync(200);
+
+    while (admissionController.getQueueDepth() == 0) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(second.isDone(), is(false));
+
+    first.close();
+
+    try (Permit permit = second.get(5, TimeUnit.SECONDS)) {
+      assertThat(admissionController.getBytesInUse(), is(200L));
+      assertThat(admissionController.getQueueDepth(), is(0));
+    }
+    assertThat(admissionController.getBytesInUse(), is(0L));
+  }
+
+  @Test(timeout = 10000)
+  public void testSmallRequestDoesNotOvertakeWaitingRequest() throws Exception {
+    Permit first = admissionController.acquire(400);
+
+    CompletableFuture<Permit> large = acquireAsync(500);
+    while (admissionController.getQueueDepth() < 1) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    CompletableFuture<Permit> small = acquireAsync(50);
+    while (admissionController.getQueueDepth() < 2) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(small.isDone(), is(false));
+
+    first.close();
+
+    Permit largePermit = large.get(5, TimeUnit.SECONDS);
+    assertThat(small.isDone(), is(false));
+    largePermit.close();
+    small.get(5, TimeUnit.SECONDS).close();
+    assertThat(admissionController.getBytesInUse(), is(0L));
+  }
+
+  @Test
+  public void testStatisticsAreRegisteredAsMBean() throws JMException, InterruptedException {
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName =
+        new ObjectName(ImageAdmissionControllerImpl.class.getName() + ":service=admission");
+
+    admissionController.init();
+    try (Permit permit = admissionController.acquire(100)) {
+      assertThat(mBeanServer.getAttribute(objectName, "BytesInUse"), is(100L));
+      assertThat(mBeanServer.getAttribute(objectName, "BudgetBytes"), is(500L));
+      assertThat(mBeanServer.getAttribute(objectName, "QueueDepth"), is(0));
+    } finally {
+      admissionController.destroy();
+    }
+
+    assertThat(mBeanServer.isRegistered(objectName), is(false));
+  }
+
+  private CompletableFuture<Permit> acquireAsync(long bytes) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return admissionController.acquire(bytes);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+          }
+        },
+        executorService);
+  }
+}
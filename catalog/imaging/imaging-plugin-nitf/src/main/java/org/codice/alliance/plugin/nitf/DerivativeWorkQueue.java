@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.plugin.nitf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A work queue of metacard ids that is journaled to the file system. Each pending id is written to
+ * its own file before it is handed to the worker pool and the file is only removed once the work
+ * completes, so work that was pending when the system stopped is submitted again by {@link
+ * #recover()}.
+ *
+ * <p>Work that does not complete is attempted again after a delay that doubles with each attempt,
+ * up to {@link #MAX_ATTEMPTS} attempts. Work that still has not completed is left in the journal
+ * until the queue is recovered.
+ */
+class DerivativeWorkQueue {
+
+  /** The work to run for a metacard id. */
+  @FunctionalInterface
+  interface Task {
+    /**
+     * @param metacardId the id of the metacard.
+     * @param lastAttempt whether the work will not be attempted again before the queue is
+     *     recovered.
+     * @return {@code false} when the work should be attempted again.
+     */
+    boolean run(String metacardId, boolean lastAttempt);
+  }
+
+  static final int MAX_ATTEMPTS = 5;
+
+  private static final long INITIAL_RETRY_DELAY_MSEC = TimeUnit.SECONDS.toMillis(5);
+
+  /** The processing status of a queued metacard. */
+  enum Status {
+    QUEUED,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+  }
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DerivativeWorkQueue.class);
+
+  private static final String PENDING_EXTENSION = ".pending";
+
+  private static final String TEMP_EXTENSION = ".tmp";
+
+  private static final int MAX_TRACKED_STATUSES = 10000;
+
+  private final Path journalDirectory;
+
+  private final ExecutorService executorService;
+
+  private final ScheduledExecutorService retryScheduler;
+
+  private final Task task;
+
+  private final Set<String> queued = new HashSet<>();
+
+  private final Map<String, Status> statuses =
+      new LinkedHashMap<String, Status>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Status> eldest) {
+          return size() > MAX_TRACKED_STATUSES;
+        }
+      };
+
+  /**
+   * @param journalDirectory the directory that holds the pending work.
+   * @param executorService the worker pool that runs the task.
+   * @param retryScheduler waits out the delay before work is attempted again.
+   * @param task the work to run for a metacard id.
+   */
+  DerivativeWorkQueue(
+      Path journalDirectory,
+      ExecutorService executorService,
+      ScheduledExecutorService retryScheduler,
+      Task task) {
+    this.journalDirectory = journalDirectory;
+    this.executorService = executorService;
+    this.retryScheduler = retryScheduler;
+    this.task = task;
+  }
+
+  /** Submits all of the work left in the journal directory by a previous run. */
+  void recover() throws IOException {
+    Files.createDirectories(journalDirectory);
+
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(journalDirectory)) {
+      for (Path entry : entries) {
+        String fileName = entry.getFileName().toString();
+        if (fileName.endsWith(PENDING_EXTENSION)) {
+          String metacardId = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+          LOGGER.debug("Recovering pending derivative work for metacard {}", metacardId);
+          submit(metacardId);
+        } else if (fileName.endsWith(TEMP_EXTENSION)) {
+          Files.deleteIfExists(entry);
+        }
+      }
+    }
+  }
+
+  /**
+   * Journals the metacard id and hands it to the worker pool. An id that is already waiting to be
+   * processed is not queued a second time.
+   */
+  void submit(String metacardId) throws IOException {
+    synchronized (this) {
+      if (queued.contains(metacardId)) {
+        return;
+      }
+      writeJournalEntry(metacardId);
+      queued.add(metacardId);
+      statuses.remove(metacardId);
+    }
+
+    execute(metacardId, 1);
+  }
+
+  private void execute(String metacardId, int attempt) {
+    try {
+      executorService.execute(() -> run(metacardId, attempt));
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug(
+          "Unable to queue derivative work for metacard {}. It will be retried on restart.",
+          metacardId,
+          e);
+    }
+  }
+
+  private void run(String metacardId, int attempt) {
+    synchronized (this) {
+      queued.remove(metacardId);
+      statuses.put(metacardId, Status.PROCESSING);
+    }
+
+    boolean completed = false;
+    try {
+      completed = task.run(metacardId, attempt >= MAX_ATTEMPTS);
+    } catch (RuntimeException e) {
+      LOGGER.debug("Derivative work failed for metacard {}", metacardId, e);
+    }
+
+    boolean retry;
+    synchronized (this) {
+      if (queued.contains(metacardId)) {
+        // submitted again while running; the journal entry belongs to the newer request
+        return;
+      }
+
+      retry = !completed && attempt < MAX_ATTEMPTS;
+      if (completed) {
+        statuses.put(metacardId, Status.COMPLETED);
+        deleteJournalEntry(metacardId);
+      } else if (retry) {
+        statuses.remove(metacardId);
+        queued.add(metacardId);
+      } else {
+        statuses.put(metacardId, Status.FAILED);
+      }
+    }
+
+    if (retry) {
+      scheduleRetry(metacardId, attempt);
+    }
+  }
+
+  private void scheduleRetry(String metacardId, int attempt) {
+    long delayMsec = INITIAL_RETRY_DELAY_MSEC << (attempt - 1);
+    LOGGER.debug(
+        "Derivative work for metacard {} did not complete, attempting again in {} ms",
+        metacardId,
+        delayMsec);
+    try {
+      retryScheduler.schedule(
+          () -> execute(metacardId, attempt + 1), delayMsec, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug(
+          "Unable to retry derivative work for metacard {}. It will be retried on restart.",
+          metacardId,
+          e);
+    }
+  }
+
+  /**
+   * @param metacardId the id of the metacard.
+   * @return the status of the most recent work for the metacard, or empty if it is not known.
+   */
+  synchronized Optional<Status> getStatus(String metacardId) {
+    if (queued.contains(metacardId)) {
+      return Optional.of(Status.QUEUED);
+    }
+    return Optional.ofNullable(statuses.get(metacardId));
+  }
+
+  /**
+   * @param status the status to count.
+   * @return the number of metacards whose most recent work has the status.
+   */
+  synchronized int getCount(Status status) {
+    if (status == Status.QUEUED) {
+      return queued.size();
+    }
+    return (int) statuses.values().stream().filter(status::equals).count();
+  }
+
+  /** @return the number of pending entries in the journal directory. */
+  int getJournalBacklog() throws IOException {
+    if (!Files.isDirectory(journalDirectory)) {
+      return 0;
+    }
+
+    int backlog = 0;
+    try (DirectoryStream<Path> entries =
+        Files.newDirectoryStream(journalDirectory, "*" + PENDING_EXTENSION)) {
+      for (Path ignored : entries) {
+        backlog++;
+      }
+    }
+    return backlog;
+  }
+
+  /** Changes the number of worker threads when the worker pool supports resizing. */
+  void setWorkerThreads(int workerThreads) {
+    if (executorService instanceof ThreadPoolExecutor) {
+      ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executorService;
+      if (workerThreads > threadPoolExecutor.getMaximumPoolSize()) {
+        threadPoolExecutor.setMaximumPoolSize(workerThreads);
+        threadPoolExecutor.setCorePoolSize(workerThreads);
+      } else {
+        threadPoolExecutor.setCorePoolSize(workerThreads);
+        threadPoolExecutor.setMaximumPoolSize(workerThreads);
+      }
+    }
+  }
+
+  /** Stops the worker pool. Work that has not completed stays in the journal. */
+  void shutdown() {
+    retryScheduler.shutdownNow();
+    executorService.shutdownNow();
+  }
+
+  private void writeJournalEntry(String metacardId) throws IOException {
+    Files.createDirectories(journalDirectory);
+    Path entry = getJournalEntry(metacardId);
+    Path tempEntry = entry.resolveSibling(entry.getFileName() + TEMP_EXTENSION);
+    Files.write(tempEntry, metacardId.getBytes(StandardCharsets.UTF_8));
+    Files.move(
+        tempEntry, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void deleteJournalEntry(String metacardId) {
+    try {
+      Files.deleteIfExists(getJournalEntry(metacardId));
+    } catch (IOException e) {
+      LOGGER.debug("Unable to remove the journal entry for metacard {}", metacardId, e);
+    }
+  }
+
+  private Path getJournalEntry(String metacardId) {
+    String fileName =
+        UUID.nameUUIDFromBytes(metacardId.getBytes(StandardCharsets.UTF_8)).toString();
+    return journalDirectory.resolve(fileName + PENDING_EXTENSION);
+  }
+}
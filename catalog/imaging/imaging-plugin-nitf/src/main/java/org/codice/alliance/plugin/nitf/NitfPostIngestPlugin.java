@@ -25,15 +25,21 @@ import ddf.catalog.content.operation.UpdateStorageRequest;
 import ddf.catalog.content.operation.impl.UpdateStorageRequestImpl;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
 import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.types.Core;
 import ddf.catalog.data.types.Media;
+import ddf.catalog.federation.FederationException;
+import ddf.catalog.filter.FilterBuilder;
 import ddf.catalog.operation.CreateResponse;
 import ddf.catalog.operation.DeleteResponse;
+import ddf.catalog.operation.QueryResponse;
 import ddf.catalog.operation.ResourceResponse;
 import ddf.catalog.operation.Update;
 import ddf.catalog.operation.UpdateRequest;
 import ddf.catalog.operation.UpdateResponse;
+import ddf.catalog.operation.impl.QueryImpl;
+import ddf.catalog.operation.impl.QueryRequestImpl;
 import ddf.catalog.operation.impl.ResourceRequestById;
 import ddf.catalog.operation.impl.UpdateRequestImpl;
 import ddf.catalog.plugin.PluginExecutionException;
@@ -42,12 +48,16 @@ import ddf.catalog.resource.ResourceNotFoundException;
 import ddf.catalog.resource.ResourceNotSupportedException;
 import ddf.catalog.source.IngestException;
 import ddf.catalog.source.SourceUnavailableException;
+import ddf.catalog.source.UnsupportedQueryException;
+import ddf.security.Subject;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -55,8 +65,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
-import java.util.function.Function;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Collectors;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
@@ -64,24 +77,35 @@ import javax.imageio.ImageWriteParam;
 import javax.imageio.spi.IIORegistry;
 import javax.imageio.stream.ImageOutputStream;
 import javax.imageio.stream.MemoryCacheImageOutputStream;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
 import net.coobird.thumbnailator.Thumbnails;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController.Permit;
 import org.codice.alliance.imaging.nitf.api.NitfParserService;
+import org.codice.ddf.security.common.Security;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
 import org.codice.imaging.nitf.core.image.ImageSegment;
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.codice.imaging.nitf.render.NitfRenderer;
+import org.opengis.filter.Filter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This post-ingest plugin creates and stores the NITF thumbnail and NITF overview images. The
  * thumbnail is stored with the Metacard while the overview and original are stored in the content
- * store.
+ * store. The images are created by a pool of worker threads after ingest completes, and the
+ * progress of that work is registered as an MBean once {@link #init()} has been called.
  */
-public class NitfPostIngestPlugin implements PostIngestPlugin {
+public class NitfPostIngestPlugin implements PostIngestPlugin, NitfPostIngestPluginMBean {
 
   static final String IMAGE_NITF = "image/nitf";
 
@@ -118,8 +142,7 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
 
   private static final int DEFAULT_MAX_NITF_SIZE = 120;
 
-  private static final int MAX_THREAD_COUNT =
-      Integer.parseInt(System.getProperty("default.nitf.thread.count", "3"));
+  private static final int DEFAULT_WORKER_THREADS = 2;
 
   private int maxNitfSizeMB = DEFAULT_MAX_NITF_SIZE;
 
@@ -131,7 +154,19 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
 
   private NitfParserService nitfParserService;
 
-  private Semaphore lock;
+  private FilterBuilder filterBuilder;
+
+  private final ImageAdmissionController admissionController;
+
+  private String journalDirectory;
+
+  private int workerThreads = DEFAULT_WORKER_THREADS;
+
+  private DerivativeWorkQueue workQueue;
+
+  private ObjectName objectName;
+
+  private MBeanServer mBeanServer;
 
   static {
     IIORegistry.getDefaultInstance().registerServiceProvider(new J2KImageReaderSpi());
@@ -139,12 +174,33 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
 
   private double maxSideLength = DEFAULT_MAX_SIDE_LENGTH;
 
-  public NitfPostIngestPlugin() {
-    this(new Semaphore(MAX_THREAD_COUNT, true));
+  public NitfPostIngestPlugin(ImageAdmissionController admissionController) {
+    this.admissionController = admissionController;
   }
 
-  public NitfPostIngestPlugin(Semaphore lock) {
-    this.lock = lock;
+  public void init() {
+    workQueue =
+        new DerivativeWorkQueue(
+            Paths.get(journalDirectory),
+            createExecutorService(workerThreads),
+            createRetryScheduler(),
+            this::generateDerivatives);
+    try {
+      workQueue.recover();
+    } catch (IOException e) {
+      LOGGER.warn(
+          "Unable to recover pending NITF derivative work from {}. See debug log for details.",
+          journalDirectory);
+      LOGGER.debug("Unable to recover pending NITF derivative work", e);
+    }
+    registerMbean();
+  }
+
+  public void destroy() {
+    unregisterMbean();
+    if (workQueue != null) {
+      workQueue.shutdown();
+    }
   }
 
   @Override
@@ -152,14 +208,9 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
     if (createResponse == null) {
       throw new PluginExecutionException("process(): argument 'createResponse' may not be null.");
     }
-    try {
-      updateContent(
-          new HashSet<>(createResponse.getCreatedMetacards()),
-          createResponse.getRequest().getProperties());
-    } catch (InterruptedException e) {
-      LOGGER.debug("Interrupt received while doing image processing.", e);
-      Thread.currentThread().interrupt();
-    }
+    queueDerivatives(
+        new HashSet<>(createResponse.getCreatedMetacards()),
+        createResponse.getRequest().getProperties());
     return createResponse;
   }
 
@@ -168,18 +219,13 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
     if (updateResponse == null) {
       throw new PluginExecutionException("process(): argument 'updateResponse' may not be null.");
     }
-    try {
-      updateContent(
-          updateResponse
-              .getUpdatedMetacards()
-              .stream()
-              .map(Update::getNewMetacard)
-              .collect(Collectors.toSet()),
-          updateResponse.getRequest().getProperties());
-    } catch (InterruptedException e) {
-      LOGGER.debug("Interrupt received while doing image processing.", e);
-      Thread.currentThread().interrupt();
-    }
+    queueDerivatives(
+        updateResponse
+            .getUpdatedMetacards()
+            .stream()
+            .map(Update::getNewMetacard)
+            .collect(Collectors.toSet()),
+        updateResponse.getRequest().getProperties());
     return updateResponse;
   }
 
@@ -188,16 +234,126 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
     return deleteResponse;
   }
 
-  private void updateContent(Set<Metacard> metacards, Map<String, Serializable> properties)
-      throws InterruptedException {
-    List<Metacard> metacardUpdates = new ArrayList<>();
-    List<ContentItem> contentUpdates = new ArrayList<>();
+  @Override
+  public int getQueuedCount() {
+    return workQueue.getCount(DerivativeWorkQueue.Status.QUEUED);
+  }
+
+  @Override
+  public int getProcessingCount() {
+    return workQueue.getCount(DerivativeWorkQueue.Status.PROCESSING);
+  }
+
+  @Override
+  public int getFailedCount() {
+    return workQueue.getCount(DerivativeWorkQueue.Status.FAILED);
+  }
+
+  @Override
+  public int getJournalBacklog() {
+    try {
+      return workQueue.getJournalBacklog();
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read the NITF derivative journal {}", journalDirectory, e);
+      return -1;
+    }
+  }
+
+  @Override
+  public String getDerivativeStatus(String metacardId) {
+    return workQueue.getStatus(metacardId).map(Enum::name).orElse(null);
+  }
+
+  /**
+   * Rendering is done by the work queue so that ingest does not wait on it. The metacard ids are
+   * journaled before this returns, so the work is not lost if the system stops first.
+   */
+  private void queueDerivatives(Set<Metacard> metacards, Map<String, Serializable> properties) {
     for (Metacard mcard : metacards) {
       if (shouldGenerateContentItems(mcard, properties)) {
-        generateImages(mcard, metacardUpdates, contentUpdates);
+        try {
+          workQueue.submit(mcard.getId());
+        } catch (IOException e) {
+          LOGGER.debug(
+              "Unable to queue thumbnail/overview/original creation for metacard {}",
+              mcard.getId(),
+              e);
+        }
       }
     }
+  }
+
+  /** @return {@code false} when the work should be attempted again. */
+  private boolean generateDerivatives(String metacardId, boolean lastAttempt) {
+    try {
+      return runAsSystem(() -> updateDerivatives(metacardId, lastAttempt));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof InterruptedException) {
+        LOGGER.debug("Interrupt received while doing image processing.", e);
+        Thread.currentThread().interrupt();
+      } else {
+        LOGGER.debug("Error creating thumbnail/overview/original for {}", metacardId, e);
+      }
+    }
+    return false;
+  }
 
+  boolean runAsSystem(Callable<Boolean> task) throws ExecutionException {
+    Subject systemSubject = Security.getInstance().getSystemSubject();
+    if (systemSubject == null) {
+      LOGGER.debug("Unable to get the system subject for thumbnail/overview/original creation");
+      return false;
+    }
+    return systemSubject.execute(task);
+  }
+
+  private boolean updateDerivatives(String metacardId, boolean lastAttempt)
+      throws InterruptedException {
+    Metacard metacard;
+    try {
+      metacard = getMetacard(metacardId);
+    } catch (UnsupportedQueryException | SourceUnavailableException | FederationException e) {
+      LOGGER.debug(
+          "Error retrieving metacard {} for thumbnail/overview/original creation", metacardId, e);
+      return false;
+    }
+
+    if (metacard == null) {
+      // A metacard that was just ingested may not be visible to queries yet
+      if (!lastAttempt) {
+        LOGGER.debug(
+            "Metacard {} was not found, retrying thumbnail/overview/original creation later",
+            metacardId);
+        return false;
+      }
+      LOGGER.debug(
+          "Metacard {} no longer exists, skipping thumbnail/overview/original creation",
+          metacardId);
+      return true;
+    }
+
+    List<Metacard> metacardUpdates = new ArrayList<>();
+    List<ContentItem> contentUpdates = new ArrayList<>();
+    return generateImages(metacard, metacardUpdates, contentUpdates)
+        && storeDerivatives(metacardUpdates, contentUpdates);
+  }
+
+  private Metacard getMetacard(String metacardId)
+      throws UnsupportedQueryException, SourceUnavailableException, FederationException {
+    Filter filter = filterBuilder.attribute(Core.ID).is().equalTo().text(metacardId);
+    QueryResponse queryResponse =
+        catalogFramework.query(new QueryRequestImpl(new QueryImpl(filter)));
+
+    return queryResponse
+        .getResults()
+        .stream()
+        .map(Result::getMetacard)
+        .findFirst()
+        .orElse(null);
+  }
+
+  private boolean storeDerivatives(
+      List<Metacard> metacardUpdates, List<ContentItem> contentUpdates) {
     Map<String, Serializable> reprocessProperties = new HashMap<>();
     reprocessProperties.put(NITF_PROCESSING_KEY, true);
 
@@ -208,6 +364,7 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
         catalogFramework.update(updateStorageRequest);
       } catch (IngestException | SourceUnavailableException e) {
         LOGGER.debug("Error storing thumbnail/overview/original", e);
+        return false;
       }
     }
 
@@ -226,8 +383,11 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
         catalogFramework.update(updateRequest);
       } catch (IngestException | SourceUnavailableException e) {
         LOGGER.debug("Error updating metacard thumbnail", e);
+        return false;
       }
     }
+
+    return true;
   }
 
   private boolean shouldGenerateContentItems(
@@ -238,33 +398,31 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
         && !(boolean) properties.getOrDefault(NITF_PROCESSING_KEY, false);
   }
 
-  private void generateImages(
+  /** @return {@code false} when the resource could not be retrieved. */
+  private boolean generateImages(
       Metacard metacard, List<Metacard> metacardUpdates, List<ContentItem> contentUpdates)
       throws InterruptedException {
-    lock.acquire();
+    ResourceResponse response;
     try {
-      ResourceResponse response;
-      try {
-        response = catalogFramework.getLocalResource(new ResourceRequestById(metacard.getId()));
-      } catch (ResourceNotFoundException | ResourceNotSupportedException | IOException e) {
-        LOGGER.debug("Error retrieving resource for thumbnail/overview/original creation", e);
-        return;
-      }
+      response = catalogFramework.getLocalResource(new ResourceRequestById(metacard.getId()));
+    } catch (ResourceNotFoundException | ResourceNotSupportedException | IOException e) {
+      LOGGER.debug("Error retrieving resource for thumbnail/overview/original creation", e);
+      return false;
+    }
 
-      byte[] originalThumbnail = metacard.getThumbnail();
+    byte[] originalThumbnail = metacard.getThumbnail();
 
-      int contentCount = contentUpdates.size();
-      process(metacard, response.getResource().getInputStream(), contentUpdates);
+    int contentCount = contentUpdates.size();
+    process(metacard, response.getResource().getInputStream(), contentUpdates);
 
-      if (contentCount == contentUpdates.size() && metacard.getThumbnail() != originalThumbnail) {
-        metacardUpdates.add(metacard);
-      }
-    } finally {
-      lock.release();
+    if (contentCount == contentUpdates.size() && metacard.getThumbnail() != originalThumbnail) {
+      metacardUpdates.add(metacard);
     }
+    return true;
   }
 
-  private void process(Metacard metacard, InputStream input, List<ContentItem> contentItems) {
+  private void process(Metacard metacard, InputStream input, List<ContentItem> contentItems)
+      throws InterruptedException {
     try (InputStream source = input) {
       if (getResourceSizeInMB(metacard) > maxNitfSizeMB) {
         LOGGER.debug(
@@ -274,30 +432,22 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
         return;
       }
 
-      BufferedImage renderedImage = renderImageUsingOriginalDataModel(source);
-
-      if (renderedImage != null) {
-        addThumbnailToMetacard(metacard, renderedImage);
-
-        if (createOverview) {
-          ContentItem overviewContentItem =
-              createDerivedImage(
-                  metacard.getId(),
-                  OVERVIEW,
-                  renderedImage,
-                  metacard,
-                  calculateOverviewWidth(renderedImage),
-                  calculateOverviewHeight(renderedImage));
-
-          contentItems.add(overviewContentItem);
-        }
+      NitfSegmentsFlow segmentsFlow = nitfParserService.parseNitf(source, true);
+      try {
+        NitfRenderer renderer = getNitfRenderer();
 
-        if (storeOriginalImage) {
-          ContentItem originalImageContentItem =
-              createOriginalImage(metacard.getId(), renderedImage, metacard);
+        for (ImageSegment segment : getImageSegments(segmentsFlow)) {
+          try (Permit permit = admissionController.acquire(estimateWorkingBytes(segment))) {
+            BufferedImage renderedImage = renderImageUsingOriginalDataModel(segment, renderer);
 
-          contentItems.add(originalImageContentItem);
+            if (renderedImage != null) {
+              createDerivedImages(metacard, renderedImage, contentItems);
+              break;
+            }
+          }
         }
+      } finally {
+        segmentsFlow.end();
       }
     } catch (NumberFormatException e) {
       LOGGER.debug("Error getting resource size {}", e.getMessage(), e);
@@ -306,46 +456,56 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
     }
   }
 
-  private BufferedImage renderImageUsingOriginalDataModel(InputStream source)
-      throws NitfFormatException {
+  private void createDerivedImages(
+      Metacard metacard, BufferedImage renderedImage, List<ContentItem> contentItems) {
+    addThumbnailToMetacard(metacard, renderedImage);
+
+    if (createOverview) {
+      ContentItem overviewContentItem =
+          createDerivedImage(
+              metacard.getId(),
+              OVERVIEW,
+              renderedImage,
+              metacard,
+              calculateOverviewWidth(renderedImage),
+              calculateOverviewHeight(renderedImage));
+
+      contentItems.add(overviewContentItem);
+    }
 
-    return render(
-        source,
-        input -> {
-          try {
-            return input.getRight().renderToClosestDataModel(input.getLeft());
-          } catch (IOException e) {
-            LOGGER.debug(e.getMessage(), e);
-          }
-          return null;
-        });
+    if (storeOriginalImage) {
+      ContentItem originalImageContentItem =
+          createOriginalImage(metacard.getId(), renderedImage, metacard);
+
+      contentItems.add(originalImageContentItem);
+    }
   }
 
-  private BufferedImage render(
-      InputStream inputStream,
-      Function<Pair<ImageSegment, NitfRenderer>, BufferedImage> imageSegmentFunction)
-      throws NitfFormatException {
+  private List<ImageSegment> getImageSegments(NitfSegmentsFlow segmentsFlow) {
+    List<ImageSegment> imageSegments = new ArrayList<>();
+    segmentsFlow.forEachImageSegment(imageSegments::add);
+    return imageSegments;
+  }
 
-    final ThreadLocal<BufferedImage> bufferedImage = new ThreadLocal<>();
+  /**
+   * The rendered image is held while the thumbnail and overview are scaled. Storing the original
+   * adds the copy made for JPEG 2000 encoding.
+   */
+  private long estimateWorkingBytes(ImageSegment segment) {
+    long decodedBytes =
+        ImageAdmissionController.estimateDecodedBytes(
+            segment.getNumberOfColumns(), segment.getNumberOfRows());
+    return storeOriginalImage ? decodedBytes * 2 : decodedBytes;
+  }
 
-    if (inputStream != null) {
-      NitfRenderer renderer = getNitfRenderer();
-      nitfParserService
-          .parseNitf(inputStream, true)
-          .forEachImageSegment(
-              segment -> {
-                if (bufferedImage.get() == null) {
-                  BufferedImage bi =
-                      imageSegmentFunction.apply(new ImmutablePair<>(segment, renderer));
-                  if (bi != null) {
-                    bufferedImage.set(bi);
-                  }
-                }
-              })
-          .end();
+  private BufferedImage renderImageUsingOriginalDataModel(
+      ImageSegment segment, NitfRenderer renderer) {
+    try {
+      return renderer.renderToClosestDataModel(segment);
+    } catch (IOException e) {
+      LOGGER.debug(e.getMessage(), e);
     }
-
-    return bufferedImage.get();
+    return null;
   }
 
   private void addThumbnailToMetacard(Metacard metacard, BufferedImage bufferedImage) {
@@ -546,10 +706,74 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
     this.storeOriginalImage = storeOriginalImage;
   }
 
+  public void setWorkerThreads(int workerThreads) {
+    int threads = workerThreads;
+    if (threads <= 0) {
+      LOGGER.debug(
+          "Invalid `workerThreads` value [{}], must be greater than zero. Default value [{}] will be used instead.",
+          workerThreads,
+          DEFAULT_WORKER_THREADS);
+      threads = DEFAULT_WORKER_THREADS;
+    }
+
+    LOGGER.trace("Setting derivative worker threads to {}", threads);
+    this.workerThreads = threads;
+    if (workQueue != null) {
+      workQueue.setWorkerThreads(threads);
+    }
+  }
+
+  public void setJournalDirectory(String journalDirectory) {
+    this.journalDirectory = journalDirectory;
+  }
+
+  private void registerMbean() {
+    try {
+      objectName = new ObjectName(NitfPostIngestPlugin.class.getName() + ":service=derivatives");
+      mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    } catch (MalformedObjectNameException e) {
+      LOGGER.info("Unable to create NITF Post Ingest Plugin MBean.", e);
+    }
+    if (mBeanServer == null) {
+      return;
+    }
+    try {
+      try {
+        mBeanServer.registerMBean(this, objectName);
+      } catch (InstanceAlreadyExistsException e) {
+        mBeanServer.unregisterMBean(objectName);
+        mBeanServer.registerMBean(this, objectName);
+      }
+    } catch (MBeanRegistrationException
+        | InstanceNotFoundException
+        | InstanceAlreadyExistsException
+        | NotCompliantMBeanException e) {
+      LOGGER.info("Could not register MBean [{}].", objectName, e);
+    }
+  }
+
+  private void unregisterMbean() {
+    try {
+      if (objectName != null && mBeanServer != null && mBeanServer.isRegistered(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+    } catch (MBeanRegistrationException | InstanceNotFoundException e) {
+      LOGGER.debug("Exception unregistering MBean: ", e);
+    }
+  }
+
   NitfRenderer getNitfRenderer() {
     return new NitfRenderer();
   }
 
+  ExecutorService createExecutorService(int threads) {
+    return Executors.newFixedThreadPool(threads);
+  }
+
+  ScheduledExecutorService createRetryScheduler() {
+    return Executors.newSingleThreadScheduledExecutor();
+  }
+
   public void setCatalogFramework(CatalogFramework catalogFramework) {
     this.catalogFramework = catalogFramework;
   }
@@ -557,4 +781,8 @@ public class NitfPostIngestPlugin implements PostIngestPlugin {
   public void setNitfParserService(NitfParserService nitfParserService) {
     this.nitfParserService = nitfParserService;
   }
+
+  public void setFilterBuilder(FilterBuilder filterBuilder) {
+    this.filterBuilder = filterBuilder;
+  }
 }
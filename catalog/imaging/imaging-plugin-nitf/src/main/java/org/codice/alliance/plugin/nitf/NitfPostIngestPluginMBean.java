@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.plugin.nitf;
+
+/** Progress of the NITF thumbnail/overview/original work queue, exposed for monitoring. */
+public interface NitfPostIngestPluginMBean {
+
+  /** @return the number of metacards waiting for a worker thread. */
+  int getQueuedCount();
+
+  /** @return the number of metacards whose derivatives are being generated. */
+  int getProcessingCount();
+
+  /** @return the number of recently processed metacards whose derivatives were not stored. */
+  int getFailedCount();
+
+  /**
+   * @return the number of metacards left in the journal, including failed work that will be
+   *     attempted again on restart, or -1 if the journal could not be read.
+   */
+  int getJournalBacklog();
+
+  /**
+   * @param metacardId the id of the metacard.
+   * @return {@code QUEUED}, {@code PROCESSING}, {@code COMPLETED} or {@code FAILED}, or {@code
+   *     null} if the status of the metacard is not known.
+   */
+  String getDerivativeStatus(String metacardId);
+}
@@ -13,6 +13,7 @@
  */
 package org.codice.alliance.plugin.nitf
 
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -21,7 +22,7 @@ class NitfPostIngestPluginSpec extends Specification {
 
     def "Building the derived image filename from file title \"#ftitle\""(String ftitle, String expectedFname) {
         setup:
-        NitfPostIngestPlugin plugin = new NitfPostIngestPlugin()
+        NitfPostIngestPlugin plugin = new NitfPostIngestPlugin(Mock(ImageAdmissionController))
         def qualifier = "original"
 
         when: "building a derived image filename"
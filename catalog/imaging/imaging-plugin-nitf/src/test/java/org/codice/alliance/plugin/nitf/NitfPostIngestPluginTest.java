@@ -20,60 +20,87 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.content.operation.UpdateStorageRequest;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.impl.ResultImpl;
 import ddf.catalog.data.types.Core;
 import ddf.catalog.data.types.Media;
+import ddf.catalog.filter.FilterBuilder;
 import ddf.catalog.operation.CreateRequest;
 import ddf.catalog.operation.CreateResponse;
+import ddf.catalog.operation.QueryRequest;
 import ddf.catalog.operation.ResourceRequest;
 import ddf.catalog.operation.ResourceResponse;
 import ddf.catalog.operation.Update;
 import ddf.catalog.operation.UpdateRequest;
 import ddf.catalog.operation.UpdateResponse;
+import ddf.catalog.operation.impl.QueryResponseImpl;
 import ddf.catalog.operation.impl.ResourceResponseImpl;
 import ddf.catalog.operation.impl.UpdateImpl;
 import ddf.catalog.plugin.PluginExecutionException;
 import ddf.catalog.resource.Resource;
 import ddf.catalog.resource.impl.ResourceImpl;
+import ddf.catalog.source.IngestException;
+import java.io.File;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController.Permit;
 import org.codice.alliance.imaging.nitf.api.NitfParserService;
 import org.codice.imaging.nitf.core.image.ImageSegment;
 import org.codice.imaging.nitf.fluent.impl.NitfParserInputFlowImpl;
 import org.codice.imaging.nitf.render.NitfRenderer;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 
 public class NitfPostIngestPluginTest {
 
   private static final String GEO_NITF = "/i_3001a.ntf";
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private NitfPostIngestPlugin nitfPostIngestPlugin = null;
 
   private CatalogFramework catalogFramework = null;
 
   private NitfParserService nitfParserService = null;
 
+  private FilterBuilder filterBuilder = null;
+
+  private File journalDirectory = null;
+
   private CreateResponse createResponse = null;
 
   private CreateRequest createRequest = null;
@@ -84,7 +111,11 @@ public class NitfPostIngestPluginTest {
 
   private MetacardImpl metacard = null;
 
-  private Semaphore lock = null;
+  private ImageAdmissionController admissionController = null;
+
+  private Permit permit = null;
+
+  private ScheduledExecutorService retryScheduler = null;
 
   private Map<String, Serializable> requestProperties;
 
@@ -97,11 +128,22 @@ public class NitfPostIngestPluginTest {
 
     this.catalogFramework = mock(CatalogFramework.class);
     this.nitfParserService = mock(NitfParserService.class);
-
-    this.lock = mock(Semaphore.class);
-    this.nitfPostIngestPlugin = new NitfPostIngestPlugin(lock);
-    this.nitfPostIngestPlugin.setCatalogFramework(catalogFramework);
-    this.nitfPostIngestPlugin.setNitfParserService(nitfParserService);
+    this.filterBuilder = mock(FilterBuilder.class, RETURNS_DEEP_STUBS);
+    this.journalDirectory = temporaryFolder.newFolder("nitf-derivatives");
+
+    this.admissionController = mock(ImageAdmissionController.class);
+    this.permit = mock(Permit.class);
+    when(admissionController.acquire(anyLong())).thenReturn(permit);
+    // Retries run right away instead of after a delay
+    this.retryScheduler = mock(ScheduledExecutorService.class);
+    when(retryScheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+        .thenAnswer(
+            invocationOnMock -> {
+              invocationOnMock.<Runnable>getArgument(0).run();
+              return null;
+            });
+    this.nitfPostIngestPlugin =
+        createPlugin(MoreExecutors.newDirectExecutorService(), new NitfRenderer());
 
     this.updateStorageCaptor = ArgumentCaptor.forClass(UpdateStorageRequest.class);
     this.updateMetacardCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
@@ -124,6 +166,13 @@ public class NitfPostIngestPluginTest {
     when(updateRequest.getProperties()).thenReturn(requestProperties);
     when(catalogFramework.getLocalResource(any(ResourceRequest.class)))
         .thenAnswer(invocationOnMock -> getInputStream(GEO_NITF));
+    when(catalogFramework.query(any(QueryRequest.class)))
+        .thenAnswer(
+            invocationOnMock ->
+                new QueryResponseImpl(
+                    invocationOnMock.getArgument(0),
+                    Collections.singletonList(new ResultImpl(metacard)),
+                    1));
 
     when(nitfParserService.parseNitf(any(InputStream.class), any()))
         .thenAnswer(
@@ -138,14 +187,7 @@ public class NitfPostIngestPluginTest {
     NitfRenderer nitfRenderer = mock(NitfRenderer.class);
 
     NitfPostIngestPlugin npip =
-        new NitfPostIngestPlugin() {
-          @Override
-          NitfRenderer getNitfRenderer() {
-            return nitfRenderer;
-          }
-        };
-    npip.setCatalogFramework(catalogFramework);
-    npip.setNitfParserService(nitfParserService);
+        createPlugin(MoreExecutors.newDirectExecutorService(), nitfRenderer);
     when(nitfRenderer.render(any(ImageSegment.class))).thenThrow(RuntimeException.class);
     npip.process(createResponse);
     verify(catalogFramework, never()).update(any(UpdateStorageRequest.class));
@@ -166,8 +208,8 @@ public class NitfPostIngestPluginTest {
   public void testCreateResponse() throws Exception {
     nitfPostIngestPlugin.process(createResponse);
     validate();
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit).close();
   }
 
   @Test
@@ -176,8 +218,7 @@ public class NitfPostIngestPluginTest {
     nitfPostIngestPlugin.process(createResponse);
     assertThat(metacard.getThumbnail(), is(nullValue()));
     assertThat(metacard.getAttribute(Core.DERIVED_RESOURCE_URI), is(nullValue()));
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController, never()).acquire(anyLong());
   }
 
   @Test
@@ -192,8 +233,8 @@ public class NitfPostIngestPluginTest {
     verify(catalogFramework, times(1)).update(updateStorageCaptor.capture());
     assertThat(
         updateStorageCaptor.getValue().getContentItems().get(0).getQualifier(), is("original"));
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit).close();
   }
 
   @Test
@@ -208,8 +249,8 @@ public class NitfPostIngestPluginTest {
     verify(catalogFramework, times(1)).update(updateStorageCaptor.capture());
     assertThat(
         updateStorageCaptor.getValue().getContentItems().get(0).getQualifier(), is("overview"));
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit).close();
   }
 
   @Test
@@ -224,16 +265,16 @@ public class NitfPostIngestPluginTest {
     assertThat(
         updateMetacardCaptor.getValue().getUpdates().get(0).getValue().getThumbnail(),
         is(notNullValue()));
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit).close();
   }
 
   @Test
   public void testUpdateResponse() throws Exception {
     nitfPostIngestPlugin.process(updateResponse);
     validate();
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit).close();
   }
 
   @Test
@@ -268,14 +309,7 @@ public class NitfPostIngestPluginTest {
     NitfRenderer nitfRenderer = mock(NitfRenderer.class);
 
     NitfPostIngestPlugin npip =
-        new NitfPostIngestPlugin() {
-          @Override
-          NitfRenderer getNitfRenderer() {
-            return nitfRenderer;
-          }
-        };
-    npip.setCatalogFramework(catalogFramework);
-    npip.setNitfParserService(nitfParserService);
+        createPlugin(MoreExecutors.newDirectExecutorService(), nitfRenderer);
     when(nitfRenderer.render(any(ImageSegment.class)))
         .thenThrow(RuntimeException.class)
         .thenCallRealMethod();
@@ -296,6 +330,152 @@ public class NitfPostIngestPluginTest {
     validate();
   }
 
+  @Test
+  public void testDerivativeStatusCompleted() throws Exception {
+    nitfPostIngestPlugin.process(createResponse);
+    assertThat(nitfPostIngestPlugin.getDerivativeStatus("123456"), is("COMPLETED"));
+    assertThat(journalDirectory.list().length, is(0));
+  }
+
+  @Test
+  public void testIngestDoesNotWaitForRendering() throws Exception {
+    ExecutorService executorService = mock(ExecutorService.class);
+    NitfPostIngestPlugin npip = createPlugin(executorService, new NitfRenderer());
+
+    npip.process(createResponse);
+
+    assertThat(npip.getDerivativeStatus("123456"), is("QUEUED"));
+    assertThat(journalDirectory.list().length, is(1));
+    verify(executorService).execute(any(Runnable.class));
+    verify(catalogFramework, never()).getLocalResource(any(ResourceRequest.class));
+  }
+
+  @Test
+  public void testDerivativeProgressIsRegisteredAsMBean() throws Exception {
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName =
+        new ObjectName(NitfPostIngestPlugin.class.getName() + ":service=derivatives");
+
+    NitfPostIngestPlugin npip = createPlugin(mock(ExecutorService.class), new NitfRenderer());
+    try {
+      npip.process(createResponse);
+
+      assertThat(mBeanServer.getAttribute(objectName, "QueuedCount"), is(1));
+      assertThat(mBeanServer.getAttribute(objectName, "ProcessingCount"), is(0));
+      assertThat(mBeanServer.getAttribute(objectName, "FailedCount"), is(0));
+      assertThat(mBeanServer.getAttribute(objectName, "JournalBacklog"), is(1));
+      assertThat(
+          mBeanServer.invoke(
+              objectName,
+              "getDerivativeStatus",
+              new Object[] {"123456"},
+              new String[] {String.class.getName()}),
+          is("QUEUED"));
+    } finally {
+      npip.destroy();
+    }
+
+    assertThat(mBeanServer.isRegistered(objectName), is(false));
+  }
+
+  @Test
+  public void testPendingWorkRecoveredOnRestart() throws Exception {
+    NitfPostIngestPlugin stopped = createPlugin(mock(ExecutorService.class), new NitfRenderer());
+    stopped.process(createResponse);
+    stopped.destroy();
+
+    NitfPostIngestPlugin restarted =
+        createPlugin(MoreExecutors.newDirectExecutorService(), new NitfRenderer());
+
+    validate();
+    assertThat(restarted.getDerivativeStatus("123456"), is("COMPLETED"));
+    assertThat(journalDirectory.list().length, is(0));
+  }
+
+  @Test
+  public void testFailedUpdateRetainedForRetry() throws Exception {
+    doThrow(IngestException.class)
+        .when(catalogFramework)
+        .update(any(UpdateStorageRequest.class));
+
+    nitfPostIngestPlugin.process(createResponse);
+
+    assertThat(nitfPostIngestPlugin.getDerivativeStatus("123456"), is("FAILED"));
+    assertThat(journalDirectory.list().length, is(1));
+    verify(catalogFramework, times(DerivativeWorkQueue.MAX_ATTEMPTS))
+        .update(any(UpdateStorageRequest.class));
+  }
+
+  @Test
+  public void testMetacardNotYetVisibleIsRetried() throws Exception {
+    when(catalogFramework.query(any(QueryRequest.class)))
+        .thenReturn(new QueryResponseImpl(null, Collections.emptyList(), 0))
+        .thenAnswer(
+            invocationOnMock ->
+                new QueryResponseImpl(
+                    invocationOnMock.getArgument(0),
+                    Collections.singletonList(new ResultImpl(metacard)),
+                    1));
+
+    nitfPostIngestPlugin.process(createResponse);
+
+    validate();
+    assertThat(nitfPostIngestPlugin.getDerivativeStatus("123456"), is("COMPLETED"));
+    assertThat(journalDirectory.list().length, is(0));
+    verify(retryScheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  @Test
+  public void testDeletedMetacardSkipped() throws Exception {
+    when(catalogFramework.query(any(QueryRequest.class)))
+        .thenReturn(new QueryResponseImpl(null, Collections.emptyList(), 0));
+
+    nitfPostIngestPlugin.process(createResponse);
+
+    assertThat(nitfPostIngestPlugin.getDerivativeStatus("123456"), is("COMPLETED"));
+    assertThat(journalDirectory.list().length, is(0));
+    verify(catalogFramework, times(DerivativeWorkQueue.MAX_ATTEMPTS))
+        .query(any(QueryRequest.class));
+    verify(catalogFramework, never()).getLocalResource(any(ResourceRequest.class));
+    verify(catalogFramework, never()).update(any(UpdateStorageRequest.class));
+  }
+
+  private NitfPostIngestPlugin createPlugin(
+      ExecutorService executorService, NitfRenderer nitfRenderer) {
+    NitfPostIngestPlugin plugin =
+        new NitfPostIngestPlugin(admissionController) {
+          @Override
+          NitfRenderer getNitfRenderer() {
+            return nitfRenderer;
+          }
+
+          @Override
+          ExecutorService createExecutorService(int threads) {
+            return executorService;
+          }
+
+          @Override
+          ScheduledExecutorService createRetryScheduler() {
+            return retryScheduler;
+          }
+
+          @Override
+          boolean runAsSystem(Callable<Boolean> task) throws ExecutionException {
+            try {
+              return task.call();
+            } catch (Exception e) {
+              throw new ExecutionException(e);
+            }
+          }
+        };
+    plugin.setCatalogFramework(catalogFramework);
+    plugin.setNitfParserService(nitfParserService);
+    plugin.setFilterBuilder(filterBuilder);
+    plugin.setJournalDirectory(journalDirectory.getPath());
+    plugin.init();
+    return plugin;
+  }
+
   private void validate() throws Exception {
     verify(catalogFramework, times(1)).update(updateStorageCaptor.capture());
 
@@ -33,7 +33,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -50,10 +53,10 @@ import net.coobird.thumbnailator.Thumbnails;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController.Permit;
 import org.codice.ddf.catalog.async.data.api.internal.ProcessCreateItem;
 import org.codice.ddf.catalog.async.data.api.internal.ProcessDeleteItem;
 import org.codice.ddf.catalog.async.data.api.internal.ProcessRequest;
@@ -68,6 +71,7 @@ import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
 import org.codice.imaging.nitf.core.image.ImageSegment;
 import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.codice.imaging.nitf.fluent.impl.NitfParserInputFlowImpl;
 import org.codice.imaging.nitf.render.NitfRenderer;
 import org.slf4j.Logger;
@@ -124,17 +128,16 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
 
   private static final int ARGB_COMPONENT_COUNT = 4;
 
+  /**
+   * Image segments are rendered at full resolution, so large NITFs are skipped by default. A
+   * maximum NITF size of zero or less disables the size check.
+   */
   private static final int DEFAULT_MAX_NITF_SIZE_MB = 120;
 
   private static final int BYTES_PER_KILOBYTE = 1024;
 
   private static final int DEFAULT_FILE_BACKED_OUTPUT_STREAM_THRESHOLD = 32 * BYTES_PER_KILOBYTE;
 
-  private static final int MAX_THREAD_COUNT =
-      Integer.parseInt(System.getProperty("default.nitf.thread.count", "3"));
-
-  private Semaphore lock = new Semaphore(MAX_THREAD_COUNT, true);
-
   private volatile boolean createOverview = true;
 
   private volatile boolean storeOriginalImage = true;
@@ -143,29 +146,30 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
 
   private volatile double maxSideLength = DEFAULT_MAX_SIDE_LENGTH;
 
-  private final Semaphore available = new Semaphore(2, true);
+  private final ImageAdmissionController admissionController;
 
   private Supplier<NitfRenderer> nitfRendererSupplier;
   private Supplier<NitfParserInputFlow> nitfParserSupplier;
 
-  public NitfPostProcessPlugin() {
-    this(NitfRenderer::new, NitfParserInputFlowImpl::new);
+  private final ExecutorService executorService;
+
+  public NitfPostProcessPlugin(ImageAdmissionController admissionController) {
+    this(admissionController, NitfRenderer::new, NitfParserInputFlowImpl::new);
   }
 
   public NitfPostProcessPlugin(
+      ImageAdmissionController admissionController,
       Supplier<NitfRenderer> nitfRendererSupplier,
       Supplier<NitfParserInputFlow> nitfParserSupplier) {
+    this.admissionController = admissionController;
     this.nitfRendererSupplier = nitfRendererSupplier;
     this.nitfParserSupplier = nitfParserSupplier;
+    this.executorService =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
   }
 
-  public NitfPostProcessPlugin(
-      Semaphore lock,
-      Supplier<NitfRenderer> nitfRendererSupplier,
-      Supplier<NitfParserInputFlow> nitfParserSupplier) {
-    this.nitfRendererSupplier = nitfRendererSupplier;
-    this.nitfParserSupplier = nitfParserSupplier;
-    this.lock = lock;
+  public void destroy() {
+    executorService.shutdownNow();
   }
 
   @Override
@@ -224,12 +228,43 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
   }
 
   private void handleProcessCreateItem(List<ProcessCreateItem> processCreateItems) {
-    List<ProcessCreateItem> createItems =
-        processCreateItems
+    processCreateItems.addAll(
+        handleConcurrently(processCreateItems, this::handleProcessCreateItem));
+  }
+
+  /**
+   * Each NITF in the request is rendered on its own worker thread, so the amount of work running
+   * at once is bounded by the {@link ImageAdmissionController} rather than by the caller. The
+   * derived items are returned in the same order as the items they were derived from.
+   */
+  private <T extends ProcessResourceItem> List<T> handleConcurrently(
+      List<T> processItems, Function<T, Stream<T>> handler) {
+    if (processItems.size() < 2) {
+      return processItems.stream().flatMap(handler).collect(Collectors.toList());
+    }
+
+    List<CompletableFuture<List<T>>> futures =
+        processItems
             .stream()
-            .flatMap(this::handleProcessCreateItem)
+            .map(
+                processItem ->
+                    CompletableFuture.supplyAsync(
+                        () -> handler.apply(processItem).collect(Collectors.toList()),
+                        executorService))
             .collect(Collectors.toList());
-    processCreateItems.addAll(createItems);
+
+    List<T> derivedItems = new ArrayList<>();
+    for (CompletableFuture<List<T>> future : futures) {
+      try {
+        derivedItems.addAll(future.join());
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    return derivedItems;
   }
 
   private Stream<ProcessCreateItem> handleProcessCreateItem(ProcessCreateItem processCreateItem) {
@@ -238,26 +273,15 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     ProcessResource processResource = processCreateItem.getProcessResource();
 
     if (shouldProcess(processResource)) {
-
-      try {
-        lock.acquire();
-        try {
-          createdItems =
-              process(
-                  processCreateItem,
-                  metacard,
-                  null,
-                  processResource,
-                  constructorTriple ->
-                      new ProcessCreateItemImpl(
-                          constructorTriple.getLeft(), constructorTriple.getMiddle()));
-        } finally {
-          lock.release();
-        }
-      } catch (InterruptedException e) {
-        LOGGER.debug("Interrupt received while doing image processing.", e);
-        Thread.currentThread().interrupt();
-      }
+      createdItems =
+          process(
+              processCreateItem,
+              metacard,
+              null,
+              processResource,
+              constructorTriple ->
+                  new ProcessCreateItemImpl(
+                      constructorTriple.getLeft(), constructorTriple.getMiddle()));
     }
 
     if (createdItems == null) {
@@ -276,30 +300,35 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     try (TemporaryFileBackedOutputStream fbos =
         new TemporaryFileBackedOutputStream(DEFAULT_FILE_BACKED_OUTPUT_STREAM_THRESHOLD)) {
 
-      // TODO: 06/21/2018 oconnormi - can probably get rid of this once
-      // ProcessResourceImpl.getInputStream can be called multiple times
-      fbos.write(IOUtils.toByteArray(processResource.getInputStream()));
+      // ProcessResourceImpl.getInputStream can only be read once, so the content is streamed
+      // through a file backed buffer that spills to disk once it grows past the threshold.
+      try (InputStream inputStream = processResource.getInputStream()) {
+        IOUtils.copyLarge(inputStream, fbos);
+      }
       ByteSource byteSource = fbos.asByteSource();
-      BufferedImage renderedImage = renderImage(byteSource.openStream());
-
-      if (renderedImage != null) {
-        addThumbnailToMetacard(metacard, renderedImage);
-        processResourceItem.markMetacardAsModified();
-        if (createOverview) {
-          ProcessResource overviewProcessResource = createOverviewResource(renderedImage, metacard);
-          items.add(
-              constructor.apply(
-                  new ImmutableTriple<>(overviewProcessResource, metacard, originalMetacard)));
-        }
 
-        if (storeOriginalImage) {
-          ProcessResource originalImageProcessResource =
-              createOriginalImage(
-                  renderImageUsingOriginalDataModel(byteSource.openStream()), metacard);
-
-          items.add(
-              constructor.apply(
-                  new ImmutableTriple<>(originalImageProcessResource, metacard, originalMetacard)));
+      // Parsing all of the data reads the image data onto the heap, so the parse and the
+      // rendering are admitted together.
+      try (Permit permit = admissionController.acquire(estimateWorkingBytes(byteSource));
+          InputStream inputStream = byteSource.openStream()) {
+        NitfSegmentsFlow segmentsFlow = nitfParserSupplier.get().inputStream(inputStream).allData();
+        try {
+          NitfRenderer renderer = nitfRendererSupplier.get();
+
+          for (ImageSegment segment : getImageSegments(segmentsFlow)) {
+            if (createDerivedItems(
+                segment,
+                renderer,
+                processResourceItem,
+                metacard,
+                originalMetacard,
+                constructor,
+                items)) {
+              break;
+            }
+          }
+        } finally {
+          segmentsFlow.end();
         }
       }
     } catch (IOException | NitfFormatException | RuntimeException e) {
@@ -313,13 +342,43 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     return items;
   }
 
+  private <T extends ProcessResourceItem> boolean createDerivedItems(
+      ImageSegment segment,
+      NitfRenderer renderer,
+      T processResourceItem,
+      Metacard metacard,
+      Metacard originalMetacard,
+      Function<Triple<ProcessResource, Metacard, Metacard>, T> constructor,
+      List<T> items) {
+    BufferedImage renderedImage = render(segment, renderer::render);
+
+    if (renderedImage == null) {
+      return false;
+    }
+
+    addThumbnailToMetacard(metacard, renderedImage);
+    processResourceItem.markMetacardAsModified();
+    if (createOverview) {
+      ProcessResource overviewProcessResource = createOverviewResource(renderedImage, metacard);
+      items.add(
+          constructor.apply(
+              new ImmutableTriple<>(overviewProcessResource, metacard, originalMetacard)));
+    }
+
+    if (storeOriginalImage) {
+      ProcessResource originalImageProcessResource =
+          createOriginalImage(render(segment, renderer::renderToClosestDataModel), metacard);
+
+      items.add(
+          constructor.apply(
+              new ImmutableTriple<>(originalImageProcessResource, metacard, originalMetacard)));
+    }
+    return true;
+  }
+
   private void handleProcessUpdateItem(List<ProcessUpdateItem> processUpdateItems) {
-    List<ProcessUpdateItem> updateItems =
-        processUpdateItems
-            .stream()
-            .flatMap(this::handleProcessUpdateItem)
-            .collect(Collectors.toList());
-    processUpdateItems.addAll(updateItems);
+    processUpdateItems.addAll(
+        handleConcurrently(processUpdateItems, this::handleProcessUpdateItem));
   }
 
   private Stream<ProcessUpdateItem> handleProcessUpdateItem(ProcessUpdateItem processUpdateItem) {
@@ -329,27 +388,17 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     ProcessResource processResource = processUpdateItem.getProcessResource();
 
     if (shouldProcess(processResource)) {
-      try {
-        lock.acquire();
-        try {
-          updatedItems =
-              process(
-                  processUpdateItem,
-                  metacard,
-                  originalMetacard,
-                  processResource,
-                  constructorTriple ->
-                      new ProcessUpdateItemImpl(
-                          constructorTriple.getLeft(),
-                          constructorTriple.getMiddle(),
-                          constructorTriple.getRight()));
-        } finally {
-          lock.release();
-        }
-      } catch (InterruptedException e) {
-        LOGGER.debug("Interrupt received while doing image processing.", e);
-        Thread.currentThread().interrupt();
-      }
+      updatedItems =
+          process(
+              processUpdateItem,
+              metacard,
+              originalMetacard,
+              processResource,
+              constructorTriple ->
+                  new ProcessUpdateItemImpl(
+                      constructorTriple.getLeft(),
+                      constructorTriple.getMiddle(),
+                      constructorTriple.getRight()));
     }
     return updatedItems.stream();
   }
@@ -363,72 +412,50 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
         calculateOverviewHeight(renderedImage));
   }
 
-  private BufferedImage renderImage(InputStream inputStream)
-      throws NitfFormatException, InterruptedException {
-
-    return render(
-        inputStream,
-        input -> {
-          try {
-            return input.getRight().render(input.getLeft());
-          } catch (IOException e) {
-            LOGGER.debug("An error occurred when rendering a nitf", e.getMessage(), e);
-          }
-          return null;
-        });
-  }
-
-  private BufferedImage renderImageUsingOriginalDataModel(InputStream inputStream)
-      throws NitfFormatException, InterruptedException {
-
-    return render(
-        inputStream,
-        input -> {
-          try {
-            return input.getRight().renderToClosestDataModel(input.getLeft());
-          } catch (IOException e) {
-            LOGGER.debug("An error occurred when rendering a nitf", e.getMessage(), e);
-          }
-          return null;
-        });
+  private List<ImageSegment> getImageSegments(NitfSegmentsFlow segmentsFlow) {
+    List<ImageSegment> imageSegments = new ArrayList<>();
+    segmentsFlow.forEachImageSegment(imageSegments::add);
+    return imageSegments;
   }
 
-  private BufferedImage render(
-      InputStream inputStream,
-      Function<Pair<ImageSegment, NitfRenderer>, BufferedImage> imageSegmentFunction)
-      throws InterruptedException, NitfFormatException {
-
-    final ThreadLocal<BufferedImage> bufferedImage = new ThreadLocal<>();
-
-    if (inputStream != null) {
+  /**
+   * The whole NITF is held on the heap once its data is parsed, along with the rendering of one of
+   * its image segments. The segment sizes are read with a header only parse, which skips the image
+   * data.
+   */
+  private long estimateWorkingBytes(ByteSource byteSource) throws IOException, NitfFormatException {
+    long largestSegmentBytes = 0;
+    try (InputStream inputStream = byteSource.openStream()) {
+      NitfSegmentsFlow headerFlow = nitfParserSupplier.get().inputStream(inputStream).headerOnly();
       try {
-        available.acquire();
-        NitfRenderer renderer = nitfRendererSupplier.get();
-        NitfParserInputFlow parserInputFlow = nitfParserSupplier.get();
-
-        parserInputFlow
-            .inputStream(inputStream)
-            .allData()
-            .forEachImageSegment(
-                segment -> {
-                  if (bufferedImage.get() == null) {
-                    BufferedImage bi =
-                        imageSegmentFunction.apply(new ImmutablePair<>(segment, renderer));
-                    if (bi != null) {
-                      bufferedImage.set(bi);
-                    }
-                  }
-                })
-            .end();
+        for (ImageSegment segment : getImageSegments(headerFlow)) {
+          largestSegmentBytes = Math.max(largestSegmentBytes, estimateWorkingBytes(segment));
+        }
       } finally {
-        IOUtils.closeQuietly(inputStream);
-        available.release();
+        headerFlow.end();
       }
     }
+    return byteSource.size() + largestSegmentBytes;
+  }
 
-    BufferedImage image = bufferedImage.get();
-    bufferedImage.remove();
-    return image;
+  /**
+   * The rendered image is held while the thumbnail and overview are scaled. Storing the original
+   * adds a second rendering in the closest data model and the copy made for JPEG 2000 encoding.
+   */
+  private long estimateWorkingBytes(ImageSegment segment) {
+    long decodedBytes =
+        ImageAdmissionController.estimateDecodedBytes(
+            segment.getNumberOfColumns(), segment.getNumberOfRows());
+    return storeOriginalImage ? decodedBytes * 3 : decodedBytes;
+  }
+
+  private BufferedImage render(ImageSegment segment, ImageSegmentRenderer segmentRenderer) {
+    try {
+      return segmentRenderer.render(segment);
+    } catch (IOException e) {
+      LOGGER.debug("An error occurred when rendering a nitf", e.getMessage(), e);
+    }
+    return null;
   }
 
   private void addThumbnailToMetacard(Metacard metacard, BufferedImage bufferedImage) {
@@ -598,6 +625,11 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     return (int) Math.round(width * (maxSideLength / height));
   }
 
+  @FunctionalInterface
+  private interface ImageSegmentRenderer {
+    BufferedImage render(ImageSegment segment) throws IOException;
+  }
+
   private boolean shouldProcess(ProcessResource processResource) {
     if (!isNitfMimeType(processResource.getMimeType())) {
       LOGGER.debug(
@@ -607,11 +639,12 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
       return false;
     }
 
-    if (processResource.getSize() / BYTES_PER_MEGABYTE > maxNitfSizeMB) {
+    if (maxNitfSizeMB > 0 && processResource.getSize() / BYTES_PER_MEGABYTE > maxNitfSizeMB) {
       LOGGER.debug(
           "Skipping content item (name={}, size={} MB) because it is larger than the configured maximum NITF file size to process of {} MB",
+          processResource.getName(),
           processResource.getSize() / BYTES_PER_MEGABYTE,
-          processResource.getName());
+          maxNitfSizeMB);
       return false;
     }
     return true;
@@ -16,6 +16,7 @@ package org.codice.alliance.plugin.nitf
 import ddf.catalog.data.Attribute
 import ddf.catalog.data.Metacard
 import ddf.catalog.data.types.Core
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController
 import org.codice.ddf.catalog.async.data.api.internal.*
 import org.codice.ddf.catalog.async.data.impl.ProcessRequestImpl
 import org.codice.imaging.nitf.core.common.NitfFormatException
@@ -29,7 +30,6 @@ import spock.lang.Specification
 import spock.lang.Unroll
 
 import java.awt.image.BufferedImage
-import java.util.concurrent.Semaphore
 import java.util.function.Supplier
 
 class NitfPostProcessPluginSpec extends Specification {
@@ -67,12 +67,17 @@ class NitfPostProcessPluginSpec extends Specification {
 
     private ProcessUpdateItem processUpdateItem1
 
-    private Semaphore lock;
+    private ImageAdmissionController admissionController
+
+    private ImageAdmissionController.Permit permit
 
     def setup() {
-        lock = Mock(Semaphore)
+        permit = Mock(ImageAdmissionController.Permit)
+        admissionController = Mock(ImageAdmissionController) {
+            acquire(_) >> permit
+        }
 
-        nitfPostProcessPlugin = new NitfPostProcessPlugin(lock, {
+        nitfPostProcessPlugin = new NitfPostProcessPlugin(admissionController, {
             return Mock(NitfRenderer) {
                 final BufferedImage bufferedImage = Mock(BufferedImage)
 
@@ -146,7 +151,7 @@ class NitfPostProcessPluginSpec extends Specification {
             Supplier<NitfRenderer> nitfRendererSupplier = {
                 return  nitfRenderer
             }
-            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(nitfRendererSupplier, { return new NitfParserInputFlowImpl() })
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(admissionController, nitfRendererSupplier, { return new NitfParserInputFlowImpl() })
 
         when: "the nitf renderer encounters a runtime exception"
             ProcessRequest<ProcessCreateItem> result = plugin.processCreate(createProcessRequest)
@@ -162,7 +167,7 @@ class NitfPostProcessPluginSpec extends Specification {
             NitfParserInputFlow nitfParserInputFlow = Mock(NitfParserInputFlow)
             nitfParserInputFlow.inputStream(_ as InputStream) >> nitfParserParsingFlow
             NitfRenderer nitfRenderer = Mock(NitfRenderer)
-            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin({return nitfRenderer}, {nitfParserInputFlow})
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(admissionController, {return nitfRenderer}, {nitfParserInputFlow})
         when: "the nitf renderer encounters a nitf format exception"
             ProcessRequest<ProcessCreateItem> result = plugin.processCreate(createProcessRequest)
         then: "the plugin should return an unmodified process request"
@@ -200,8 +205,40 @@ class NitfPostProcessPluginSpec extends Specification {
             1 * processCreateItem.markMetacardAsModified()
             result == createProcessRequest
             result.processItems.size() == 3
-        1 * lock.acquire()
-        1 * lock.release()
+            1 * admissionController.acquire({it > 0}) >> permit
+            1 * permit.close()
+    }
+
+    def "parsing the image data is admitted along with the rendering"() {
+        setup:
+            long nitfBytes = new File(getClass().getResource(GEO_NITF).toURI()).length()
+        when: "a valid process create request is submitted"
+            nitfPostProcessPlugin.processCreate(createProcessRequest)
+        then: "the admitted memory covers the whole NITF and the rendered image segment"
+            1 * admissionController.acquire({it > nitfBytes}) >> permit
+            1 * permit.close()
+    }
+
+    def "handling create requests with the default size limit"() {
+        setup:
+            ProcessResource largeResource = Mock(ProcessResource) {
+                getMimeType() >> NitfPostProcessPlugin.NITF_MIME_TYPE.toString()
+                getSize() >> 121L * 1024L * 1024L
+            }
+            ProcessCreateItem largeItem = Mock(ProcessCreateItem) {
+                getMetacard() >> metacard
+                getProcessResource() >> largeResource
+            }
+            ProcessRequest<ProcessCreateItem> largeRequest = Mock(ProcessRequestImpl) {
+                getProcessItems() >> [largeItem]
+            }
+        when: "a request contains a resource larger than the default maximum size"
+            def result = nitfPostProcessPlugin.processCreate(largeRequest)
+        then: "the resource should not be rendered"
+            0 * metacard.setAttribute(_)
+            0 * admissionController.acquire(_)
+            0 * largeResource.getInputStream()
+            result.processItems.size() == 1
     }
 
     def "handling basic update requests"() {
@@ -213,8 +250,8 @@ class NitfPostProcessPluginSpec extends Specification {
             1 * processUpdateItem.markMetacardAsModified()
             result == updateProcessRequest
             result.processItems.size() == 3
-        1 * lock.acquire()
-        1 * lock.release()
+            1 * admissionController.acquire({it > 0}) >> permit
+            1 * permit.close()
     }
 
     def "handling delete requests"() {
@@ -251,6 +288,17 @@ class NitfPostProcessPluginSpec extends Specification {
             0 * metacard.setAttribute(_)
     }
 
+    def "handling create requests with the size limit disabled"() {
+        setup:
+            nitfPostProcessPlugin.setMaxNitfSizeMB(0)
+        when: "a request contains a resource and no maximum size is configured"
+            def result = nitfPostProcessPlugin.processCreate(createProcessRequest)
+        then: "the resource should be processed regardless of its size"
+            2 * metacard.setAttribute({it.name = Core.DERIVED_RESOURCE_URI; it.value != null})
+            1 * metacard.setAttribute({it.name == Core.THUMBNAIL; it.value != null})
+            result.processItems.size() == 3
+    }
+
     def "handling create requests with overview disabled"() {
         setup:
             nitfPostProcessPlugin.setCreateOverview(false)
@@ -371,6 +419,20 @@ class NitfPostProcessPluginSpec extends Specification {
             1 * processCreateItem1.markMetacardAsModified()
     }
 
+    def "derived items from multiple nitf resources are kept in request order"() {
+        setup:
+            interaction {
+                multiNitfInteractions()
+            }
+        when: "process request contains multiple nitf resources"
+            nitfPostProcessPlugin.processCreate(createProcessRequest)
+        then: "the derived items follow the order of the items they were derived from"
+            processCreateItemList.size() == 6
+            processCreateItemList[2..5]*.metacard == [metacard, metacard, metacard1, metacard1]
+            processCreateItemList[2..5]*.processResource*.qualifier ==
+                    ["overview", "original", "overview", "original"]
+    }
+
     def "handle multiple nitf resources in update requests"() {
         setup:
             interaction {
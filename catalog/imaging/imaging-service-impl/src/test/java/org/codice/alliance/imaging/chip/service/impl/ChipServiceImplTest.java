@@ -16,8 +16,6 @@ package org.codice.alliance.imaging.chip.service.impl;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verify;
 
 import com.vividsolutions.jts.geom.Polygon;
 import com.vividsolutions.jts.io.ParseException;
@@ -26,7 +24,6 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
-import java.util.concurrent.Semaphore;
 import javax.imageio.ImageIO;
 import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
 import org.codice.alliance.imaging.chip.service.api.ChipService;
@@ -45,12 +42,9 @@ public class ChipServiceImplTest {
 
   private WKTReader wktReader;
 
-  private Semaphore lock;
-
   @Before
   public void setUp() throws IOException, ParseException {
-    lock = mock(Semaphore.class);
-    this.chipService = new ChipServiceImpl(lock);
+    this.chipService = new ChipServiceImpl();
     this.inputImage = ImageIO.read(getInputStream(OVERVIEW_FILE));
 
     this.wktReader = new WKTReader();
@@ -81,8 +75,6 @@ public class ChipServiceImplTest {
     BufferedImage result = chipService.crop(inputImage, -100, -100, 100, 100);
     assertThat(result.getWidth(), is(100));
     assertThat(result.getHeight(), is(100));
-    verify(lock).acquire();
-    verify(lock).release();
   }
 
   @Test
@@ -90,8 +82,6 @@ public class ChipServiceImplTest {
     BufferedImage result = chipService.crop(inputImage, 0, 0, 10_000, 10_000);
     assertThat(result.getWidth(), is(inputImage.getWidth()));
     assertThat(result.getHeight(), is(inputImage.getHeight()));
-    verify(lock).acquire();
-    verify(lock).release();
   }
 
   @Test
@@ -103,8 +93,6 @@ public class ChipServiceImplTest {
     BufferedImage result = chipService.chip(inputImage, mainPolygon, chipPolygon);
     assertThat(result.getWidth(), is(102));
     assertThat(result.getHeight(), is(102));
-    verify(lock).acquire();
-    verify(lock).release();
   }
 
   private Polygon createPolygon(List<Vector> vectors) throws ParseException {
@@ -31,19 +31,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
 import java.util.regex.Pattern;
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.apache.camel.Exchange;
+import org.apache.camel.support.SynchronizationAdapter;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.codice.alliance.imaging.chip.service.impl.CoordinateConverter;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController.Permit;
 import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.codice.imaging.nitf.core.common.FileType;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
@@ -98,7 +104,10 @@ public class CatalogOutputAdapter {
 
   private static final int BLOCK_HEIGHT = 1024;
 
-  private Semaphore lock;
+  /** The exchange property that holds the admission permit of the images used by the exchange. */
+  static final String PERMIT_PROPERTY = "imaging-admission-permit";
+
+  private final ImageAdmissionController admissionController;
 
   /**
    * These are the SDEs that should be copied to the NITF chip. This list was assembled from
@@ -123,18 +132,21 @@ public class CatalogOutputAdapter {
 
   private static final String JPG = "jpg";
 
-  public CatalogOutputAdapter(Semaphore lock) {
-    this.lock = lock;
+  public CatalogOutputAdapter(ImageAdmissionController admissionController) {
+    this.admissionController = admissionController;
   }
 
   /**
    * @param resourceResponse a ResourceResponse object returned by CatalogFramework.
+   * @param exchange the exchange that uses the image, which holds the admitted memory until it
+   *     completes.
    * @return the requested BufferedImage.
    * @throws IOException when there's a problem reading the image from the ResourceResponse
    *     InputStream.
    */
   @SuppressWarnings("WeakerAccess")
-  public BufferedImage getImage(ResourceResponse resourceResponse) throws IOException {
+  public BufferedImage getImage(ResourceResponse resourceResponse, Exchange exchange)
+      throws IOException {
     validateArgument(resourceResponse, "resourceResponse");
     validateArgument(resourceResponse.getResource(), "resourceResponse.resource");
     BufferedImage image = null;
@@ -143,13 +155,9 @@ public class CatalogOutputAdapter {
 
       Resource resource = resourceResponse.getResource();
       try (InputStream inputStream = resource.getInputStream();
-          BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream)) {
-        lock.acquire();
-        try {
-          image = ImageIO.read(bufferedInputStream);
-        } finally {
-          lock.release();
-        }
+          BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
+          ImageInputStream imageInputStream = ImageIO.createImageInputStream(bufferedInputStream)) {
+        image = readImage(imageInputStream, exchange);
       } catch (InterruptedException e) {
         LOGGER.debug("Interrupt received while doing image processing.", e);
         Thread.currentThread().interrupt();
@@ -158,32 +166,92 @@ public class CatalogOutputAdapter {
     return image;
   }
 
+  /**
+   * Reads the image dimensions from the header so the decoded size can be admitted before the
+   * pixel data is read. The image is cropped and encoded later in the exchange, so the memory stays
+   * admitted until the exchange completes.
+   */
+  private BufferedImage readImage(ImageInputStream imageInputStream, Exchange exchange)
+      throws IOException, InterruptedException {
+    if (imageInputStream == null) {
+      return null;
+    }
+
+    Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(imageInputStream);
+    if (!imageReaders.hasNext()) {
+      return null;
+    }
+
+    ImageReader imageReader = imageReaders.next();
+    try {
+      imageReader.setInput(imageInputStream, true, true);
+      admit(
+          exchange,
+          ImageAdmissionController.estimateDecodedBytes(
+              imageReader.getWidth(0), imageReader.getHeight(0)));
+      return imageReader.read(0);
+    } finally {
+      imageReader.dispose();
+    }
+  }
+
+  /**
+   * Admits memory for the rest of the exchange. The exchange holds a single permit, which is
+   * returned to the budget once the exchange completes. When the exchange needs more memory, its
+   * permit is returned before a larger one is acquired, so that no exchange waits for memory while
+   * holding a permit.
+   *
+   * @param exchange the exchange that uses the memory.
+   * @param estimatedBytes the estimated number of heap bytes needed in addition to those already
+   *     admitted for the exchange.
+   */
+  private void admit(Exchange exchange, long estimatedBytes) throws InterruptedException {
+    Permit heldPermit = exchange.getProperty(PERMIT_PROPERTY, Permit.class);
+    long heldBytes = 0;
+    if (heldPermit == null) {
+      exchange.addOnCompletion(
+          new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange completedExchange) {
+              Permit permit = completedExchange.getProperty(PERMIT_PROPERTY, Permit.class);
+              if (permit != null) {
+                permit.close();
+              }
+            }
+          });
+    } else {
+      heldBytes = heldPermit.getBytes();
+      heldPermit.close();
+    }
+    exchange.setProperty(PERMIT_PROPERTY, admissionController.acquire(heldBytes + estimatedBytes));
+  }
+
   /**
    * @param image the BufferedImage to be converted.
+   * @param exchange the exchange that converts the image, which holds the admitted memory until it
+   *     completes.
    * @return a BinaryContent object containing the image data.
    * @throws IOException when the BufferedImage can't be written to temporary in-memory space.
    * @throws MimeTypeParseException thrown if the mime type is invalid
    */
   @SuppressWarnings("WeakerAccess")
-  public BinaryContent getBinaryContent(BufferedImage image)
+  public BinaryContent getBinaryContent(BufferedImage image, Exchange exchange)
       throws IOException, MimeTypeParseException {
     validateArgument(image, "image");
     BinaryContent binaryContent = null;
     try {
-      lock.acquire();
-      try {
-        BufferedImage rgbImage =
-            new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+      admit(
+          exchange,
+          ImageAdmissionController.estimateDecodedBytes(image.getWidth(), image.getHeight()));
+      BufferedImage rgbImage =
+          new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
 
-        Graphics2D graphics = rgbImage.createGraphics();
+      Graphics2D graphics = rgbImage.createGraphics();
 
-        graphics.drawImage(image, 0, 0, null);
+      graphics.drawImage(image, 0, 0, null);
 
-        InputStream fis = new ByteArrayInputStream(createJpg(rgbImage));
-        binaryContent = new BinaryContentImpl(fis, new MimeType(IMAGE_JPG));
-      } finally {
-        lock.release();
-      }
+      InputStream fis = new ByteArrayInputStream(createJpg(rgbImage));
+      binaryContent = new BinaryContentImpl(fis, new MimeType(IMAGE_JPG));
     } catch (InterruptedException e) {
       LOGGER.debug("Interrupt received while doing image processing.", e);
       Thread.currentThread().interrupt();
@@ -202,26 +270,18 @@ public class CatalogOutputAdapter {
 
   /**
    * @param resourceResponse resource response from the catalog framework
+   * @param exchange the exchange that uses the nitf segments, which holds the admitted memory until
+   *     it completes.
    * @return the nitf segments
    */
   @SuppressWarnings("unused")
-  public NitfSegmentsFlow getNitfSegmentsFlow(ResourceResponse resourceResponse)
-      throws NitfFormatException, IOException {
+  public NitfSegmentsFlow getNitfSegmentsFlow(ResourceResponse resourceResponse, Exchange exchange)
+      throws NitfFormatException, IOException, InterruptedException {
     notNull(resourceResponse, "resourceResponse must be non-null");
     notNull(resourceResponse.getResource(), "resourceResponse resource must be non-null");
-    NitfSegmentsFlow nitfSegmentsFlow = null;
     try (final InputStream inputStream = resourceResponse.getResource().getInputStream()) {
-      lock.acquire();
-      try {
-        nitfSegmentsFlow = getNitfSegmentsFlow(inputStream);
-      } finally {
-        lock.release();
-      }
-    } catch (InterruptedException e) {
-      LOGGER.debug("Interrupt received while doing image processing.", e);
-      Thread.currentThread().interrupt();
+      return getNitfSegmentsFlow(inputStream, exchange);
     }
-    return nitfSegmentsFlow;
   }
 
   /**
@@ -232,14 +292,18 @@ public class CatalogOutputAdapter {
     return new TemporaryFileBackedOutputStream();
   }
 
-  NitfSegmentsFlow getNitfSegmentsFlow(InputStream resourceInputStream)
-      throws NitfFormatException, IOException {
+  NitfSegmentsFlow getNitfSegmentsFlow(InputStream resourceInputStream, Exchange exchange)
+      throws NitfFormatException, IOException, InterruptedException {
     notNull(resourceInputStream, "resourceInputStream must be non-null");
 
     NitfSegmentsFlow nitfSegmentsFlow;
     try (TemporaryFileBackedOutputStream tfbos = createTemporaryFileBackedOutputStream()) {
 
-      IOUtils.copyLarge(resourceInputStream, tfbos);
+      long nitfBytes = IOUtils.copyLarge(resourceInputStream, tfbos);
+
+      // Parsing all of the data reads the image data onto the heap, where it stays until the chip
+      // has been written, so the file size is admitted for the rest of the exchange.
+      admit(exchange, nitfBytes);
 
       try (InputStream is = tfbos.asByteSource().openBufferedStream()) {
         nitfSegmentsFlow = new NitfParserInputFlowImpl().inputStream(is).allData();
@@ -271,14 +335,22 @@ public class CatalogOutputAdapter {
    * @param nitfSegmentsFlow the segments from the original nitf
    * @param sourceX the x pixel coordinates of the original nitf where the chip was extracted
    * @param sourceY the y pixel coordinates of the original nitf where the chip was extracted
+   * @param exchange the exchange that creates the nitf, which holds the admitted memory until it
+   *     completes.
    * @return a nitf file containing the chip
    */
   @SuppressWarnings("unused")
   public BinaryContent getNitfBinaryContent(
-      BufferedImage chip, NitfSegmentsFlow nitfSegmentsFlow, int sourceX, int sourceY)
+      BufferedImage chip,
+      NitfSegmentsFlow nitfSegmentsFlow,
+      int sourceX,
+      int sourceY,
+      Exchange exchange)
       throws IOException, MimeTypeParseException, NitfFormatException {
     try {
-      lock.acquire();
+      admit(
+          exchange,
+          ImageAdmissionController.estimateDecodedBytes(chip.getWidth(), chip.getHeight()));
       try {
         NitfHeader chipHeader = createChipHeader(nitfSegmentsFlow);
 
@@ -296,7 +368,6 @@ public class CatalogOutputAdapter {
 
         return nitfToBinaryContent(chipHeader, chipImageSegment);
       } finally {
-        lock.release();
         nitfSegmentsFlow.end();
       }
     } catch (InterruptedException e) {
@@ -20,9 +20,11 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyObject;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,10 +41,15 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Semaphore;
 import java.util.regex.Pattern;
 import javax.activation.MimeTypeParseException;
 import javax.imageio.ImageIO;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.commons.io.IOUtils;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController;
+import org.codice.alliance.imaging.nitf.api.ImageAdmissionController.Permit;
 import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.codice.imaging.nitf.core.DataSource;
 import org.codice.imaging.nitf.core.common.DateTime;
@@ -91,24 +98,31 @@ public class CatalogOutputAdapterTest {
 
   private CatalogOutputAdapter catalogOutputAdapter;
 
-  private Semaphore lock;
+  private ImageAdmissionController admissionController;
+
+  private Permit permit;
+
+  private Exchange exchange;
 
   @Before
-  public void setUp() throws IOException {
-    lock = mock(Semaphore.class);
-    this.catalogOutputAdapter = new CatalogOutputAdapter(lock);
+  public void setUp() throws IOException, InterruptedException {
+    admissionController = mock(ImageAdmissionController.class);
+    permit = mock(Permit.class);
+    when(admissionController.acquire(anyLong())).thenReturn(permit);
+    this.catalogOutputAdapter = new CatalogOutputAdapter(admissionController);
+    exchange = new DefaultExchange(new DefaultCamelContext());
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testGetImageNullCatalogResponse() throws IOException {
-    catalogOutputAdapter.getImage(null);
+    catalogOutputAdapter.getImage(null, exchange);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testGetImageNullResource() throws IOException {
     ResourceResponse resourceResponse = mock(ResourceResponse.class);
     when(resourceResponse.getResource()).thenReturn(null);
-    catalogOutputAdapter.getImage(resourceResponse);
+    catalogOutputAdapter.getImage(resourceResponse, exchange);
   }
 
   @Test(expected = IllegalStateException.class)
@@ -117,7 +131,7 @@ public class CatalogOutputAdapterTest {
     Resource resource = mock(Resource.class);
     when(resourceResponse.getResource()).thenReturn(resource);
     when(resource.getInputStream()).thenReturn(null);
-    catalogOutputAdapter.getImage(resourceResponse);
+    catalogOutputAdapter.getImage(resourceResponse, exchange);
   }
 
   @Test
@@ -127,17 +141,20 @@ public class CatalogOutputAdapterTest {
     Resource resource = mock(Resource.class);
     when(resourceResponse.getResource()).thenReturn(resource);
     when(resource.getInputStream()).thenReturn(is);
-    BufferedImage image = catalogOutputAdapter.getImage(resourceResponse);
+    BufferedImage image = catalogOutputAdapter.getImage(resourceResponse, exchange);
     assertThat(image, is(notNullValue()));
     assertThat(image.getWidth(), is(1024));
     assertThat(image.getHeight(), is(1024));
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(ImageAdmissionController.estimateDecodedBytes(1024, 1024));
+    verify(permit, never()).close();
+
+    completeExchange();
+    verify(permit).close();
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testGetBinaryContentNullImage() throws IOException, MimeTypeParseException {
-    catalogOutputAdapter.getBinaryContent(null);
+    catalogOutputAdapter.getBinaryContent(null, exchange);
   }
 
   @Test
@@ -150,11 +167,39 @@ public class CatalogOutputAdapterTest {
     ResourceResponse resourceResponse = mock(ResourceResponse.class);
     when(resourceResponse.getResource()).thenReturn(resource);
 
-    NitfSegmentsFlow nitfSegmentsFlow = catalogOutputAdapter.getNitfSegmentsFlow(resourceResponse);
+    NitfSegmentsFlow nitfSegmentsFlow =
+        catalogOutputAdapter.getNitfSegmentsFlow(resourceResponse, exchange);
 
     assertThat(nitfSegmentsFlow, notNullValue());
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(getResourceSize("/i_3001a.ntf"));
+    verify(permit, never()).close();
+
+    completeExchange();
+    verify(permit).close();
+  }
+
+  @Test
+  public void testExchangeHoldsOnePermit()
+      throws IOException, MimeTypeParseException, InterruptedException {
+    ResourceResponse resourceResponse = mock(ResourceResponse.class);
+    Resource resource = mock(Resource.class);
+    when(resourceResponse.getResource()).thenReturn(resource);
+    when(resource.getInputStream()).thenReturn(getInputStream(I_3001A));
+    long imageBytes = ImageAdmissionController.estimateDecodedBytes(1024, 1024);
+    Permit imagePermit = mock(Permit.class);
+    when(imagePermit.getBytes()).thenReturn(imageBytes);
+    when(admissionController.acquire(anyLong())).thenReturn(imagePermit, permit);
+
+    BufferedImage image = catalogOutputAdapter.getImage(resourceResponse, exchange);
+    catalogOutputAdapter.getBinaryContent(image, exchange);
+
+    // the image permit is returned before the permit for the image and its encoding is acquired
+    verify(imagePermit).close();
+    verify(admissionController).acquire(2 * imageBytes);
+    verify(permit, never()).close();
+
+    completeExchange();
+    verify(permit).close();
   }
 
   @Test
@@ -164,15 +209,18 @@ public class CatalogOutputAdapterTest {
     suppliedImage =
         new BufferedImage(
             suppliedImage.getWidth(), suppliedImage.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-    BinaryContent binaryContent = catalogOutputAdapter.getBinaryContent(suppliedImage);
+    BinaryContent binaryContent = catalogOutputAdapter.getBinaryContent(suppliedImage, exchange);
     assertThat(binaryContent, is(notNullValue()));
     assertThat(binaryContent.getInputStream(), is(notNullValue()));
 
     BufferedImage returnedImage = ImageIO.read(binaryContent.getInputStream());
     assertThat(returnedImage.getWidth(), is(1024));
     assertThat(returnedImage.getHeight(), is(1024));
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit, never()).close();
+
+    completeExchange();
+    verify(permit).close();
   }
 
   @Test
@@ -192,7 +240,7 @@ public class CatalogOutputAdapterTest {
         new BufferedImage(chipWidth, chipHeight, BufferedImage.TYPE_BYTE_GRAY);
 
     BinaryContent binaryContent =
-        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, 0, 0);
+        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, 0, 0, exchange);
 
     NitfSegmentsFlow chipNitfSegmentFlow =
         new NitfParserInputFlowImpl().inputStream(binaryContent.getInputStream()).allData();
@@ -224,7 +272,7 @@ public class CatalogOutputAdapterTest {
         new BufferedImage(chipWidth, chipHeight, BufferedImage.TYPE_BYTE_INDEXED);
 
     BinaryContent binaryContent =
-        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, 0, 0);
+        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, 0, 0, exchange);
 
     NitfSegmentsFlow chipNitfSegmentFlow =
         new NitfParserInputFlowImpl().inputStream(binaryContent.getInputStream()).allData();
@@ -255,7 +303,7 @@ public class CatalogOutputAdapterTest {
     BufferedImage chipImage = new BufferedImage(chipWidth, chipHeight, BufferedImage.TYPE_INT_ARGB);
 
     BinaryContent binaryContent =
-        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, 0, 0);
+        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, 0, 0, exchange);
 
     NitfSegmentsFlow chipNitfSegmentFlow =
         new NitfParserInputFlowImpl().inputStream(binaryContent.getInputStream()).allData();
@@ -316,7 +364,8 @@ public class CatalogOutputAdapterTest {
     NitfSegmentsFlow nitfSegmentsFlow = constructor.newInstance(dataSource, (Runnable) () -> {});
 
     BinaryContent binaryContent =
-        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, chipX, chipY);
+        catalogOutputAdapter.getNitfBinaryContent(
+            chipImage, nitfSegmentsFlow, chipX, chipY, exchange);
 
     NitfSegmentsFlow chipNitfSegmentFlow =
         new NitfParserInputFlowImpl().inputStream(binaryContent.getInputStream()).allData();
@@ -409,8 +458,11 @@ public class CatalogOutputAdapterTest {
               imageSegment1.getImageDateTime().getSourceString(), is(dateTime.getSourceString()));
           assertThat(imageSegment1.getImageRepresentation(), is(ImageRepresentation.RGBTRUECOLOUR));
         });
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit, never()).close();
+
+    completeExchange();
+    verify(permit).close();
   }
 
   @Test
@@ -458,7 +510,8 @@ public class CatalogOutputAdapterTest {
     NitfSegmentsFlow nitfSegmentsFlow = constructor.newInstance(dataSource, (Runnable) () -> {});
 
     BinaryContent binaryContent =
-        catalogOutputAdapter.getNitfBinaryContent(chipImage, nitfSegmentsFlow, chipX, chipY);
+        catalogOutputAdapter.getNitfBinaryContent(
+            chipImage, nitfSegmentsFlow, chipX, chipY, exchange);
 
     NitfSegmentsFlow chipNitfSegmentFlow =
         new NitfParserInputFlowImpl().inputStream(binaryContent.getInputStream()).allData();
@@ -551,8 +604,11 @@ public class CatalogOutputAdapterTest {
               imageSegment1.getImageDateTime().getSourceString(), is(dateTime.getSourceString()));
           assertThat(imageSegment1.getImageRepresentation(), is(ImageRepresentation.RGBTRUECOLOUR));
         });
-    verify(lock).acquire();
-    verify(lock).release();
+    verify(admissionController).acquire(anyLong());
+    verify(permit, never()).close();
+
+    completeExchange();
+    verify(permit).close();
   }
 
   @Test
@@ -609,13 +665,14 @@ public class CatalogOutputAdapterTest {
 
   /** Test that if the TFBOS throws an exception, the TFBOS is closed */
   @Test
-  public void testGetNitfSegmentsFlowTFBOSThrows() throws IOException, NitfFormatException {
+  public void testGetNitfSegmentsFlowTFBOSThrows()
+      throws IOException, NitfFormatException, InterruptedException {
 
     TemporaryFileBackedOutputStream tfbos = mock(TemporaryFileBackedOutputStream.class);
     doThrow(IOException.class).when(tfbos).write(anyObject(), anyInt(), anyInt());
 
     catalogOutputAdapter =
-        new CatalogOutputAdapter(new Semaphore(3, true)) {
+        new CatalogOutputAdapter(admissionController) {
           @Override
           protected TemporaryFileBackedOutputStream createTemporaryFileBackedOutputStream() {
             return tfbos;
@@ -623,7 +680,8 @@ public class CatalogOutputAdapterTest {
         };
 
     try {
-      catalogOutputAdapter.getNitfSegmentsFlow(new ByteArrayInputStream(new byte[] {(byte) 0}));
+      catalogOutputAdapter.getNitfSegmentsFlow(
+          new ByteArrayInputStream(new byte[] {(byte) 0}), exchange);
       fail("expected an exception, shouldn't reach this line");
     } catch (IOException e) {
       assertThat(e, notNullValue());
@@ -643,7 +701,7 @@ public class CatalogOutputAdapterTest {
   @SuppressWarnings("unchecked")
   @Test
   public void testGetNitfSegmentsFlowTFBOSThrowsDuringRead()
-      throws IOException, NitfFormatException {
+      throws IOException, NitfFormatException, InterruptedException {
 
     InputStream inputStream = mock(InputStream.class);
     when(inputStream.read()).thenThrow(IOException.class);
@@ -657,7 +715,7 @@ public class CatalogOutputAdapterTest {
     when(tfbos.asByteSource()).thenReturn(byteSource);
 
     catalogOutputAdapter =
-        new CatalogOutputAdapter(new Semaphore(3, true)) {
+        new CatalogOutputAdapter(admissionController) {
           @Override
           protected TemporaryFileBackedOutputStream createTemporaryFileBackedOutputStream() {
             return tfbos;
@@ -665,7 +723,8 @@ public class CatalogOutputAdapterTest {
         };
 
     try {
-      catalogOutputAdapter.getNitfSegmentsFlow(new ByteArrayInputStream(new byte[] {(byte) 0}));
+      catalogOutputAdapter.getNitfSegmentsFlow(
+          new ByteArrayInputStream(new byte[] {(byte) 0}), exchange);
       fail("expected an exception, shouldn't reach this line");
     } catch (IOException | NitfFormatException e) {
       assertThat(e, notNullValue());
@@ -678,7 +737,7 @@ public class CatalogOutputAdapterTest {
   @SuppressWarnings("unchecked")
   @Test
   public void testGetNitfSegmentsFlowTFBOSAsBytesourceThrows()
-      throws IOException, NitfFormatException {
+      throws IOException, NitfFormatException, InterruptedException {
 
     ByteSource byteSource = mock(ByteSource.class);
     when(byteSource.openBufferedStream()).thenThrow(IOException.class);
@@ -687,7 +746,7 @@ public class CatalogOutputAdapterTest {
     when(tfbos.asByteSource()).thenReturn(byteSource);
 
     catalogOutputAdapter =
-        new CatalogOutputAdapter(new Semaphore(3, true)) {
+        new CatalogOutputAdapter(admissionController) {
           @Override
           protected TemporaryFileBackedOutputStream createTemporaryFileBackedOutputStream() {
             return tfbos;
@@ -695,7 +754,8 @@ public class CatalogOutputAdapterTest {
         };
 
     try {
-      catalogOutputAdapter.getNitfSegmentsFlow(new ByteArrayInputStream(new byte[] {(byte) 0}));
+      catalogOutputAdapter.getNitfSegmentsFlow(
+          new ByteArrayInputStream(new byte[] {(byte) 0}), exchange);
       fail("expected an exception, shouldn't reach this line");
     } catch (IOException | NitfFormatException e) {
       assertThat(e, notNullValue());
@@ -843,6 +903,16 @@ public class CatalogOutputAdapterTest {
         .findFirst();
   }
 
+  private void completeExchange() {
+    exchange.handoverCompletions().forEach(synchronization -> synchronization.onComplete(exchange));
+  }
+
+  private long getResourceSize(String filename) throws IOException {
+    try (InputStream inputStream = getInputStream(filename)) {
+      return IOUtils.toByteArray(inputStream).length;
+    }
+  }
+
   private InputStream getInputStream(String filename) {
     assertNotNull("Test file missing", getClass().getResource(filename));
     return getClass().getResourceAsStream(filename);
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.common;
+
+import ddf.catalog.data.AttributeDescriptor;
+import ddf.catalog.data.impl.BasicTypes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.codice.alliance.transformer.nitf.ExtNitfUtility;
+import org.codice.imaging.nitf.core.tre.TreGroup;
+
+/**
+ * A {@link NitfAttribute} with the metacard attribute names it sets, and the attributes of its
+ * indexed TRE groups, resolved ahead of time so that they are not looked up for every segment.
+ *
+ * @param <T> the type the attribute value is read from.
+ */
+public class AttributeExtractor<T> {
+
+  private final NitfAttribute<T> attribute;
+
+  private final boolean extAttribute;
+
+  private final boolean stringType;
+
+  private final List<String> attributeNames = new ArrayList<>();
+
+  private final List<String> taxonomyAttributeNames = new ArrayList<>();
+
+  private final List<String> extAttributeNames = new ArrayList<>();
+
+  private final List<AttributeExtractor<TreGroup>> indexedExtractors;
+
+  private AttributeExtractor(NitfAttribute<T> attribute) {
+    this.attribute = attribute;
+    this.extAttribute = ExtNitfUtility.isExtAttribute(attribute);
+
+    boolean hasStringType = false;
+    Set<AttributeDescriptor> descriptors = attribute.getAttributeDescriptors();
+    if (descriptors != null) {
+      for (AttributeDescriptor descriptor : descriptors) {
+        hasStringType |= descriptor.getType().equals(BasicTypes.STRING_TYPE);
+        attributeNames.add(descriptor.getName());
+        if (descriptor.getName().contains(ExtNitfUtility.EXT_NITF_PREFIX)) {
+          extAttributeNames.add(descriptor.getName());
+        } else {
+          taxonomyAttributeNames.add(descriptor.getName());
+        }
+      }
+    }
+    this.stringType = hasStringType;
+
+    List<NitfAttribute<TreGroup>> indexedAttributes = null;
+    if (attribute instanceof NitfAttributeImpl) {
+      indexedAttributes = ((NitfAttributeImpl<T>) attribute).getIndexedAttributes();
+    }
+    this.indexedExtractors =
+        indexedAttributes == null ? Collections.emptyList() : compile(indexedAttributes);
+  }
+
+  public static <T> AttributeExtractor<T> of(NitfAttribute<T> attribute) {
+    return new AttributeExtractor<>(attribute);
+  }
+
+  public static <T> List<AttributeExtractor<T>> compile(
+      List<? extends NitfAttribute<T>> attributes) {
+    List<AttributeExtractor<T>> extractors = new ArrayList<>(attributes.size());
+    attributes.forEach(attribute -> extractors.add(of(attribute)));
+    return Collections.unmodifiableList(extractors);
+  }
+
+  public NitfAttribute<T> getAttribute() {
+    return attribute;
+  }
+
+  /** @return true when the attribute is not part of the taxonomy. */
+  public boolean isExtAttribute() {
+    return extAttribute;
+  }
+
+  /** @return true when any of the metacard attributes is a string, so blank values are dropped. */
+  public boolean isStringType() {
+    return stringType;
+  }
+
+  /** @return false when the attribute does not belong to a metacard type. */
+  public boolean hasAttributeNames() {
+    return !attributeNames.isEmpty();
+  }
+
+  /** @return the names of all of the metacard attributes set from this attribute. */
+  public List<String> getAttributeNames() {
+    return attributeNames;
+  }
+
+  /** @return the names of the taxonomy metacard attributes set from the attribute value. */
+  public List<String> getTaxonomyAttributeNames() {
+    return taxonomyAttributeNames;
+  }
+
+  /** @return the names of the {@code ext.nitf} metacard attributes set from the ext value. */
+  public List<String> getExtAttributeNames() {
+    return extAttributeNames;
+  }
+
+  /** @return the extractors for the attributes of the TRE groups indexed by this attribute. */
+  public List<AttributeExtractor<TreGroup>> getIndexedExtractors() {
+    return indexedExtractors;
+  }
+}
@@ -14,6 +14,7 @@
 package org.codice.alliance.transformer.nitf.common;
 
 import ddf.catalog.data.Metacard;
+import java.util.List;
 import org.codice.imaging.nitf.core.header.NitfHeader;
 import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 
@@ -21,6 +22,9 @@ public class NitfHeaderTransformer extends SegmentHandler {
 
   private static final String NULL_ARGUMENT_MESSAGE = "Cannot transform null input.";
 
+  private final List<AttributeExtractor<NitfHeader>> headerExtractors =
+      AttributeExtractor.compile(NitfHeaderAttribute.getAttributes());
+
   public NitfSegmentsFlow transform(NitfSegmentsFlow nitfSegmentsFlow, Metacard metacard) {
     if (nitfSegmentsFlow == null) {
       throw new IllegalArgumentException(NULL_ARGUMENT_MESSAGE);
@@ -31,7 +35,7 @@ public class NitfHeaderTransformer extends SegmentHandler {
   }
 
   private void handleNitfHeader(Metacard metacard, NitfHeader header) {
-    handleSegmentHeader(metacard, header, NitfHeaderAttribute.getAttributes());
+    extractAttributes(metacard, header, headerExtractors);
     handleTres(metacard, header);
   }
 }
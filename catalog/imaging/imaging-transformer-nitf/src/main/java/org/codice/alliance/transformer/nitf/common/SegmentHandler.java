@@ -14,18 +14,17 @@
 package org.codice.alliance.transformer.nitf.common;
 
 import ddf.catalog.data.Attribute;
-import ddf.catalog.data.AttributeDescriptor;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
-import ddf.catalog.data.impl.BasicTypes;
+import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.data.types.Validation;
 import java.io.Serializable;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
-import org.codice.alliance.transformer.nitf.ExtNitfUtility;
 import org.codice.alliance.transformer.nitf.NitfAttributeTransformException;
 import org.codice.imaging.nitf.core.common.TaggedRecordExtensionHandler;
 import org.codice.imaging.nitf.core.tre.Tre;
@@ -37,42 +36,52 @@ public class SegmentHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentHandler.class);
 
-  protected <T> void handleSegmentHeader(
-      Metacard metacard, T segment, List<NitfAttribute<T>> attributes) {
-    attributes.forEach(attribute -> handleValue(metacard, attribute, segment));
+  /** The extractors for each supported TRE, keyed by the TRE tag. */
+  private final Map<String, List<AttributeExtractor<Tre>>> treExtractors = new HashMap<>();
+
+  public SegmentHandler() {
+    for (TreDescriptor treDescriptor : TreDescriptor.values()) {
+      treExtractors.put(
+          treDescriptor.name(), AttributeExtractor.compile(treDescriptor.getValues()));
+    }
   }
 
-  protected <T> void handleSegmentHeader(Metacard metacard, T segment, NitfAttribute[] attributes) {
-    handleSegmentHeader(metacard, segment, Arrays.asList(attributes));
+  /**
+   * Sets the metacard attributes for a segment using extractors that were compiled once with
+   * {@link AttributeExtractor#compile(List)}.
+   */
+  protected <T> void extractAttributes(
+      Metacard metacard, T segment, List<AttributeExtractor<T>> extractors) {
+    extractors.forEach(extractor -> handleValue(metacard, extractor, segment));
   }
 
+  /** Only the TREs present in the segment are visited, and each is mapped by its tag. */
   protected void handleTres(
       Metacard metacard, TaggedRecordExtensionHandler taggedRecordextensionHandler) {
     List<Tre> tres = taggedRecordextensionHandler.getTREsRawStructure().getTREs();
 
-    tres.forEach(
-        tre ->
-            Optional.ofNullable(TreDescriptor.forName(tre.getName().trim()))
-                .ifPresent(treDescriptor -> handleTre(metacard, tre, treDescriptor.getValues())));
-  }
-
-  private <T> void handleTre(Metacard metacard, Tre tre, List<NitfAttribute<T>> treValues) {
-    treValues.forEach(attribute -> handleTreValues(metacard, attribute, tre));
+    for (Tre tre : tres) {
+      List<AttributeExtractor<Tre>> extractors = treExtractors.get(tre.getName().trim());
+      if (extractors != null) {
+        extractors.forEach(extractor -> handleTreValues(metacard, extractor, tre));
+      }
+    }
   }
 
-  private void handleTreValues(Metacard metacard, NitfAttribute attribute, Tre tre) {
-    NitfAttributeImpl treAttribute = (NitfAttributeImpl) attribute;
-    List<NitfAttribute<TreGroup>> indexedAttributes = treAttribute.getIndexedAttributes();
-    if (indexedAttributes != null && !indexedAttributes.isEmpty()) {
-      List<TreGroup> treGroups = TreUtility.getTreGroups(tre, attribute.getShortName());
+  private void handleTreValues(Metacard metacard, AttributeExtractor<Tre> extractor, Tre tre) {
+    List<AttributeExtractor<TreGroup>> indexedExtractors = extractor.getIndexedExtractors();
+    if (!indexedExtractors.isEmpty()) {
+      List<TreGroup> treGroups =
+          TreUtility.getTreGroups(tre, extractor.getAttribute().getShortName());
       if (treGroups != null) {
-        treGroups.forEach(treGroup -> handleSegmentHeader(metacard, treGroup, indexedAttributes));
+        treGroups.forEach(treGroup -> extractAttributes(metacard, treGroup, indexedExtractors));
       }
     }
-    handleValue(metacard, attribute, tre);
+    handleValue(metacard, extractor, tre);
   }
 
-  private <T> void handleValue(Metacard metacard, NitfAttribute attribute, T segment) {
+  private <T> void handleValue(Metacard metacard, AttributeExtractor<T> extractor, T segment) {
+    NitfAttribute<T> attribute = extractor.getAttribute();
     Function<T, Serializable> accessor = attribute.getAccessorFunction();
 
     Serializable value;
@@ -85,8 +94,8 @@ public class SegmentHandler {
           metacard.getId(),
           e);
 
-      if (!ExtNitfUtility.isExtAttribute(attribute)) {
-        handleBadAttribute(metacard, attribute, e.getOriginalValue());
+      if (!extractor.isExtAttribute()) {
+        handleBadAttribute(metacard, extractor, e.getOriginalValue());
       }
       return;
     }
@@ -94,48 +103,42 @@ public class SegmentHandler {
     Function<T, Serializable> extAccessor = attribute.getExtAccessorFunction();
     Serializable extValue = extAccessor.apply(segment);
 
-    Set<AttributeDescriptor> descriptors = attribute.getAttributeDescriptors();
-
-    if (descriptors == null) {
+    if (!extractor.hasAttributeNames()) {
       LOGGER.debug(
           "Could not set metacard attribute {} since it does not belong to this metacard type.",
           attribute.getLongName());
       return;
     }
 
-    for (AttributeDescriptor descriptor : descriptors) {
-      if (descriptor.getType().equals(BasicTypes.STRING_TYPE)) {
-        if (value != null && value.toString().length() == 0) {
-          value = null;
-        }
-        if (extValue != null && extValue.toString().length() == 0) {
-          extValue = null;
-        }
+    if (extractor.isStringType()) {
+      if (value != null && value.toString().length() == 0) {
+        value = null;
+      }
+      if (extValue != null && extValue.toString().length() == 0) {
+        extValue = null;
       }
     }
 
-    for (AttributeDescriptor descriptor : descriptors) {
-      if (descriptor.getName().contains(ExtNitfUtility.EXT_NITF_PREFIX)) {
-        if (extValue != null) {
-          setMetacardAttribute(metacard, descriptor.getName(), extValue);
-        }
-      } else {
-        if (value != null) {
-          setMetacardAttribute(metacard, descriptor.getName(), value);
-        }
+    if (extValue != null) {
+      for (String attributeName : extractor.getExtAttributeNames()) {
+        setMetacardAttribute(metacard, attributeName, extValue);
+      }
+    }
+
+    if (value != null) {
+      for (String attributeName : extractor.getTaxonomyAttributeNames()) {
+        setMetacardAttribute(metacard, attributeName, value);
       }
     }
   }
 
   private void handleBadAttribute(
-      Metacard metacard, NitfAttribute attribute, Serializable originalValue) {
-    Set<AttributeDescriptor> attributeDescriptors = attribute.getAttributeDescriptors();
-
-    for (AttributeDescriptor descriptor : attributeDescriptors) {
-      setMetacardAttribute(metacard, descriptor.getName(), originalValue);
+      Metacard metacard, AttributeExtractor<?> extractor, Serializable originalValue) {
+    for (String attributeName : extractor.getAttributeNames()) {
+      setMetacardAttribute(metacard, attributeName, originalValue);
     }
 
-    attachValidationWarning(metacard, attribute);
+    attachValidationWarning(metacard, extractor.getAttribute());
   }
 
   /**
@@ -152,6 +155,51 @@ public class SegmentHandler {
     setMetacardAttribute(metacard, Validation.VALIDATION_WARNINGS, warningMessage);
   }
 
+  /**
+   * A metacard that collects the attributes set while handling a single segment, so that segments
+   * can be handled on separate threads and their attributes added to the real metacard afterwards.
+   */
+  protected static class SegmentAttributes extends MetacardImpl {
+
+    private final String metacardId;
+
+    private final Set<String> attributeNames = new LinkedHashSet<>();
+
+    public SegmentAttributes(String metacardId) {
+      this.metacardId = metacardId;
+    }
+
+    @Override
+    public String getId() {
+      return metacardId;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+      attributeNames.add(attribute.getName());
+      super.setAttribute(attribute);
+    }
+
+    /** Adds the collected attribute values after any values the metacard already has. */
+    public void addTo(Metacard metacard) {
+      for (String attributeName : attributeNames) {
+        Attribute attribute = getAttribute(attributeName);
+        if (attribute == null) {
+          continue;
+        }
+
+        Attribute currentAttribute = metacard.getAttribute(attributeName);
+        if (currentAttribute == null) {
+          metacard.setAttribute(new AttributeImpl(attribute));
+        } else {
+          AttributeImpl newAttribute = new AttributeImpl(currentAttribute);
+          attribute.getValues().forEach(newAttribute::addValue);
+          metacard.setAttribute(newAttribute);
+        }
+      }
+    }
+  }
+
   private void setMetacardAttribute(Metacard metacard, String attributeName, Serializable value) {
     Attribute currentAttribute = metacard.getAttribute(attributeName);
 
@@ -24,15 +24,24 @@ import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.types.Core;
 import ddf.catalog.data.types.constants.core.DataType;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.apache.commons.lang3.StringUtils;
 import org.codice.alliance.catalog.core.api.types.Isr;
 import org.codice.alliance.transformer.nitf.NitfAttributeConverters;
+import org.codice.alliance.transformer.nitf.common.AttributeExtractor;
 import org.codice.alliance.transformer.nitf.common.SegmentHandler;
+import org.codice.imaging.nitf.core.graphic.GraphicSegment;
 import org.codice.imaging.nitf.core.image.ImageCoordinates;
 import org.codice.imaging.nitf.core.image.ImageCoordinatesRepresentation;
 import org.codice.imaging.nitf.core.image.ImageSegment;
+import org.codice.imaging.nitf.core.label.LabelSegment;
+import org.codice.imaging.nitf.core.symbol.SymbolSegment;
+import org.codice.imaging.nitf.core.text.TextSegment;
 import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +59,27 @@ public class NitfImageTransformer extends SegmentHandler {
   private static final String SETTING_THE_METACARD_ATTRIBUTE_TO =
       "Setting the {} metacard attribute to {}.";
 
+  private final List<AttributeExtractor<ImageSegment>> imageExtractors =
+      AttributeExtractor.compile(ImageAttribute.getAttributes());
+
+  private final List<AttributeExtractor<GraphicSegment>> graphicExtractors =
+      AttributeExtractor.compile(Arrays.asList(GraphicAttribute.values()));
+
+  private final List<AttributeExtractor<TextSegment>> textExtractors =
+      AttributeExtractor.compile(Arrays.asList(TextAttribute.values()));
+
+  private final List<AttributeExtractor<SymbolSegment>> symbolExtractors =
+      AttributeExtractor.compile(Arrays.asList(SymbolAttribute.values()));
+
+  private final List<AttributeExtractor<LabelSegment>> labelExtractors =
+      AttributeExtractor.compile(Arrays.asList(LabelAttribute.values()));
+
+  private final ExecutorService segmentExecutor;
+
+  public NitfImageTransformer(ExecutorService segmentExecutor) {
+    this.segmentExecutor = segmentExecutor;
+  }
+
   public Metacard transform(NitfSegmentsFlow nitfSegmentsFlow, Metacard metacard) {
 
     validateArgument(nitfSegmentsFlow, "nitfSegmentsFlow");
@@ -68,18 +98,16 @@ public class NitfImageTransformer extends SegmentHandler {
     List<Polygon> polygonList = new ArrayList<>();
     List<Date> imageDateAndTimeList = new ArrayList<>();
 
+    List<ImageSegment> imageSegments = new ArrayList<>();
+    nitfSegmentsFlow.forEachImageSegment(imageSegments::add);
+    handleImageSegments(metacard, imageSegments, polygonList, imageDateAndTimeList);
+
     nitfSegmentsFlow
-        .forEachImageSegment(
-            segment ->
-                handleImageSegmentHeader(metacard, segment, polygonList, imageDateAndTimeList))
         .forEachGraphicSegment(
-            segment -> handleSegmentHeader(metacard, segment, GraphicAttribute.values()))
-        .forEachTextSegment(
-            segment -> handleSegmentHeader(metacard, segment, TextAttribute.values()))
-        .forEachSymbolSegment(
-            segment -> handleSegmentHeader(metacard, segment, SymbolAttribute.values()))
-        .forEachLabelSegment(
-            segment -> handleSegmentHeader(metacard, segment, LabelAttribute.values()))
+            segment -> extractAttributes(metacard, segment, graphicExtractors))
+        .forEachTextSegment(segment -> extractAttributes(metacard, segment, textExtractors))
+        .forEachSymbolSegment(segment -> extractAttributes(metacard, segment, symbolExtractors))
+        .forEachLabelSegment(segment -> extractAttributes(metacard, segment, labelExtractors))
         .end();
 
     // Set GEOGRAPHY from discovered polygons
@@ -111,20 +139,68 @@ public class NitfImageTransformer extends SegmentHandler {
     }
   }
 
-  private void handleImageSegmentHeader(
+  /**
+   * The image segments do not depend on each other, so the header and TRE attributes of a NITF
+   * with several image segments are extracted on the segment executor and then added to the
+   * metacard in segment order.
+   */
+  private void handleImageSegments(
       Metacard metacard,
-      ImageSegment imagesegmentHeader,
+      List<ImageSegment> imageSegments,
       List<Polygon> polygons,
       List<Date> imageDateAndTimeList) {
+    List<SegmentAttributes> segmentAttributes = new ArrayList<>(imageSegments.size());
+
+    if (imageSegments.size() > 1) {
+      List<Future<SegmentAttributes>> futures = new ArrayList<>(imageSegments.size());
+      for (ImageSegment segment : imageSegments) {
+        futures.add(
+            segmentExecutor.submit(() -> handleImageSegmentHeader(metacard.getId(), segment)));
+      }
+      for (Future<SegmentAttributes> future : futures) {
+        segmentAttributes.add(getSegmentAttributes(future, futures));
+      }
+    } else {
+      for (ImageSegment segment : imageSegments) {
+        segmentAttributes.add(handleImageSegmentHeader(metacard.getId(), segment));
+      }
+    }
 
-    handleSegmentHeader(metacard, imagesegmentHeader, ImageAttribute.getAttributes());
+    for (int i = 0; i < imageSegments.size(); i++) {
+      ImageSegment imagesegmentHeader = imageSegments.get(i);
+      segmentAttributes.get(i).addTo(metacard);
+
+      // custom handling of image header fields
+      handleGeometry(imagesegmentHeader, polygons);
+      handleComments(metacard, imagesegmentHeader.getImageComments());
+      imageDateAndTimeList.add(
+          NitfAttributeConverters.nitfDate(imagesegmentHeader.getImageDateTime()));
+    }
+  }
+
+  private SegmentAttributes getSegmentAttributes(
+      Future<SegmentAttributes> future, List<Future<SegmentAttributes>> futures) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      futures.forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while extracting the image segments.", e);
+    } catch (ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Unable to extract an image segment.", e.getCause());
+    }
+  }
 
-    // custom handling of image header fields
-    handleGeometry(imagesegmentHeader, polygons);
-    handleComments(metacard, imagesegmentHeader.getImageComments());
-    handleTres(metacard, imagesegmentHeader);
-    imageDateAndTimeList.add(
-        NitfAttributeConverters.nitfDate(imagesegmentHeader.getImageDateTime()));
+  private SegmentAttributes handleImageSegmentHeader(
+      String metacardId, ImageSegment imagesegmentHeader) {
+    SegmentAttributes segmentAttributes = new SegmentAttributes(metacardId);
+    extractAttributes(segmentAttributes, imagesegmentHeader, imageExtractors);
+    handleTres(segmentAttributes, imagesegmentHeader);
+    return segmentAttributes;
   }
 
   protected void handleGeometry(ImageSegment imageSegmentHeader, List<Polygon> polygons) {
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.common;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import org.codice.imaging.nitf.core.tre.Tre;
+import org.codice.imaging.nitf.core.tre.TreGroup;
+import org.junit.Test;
+
+public class AttributeExtractorTest {
+
+  @Test
+  public void testExtAttributeNames() {
+    AttributeExtractor<Tre> extractor = AttributeExtractor.of(PiaprdAttribute.ACCESS_ID_ATTRIBUTE);
+
+    assertThat(extractor.isExtAttribute(), is(true));
+    assertThat(extractor.isStringType(), is(true));
+    assertThat(extractor.hasAttributeNames(), is(true));
+    assertThat(extractor.getAttributeNames(), contains(PiaprdAttribute.ACCESS_ID));
+    assertThat(extractor.getExtAttributeNames(), contains(PiaprdAttribute.ACCESS_ID));
+    assertThat(extractor.getTaxonomyAttributeNames(), is(empty()));
+    assertThat(extractor.getIndexedExtractors(), is(empty()));
+  }
+
+  @Test
+  public void testIndexedExtractors() {
+    AttributeExtractor<Tre> extractor = AttributeExtractor.of(PiaprdAttribute.KEYWORD_ATTRIBUTE);
+
+    List<AttributeExtractor<TreGroup>> indexedExtractors = extractor.getIndexedExtractors();
+    assertThat(indexedExtractors.size(), is(IndexedPiaprdAttribute.getAttributes().size()));
+    for (int i = 0; i < indexedExtractors.size(); i++) {
+      assertThat(
+          indexedExtractors.get(i).getAttribute(),
+          is(IndexedPiaprdAttribute.getAttributes().get(i)));
+    }
+  }
+
+  @Test
+  public void testCompileKeepsAttributeOrder() {
+    List<AttributeExtractor<Tre>> extractors =
+        AttributeExtractor.compile(PiaprdAttribute.getAttributes());
+
+    assertThat(extractors.size(), is(PiaprdAttribute.getAttributes().size()));
+    for (int i = 0; i < extractors.size(); i++) {
+      assertThat(extractors.get(i).getAttribute(), is(PiaprdAttribute.getAttributes().get(i)));
+    }
+  }
+
+  @Test
+  public void testTreDescriptorForName() {
+    assertThat(TreDescriptor.forName("PIAPRD"), is(TreDescriptor.PIAPRD));
+    assertThat(TreDescriptor.forName("UNKNOWN"), is(nullValue()));
+  }
+}
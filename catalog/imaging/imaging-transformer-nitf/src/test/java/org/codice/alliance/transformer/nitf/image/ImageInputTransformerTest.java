@@ -44,6 +44,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -79,6 +81,7 @@ import org.codice.imaging.nitf.fluent.NitfCreationFlow;
 import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.codice.imaging.nitf.fluent.impl.NitfCreationFlowImpl;
 import org.codice.imaging.nitf.fluent.impl.NitfParserInputFlowImpl;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -88,6 +91,8 @@ public class ImageInputTransformerTest {
 
   private static final String TEST_CLASSIFICATION_SYSTEM = "US";
 
+  private ExecutorService segmentExecutor = null;
+
   private NitfImageTransformer transformer = null;
 
   private NitfHeaderTransformer headerTransformer = null;
@@ -96,7 +101,8 @@ public class ImageInputTransformerTest {
 
   @Before
   public void createTransformer() {
-    transformer = new NitfImageTransformer();
+    segmentExecutor = Executors.newFixedThreadPool(2);
+    transformer = new NitfImageTransformer(segmentExecutor);
 
     metacardFactory = new MetacardFactory();
     metacardFactory.setMetacardType(new ImageMetacardType());
@@ -107,6 +113,11 @@ public class ImageInputTransformerTest {
         TEST_CLASSIFICATION_SYSTEM, Collections.singletonList("USA"));
   }
 
+  @After
+  public void shutdownExecutor() {
+    segmentExecutor.shutdownNow();
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testNullNitfSegmentsFlow() {
     transformer.transform(null, new MetacardImpl());
@@ -220,6 +231,62 @@ public class ImageInputTransformerTest {
     return assertMap;
   }
 
+  @Test
+  public void testMultipleImageSegmentsAddedInSegmentOrder()
+      throws IOException, NitfFormatException {
+    List<String> missionNumbers = Arrays.asList("M001", "M002", "M003", "M004");
+    File nitfFile = File.createTempFile("nitf-", ".ntf");
+    try {
+      NitfCreationFlow nitfCreationFlow =
+          new NitfCreationFlowImpl().fileHeader(TreUtilityTest::createFileHeader);
+      for (String missionNumber : missionNumbers) {
+        ImageSegment imageSegment = createImageSegment();
+        imageSegment.getTREsRawStructure().add(createAimidb(missionNumber));
+        nitfCreationFlow.imageSegment(() -> imageSegment);
+      }
+      nitfCreationFlow.write(nitfFile.getAbsolutePath());
+
+      try (InputStream inputStream = new FileInputStream(nitfFile)) {
+        Metacard metacard = metacardFactory.createMetacard("multipleSegmentsTest");
+        NitfSegmentsFlow nitfSegmentsFlow =
+            new NitfParserInputFlowImpl().inputStream(inputStream).headerOnly();
+        headerTransformer.transform(nitfSegmentsFlow, metacard);
+        transformer.transform(nitfSegmentsFlow, metacard);
+
+        assertThat(
+            metacard
+                .getAttribute(AimidbAttribute.MISSION_NUMBER_ATTRIBUTE.getLongName())
+                .getValues(),
+            is(missionNumbers));
+      }
+    } finally {
+      nitfFile.delete();
+    }
+  }
+
+  private static Tre createAimidb(String missionNumber) {
+    Tre aimidb = TreFactory.getDefault("AIMIDB", TreSource.ImageExtendedSubheaderData);
+    aimidb.add(new TreEntryImpl("ACQUISITION_DATE", "20161013121212", "string"));
+    aimidb.add(new TreEntryImpl("MISSION_NO", missionNumber, "string"));
+    aimidb.add(new TreEntryImpl("MISSION_IDENTIFICATION", "NOT AVAIL.", "string"));
+    aimidb.add(new TreEntryImpl("FLIGHT_NO", "01", "string"));
+    aimidb.add(new TreEntryImpl("OP_NUM", "001", "UINT"));
+    aimidb.add(new TreEntryImpl("CURRENT_SEGMENT", "AA", "string"));
+    aimidb.add(new TreEntryImpl("REPRO_NUM", "01", "UINT"));
+    aimidb.add(new TreEntryImpl("REPLAY", "000", "string"));
+    aimidb.add(new TreEntryImpl("RESERVED_1", " ", "string"));
+    aimidb.add(new TreEntryImpl("START_TILE_COLUMN", "001", "UINT"));
+    aimidb.add(new TreEntryImpl("START_TILE_ROW", "00001", "UINT"));
+    aimidb.add(new TreEntryImpl("END_SEGMENT", "AA", "string"));
+    aimidb.add(new TreEntryImpl("END_TILE_COLUMN", "001", "UINT"));
+    aimidb.add(new TreEntryImpl("END_TILE_ROW", "00001", "UINT"));
+    aimidb.add(new TreEntryImpl("COUNTRY", "US", "string"));
+    aimidb.add(new TreEntryImpl("RESERVED_2", "    ", "string"));
+    aimidb.add(new TreEntryImpl("LOCATION", "4559N23345W", "string"));
+    aimidb.add(new TreEntryImpl("RESERVED_3", "             ", "string"));
+    return aimidb;
+  }
+
   @Test
   public void testAimidb() throws IOException, NitfFormatException {
     File nitfFile = File.createTempFile("nitf-", ".ntf");
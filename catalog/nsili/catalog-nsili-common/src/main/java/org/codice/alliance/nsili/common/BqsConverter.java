@@ -72,15 +72,27 @@ public class BqsConverter {
 
   private boolean removeSourceLibrary;
 
+  private BqsFilterCache filterCache;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(BqsConverter.class);
 
   public BqsConverter(FilterBuilder filterBuilder, boolean removeSourceLibrary) {
+    this(filterBuilder, removeSourceLibrary, null);
+  }
+
+  /**
+   * @param filterCache the filters of queries converted before, or null to convert every query.
+   *     The cached filters must have been built by the same filter builder.
+   */
+  public BqsConverter(
+      FilterBuilder filterBuilder, boolean removeSourceLibrary, BqsFilterCache filterCache) {
     if (filterBuilder == null) {
       throw new IllegalArgumentException("FilterBuilder must be set");
     }
 
     this.removeSourceLibrary = removeSourceLibrary;
     this.filterBuilder = filterBuilder;
+    this.filterCache = filterCache;
   }
 
   public Filter convertBQSToDDF(Query query) {
@@ -93,6 +105,21 @@ public class BqsConverter {
 
     LOGGER.debug("Original Query: {}", query);
 
+    if (filterCache == null) {
+      return parse(query);
+    }
+
+    Filter filter = filterCache.get(query, removeSourceLibrary);
+    if (filter != null) {
+      LOGGER.debug("Cached Query: {}", filter);
+    } else {
+      filter = parse(query);
+      filterCache.put(query, removeSourceLibrary, filter);
+    }
+    return filter;
+  }
+
+  private Filter parse(String query) {
     ANTLRInputStream inputStream = new ANTLRInputStream(query);
     BqsLexer lex = new BqsLexer(inputStream); // transforms characters into tokens
 
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.opengis.filter.Filter;
+
+/**
+ * Filters converted from BQS queries, so that clients sending the same query again do not have the
+ * query parsed again. Filters are cached by the query text and by whether the source library is
+ * removed from the query, since that changes the filter. The least recently used filters are
+ * removed once the cache is full.
+ *
+ * <p>Instances are thread safe and may be shared by the converters of a library. The cached
+ * filters are not modified by the code that uses them, so they are shared as well.
+ */
+public class BqsFilterCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  private final Cache<String, Filter> filters;
+
+  public BqsFilterCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /** @param maxSize the maximum number of cached filters. */
+  public BqsFilterCache(int maxSize) {
+    filters = CacheBuilder.newBuilder().maximumSize(Math.max(0, maxSize)).recordStats().build();
+  }
+
+  /**
+   * @param bqsQuery the trimmed BQS query.
+   * @param removeSourceLibrary whether the source library was removed from the query.
+   * @return the cached filter, or null if the query has not been converted.
+   */
+  public Filter get(String bqsQuery, boolean removeSourceLibrary) {
+    return filters.getIfPresent(key(bqsQuery, removeSourceLibrary));
+  }
+
+  public void put(String bqsQuery, boolean removeSourceLibrary, Filter filter) {
+    filters.put(key(bqsQuery, removeSourceLibrary), filter);
+  }
+
+  /** Removes every cached filter, for example when filters are built differently. */
+  public void clear() {
+    filters.invalidateAll();
+  }
+
+  public long size() {
+    return filters.size();
+  }
+
+  /** @return the hit, miss and eviction counts of the cache since it was created. */
+  public CacheStats getStats() {
+    return filters.stats();
+  }
+
+  private static String key(String bqsQuery, boolean removeSourceLibrary) {
+    return removeSourceLibrary + "|" + bqsQuery;
+  }
+}
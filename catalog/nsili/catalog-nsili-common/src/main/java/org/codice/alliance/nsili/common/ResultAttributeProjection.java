@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.common;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The result attributes and mandatory attributes of a request, compiled once so that every result
+ * of the request can be converted without searching the attribute lists. Decisions are remembered
+ * per fully qualified attribute name, so each name is only examined once per request.
+ *
+ * <p>Instances are thread safe and may be shared by the threads converting the results of one
+ * request.
+ */
+public class ResultAttributeProjection {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultAttributeProjection.class);
+
+  private static final Pattern ATTRIBUTE_PATTERN =
+      Pattern.compile("([a-zA-Z0-9_:]+):([a-zA-Z0-9_]+).([a-zA-Z0-9]+)");
+
+  private static final String[] UNQUALIFIED = new String[0];
+
+  private static final ResultAttributeProjection ALL_ATTRIBUTES =
+      new ResultAttributeProjection(null, null);
+
+  private final Set<String> resultAttributes;
+
+  private final Map<String, Set<String>> mandatoryAttributes;
+
+  private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+  private final Map<String, String[]> qualifiedNames = new ConcurrentHashMap<>();
+
+  private ResultAttributeProjection(
+      Collection<String> resultAttributes, Map<String, List<String>> mandatoryAttributes) {
+    if (resultAttributes == null || resultAttributes.isEmpty()) {
+      this.resultAttributes = Collections.emptySet();
+    } else {
+      this.resultAttributes = new HashSet<>(resultAttributes);
+    }
+
+    if (mandatoryAttributes == null || mandatoryAttributes.isEmpty()) {
+      this.mandatoryAttributes = Collections.emptyMap();
+    } else {
+      this.mandatoryAttributes = new HashMap<>();
+      mandatoryAttributes.forEach(
+          (node, attributes) -> {
+            if (attributes != null && !attributes.isEmpty()) {
+              this.mandatoryAttributes.put(node, new HashSet<>(attributes));
+            }
+          });
+    }
+  }
+
+  /**
+   * @param resultAttributes the attributes to return, or null or empty for all attributes.
+   *     Attributes may be fully qualified, qualified by their node, or unqualified.
+   * @param mandatoryAttributes the mandatory attributes of each node, or null for none.
+   * @return the compiled projection.
+   */
+  public static ResultAttributeProjection compile(
+      Collection<String> resultAttributes, Map<String, List<String>> mandatoryAttributes) {
+    if ((resultAttributes == null || resultAttributes.isEmpty())
+        && (mandatoryAttributes == null || mandatoryAttributes.isEmpty())) {
+      return ALL_ATTRIBUTES;
+    }
+    return new ResultAttributeProjection(resultAttributes, mandatoryAttributes);
+  }
+
+  /** @return a projection that returns every attribute and has no mandatory attributes. */
+  public static ResultAttributeProjection allAttributes() {
+    return ALL_ATTRIBUTES;
+  }
+
+  /**
+   * @param attributeName the fully qualified attribute name, e.g. NSIL_PRODUCT:NSIL_CARD.status
+   * @return whether the attribute should be added to results.
+   */
+  public boolean shouldAdd(String attributeName) {
+    if (resultAttributes.isEmpty()) {
+      return true;
+    }
+
+    boolean shouldAddAttribute = decisions.computeIfAbsent(attributeName, this::isRequested);
+    if (!shouldAddAttribute) {
+      LOGGER.trace("Attribute is not supported in destination data model: {}", attributeName);
+    }
+    return shouldAddAttribute;
+  }
+
+  /**
+   * Checks that every node with attributes in a result has all of the mandatory attributes of that
+   * node.
+   *
+   * @param addedAttributes the fully qualified names of the attributes added to a result.
+   * @return whether none of the mandatory attributes are missing.
+   */
+  public boolean isValid(List<String> addedAttributes) {
+    if (mandatoryAttributes.isEmpty()) {
+      return true;
+    }
+
+    Map<String, Set<String>> addedAttrMap = new HashMap<>();
+    for (String addedAttribute : addedAttributes) {
+      String[] qualifiedName = qualifiedNames.computeIfAbsent(addedAttribute, this::parse);
+      if (qualifiedName != UNQUALIFIED && mandatoryAttributes.containsKey(qualifiedName[0])) {
+        addedAttrMap.computeIfAbsent(qualifiedName[0], k -> new HashSet<>()).add(qualifiedName[1]);
+      }
+    }
+
+    for (Map.Entry<String, Set<String>> entry : addedAttrMap.entrySet()) {
+      Set<String> requiredAttrs = mandatoryAttributes.get(entry.getKey());
+      if (!entry.getValue().containsAll(requiredAttrs)) {
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug(
+              "Node: {} is missing attributes: {}",
+              entry.getKey(),
+              requiredAttrs
+                  .stream()
+                  .filter(requiredAttr -> !entry.getValue().contains(requiredAttr))
+                  .collect(Collectors.toList()));
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isRequested(String attributeName) {
+    if (resultAttributes.contains(attributeName)) {
+      return true;
+    }
+
+    int lastColon = attributeName.lastIndexOf(':');
+    if (lastColon != -1 && resultAttributes.contains(attributeName.substring(lastColon + 1))) {
+      return true;
+    }
+
+    int lastDot = attributeName.lastIndexOf('.');
+    return lastDot != -1 && resultAttributes.contains(attributeName.substring(lastDot + 1));
+  }
+
+  private String[] parse(String attributeName) {
+    Matcher matcher = ATTRIBUTE_PATTERN.matcher(attributeName);
+    if (matcher.matches()) {
+      return new String[] {matcher.group(2), matcher.group(3)};
+    }
+    return UNQUALIFIED;
+  }
+}
@@ -38,8 +38,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
 import org.codice.alliance.catalog.core.api.types.Isr;
@@ -65,10 +63,15 @@ import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
 import org.jgrapht.traverse.DepthFirstIterator;
 import org.omg.CORBA.Any;
 import org.omg.CORBA.ORB;
+import org.omg.CORBA.Policy;
+import org.omg.PortableServer.IdAssignmentPolicyValue;
 import org.omg.PortableServer.POA;
-import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
-import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
+import org.omg.PortableServer.POAPackage.AdapterAlreadyExists;
+import org.omg.PortableServer.POAPackage.AdapterNonExistent;
+import org.omg.PortableServer.POAPackage.InvalidPolicy;
 import org.omg.PortableServer.POAPackage.WrongPolicy;
+import org.omg.PortableServer.RequestProcessingPolicyValue;
+import org.omg.PortableServer.ServantRetentionPolicyValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,8 +84,7 @@ public class ResultDAGConverter {
 
   private static final String ENCODING = StandardCharsets.UTF_8.name();
 
-  private static final Pattern ATTRIBUTE_PATTERN =
-      Pattern.compile("([a-zA-Z0-9_:]+):([a-zA-Z0-9_]+).([a-zA-Z0-9]+)");
+  private static final String PRODUCT_POA_NAME = "NsiliProduct";
 
   public static DAG convertResult(
       Result result,
@@ -91,28 +93,34 @@ public class ResultDAGConverter {
       List<String> resultAttributes,
       Map<String, List<String>> mandatoryAttributes)
       throws DagParsingException {
+    return convertResult(
+        result, orb, poa, ResultAttributeProjection.compile(resultAttributes, mandatoryAttributes));
+  }
+
+  /**
+   * Converts a result to a DAG. Requests that convert many results should compile their result
+   * attributes once and share the projection between the results.
+   *
+   * @param result the result to convert
+   * @param orb the ORB used to create the node values
+   * @param poa the POA the product reference is created under
+   * @param resultAttributes the compiled result and mandatory attributes of the request
+   * @return the DAG of the result
+   * @throws DagParsingException if the result is missing a mandatory attribute
+   */
+  public static DAG convertResult(
+      Result result, ORB orb, POA poa, ResultAttributeProjection resultAttributes)
+      throws DagParsingException {
     Metacard metacard = result.getMetacard();
 
     DAG dag = new DAG();
     DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
 
-    ProductImpl productImpl = new ProductImpl();
-
     String id = result.getMetacard().getId();
 
-    if (!CorbaUtils.isIdActive(poa, id.getBytes(Charset.forName(ENCODING)))) {
-      try {
-        poa.activate_object_with_id(id.getBytes(Charset.forName(ENCODING)), productImpl);
-      } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
-        LOGGER.debug(
-            "Convert DAG : Unable to activate product impl object ({}): {}",
-            result.getMetacard().getId(),
-            e.getLocalizedMessage());
-      }
-    }
-
     org.omg.CORBA.Object obj =
-        poa.create_reference_with_id(id.getBytes(Charset.forName(ENCODING)), ProductHelper.id());
+        getProductPoa(poa)
+            .create_reference_with_id(id.getBytes(Charset.forName(ENCODING)), ProductHelper.id());
     Product product = ProductHelper.narrow(obj);
 
     Node productNode = createRootNode(orb);
@@ -146,25 +154,8 @@ public class ResultDAGConverter {
               graph, productNode, metacard, orb, attributeName + ":", resultAttributes));
     }
 
-    if (mandatoryAttributes != null && !mandatoryAttributes.isEmpty()) {
-      final ThreadLocal<Boolean> dataIsValid = new ThreadLocal<>();
-      dataIsValid.set(true);
-      Map<String, List<String>> addedAttrMap = getAttrMap(addedAttributes);
-      addedAttrMap
-          .entrySet()
-          .forEach(
-              entry ->
-                  dataIsValid.set(
-                      dataIsValid.get()
-                          && processEntry(
-                              entry.getKey(),
-                              mandatoryAttributes.get(entry.getKey()),
-                              entry.getValue())));
-
-      if (!dataIsValid.get()) {
-        throw new DagParsingException(
-            "One or more mandatory attributes is missing on outgoing data");
-      }
+    if (!resultAttributes.isValid(addedAttributes)) {
+      throw new DagParsingException("One or more mandatory attributes is missing on outgoing data");
     }
 
     graph.addVertex(productNode);
@@ -177,13 +168,55 @@ public class ResultDAGConverter {
     return dag;
   }
 
+  /**
+   * Returns the POA that product references are created in. Product references carry the metacard
+   * ID as their object ID and are all served by a single default servant, so no servant is
+   * activated, or left in the active object map, for each result.
+   *
+   * @param parent the POA the product POA is created under
+   * @return the product POA, or the parent POA if the product POA could not be created
+   */
+  public static POA getProductPoa(POA parent) {
+    try {
+      return parent.find_POA(PRODUCT_POA_NAME, false);
+    } catch (AdapterNonExistent e) {
+      return createProductPoa(parent);
+    }
+  }
+
+  private static synchronized POA createProductPoa(POA parent) {
+    try {
+      return parent.find_POA(PRODUCT_POA_NAME, false);
+    } catch (AdapterNonExistent e) {
+      LOGGER.trace("Creating the product POA under {}", parent.the_name());
+    }
+
+    Policy[] policies = {
+      parent.create_id_assignment_policy(IdAssignmentPolicyValue.USER_ID),
+      parent.create_servant_retention_policy(ServantRetentionPolicyValue.NON_RETAIN),
+      parent.create_request_processing_policy(RequestProcessingPolicyValue.USE_DEFAULT_SERVANT)
+    };
+    try {
+      POA productPoa = parent.create_POA(PRODUCT_POA_NAME, parent.the_POAManager(), policies);
+      productPoa.set_servant(new ProductImpl());
+      return productPoa;
+    } catch (AdapterAlreadyExists | InvalidPolicy | WrongPolicy e) {
+      LOGGER.debug("Unable to create the product POA, product references will use {}", parent, e);
+      return parent;
+    } finally {
+      for (Policy policy : policies) {
+        policy.destroy();
+      }
+    }
+  }
+
   public static List<String> addCardNodeWithAttributes(
       DirectedAcyclicGraph<Node, Edge> graph,
       Node productNode,
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any any = orb.create_any();
     Node cardNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_CARD, any);
@@ -231,7 +264,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node cardNode,
       String attribute) {
@@ -269,7 +302,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node cardNode,
       String attribute) {
@@ -299,7 +332,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
 
     List<String> addedAttributes = new ArrayList<>();
 
@@ -383,7 +416,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node fileNode,
       String attribute) {
@@ -407,7 +440,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node fileNode,
       String attribute) {
@@ -432,7 +465,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node fileNode,
       String attribute) {
@@ -453,7 +486,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any any = orb.create_any();
     Node securityNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_SECURITY, any);
@@ -508,7 +541,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node securityNode,
       String attribute) {
@@ -537,7 +570,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any any = orb.create_any();
     Node metadataSecurityNode =
@@ -573,7 +606,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node metadataSecurityNode,
       String attribute) {
@@ -601,7 +634,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node metadataSecurityNode,
       String attribute) {
@@ -635,7 +668,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any any = orb.create_any();
     Node partNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_PART, any);
@@ -706,7 +739,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any imageryAny = orb.create_any();
     Node imageryNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_IMAGERY, imageryAny);
@@ -794,7 +827,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node imageryNode,
       String attribute) {
@@ -826,7 +859,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node node,
       String attribute,
@@ -852,7 +885,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node imageryNode,
       String attribute) {
@@ -876,7 +909,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node imageryNode,
       String attribute) {
@@ -915,7 +948,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any videoAny = orb.create_any();
     Node videoNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_VIDEO, videoAny);
@@ -1000,7 +1033,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node videoNode,
       String attribute) {
@@ -1031,7 +1064,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node videoNode,
       String attribute) {
@@ -1053,7 +1086,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any tdlAny = orb.create_any();
     Node tdlNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_TDL, tdlAny);
@@ -1111,7 +1144,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any gmtiAny = orb.create_any();
     Node gmtiNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_GMTI, gmtiAny);
@@ -1149,7 +1182,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any reportAny = orb.create_any();
     Node reportNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_REPORT, reportAny);
@@ -1197,7 +1230,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node reportNode,
       String attribute) {
@@ -1217,7 +1250,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node reportNode,
       String attribute) {
@@ -1237,7 +1270,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Attribute attr,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node node,
       String attribute,
@@ -1255,7 +1288,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Attribute attr,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node node,
       String attribute,
@@ -1274,7 +1307,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Attribute attr,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node node,
       String attribute,
@@ -1292,7 +1325,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Attribute attr,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node node,
       String attribute,
@@ -1310,7 +1343,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Attribute attr,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node node,
       String attribute,
@@ -1330,7 +1363,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any rfiAny = orb.create_any();
     Node rfiNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_RFI, rfiAny);
@@ -1381,7 +1414,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node rfiNode,
       String attribute) {
@@ -1403,7 +1436,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node rfiNode,
       String attribute) {
@@ -1425,7 +1458,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any taskAny = orb.create_any();
     Node taskNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_TASK, taskAny);
@@ -1464,7 +1497,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any cbrnAny = orb.create_any();
     Node cbrnNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_CBRN, cbrnAny);
@@ -1531,7 +1564,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node cbrnNode,
       String attribute) {
@@ -1552,7 +1585,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node cbrnNode,
       String attribute) {
@@ -1575,7 +1608,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any intRepAny = orb.create_any();
     Node intRepNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_INTREP, intRepAny);
@@ -1604,7 +1637,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any entityAny = orb.create_any();
     Node entityPartNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_ENTITY, entityAny);
@@ -1653,7 +1686,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any exploitationInfoAny = orb.create_any();
     Node exploitationInfoNode =
@@ -1692,7 +1725,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node exploitationInfoNode,
       String attribute) {
@@ -1713,7 +1746,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       Node exploitationInfoNode,
       String attribute) {
@@ -1737,7 +1770,7 @@ public class ResultDAGConverter {
       String type,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any any = orb.create_any();
     Node commonNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_COMMON, any);
@@ -1839,7 +1872,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any any = orb.create_any();
 
@@ -1885,7 +1918,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       String attribute,
       Node coverageNode) {
@@ -1916,7 +1949,7 @@ public class ResultDAGConverter {
       DirectedAcyclicGraph<Node, Edge> graph,
       Metacard metacard,
       ORB orb,
-      List<String> resultAttributes,
+      ResultAttributeProjection resultAttributes,
       List<String> addedAttributes,
       String attribute,
       Node coverageNode) {
@@ -1944,7 +1977,7 @@ public class ResultDAGConverter {
       Metacard metacard,
       ORB orb,
       String parentAttrName,
-      List<String> resultAttributes) {
+      ResultAttributeProjection resultAttributes) {
     List<String> addedAttributes = new ArrayList<>();
     Any any = orb.create_any();
     Node relatedFileNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_RELATED_FILE, any);
@@ -2279,75 +2312,15 @@ public class ResultDAGConverter {
     return uuid;
   }
 
-  private static boolean shouldAdd(String attributeName, List<String> resultAttributes) {
-    boolean shouldAddAttribute = false;
-
-    if (resultAttributes != null && !resultAttributes.isEmpty()) {
-      if (resultAttributes.contains(attributeName)) {
-        shouldAddAttribute = true;
-      } else {
-        if (attributeName.lastIndexOf(':') != -1) {
-          String nonScopeAttr = attributeName.substring(attributeName.lastIndexOf(':') + 1);
-          if (resultAttributes.contains(nonScopeAttr)) {
-            shouldAddAttribute = true;
-          }
-        }
-
-        if (!shouldAddAttribute) {
-          int lastDot = attributeName.lastIndexOf('.');
-          if (lastDot != -1) {
-            String simpleAttrName = attributeName.substring(lastDot + 1);
-            if (resultAttributes.contains(simpleAttrName)) {
-              shouldAddAttribute = true;
-            }
-          }
-        }
-      }
-    } else {
-      shouldAddAttribute = true;
-    }
-
-    if (!shouldAddAttribute) {
-      LOGGER.trace("Attribute is not supported in destination data model: {}", attributeName);
-    }
-
-    return shouldAddAttribute;
+  private static boolean shouldAdd(
+      String attributeName, ResultAttributeProjection resultAttributes) {
+    return resultAttributes.shouldAdd(attributeName);
   }
 
   private static String buildAttr(String parentAttr, String attribute) {
     return parentAttr + "." + attribute;
   }
 
-  private static Map<String, List<String>> getAttrMap(List<String> attributes) {
-    return attributes
-        .stream()
-        .map(ATTRIBUTE_PATTERN::matcher)
-        .filter(Matcher::matches)
-        .collect(
-            Collectors.groupingBy(
-                m -> m.group(2), Collectors.mapping(m -> m.group(3), Collectors.toList())));
-  }
-
-  private static boolean processEntry(
-      String entryName, List<String> requiredAttrs, List<String> parsedAttrs) {
-    final ThreadLocal<Boolean> dataIsValid = new ThreadLocal<>();
-    dataIsValid.set(true);
-
-    if (requiredAttrs != null) {
-      List<String> missingAttrs =
-          requiredAttrs
-              .stream()
-              .filter(requiredAttr -> !parsedAttrs.contains(requiredAttr))
-              .collect(Collectors.toList());
-      if (!missingAttrs.isEmpty()) {
-        dataIsValid.set(false);
-        LOGGER.debug("Node: {} is missing attributes: {}", entryName, missingAttrs);
-      }
-    }
-
-    return dataIsValid.get();
-  }
-
   public static String getMetacardId(Metacard metacard) {
     String id = metacard.getId();
 
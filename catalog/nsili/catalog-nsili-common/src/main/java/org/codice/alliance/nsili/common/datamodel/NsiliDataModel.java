@@ -15,6 +15,7 @@ package org.codice.alliance.nsili.common.datamodel;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,13 @@ import org.codice.alliance.nsili.common.UCO.EntityRelationship;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The NSILI data model: the views, entity graphs, attributes, aliases and associations of STANAG
+ * 4559. Building the model is expensive, so {@link #getInstance()} should be used to share a single
+ * instance. The model does not change once it is built and can be read by any number of threads.
+ * The collections it returns are unmodifiable, and the CORBA structures in them must not be
+ * modified.
+ */
 public class NsiliDataModel {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(NsiliDataModel.class);
@@ -290,21 +298,31 @@ public class NsiliDataModel {
           ConceptualAttributeType.UNIQUEIDENTIFIER,
           buildAttr(NsiliConstants.NSIL_CARD, NsiliConstants.IDENTIFIER));
 
-  private Map<String, EntityGraph> viewGraphMap = new HashMap<>();
+  private final Map<String, EntityGraph> viewGraphMap = new HashMap<>();
 
-  private Map<String, List<Pair<String, String>>> aliasCategoryMap = new HashMap<>();
+  private final Map<String, List<Pair<String, String>>> aliasCategoryMap = new HashMap<>();
 
-  private Map<String, List<Pair<ConceptualAttributeType, String>>> conceptualAttrMap =
+  private final Map<String, List<Pair<ConceptualAttributeType, String>>> conceptualAttrMap =
       new HashMap<>();
 
-  private List<Association> associations = new ArrayList<>();
+  private final List<Association> associations = new ArrayList<>();
+
+  private final Map<String, Map<String, List<String>>> requiredAttrMap = new HashMap<>();
 
-  private Map<String, Map<String, List<String>>> requiredAttrMap = new HashMap<>();
+  private final Map<String, List<AttributeInformation>> entityAttributeMap = new HashMap<>();
 
+  private final Map<String, List<AttributeInformation>> viewAttributeMap = new HashMap<>();
+
+  /** Builds a new data model. Prefer {@link #getInstance()}, which builds the model only once. */
   public NsiliDataModel() {
     init();
   }
 
+  /** @return the data model shared by the NSILI endpoint, source and transformer. */
+  public static NsiliDataModel getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
   private void init() {
     initAllViewGraph();
     initImageryViewGraph();
@@ -319,9 +337,18 @@ public class NsiliDataModel {
 
     initAliasCategoryMap();
     initAssociations();
+    initAttributeMaps();
   }
 
   public List<AttributeInformation> getAttributeInformation(String entityName) {
+    List<AttributeInformation> attributes = entityAttributeMap.get(entityName);
+    if (attributes == null) {
+      attributes = createAttributeInformation(entityName);
+    }
+    return attributes;
+  }
+
+  private List<AttributeInformation> createAttributeInformation(String entityName) {
     List<AttributeInformation> attributes = new ArrayList<>();
 
     switch (entityName) {
@@ -1304,6 +1331,20 @@ public class NsiliDataModel {
     associations.add(followsAssoc);
   }
 
+  private void initAttributeMaps() {
+    for (Map.Entry<String, EntityGraph> viewGraph : viewGraphMap.entrySet()) {
+      List<AttributeInformation> viewAttributes = new ArrayList<>();
+      for (EntityNode node : viewGraph.getValue().nodes) {
+        List<AttributeInformation> nodeAttrs =
+            entityAttributeMap.computeIfAbsent(
+                node.entity_name,
+                entityName -> Collections.unmodifiableList(createAttributeInformation(entityName)));
+        viewAttributes.addAll(nodeAttrs);
+      }
+      viewAttributeMap.put(viewGraph.getKey(), Collections.unmodifiableList(viewAttributes));
+    }
+  }
+
   public EntityGraph getEntityGraph(String viewName) {
     EntityGraph entityGraph = viewGraphMap.get(viewName);
     if (entityGraph == null) {
@@ -1313,6 +1354,11 @@ public class NsiliDataModel {
   }
 
   public List<AttributeInformation> getAttributesForView(String viewName) {
+    List<AttributeInformation> viewAttributes = viewAttributeMap.get(viewName);
+    if (viewAttributes != null) {
+      return viewAttributes;
+    }
+
     List<AttributeInformation> attributeInformation = new ArrayList<>();
 
     EntityGraph graph = getEntityGraph(viewName);
@@ -1335,11 +1381,15 @@ public class NsiliDataModel {
   }
 
   public List<Pair<ConceptualAttributeType, String>> getConceptualAttrsForView(String viewName) {
-    return conceptualAttrMap.get(viewName);
+    List<Pair<ConceptualAttributeType, String>> conceptualAttrs = conceptualAttrMap.get(viewName);
+    if (conceptualAttrs == null) {
+      return null;
+    }
+    return Collections.unmodifiableList(conceptualAttrs);
   }
 
   public List<Association> getAssociations() {
-    return associations;
+    return Collections.unmodifiableList(associations);
   }
 
   public Map<String, List<String>> getRequiredAttrsForView(String viewName) {
@@ -1372,6 +1422,11 @@ public class NsiliDataModel {
         }
       }
     }
-    requiredAttrMap.put(viewName, attrMap);
+    attrMap.replaceAll((parentNode, attrs) -> Collections.unmodifiableList(attrs));
+    requiredAttrMap.put(viewName, Collections.unmodifiableMap(attrMap));
+  }
+
+  private static class InstanceHolder {
+    private static final NsiliDataModel INSTANCE = new NsiliDataModel();
   }
 }
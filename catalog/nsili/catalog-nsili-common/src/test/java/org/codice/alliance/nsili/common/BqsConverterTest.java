@@ -17,8 +17,13 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
+import com.google.common.cache.CacheStats;
+import ddf.catalog.filter.FilterBuilder;
 import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
 import org.junit.Test;
 import org.opengis.filter.Filter;
@@ -360,4 +365,80 @@ public class BqsConverterTest {
   public void testNoFilterBuilder() {
     new BqsConverter(null, false);
   }
+
+  @Test
+  public void testRepeatedQueriesAreNotParsedAgain() {
+    String[] queries = {
+      BASIC_BQS_UUID_QUERY,
+      BASIC_BQS_OR_QUERY,
+      BASIC_BQS_AND_QUERY,
+      BASIC_BQS_AND_QUERY_WITH_PAREN,
+      BASIC_BQS_GEO_POLY,
+      BASIC_BQS_GEO_RECT,
+      BASIC_BQS_GEO_POINT,
+      BASIC_BQS_GEO_CIRCLE,
+      BASIC_BQS_GEO_WITHIN,
+      BQS_TEST_MANY_FIELDS,
+      TEST_BQS_QUOTE_STR,
+      TEST_BQS_MASSIVE,
+      BQS_AND_SOURCE_LIBRARY
+    };
+    int repetitions = 50;
+    FilterBuilder filterBuilder = new GeotoolsFilterBuilder();
+    BqsFilterCache filterCache = new BqsFilterCache();
+    BqsConverter cachingConverter = new BqsConverter(filterBuilder, true, filterCache);
+    BqsConverter parsingConverter = new BqsConverter(filterBuilder, true);
+
+    long parsingNanos = 0;
+    long cachingNanos = 0;
+    for (int i = 0; i < repetitions; i++) {
+      for (String query : queries) {
+        long start = System.nanoTime();
+        Filter parsed = parsingConverter.convertBQSToDDF(query);
+        parsingNanos += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        // Clients do not always send the same whitespace
+        Filter cached = cachingConverter.convertBQSToDDF(" " + query + " ");
+        if (i > 0) {
+          cachingNanos += System.nanoTime() - start;
+        }
+
+        assertThat(cached.toString(), is(parsed.toString()));
+      }
+    }
+
+    CacheStats stats = filterCache.getStats();
+    assertThat(stats.missCount(), is((long) queries.length));
+    assertThat(stats.hitCount(), is((long) queries.length * (repetitions - 1)));
+    assertThat(cachingNanos, lessThan(parsingNanos));
+  }
+
+  @Test
+  public void testSourceLibrarySettingIsCachedSeparately() {
+    FilterBuilder filterBuilder = new GeotoolsFilterBuilder();
+    BqsFilterCache filterCache = new BqsFilterCache();
+    BqsConverter removingConverter = new BqsConverter(filterBuilder, true, filterCache);
+    BqsConverter keepingConverter = new BqsConverter(filterBuilder, false, filterCache);
+
+    Filter removed = removingConverter.convertBQSToDDF(BQS_SOURCE_LIBRARY);
+    Filter kept = keepingConverter.convertBQSToDDF(BQS_SOURCE_LIBRARY);
+
+    assertThat(removed.toString(), is("[[ status is like * ]]"));
+    assertThat(kept.toString(), is("[[ sourceId is like * ] OR [ status is like * ]]"));
+    assertThat(removingConverter.convertBQSToDDF(BQS_SOURCE_LIBRARY), sameInstance(removed));
+  }
+
+  @Test
+  public void testFilterCacheIsBounded() {
+    BqsFilterCache filterCache = new BqsFilterCache(2);
+    BqsConverter bqsConverter = new BqsConverter(new GeotoolsFilterBuilder(), true, filterCache);
+
+    bqsConverter.convertBQSToDDF(BASIC_BQS_UUID_QUERY);
+    bqsConverter.convertBQSToDDF(BASIC_BQS_OR_QUERY);
+    bqsConverter.convertBQSToDDF(BASIC_BQS_AND_QUERY);
+
+    assertThat(filterCache.size(), lessThanOrEqualTo(2L));
+    assertThat(filterCache.getStats().evictionCount(), is(1L));
+  }
 }
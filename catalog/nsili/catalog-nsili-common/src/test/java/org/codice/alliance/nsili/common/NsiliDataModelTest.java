@@ -16,9 +16,15 @@ package org.codice.alliance.nsili.common;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang3.tuple.Pair;
 import org.codice.alliance.nsili.common.GIAS.Association;
 import org.codice.alliance.nsili.common.GIAS.AttributeInformation;
@@ -28,6 +34,8 @@ import org.junit.Test;
 
 public class NsiliDataModelTest {
 
+  private static final int READER_THREADS = 8;
+
   protected NsiliDataModel nsiliDataModel = new NsiliDataModel();
 
   @Test
@@ -126,4 +134,48 @@ public class NsiliDataModelTest {
     assertThat(advancedGeoSpatialExists, is(true));
     assertThat(numEntityNodeAttrs, is(3));
   }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testRequiredAttrsAreUnmodifiable() {
+    nsiliDataModel
+        .getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW)
+        .get(NsiliConstants.NSIL_COMMON)
+        .clear();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAttributesForViewAreUnmodifiable() {
+    nsiliDataModel.getAttributesForView(NsiliConstants.NSIL_ALL_VIEW).clear();
+  }
+
+  @Test
+  public void testSharedInstanceIsReadConcurrently() throws Exception {
+    Callable<NsiliDataModel> reader =
+        () -> {
+          NsiliDataModel dataModel = NsiliDataModel.getInstance();
+          for (int i = 0; i < 1000; i++) {
+            assertThat(
+                dataModel.getAttributesForView(NsiliConstants.NSIL_ALL_VIEW).size(),
+                is(nsiliDataModel.getAttributesForView(NsiliConstants.NSIL_ALL_VIEW).size()));
+            assertThat(
+                dataModel.getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW),
+                is(nsiliDataModel.getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW)));
+          }
+          return dataModel;
+        };
+
+    ExecutorService executorService = Executors.newFixedThreadPool(READER_THREADS);
+    try {
+      List<Future<NsiliDataModel>> futures = new ArrayList<>();
+      for (int i = 0; i < READER_THREADS; i++) {
+        futures.add(executorService.submit(reader));
+      }
+
+      for (Future<NsiliDataModel> future : futures) {
+        assertThat(future.get(), sameInstance(NsiliDataModel.getInstance()));
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.common;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ResultAttributeProjectionTest {
+
+  private static final String CARD_ATTR_PREFIX =
+      NsiliConstants.NSIL_PRODUCT + ":" + NsiliConstants.NSIL_CARD + ".";
+
+  private static final String FILE_ATTR_PREFIX =
+      NsiliConstants.NSIL_PRODUCT + ":" + NsiliConstants.NSIL_FILE + ".";
+
+  @Test
+  public void testNoResultAttributesAddsEverything() {
+    ResultAttributeProjection projection =
+        ResultAttributeProjection.compile(Collections.emptyList(), null);
+
+    assertThat(projection.shouldAdd(CARD_ATTR_PREFIX + NsiliConstants.IDENTIFIER), is(true));
+    assertThat(projection.isValid(Collections.emptyList()), is(true));
+  }
+
+  @Test
+  public void testResultAttributeQualification() {
+    ResultAttributeProjection projection =
+        ResultAttributeProjection.compile(
+            Arrays.asList(
+                CARD_ATTR_PREFIX + NsiliConstants.IDENTIFIER,
+                NsiliConstants.NSIL_FILE + "." + NsiliConstants.TITLE,
+                NsiliConstants.STATUS),
+            null);
+
+    assertThat(projection.shouldAdd(CARD_ATTR_PREFIX + NsiliConstants.IDENTIFIER), is(true));
+    assertThat(projection.shouldAdd(FILE_ATTR_PREFIX + NsiliConstants.TITLE), is(true));
+    assertThat(projection.shouldAdd(CARD_ATTR_PREFIX + NsiliConstants.STATUS), is(true));
+    assertThat(projection.shouldAdd(FILE_ATTR_PREFIX + NsiliConstants.IDENTIFIER), is(false));
+    assertThat(projection.shouldAdd(CARD_ATTR_PREFIX + NsiliConstants.TITLE), is(false));
+  }
+
+  @Test
+  public void testMissingMandatoryAttribute() {
+    Map<String, List<String>> mandatoryAttributes = new HashMap<>();
+    mandatoryAttributes.put(
+        NsiliConstants.NSIL_CARD, Arrays.asList(NsiliConstants.IDENTIFIER, NsiliConstants.STATUS));
+    ResultAttributeProjection projection =
+        ResultAttributeProjection.compile(null, mandatoryAttributes);
+
+    assertThat(
+        projection.isValid(
+            Arrays.asList(
+                CARD_ATTR_PREFIX + NsiliConstants.IDENTIFIER,
+                CARD_ATTR_PREFIX + NsiliConstants.STATUS)),
+        is(true));
+    assertThat(
+        projection.isValid(Collections.singletonList(CARD_ATTR_PREFIX + NsiliConstants.IDENTIFIER)),
+        is(false));
+    assertThat(
+        projection.isValid(Collections.singletonList(FILE_ATTR_PREFIX + NsiliConstants.TITLE)),
+        is(true));
+  }
+}
@@ -19,20 +19,27 @@ import static org.hamcrest.MatcherAssert.assertThat;
 
 import ddf.catalog.core.versioning.MetacardVersion;
 import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
 import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.data.impl.ResultImpl;
 import ddf.catalog.data.types.Core;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.codice.alliance.catalog.core.api.types.Isr;
 import org.codice.alliance.nsili.common.UCO.DAG;
+import org.codice.alliance.nsili.common.UID.Product;
+import org.codice.alliance.nsili.common.UID.ProductHelper;
 import org.junit.Before;
 import org.junit.Test;
 import org.omg.CORBA.ORB;
@@ -40,8 +47,12 @@ import org.omg.CORBA.ORBPackage.InvalidName;
 import org.omg.PortableServer.POA;
 import org.omg.PortableServer.POAHelper;
 import org.omg.PortableServer.POAManagerPackage.AdapterInactive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ResultDAGConverterTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultDAGConverterTest.class);
+
   private static final String CARD_TITLE = "Test Title";
 
   private static final String CARD_SOURCE = "Test Source";
@@ -51,6 +62,8 @@ public class ResultDAGConverterTest {
 
   private static final Date TEST_CREATE_DATE = new Date(1000);
 
+  private static final int SOAK_RESULT_COUNT = 100000;
+
   private ORB orb;
 
   private POA rootPOA;
@@ -93,6 +106,107 @@ public class ResultDAGConverterTest {
     assertThat(checkDagContains(oneAttrDAG, sourceAttr), is(false));
   }
 
+  @Test
+  public void testProductReference() throws Exception {
+    ResultImpl result = new ResultImpl();
+    result.setMetacard(metacard);
+
+    DAG dag =
+        ResultDAGConverter.convertResult(result, orb, rootPOA, new ArrayList<>(), new HashMap<>());
+    Product product = ProductHelper.extract(dag.nodes[0].value);
+
+    byte[] productId = ResultDAGConverter.getProductPoa(rootPOA).reference_to_id(product);
+    assertThat(new String(productId, StandardCharsets.UTF_8), is(metacard.getId()));
+  }
+
+  @Test
+  public void testProductReferencesDoNotActivateServants() throws Exception {
+    List<String> identifierOnly =
+        Collections.singletonList(
+            NsiliConstants.NSIL_PRODUCT
+                + ":"
+                + NsiliConstants.NSIL_CARD
+                + "."
+                + NsiliConstants.IDENTIFIER);
+
+    for (int i = 0; i < SOAK_RESULT_COUNT; i++) {
+      MetacardImpl card = new MetacardImpl();
+      card.setId(String.valueOf(i));
+      ResultDAGConverter.convertResult(
+          new ResultImpl(card), orb, rootPOA, identifierOnly, new HashMap<>());
+    }
+
+    for (int i = 0; i < SOAK_RESULT_COUNT; i += SOAK_RESULT_COUNT / 10) {
+      byte[] id = String.valueOf(i).getBytes(StandardCharsets.UTF_8);
+      assertThat(CorbaUtils.isIdActive(rootPOA, id), is(false));
+      assertThat(CorbaUtils.isIdActive(ResultDAGConverter.getProductPoa(rootPOA), id), is(false));
+    }
+  }
+
+  @Test
+  public void testLargeResultSetWithValidation() throws Exception {
+    // One attribute of each form: fully qualified, qualified by its node, and unqualified
+    List<String> resultAttributes =
+        Arrays.asList(
+            NsiliConstants.NSIL_PRODUCT
+                + ":"
+                + NsiliConstants.NSIL_CARD
+                + "."
+                + NsiliConstants.IDENTIFIER,
+            NsiliConstants.NSIL_CARD + "." + NsiliConstants.SOURCE_LIBRARY,
+            NsiliConstants.STATUS);
+    Map<String, List<String>> mandatoryAttributes =
+        Collections.singletonMap(
+            NsiliConstants.NSIL_CARD,
+            Arrays.asList(
+                NsiliConstants.IDENTIFIER, NsiliConstants.SOURCE_LIBRARY, NsiliConstants.STATUS));
+    ResultAttributeProjection projection =
+        ResultAttributeProjection.compile(resultAttributes, mandatoryAttributes);
+
+    int resultCount = SOAK_RESULT_COUNT / 10;
+    List<Result> results = new ArrayList<>(resultCount);
+    for (int i = 0; i < resultCount; i++) {
+      results.add(new ResultImpl(getTestCard()));
+    }
+
+    long start = System.nanoTime();
+    for (Result result : results) {
+      ResultDAGConverter.convertResult(result, orb, rootPOA, resultAttributes, mandatoryAttributes);
+    }
+    long compiledPerResultNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    List<DAG> dags = new ArrayList<>(resultCount);
+    for (Result result : results) {
+      dags.add(ResultDAGConverter.convertResult(result, orb, rootPOA, projection));
+    }
+    long sharedNanos = System.nanoTime() - start;
+
+    LOGGER.info(
+        "Converted {} results in {} ms compiling the projection for each result, {} ms sharing it",
+        resultCount,
+        TimeUnit.NANOSECONDS.toMillis(compiledPerResultNanos),
+        TimeUnit.NANOSECONDS.toMillis(sharedNanos));
+
+    for (int i = 0; i < resultCount; i += resultCount / 10) {
+      Set<String> allAttributes =
+          new HashSet<>(
+              ResultDAGConverter.getAttributes(
+                  ResultDAGConverter.convertResult(
+                      results.get(i), orb, rootPOA, ResultAttributeProjection.allAttributes())));
+      Set<String> attributes = new HashSet<>(ResultDAGConverter.getAttributes(dags.get(i)));
+
+      assertThat(allAttributes.containsAll(attributes), is(true));
+      for (String attribute : allAttributes) {
+        boolean requested = shouldAdd(attribute, resultAttributes);
+        assertThat(attribute, projection.shouldAdd(attribute), is(requested));
+        if (requested) {
+          assertThat(attribute, attributes.contains(attribute), is(true));
+        }
+      }
+    }
+  }
+
   @Test
   public void testAdvancedGeospatial() throws Exception {
     metacard.setAttribute(new AttributeImpl(Core.LOCATION, "POLYGON((1 1,1 2,2 2,2 1,1 1))"));
@@ -286,6 +400,21 @@ public class ResultDAGConverterTest {
     assertThat(value, is(NsiliCardStatus.OBSOLETE.name()));
   }
 
+  /** The attribute selection of the converter before result attributes were compiled. */
+  private static boolean shouldAdd(String attributeName, List<String> resultAttributes) {
+    if (resultAttributes.isEmpty() || resultAttributes.contains(attributeName)) {
+      return true;
+    }
+
+    int lastColon = attributeName.lastIndexOf(':');
+    if (lastColon != -1 && resultAttributes.contains(attributeName.substring(lastColon + 1))) {
+      return true;
+    }
+
+    int lastDot = attributeName.lastIndexOf('.');
+    return lastDot != -1 && resultAttributes.contains(attributeName.substring(lastDot + 1));
+  }
+
   private static boolean checkDagContains(DAG dag, String attribute) {
     List<String> dagAttrs = ResultDAGConverter.getAttributes(dag);
     return dagAttrs.contains(attribute);
@@ -17,17 +17,23 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.Result;
+import ddf.catalog.filter.FilterAdapter;
 import ddf.catalog.filter.FilterBuilder;
 import ddf.security.service.SecurityManager;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.codice.alliance.nsili.common.BqsFilterCache;
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.GIAS.AccessCriteria;
 import org.codice.alliance.nsili.common.GIAS.CatalogMgrHelper;
@@ -53,14 +59,22 @@ import org.codice.alliance.nsili.endpoint.managers.DataModelMgrImpl;
 import org.codice.alliance.nsili.endpoint.managers.EmailConfiguration;
 import org.codice.alliance.nsili.endpoint.managers.OrderMgrImpl;
 import org.codice.alliance.nsili.endpoint.managers.ProductMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryMatcher;
 import org.codice.alliance.nsili.endpoint.managers.StandingQueryMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryScheduler;
+import org.codice.alliance.nsili.endpoint.requests.HttpDeliveryClient;
+import org.codice.alliance.nsili.endpoint.requests.StandingQueryData;
 import org.codice.ddf.configuration.SystemBaseUrl;
 import org.omg.CORBA.NO_IMPLEMENT;
 import org.omg.CORBA.Object;
 import org.omg.PortableServer.POA;
 import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
+import org.omg.PortableServer.POAPackage.ObjectNotActive;
 import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
+import org.omg.PortableServer.POAPackage.WrongAdapter;
 import org.omg.PortableServer.POAPackage.WrongPolicy;
+import org.omg.PortableServer.Servant;
 import org.slf4j.LoggerFactory;
 
 public class LibraryImpl extends LibraryPOA {
@@ -93,6 +107,8 @@ public class LibraryImpl extends LibraryPOA {
 
   private int maxPendingResults;
 
+  private StandingQueryData.OverflowPolicy overflowPolicy = StandingQueryData.OverflowPolicy.PAUSE;
+
   private boolean outgoingValidationEnabled;
 
   private Set<String> querySources = new HashSet<>();
@@ -105,14 +121,95 @@ public class LibraryImpl extends LibraryPOA {
 
   private long maxWaitToStartTimeMsecs;
 
+  private final RequestTracker requestTracker;
+
+  /** The most managers that are kept active, so that clients can not exhaust the heap. */
+  private static final int MAX_CLIENT_MANAGERS = 1000;
+
+  // The managers of the clients, least recently requested first
+  private final Map<List<String>, LibraryManager> libraryManagers =
+      new LinkedHashMap<List<String>, LibraryManager>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, LibraryManager> eldest) {
+          if (size() <= MAX_CLIENT_MANAGERS) {
+            return false;
+          }
+          deactivateManager(eldest.getValue());
+          return true;
+        }
+      };
+
+  private static final int MAX_CONCURRENT_PRODUCT_TRANSFERS = 16;
+
+  private final ExecutorService conversionExecutor =
+      Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+  private final ExecutorService transferExecutor =
+      Executors.newFixedThreadPool(MAX_CONCURRENT_PRODUCT_TRANSFERS);
+
+  private final HttpDeliveryClient deliveryClient = new HttpDeliveryClient();
+
+  private final StandingQueryScheduler standingQueryScheduler =
+      new StandingQueryScheduler(Runtime.getRuntime().availableProcessors());
+
+  private final StandingQueryMatcher standingQueryMatcher = new StandingQueryMatcher();
+
+  private final BqsFilterCache bqsFilterCache = new BqsFilterCache();
+
   private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(LibraryImpl.class);
 
   public LibraryImpl(POA poa) {
     this.poa = poa;
+    this.requestTracker = new RequestTracker(poa);
+  }
+
+  /** @return the tracker of the requests created by the managers of this library. */
+  public RequestTracker getRequestTracker() {
+    return requestTracker;
+  }
+
+  /** @return the scheduler that executes the standing queries of this library. */
+  public StandingQueryScheduler getStandingQueryScheduler() {
+    return standingQueryScheduler;
+  }
+
+  /** @return the matcher that pushes ingested metacards to the standing queries of this library. */
+  public StandingQueryMatcher getStandingQueryMatcher() {
+    return standingQueryMatcher;
+  }
+
+  /** @return the filters of the BQS queries received by this library, with their hit ratio. */
+  public BqsFilterCache getBqsFilterCache() {
+    return bqsFilterCache;
+  }
+
+  /**
+   * Stops the request reaper, the threads that convert results, transfer ordered products and run
+   * standing queries, and the connections to order destinations.
+   */
+  public void shutdown() {
+    requestTracker.shutdown();
+    conversionExecutor.shutdownNow();
+    transferExecutor.shutdownNow();
+    try {
+      deliveryClient.close();
+    } catch (IOException e) {
+      LOGGER.debug("Unable to close the order delivery client", e);
+    }
+    standingQueryScheduler.shutdown();
+    standingQueryMatcher.shutdown();
+    LOGGER.debug("BQS filter cache statistics: {}", bqsFilterCache.getStats());
+  }
+
+  /** @param defaultRequestTimeoutSec the lifetime of new requests, negative for no limit. */
+  public void setDefaultRequestTimeoutSec(int defaultRequestTimeoutSec) {
+    requestTracker.setDefaultTimeout(defaultRequestTimeoutSec);
   }
 
   public void setCatalogFramework(CatalogFramework catalogFramework) {
     this.catalogFramework = catalogFramework;
+    standingQueryMatcher.setCatalogFramework(catalogFramework);
+    clearManagers();
   }
 
   public void setMaxNumResults(int maxNumResults) {
@@ -121,14 +218,29 @@ public class LibraryImpl extends LibraryPOA {
 
   public void setFilterBuilder(FilterBuilder filterBuilder) {
     this.filterBuilder = filterBuilder;
+    standingQueryMatcher.setFilterBuilder(filterBuilder);
+    bqsFilterCache.clear();
+    clearManagers();
+  }
+
+  /** @param filterAdapter evaluates standing query filters against ingested metacards. */
+  public void setFilterAdapter(FilterAdapter filterAdapter) {
+    standingQueryMatcher.setFilterAdapter(filterAdapter);
   }
 
   public void setDefaultUpdateFrequencyMsec(long defaultUpdateFrequencyMsec) {
     this.defaultUpdateFrequencyMsec = defaultUpdateFrequencyMsec;
+    clearManagers();
   }
 
   public void setMaxPendingResults(int maxPendingResults) {
     this.maxPendingResults = maxPendingResults;
+    clearManagers();
+  }
+
+  public void setOverflowPolicy(StandingQueryData.OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+    clearManagers();
   }
 
   public void setQuerySources(Set<String> querySources) {
@@ -136,10 +248,12 @@ public class LibraryImpl extends LibraryPOA {
     if (querySources != null) {
       this.querySources.addAll(querySources);
     }
+    clearManagers();
   }
 
   public void setRemoveSourceLibrary(boolean removeSourceLibrary) {
     this.removeSourceLibrary = removeSourceLibrary;
+    clearManagers();
   }
 
   public void setLibraryVersion(String libraryVersion) {
@@ -152,10 +266,12 @@ public class LibraryImpl extends LibraryPOA {
 
   public void setOutgoingValidationEnabled(boolean outgoingValidationEnabled) {
     this.outgoingValidationEnabled = outgoingValidationEnabled;
+    clearManagers();
   }
 
   public void setMaxWaitToStartTimeMsecs(long maxWaitToStartTimeMsecs) {
     this.maxWaitToStartTimeMsecs = maxWaitToStartTimeMsecs;
+    clearManagers();
   }
 
   @Override
@@ -168,6 +284,29 @@ public class LibraryImpl extends LibraryPOA {
   @Override
   public LibraryManager get_manager(String managerType, AccessCriteria accessCriteria)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
+    LibraryManager libraryManager = getLibraryManager(managerType, accessCriteria);
+
+    LOGGER.trace("get_manager, type: {}", managerType);
+
+    return libraryManager;
+  }
+
+  /**
+   * Managers are activated once per client and reused for as long as the client is connected.
+   * Clients are told apart by the user and license key of their access criteria, so the requests
+   * and timeouts of a manager only belong to that client. Clients without access criteria share
+   * the same managers. The access criteria are not authenticated, so only the most recently
+   * requested managers are kept and the least recently requested manager is deactivated once there
+   * are more.
+   */
+  private synchronized LibraryManager getLibraryManager(
+      String managerType, AccessCriteria accessCriteria) throws InvalidInputParameter {
+    List<String> managerKey = getManagerKey(managerType, accessCriteria);
+    LibraryManager libraryManager = libraryManagers.get(managerKey);
+    if (libraryManager != null) {
+      return libraryManager;
+    }
+
     org.omg.CORBA.Object obj;
     String managerId = UUID.randomUUID().toString();
 
@@ -191,13 +330,42 @@ public class LibraryImpl extends LibraryPOA {
           badParams);
     }
 
-    LibraryManager libraryManager = LibraryManagerHelper.narrow(obj);
+    libraryManager = LibraryManagerHelper.narrow(obj);
+    libraryManagers.put(managerKey, libraryManager);
 
-    LOGGER.trace("get_manager, type: {}, id: {}", managerType, managerId);
+    LOGGER.debug("Activated manager, type: {}, id: {}", managerType, managerId);
 
     return libraryManager;
   }
 
+  private static List<String> getManagerKey(String managerType, AccessCriteria accessCriteria) {
+    if (accessCriteria == null) {
+      return Arrays.asList(managerType, null, null);
+    }
+    return Arrays.asList(managerType, accessCriteria.userID, accessCriteria.licenseKey);
+  }
+
+  /**
+   * Deactivates the managers so that managers created after a configuration change use the new
+   * configuration. Clients that held the previous managers need to get new ones.
+   */
+  private synchronized void clearManagers() {
+    libraryManagers.values().forEach(this::deactivateManager);
+    libraryManagers.clear();
+  }
+
+  /** Deactivates the manager and deletes the requests that it created. */
+  private void deactivateManager(LibraryManager libraryManager) {
+    try {
+      byte[] managerId = poa.reference_to_id(libraryManager);
+      Servant manager = poa.id_to_servant(managerId);
+      poa.deactivate_object(managerId);
+      requestTracker.removeOwner(manager);
+    } catch (WrongAdapter | WrongPolicy | ObjectNotActive e) {
+      LOGGER.debug("Unable to deactivate manager", e);
+    }
+  }
+
   private Object getStandingQueryMgrObject(String managerId) {
     Object obj;
     StandingQueryMgrImpl standingQueryMgr = new StandingQueryMgrImpl(querySources);
@@ -205,9 +373,14 @@ public class LibraryImpl extends LibraryPOA {
     standingQueryMgr.setFilterBuilder(filterBuilder);
     standingQueryMgr.setDefaultUpdateFrequencyMsec(defaultUpdateFrequencyMsec);
     standingQueryMgr.setMaxPendingResults(maxPendingResults);
+    standingQueryMgr.setOverflowPolicy(overflowPolicy);
     standingQueryMgr.setRemoveSourceLibrary(removeSourceLibrary);
     standingQueryMgr.setOutgoingValidationEnabled(outgoingValidationEnabled);
     standingQueryMgr.setMaxWaitToStartTimeMsecs(maxWaitToStartTimeMsecs);
+    standingQueryMgr.setRequestTracker(requestTracker);
+    standingQueryMgr.setStandingQueryScheduler(standingQueryScheduler);
+    standingQueryMgr.setStandingQueryMatcher(standingQueryMatcher);
+    standingQueryMgr.setBqsFilterCache(bqsFilterCache);
     if (!CorbaUtils.isIdActive(poa, managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
       try {
         poa.activate_object_with_id(
@@ -227,6 +400,7 @@ public class LibraryImpl extends LibraryPOA {
   private Object getCreationMgrObject(String managerId) {
     Object obj;
     CreationMgrImpl creationMgr = new CreationMgrImpl();
+    creationMgr.setRequestTracker(requestTracker);
     if (!CorbaUtils.isIdActive(poa, managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
       try {
         poa.activate_object_with_id(
@@ -266,6 +440,9 @@ public class LibraryImpl extends LibraryPOA {
     productMgr.setCatalogFramework(catalogFramework);
     productMgr.setFilterBuilder(filterBuilder);
     productMgr.setOutgoingValidationEnabled(outgoingValidationEnabled);
+    productMgr.setRequestTracker(requestTracker);
+    productMgr.setTransferExecutor(transferExecutor);
+    productMgr.setDeliveryClient(deliveryClient);
     if (!CorbaUtils.isIdActive(poa, managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
       try {
         poa.activate_object_with_id(
@@ -287,6 +464,9 @@ public class LibraryImpl extends LibraryPOA {
     orderMgr.setCatalogFramework(catalogFramework);
     orderMgr.setFilterBuilder(filterBuilder);
     orderMgr.setEmailConfiguration(emailConfiguration);
+    orderMgr.setRequestTracker(requestTracker);
+    orderMgr.setTransferExecutor(transferExecutor);
+    orderMgr.setDeliveryClient(deliveryClient);
 
     if (!CorbaUtils.isIdActive(poa, managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
       try {
@@ -305,10 +485,13 @@ public class LibraryImpl extends LibraryPOA {
 
   private Object getCatalogMgrObject(String managerId) {
     Object obj;
-    CatalogMgrImpl catalogMgr = new CatalogMgrImpl(poa, filterBuilder, querySources);
+    CatalogMgrImpl catalogMgr = new CatalogMgrImpl(filterBuilder, querySources);
     catalogMgr.setCatalogFramework(catalogFramework);
     catalogMgr.setOutgoingValidationEnabled(outgoingValidationEnabled);
     catalogMgr.setRemoveSourceLibrary(removeSourceLibrary);
+    catalogMgr.setRequestTracker(requestTracker);
+    catalogMgr.setConversionExecutor(conversionExecutor);
+    catalogMgr.setBqsFilterCache(bqsFilterCache);
     if (!CorbaUtils.isIdActive(poa, managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
       try {
         poa.activate_object_with_id(
@@ -341,34 +524,35 @@ public class LibraryImpl extends LibraryPOA {
     throw new NO_IMPLEMENT();
   }
 
+  /**
+   * @return the latest version of each product in the results, in the order the products first
+   *     appear.
+   */
   public static List<Result> getLatestResults(List<Result> results) {
-    Map<String, Result> resultMap = new HashMap<>();
+    Map<String, Result> resultMap = new LinkedHashMap<>();
     if (results == null) {
       return new ArrayList<>(resultMap.values());
     }
     for (Result result : results) {
       String metacardId = ResultDAGConverter.getMetacardId(result.getMetacard());
       Result mappedRes = resultMap.get(metacardId);
-      if (mappedRes == null) {
+      if (mappedRes == null || isLaterVersion(result, mappedRes)) {
         resultMap.put(metacardId, result);
-      } else {
-        if (mappedRes.getMetacard().getModifiedDate() != null) {
-          if (result.getMetacard().getModifiedDate() != null
-              && mappedRes
-                      .getMetacard()
-                      .getModifiedDate()
-                      .compareTo(result.getMetacard().getModifiedDate())
-                  < 0) {
-            resultMap.put(metacardId, result);
-          }
-        } else {
-          resultMap.put(metacardId, result);
-        }
       }
     }
     return new ArrayList<>(resultMap.values());
   }
 
+  /** @return whether the result is a later version of the same product than the other result. */
+  public static boolean isLaterVersion(Result result, Result other) {
+    Date otherModified = other.getMetacard().getModifiedDate();
+    if (otherModified == null) {
+      return true;
+    }
+    Date modified = result.getMetacard().getModifiedDate();
+    return modified != null && otherModified.compareTo(modified) < 0;
+  }
+
   public static boolean queryContainsStatus(String bqsQuery) {
     return bqsQuery.toLowerCase().contains(LibraryImpl.CARD_STATUS.toLowerCase());
   }
@@ -377,5 +561,6 @@ public class LibraryImpl extends LibraryPOA {
   public void setEmailConfiguration(EmailConfiguration emailConfiguration) {
     notNull(emailConfiguration, "emailConfiguration must be non-null");
     this.emailConfiguration = emailConfiguration;
+    clearManagers();
   }
 }
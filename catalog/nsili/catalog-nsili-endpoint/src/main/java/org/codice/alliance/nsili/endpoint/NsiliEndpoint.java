@@ -16,6 +16,7 @@ package org.codice.alliance.nsili.endpoint;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import ddf.catalog.CatalogFramework;
+import ddf.catalog.filter.FilterAdapter;
 import ddf.catalog.filter.FilterBuilder;
 import ddf.security.Subject;
 import ddf.security.service.SecurityManager;
@@ -30,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 import org.codice.alliance.core.email.EmailSender;
 import org.codice.alliance.nsili.common.NsilCorbaExceptionUtil;
 import org.codice.alliance.nsili.endpoint.managers.EmailConfiguration;
+import org.codice.alliance.nsili.endpoint.requests.StandingQueryData;
 import org.codice.alliance.nsili.orb.api.CorbaOrb;
 import org.codice.alliance.nsili.orb.api.CorbaServiceListener;
 import org.codice.ddf.security.common.Security;
@@ -53,6 +55,8 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
 
   public static final int DEFAULT_MAX_NUM_RESULTS = 500;
 
+  public static final int DEFAULT_REQUEST_TIMEOUT_SEC = (int) TimeUnit.HOURS.toSeconds(1);
+
   private static final String DEFAULT_IP_ADDRESS = "127.0.0.1";
 
   private int maxNumResults = DEFAULT_MAX_NUM_RESULTS;
@@ -71,12 +75,18 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
 
   private FilterBuilder filterBuilder;
 
+  private FilterAdapter filterAdapter;
+
   private int defaultUpdateFrequencySec = 60;
 
   private long maxWaitToStartTimeSec = TimeUnit.MINUTES.toSeconds(5);
 
   private int maxPendingResults = 10000;
 
+  private StandingQueryData.OverflowPolicy overflowPolicy = StandingQueryData.OverflowPolicy.PAUSE;
+
+  private int defaultRequestTimeoutSec = DEFAULT_REQUEST_TIMEOUT_SEC;
+
   private POA rootPOA = null;
 
   private CorbaOrb corbaOrb = null;
@@ -173,6 +183,13 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
     }
   }
 
+  public void setDefaultRequestTimeoutSec(int defaultRequestTimeoutSec) {
+    this.defaultRequestTimeoutSec = defaultRequestTimeoutSec;
+    if (library != null) {
+      library.setDefaultRequestTimeoutSec(defaultRequestTimeoutSec);
+    }
+  }
+
   public void setSecurityManager(SecurityManager securityManager) {
     NsiliEndpoint.securityManager = securityManager;
     if (library != null) {
@@ -206,6 +223,13 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
     }
   }
 
+  public void setFilterAdapter(FilterAdapter filterAdapter) {
+    this.filterAdapter = filterAdapter;
+    if (library != null) {
+      library.setFilterAdapter(filterAdapter);
+    }
+  }
+
   public void setMaxPendingResults(int maxPendingResults) {
     this.maxPendingResults = maxPendingResults;
     if (library != null) {
@@ -213,6 +237,22 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
     }
   }
 
+  public void setOverflowPolicy(String overflowPolicy) {
+    try {
+      this.overflowPolicy = StandingQueryData.OverflowPolicy.valueOf(overflowPolicy);
+    } catch (IllegalArgumentException | NullPointerException e) {
+      LOGGER.debug(
+          "Unknown standing query overflow policy {}, keeping {}",
+          overflowPolicy,
+          this.overflowPolicy,
+          e);
+      return;
+    }
+    if (library != null) {
+      library.setOverflowPolicy(this.overflowPolicy);
+    }
+  }
+
   public void setCorbaOrb(CorbaOrb corbaOrb) {
     this.corbaOrb = corbaOrb;
     this.orb = corbaOrb.getOrb();
@@ -295,6 +335,7 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
     if (corbaOrb != null) {
       corbaOrb.removeCorbaServiceListener(this);
     }
+    shutdownLibrary();
     library = null;
     iorString = "";
   }
@@ -311,6 +352,7 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
 
   @Override
   public void corbaShutdown() {
+    shutdownLibrary();
     if (library != null && rootPOA != null && libraryRef != null) {
       try {
         rootPOA.deactivate_object(rootPOA.reference_to_id(libraryRef));
@@ -346,17 +388,23 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
 
     rootPOA.the_POAManager().activate();
 
+    shutdownLibrary();
     library = new LibraryImpl(rootPOA);
     library.setCatalogFramework(framework);
     library.setFilterBuilder(filterBuilder);
+    library.setFilterAdapter(filterAdapter);
     library.setDefaultUpdateFrequencyMsec(TimeUnit.SECONDS.toMillis(defaultUpdateFrequencySec));
     library.setMaxPendingResults(maxPendingResults);
+    library.setOverflowPolicy(overflowPolicy);
     library.setQuerySources(querySources);
     library.setLibraryVersion(libraryVersion);
     library.setRemoveSourceLibrary(removeSourceLibrary);
     library.setOutgoingValidationEnabled(outgoingValidationEnabled);
     library.setMaxWaitToStartTimeMsecs(TimeUnit.SECONDS.toMillis(maxWaitToStartTimeSec));
     library.setEmailConfiguration(emailConfiguration);
+    library.setDefaultRequestTimeoutSec(defaultRequestTimeoutSec);
+    library.getRequestTracker().start();
+    library.getStandingQueryScheduler().registerMbean();
 
     libraryRef = rootPOA.servant_to_reference(library);
 
@@ -365,6 +413,12 @@ public class NsiliEndpoint implements CorbaServiceListener, QuerySources {
     LOGGER.debug("Initialized NSILI Endpoint with IOR: {}", iorString);
   }
 
+  private void shutdownLibrary() {
+    if (library != null) {
+      library.shutdown();
+    }
+  }
+
   public static synchronized Subject getGuestSubject() throws SecurityServiceException {
     if (guestSubject == null || Security.getInstance().tokenAboutToExpire(guestSubject)) {
 
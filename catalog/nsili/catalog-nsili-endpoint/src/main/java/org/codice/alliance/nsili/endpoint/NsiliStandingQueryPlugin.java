@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.operation.CreateResponse;
+import ddf.catalog.operation.DeleteResponse;
+import ddf.catalog.operation.Update;
+import ddf.catalog.operation.UpdateResponse;
+import ddf.catalog.plugin.PluginExecutionException;
+import ddf.catalog.plugin.PostIngestPlugin;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryMatcher;
+
+/**
+ * Hands created, updated and deleted metacards to the standing query matcher of the NSILI library,
+ * which has the standing queries they match get them from the catalog. Matching happens after the
+ * ingest completes, so ingest is not delayed by the number of standing queries.
+ */
+public class NsiliStandingQueryPlugin implements PostIngestPlugin {
+
+  private final NsiliEndpoint nsiliEndpoint;
+
+  public NsiliStandingQueryPlugin(NsiliEndpoint nsiliEndpoint) {
+    this.nsiliEndpoint = nsiliEndpoint;
+  }
+
+  @Override
+  public CreateResponse process(CreateResponse input) throws PluginExecutionException {
+    if (input != null) {
+      submit(input.getCreatedMetacards(), StandingQueryMatcher::submitIngested);
+    }
+    return input;
+  }
+
+  @Override
+  public UpdateResponse process(UpdateResponse input) throws PluginExecutionException {
+    if (input != null && input.getUpdatedMetacards() != null) {
+      submit(
+          input
+              .getUpdatedMetacards()
+              .stream()
+              .map(Update::getNewMetacard)
+              .collect(Collectors.toList()),
+          StandingQueryMatcher::submitIngested);
+    }
+    return input;
+  }
+
+  @Override
+  public DeleteResponse process(DeleteResponse input) throws PluginExecutionException {
+    if (input != null) {
+      submit(input.getDeletedMetacards(), StandingQueryMatcher::submitDeleted);
+    }
+    return input;
+  }
+
+  private void submit(
+      List<Metacard> metacards, BiConsumer<StandingQueryMatcher, List<Metacard>> submission) {
+    LibraryImpl library = nsiliEndpoint.getLibrary();
+    if (library != null && metacards != null && !metacards.isEmpty()) {
+      submission.accept(library.getStandingQueryMatcher(), metacards);
+    }
+  }
+}
@@ -27,16 +27,25 @@ import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import org.apache.shiro.subject.ExecutionException;
 import org.codice.alliance.nsili.common.GIAS.AccessManagerPOA;
 import org.codice.alliance.nsili.common.GIAS.AvailabilityRequirement;
 import org.codice.alliance.nsili.common.GIAS.Request;
 import org.codice.alliance.nsili.common.GIAS.SetAvailabilityRequest;
 import org.codice.alliance.nsili.common.GIAS._SetAvailabilityRequestStub;
+import org.codice.alliance.nsili.common.ResultDAGConverter;
 import org.codice.alliance.nsili.common.UCO.InvalidInputParameter;
 import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
@@ -57,6 +66,12 @@ public class AccessManagerImpl extends AccessManagerPOA {
 
   private static final String ORDER_ACCESS_USE_MODE = "OrderAccess";
 
+  private static final int MAX_IDS_PER_QUERY = 100;
+
+  private static final int MAX_CACHED_METACARDS = 1000;
+
+  private static final long METACARD_CACHE_TTL_MSEC = TimeUnit.SECONDS.toMillis(30);
+
   private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(AccessManagerImpl.class);
 
   private CatalogFramework catalogFramework;
@@ -67,6 +82,14 @@ public class AccessManagerImpl extends AccessManagerPOA {
 
   private int defaultTimeout = DEFAULT_TIMEOUT;
 
+  private final Map<String, CachedMetacard> metacardCache =
+      new LinkedHashMap<String, CachedMetacard>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedMetacard> eldest) {
+          return size() > MAX_CACHED_METACARDS;
+        }
+      };
+
   public void setCatalogFramework(CatalogFramework catalogFramework) {
     this.catalogFramework = catalogFramework;
   }
@@ -80,6 +103,7 @@ public class AccessManagerImpl extends AccessManagerPOA {
     if (querySources != null) {
       this.querySources.addAll(querySources);
     }
+    clearMetacardCache();
   }
 
   @Override
@@ -170,7 +194,7 @@ public class AccessManagerImpl extends AccessManagerPOA {
 
   public String getProductId(Product product)
       throws UnsupportedEncodingException, WrongPolicy, WrongAdapter {
-    byte[] productOidBytes = _poa().reference_to_id(product);
+    byte[] productOidBytes = ResultDAGConverter.getProductPoa(_poa()).reference_to_id(product);
     return new String(productOidBytes, NsiliEndpoint.ENCODING);
   }
 
@@ -183,14 +207,59 @@ public class AccessManagerImpl extends AccessManagerPOA {
   }
 
   public Metacard getMetacard(String id) {
-    Metacard metacard = null;
+    return getMetacards(Collections.singletonList(id)).get(id);
+  }
+
+  /**
+   * Resolves many product ids with as few catalog queries as possible. Metacards resolved in the
+   * last {@value #METACARD_CACHE_TTL_MSEC} milliseconds are taken from a cache instead of the
+   * catalog.
+   *
+   * @param ids the metacard ids of the products.
+   * @return the metacards that were found, keyed by id.
+   */
+  public Map<String, Metacard> getMetacards(Collection<String> ids) {
+    Map<String, Metacard> metacards = new HashMap<>();
+    List<String> uncachedIds = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    for (String id : new LinkedHashSet<>(ids)) {
+      Metacard metacard = getCachedMetacard(id, now);
+      if (metacard != null) {
+        metacards.put(id, metacard);
+      } else if (id != null) {
+        uncachedIds.add(id);
+      }
+    }
+
+    for (int i = 0; i < uncachedIds.size(); i += MAX_IDS_PER_QUERY) {
+      List<String> batch =
+          uncachedIds.subList(i, Math.min(uncachedIds.size(), i + MAX_IDS_PER_QUERY));
+      Set<String> batchIds = new HashSet<>(batch);
+      for (Result result : queryMetacards(batch)) {
+        Metacard metacard = result.getMetacard();
+        if (metacard != null && batchIds.contains(metacard.getId())) {
+          if (metacards.putIfAbsent(metacard.getId(), metacard) == null) {
+            cacheMetacard(metacard, now);
+          }
+        }
+      }
+    }
+
+    return metacards;
+  }
+
+  private List<Result> queryMetacards(List<String> ids) {
     List<Result> results = new ArrayList<>();
 
-    Filter filter = filterBuilder.attribute(Metacard.ID).is().equalTo().text(id);
+    List<Filter> idFilters = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      idFilters.add(filterBuilder.attribute(Metacard.ID).is().equalTo().text(id));
+    }
+    Filter filter = idFilters.size() == 1 ? idFilters.get(0) : filterBuilder.anyOf(idFilters);
 
     QueryImpl catalogQuery = new QueryImpl(filter);
     catalogQuery.setRequestsTotalResultsCount(false);
-    catalogQuery.setPageSize(10);
+    catalogQuery.setPageSize(Math.max(10, ids.size() * 2));
 
     QueryRequestImpl catalogQueryRequest;
 
@@ -208,11 +277,44 @@ public class AccessManagerImpl extends AccessManagerPOA {
       LOGGER.debug("Unable to query catalog", e);
     }
 
-    if (!results.isEmpty()) {
-      metacard = results.iterator().next().getMetacard();
+    return results;
+  }
+
+  private Metacard getCachedMetacard(String id, long now) {
+    synchronized (metacardCache) {
+      CachedMetacard cachedMetacard = metacardCache.get(id);
+      if (cachedMetacard == null) {
+        return null;
+      }
+      if (cachedMetacard.expiresAt <= now) {
+        metacardCache.remove(id);
+        return null;
+      }
+      return cachedMetacard.metacard;
+    }
+  }
+
+  /** Caches the metacard unless a version with a later modified date is already cached. */
+  private void cacheMetacard(Metacard metacard, long now) {
+    synchronized (metacardCache) {
+      CachedMetacard cachedMetacard = metacardCache.get(metacard.getId());
+      if (cachedMetacard == null
+          || cachedMetacard.expiresAt <= now
+          || !isOlder(metacard.getModifiedDate(), cachedMetacard.modified)) {
+        metacardCache.put(
+            metacard.getId(), new CachedMetacard(metacard, now + METACARD_CACHE_TTL_MSEC));
+      }
+    }
+  }
+
+  private void clearMetacardCache() {
+    synchronized (metacardCache) {
+      metacardCache.clear();
     }
+  }
 
-    return metacard;
+  private static boolean isOlder(Date modified, Date otherModified) {
+    return modified != null && otherModified != null && modified.before(otherModified);
   }
 
   public boolean isUrlValid(String urlStr) {
@@ -233,6 +335,20 @@ public class AccessManagerImpl extends AccessManagerPOA {
     return false;
   }
 
+  private static class CachedMetacard {
+    private final Metacard metacard;
+
+    private final Date modified;
+
+    private final long expiresAt;
+
+    CachedMetacard(Metacard metacard, long expiresAt) {
+      this.metacard = metacard;
+      this.modified = metacard.getModifiedDate();
+      this.expiresAt = expiresAt;
+    }
+  }
+
   class QueryResultsCallable implements Callable<List<Result>> {
     QueryRequestImpl catalogQueryRequest;
 
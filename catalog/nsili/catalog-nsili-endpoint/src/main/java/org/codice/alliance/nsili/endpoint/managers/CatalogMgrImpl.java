@@ -20,12 +20,12 @@ import ddf.catalog.filter.FilterBuilder;
 import ddf.catalog.operation.QueryResponse;
 import ddf.catalog.operation.impl.QueryImpl;
 import ddf.catalog.operation.impl.QueryRequestImpl;
-import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import org.codice.alliance.nsili.common.BqsConverter;
+import org.codice.alliance.nsili.common.BqsFilterCache;
 import org.codice.alliance.nsili.common.GIAS.CatalogMgrPOA;
 import org.codice.alliance.nsili.common.GIAS.HitCountRequest;
 import org.codice.alliance.nsili.common.GIAS.HitCountRequestHelper;
@@ -44,10 +44,6 @@ import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
 import org.codice.alliance.nsili.endpoint.requests.HitCountRequestImpl;
 import org.codice.alliance.nsili.endpoint.requests.SubmitQueryRequestImpl;
 import org.omg.CORBA.NO_IMPLEMENT;
-import org.omg.PortableServer.POA;
-import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
-import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
-import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.opengis.filter.Filter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,14 +52,10 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CatalogMgrImpl.class);
 
-  private POA poa;
-
   private CatalogFramework catalogFramework;
 
   private int maxNumResults = NsiliEndpoint.DEFAULT_MAX_NUM_RESULTS;
 
-  private long defaultTimeout = AccessManagerImpl.DEFAULT_TIMEOUT;
-
   private FilterBuilder filterBuilder;
 
   private boolean removeSourceLibrary = true;
@@ -72,8 +64,13 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
 
   private boolean outgoingValidationEnabled;
 
-  public CatalogMgrImpl(POA poa, FilterBuilder filterBuilder, Set<String> querySources) {
-    this.poa = poa;
+  private RequestTracker requestTracker;
+
+  private ExecutorService conversionExecutor;
+
+  private BqsFilterCache bqsFilterCache;
+
+  public CatalogMgrImpl(FilterBuilder filterBuilder, Set<String> querySources) {
     this.filterBuilder = filterBuilder;
     if (querySources != null) {
       this.querySources.addAll(querySources);
@@ -96,38 +93,51 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
     this.outgoingValidationEnabled = outgoingValidationEnabled;
   }
 
+  public void setRequestTracker(RequestTracker requestTracker) {
+    this.requestTracker = requestTracker;
+  }
+
+  public void setConversionExecutor(ExecutorService conversionExecutor) {
+    this.conversionExecutor = conversionExecutor;
+  }
+
+  /** @param bqsFilterCache the filters of queries converted before, or null to not cache them. */
+  public void setBqsFilterCache(BqsFilterCache bqsFilterCache) {
+    this.bqsFilterCache = bqsFilterCache;
+  }
+
   @Override
   public Request[] get_active_requests() throws ProcessingFault, SystemFault {
-    return new Request[0];
+    return requestTracker.getActiveRequests(this);
   }
 
   @Override
   public int get_default_timeout() throws ProcessingFault, SystemFault {
-    return (int) defaultTimeout;
+    return requestTracker.getDefaultTimeout(this);
   }
 
   @Override
   public void set_default_timeout(int new_default)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    this.defaultTimeout = new_default;
+    requestTracker.setDefaultTimeout(this, new_default);
   }
 
   @Override
   public int get_timeout(Request aRequest)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    return (int) defaultTimeout;
+    return requestTracker.getTimeout(this, aRequest);
   }
 
   @Override
   public void set_timeout(Request aRequest, int new_lifetime)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    // Nothing to do here, as the query has already executed
+    requestTracker.setTimeout(this, aRequest, new_lifetime);
   }
 
   @Override
   public void delete_request(Request aRequest)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    // Nothing to do here, we don't keep a list of requests. We work them as they are submitted.
+    requestTracker.delete(this, aRequest);
   }
 
   @Override
@@ -137,30 +147,20 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
       SortAttribute[] sort_attributes,
       NameValue[] properties)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    BqsConverter bqsConverter = new BqsConverter(filterBuilder, removeSourceLibrary);
+    BqsConverter bqsConverter =
+        new BqsConverter(filterBuilder, removeSourceLibrary, bqsFilterCache);
     SubmitQueryRequestImpl submitQueryRequest =
         new SubmitQueryRequestImpl(
             aQuery, filterBuilder, bqsConverter, catalogFramework, querySources);
     submitQueryRequest.set_number_of_hits(maxNumResults);
-    submitQueryRequest.setTimeout(defaultTimeout);
+    submitQueryRequest.setTimeout(requestTracker.getDefaultTimeout(this));
     submitQueryRequest.setOutgoingValidationEnabled(outgoingValidationEnabled);
+    submitQueryRequest.setConversionExecutor(conversionExecutor);
 
     submitQueryRequest.setResultAttributes(result_attributes);
 
-    String queryId = UUID.randomUUID().toString();
-    try {
-      poa.activate_object_with_id(
-          queryId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), submitQueryRequest);
-    } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
-      LOGGER.debug("submit_query : Unable to activate submitQueryRequest object.", e);
-    }
-
-    org.omg.CORBA.Object obj =
-        poa.create_reference_with_id(
-            queryId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
-            SubmitQueryRequestHelper.id());
-    SubmitQueryRequest queryRequest = SubmitQueryRequestHelper.narrow(obj);
-    return queryRequest;
+    return requestTracker.activate(
+        this, submitQueryRequest, SubmitQueryRequestHelper.id(), SubmitQueryRequestHelper::narrow);
   }
 
   @Override
@@ -171,21 +171,8 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
 
     HitCountRequestImpl hitCountRequest = new HitCountRequestImpl(numResults);
 
-    String id = UUID.randomUUID().toString();
-
-    try {
-      poa.activate_object_with_id(
-          id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), hitCountRequest);
-    } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
-      LOGGER.debug("hit_count : Unable to activate hitCountRequest object: {}", id, e);
-    }
-
-    org.omg.CORBA.Object obj =
-        poa.create_reference_with_id(
-            id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), HitCountRequestHelper.id());
-    HitCountRequest queryRequest = HitCountRequestHelper.narrow(obj);
-
-    return queryRequest;
+    return requestTracker.activate(
+        this, hitCountRequest, HitCountRequestHelper.id(), HitCountRequestHelper::narrow);
   }
 
   @Override
@@ -210,7 +197,8 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
   protected long getResultCount(Query aQuery) {
     long resultCount = 0;
 
-    BqsConverter bqsConverter = new BqsConverter(filterBuilder, removeSourceLibrary);
+    BqsConverter bqsConverter =
+        new BqsConverter(filterBuilder, removeSourceLibrary, bqsFilterCache);
     Filter parsedFilter = bqsConverter.convertBQSToDDF(aQuery);
 
     // Always need to ask for the DEFAULT_TAG or we get non-resource metacards
@@ -244,8 +232,9 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
 
     QueryImpl catalogQuery = new QueryImpl(parsedFilter);
 
-    if (defaultTimeout > 0) {
-      catalogQuery.setTimeoutMillis(defaultTimeout * 1000);
+    long timeout = requestTracker.getDefaultTimeout(this);
+    if (timeout > 0) {
+      catalogQuery.setTimeoutMillis(timeout * 1000);
     }
 
     catalogQuery.setPageSize(1);
@@ -15,10 +15,6 @@ package org.codice.alliance.nsili.endpoint.managers;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.filter.FilterBuilder;
-import java.nio.charset.Charset;
-import java.util.UUID;
-import org.codice.alliance.nsili.common.CorbaUtils;
-import org.codice.alliance.nsili.common.GIAS.AccessManagerHelper;
 import org.codice.alliance.nsili.common.GIAS.CreateAssociationRequest;
 import org.codice.alliance.nsili.common.GIAS.CreateMetaDataRequest;
 import org.codice.alliance.nsili.common.GIAS.CreateRequest;
@@ -34,11 +30,7 @@ import org.codice.alliance.nsili.common.UCO.NameValue;
 import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UID.Product;
-import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
 import org.omg.CORBA.NO_IMPLEMENT;
-import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
-import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
-import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,12 +38,12 @@ public class CreationMgrImpl extends CreationMgrPOA {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CreationMgrImpl.class);
 
-  private AccessManagerImpl accessManager = null;
-
   private CatalogFramework catalogFramework;
 
   private FilterBuilder filterBuilder;
 
+  private RequestTracker requestTracker;
+
   public void setCatalogFramework(CatalogFramework catalogFramework) {
     this.catalogFramework = catalogFramework;
   }
@@ -60,6 +52,10 @@ public class CreationMgrImpl extends CreationMgrPOA {
     this.filterBuilder = filterBuilder;
   }
 
+  public void setRequestTracker(RequestTracker requestTracker) {
+    this.requestTracker = requestTracker;
+  }
+
   @Override
   public CreateRequest create(
       FileLocation[] new_product,
@@ -105,62 +101,36 @@ public class CreationMgrImpl extends CreationMgrPOA {
 
   @Override
   public Request[] get_active_requests() throws ProcessingFault, SystemFault {
-    return new Request[0];
+    return requestTracker.getActiveRequests(this);
   }
 
   @Override
   public int get_default_timeout() throws ProcessingFault, SystemFault {
-    return getAccessManager().get_default_timeout();
+    return requestTracker.getDefaultTimeout(this);
   }
 
   @Override
   public void set_default_timeout(int new_default)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    getAccessManager().set_default_timeout(new_default);
+    requestTracker.setDefaultTimeout(this, new_default);
   }
 
   @Override
   public int get_timeout(Request aRequest)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    return AccessManagerImpl.DEFAULT_TIMEOUT;
+    return requestTracker.getTimeout(this, aRequest);
   }
 
   @Override
   public void set_timeout(Request aRequest, int new_lifetime)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    // This method is not expected to be called
+    requestTracker.setTimeout(this, aRequest, new_lifetime);
   }
 
   @Override
   public void delete_request(Request aRequest)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    // This method is not expected to be called
+    requestTracker.delete(this, aRequest);
   }
 
-  private AccessManagerImpl getAccessManager() {
-    if (accessManager == null) {
-      accessManager = new AccessManagerImpl();
-      accessManager.setCatalogFramework(catalogFramework);
-      accessManager.setFilterBuilder(filterBuilder);
-
-      String managerId = UUID.randomUUID().toString();
-      if (!CorbaUtils.isIdActive(
-          _poa(), managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
-        try {
-          _poa()
-              .activate_object_with_id(
-                  managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), accessManager);
-        } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
-          LOGGER.debug("Error activating AcccessMgr: ", e);
-        }
-      }
-
-      _poa()
-          .create_reference_with_id(
-              managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
-              AccessManagerHelper.id());
-    }
-
-    return accessManager;
-  }
 }
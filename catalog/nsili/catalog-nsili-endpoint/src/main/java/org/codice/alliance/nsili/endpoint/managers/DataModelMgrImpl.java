@@ -58,7 +58,7 @@ public class DataModelMgrImpl extends DataModelMgrPOA {
 
   private static final short MAX_VERTICES = 10;
 
-  private NsiliDataModel nsiliDataModel = new NsiliDataModel();
+  private NsiliDataModel nsiliDataModel = NsiliDataModel.getInstance();
 
   static {
     VIEWS = new View[VIEW_NAMES.length];
@@ -0,0 +1,431 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.AttributeDescriptor;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.filter.FilterDelegate;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates a filter against a single metacard in memory. Text comparisons approximate the text
+ * matching of the catalog: like patterns match whole words of a value and {@link Metacard#ANY_TEXT}
+ * matches any text attribute.
+ *
+ * <p>Spatial and other operations that are not implemented throw {@link
+ * UnsupportedOperationException}, so filters that use them have to be evaluated by the catalog.
+ */
+public class MetacardMatchDelegate extends FilterDelegate<Boolean> {
+
+  private static final String ANY_VALUE = "*";
+
+  private final Metacard metacard;
+
+  private final BiFunction<String, Boolean, Pattern> patternCompiler;
+
+  /**
+   * @param metacard the metacard to evaluate filters against.
+   * @param patternCompiler compiles case sensitive or insensitive like patterns, so compiled
+   *     patterns can be shared.
+   */
+  public MetacardMatchDelegate(
+      Metacard metacard, BiFunction<String, Boolean, Pattern> patternCompiler) {
+    this.metacard = metacard;
+    this.patternCompiler = patternCompiler;
+  }
+
+  /**
+   * @param pattern a like pattern with * and ? wildcards and \ as the escape character.
+   * @param isCaseSensitive whether the pattern is case sensitive.
+   * @return the regular expression matching the pattern as whole words.
+   */
+  public static Pattern compileLikePattern(String pattern, boolean isCaseSensitive) {
+    StringBuilder regex = new StringBuilder("(?<!\\w)");
+    boolean escaped = false;
+    for (char c : pattern.toCharArray()) {
+      if (escaped) {
+        regex.append(Pattern.quote(String.valueOf(c)));
+        escaped = false;
+      } else if (c == '\\') {
+        escaped = true;
+      } else if (c == '*') {
+        regex.append(".*");
+      } else if (c == '?') {
+        regex.append('.');
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    regex.append("(?!\\w)");
+
+    int flags = Pattern.DOTALL;
+    if (!isCaseSensitive) {
+      flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+    }
+    return Pattern.compile(regex.toString(), flags);
+  }
+
+  @Override
+  public Boolean and(List<Boolean> operands) {
+    return operands.stream().allMatch(Boolean.TRUE::equals);
+  }
+
+  @Override
+  public Boolean or(List<Boolean> operands) {
+    return operands.stream().anyMatch(Boolean.TRUE::equals);
+  }
+
+  @Override
+  public Boolean not(Boolean operand) {
+    return !operand;
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, String literal, boolean isCaseSensitive) {
+    if (Metacard.ANY_TEXT.equals(propertyName) && ANY_VALUE.equals(literal)) {
+      return true;
+    }
+    return anyText(
+        propertyName,
+        value -> isCaseSensitive ? value.equals(literal) : value.equalsIgnoreCase(literal));
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, Date literal) {
+    return anyDate(propertyName, value -> value.getTime() == literal.getTime());
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, int literal) {
+    return anyNumber(propertyName, value -> value == literal);
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, short literal) {
+    return anyNumber(propertyName, value -> value == literal);
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, long literal) {
+    return anyNumber(propertyName, value -> value == literal);
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, float literal) {
+    return anyNumber(propertyName, value -> value == literal);
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, double literal) {
+    return anyNumber(propertyName, value -> value == literal);
+  }
+
+  @Override
+  public Boolean propertyIsEqualTo(String propertyName, boolean literal) {
+    return getValues(propertyName)
+        .stream()
+        .anyMatch(value -> Boolean.valueOf(literal).equals(value));
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(
+      String propertyName, String literal, boolean isCaseSensitive) {
+    return !propertyIsEqualTo(propertyName, literal, isCaseSensitive);
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(String propertyName, Date literal) {
+    return !propertyIsEqualTo(propertyName, literal);
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(String propertyName, int literal) {
+    return !propertyIsEqualTo(propertyName, literal);
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(String propertyName, short literal) {
+    return !propertyIsEqualTo(propertyName, literal);
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(String propertyName, long literal) {
+    return !propertyIsEqualTo(propertyName, literal);
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(String propertyName, float literal) {
+    return !propertyIsEqualTo(propertyName, literal);
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(String propertyName, double literal) {
+    return !propertyIsEqualTo(propertyName, literal);
+  }
+
+  @Override
+  public Boolean propertyIsNotEqualTo(String propertyName, boolean literal) {
+    return !propertyIsEqualTo(propertyName, literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThan(String propertyName, String literal) {
+    return anyText(propertyName, value -> value.compareTo(literal) > 0);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThan(String propertyName, Date literal) {
+    return anyDate(propertyName, value -> value.after(literal));
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThan(String propertyName, int literal) {
+    return anyNumber(propertyName, value -> value > literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThan(String propertyName, short literal) {
+    return anyNumber(propertyName, value -> value > literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThan(String propertyName, long literal) {
+    return anyNumber(propertyName, value -> value > literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThan(String propertyName, float literal) {
+    return anyNumber(propertyName, value -> value > literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThan(String propertyName, double literal) {
+    return anyNumber(propertyName, value -> value > literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThanOrEqualTo(String propertyName, String literal) {
+    return anyText(propertyName, value -> value.compareTo(literal) >= 0);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThanOrEqualTo(String propertyName, Date literal) {
+    return anyDate(propertyName, value -> !value.before(literal));
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThanOrEqualTo(String propertyName, int literal) {
+    return anyNumber(propertyName, value -> value >= literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThanOrEqualTo(String propertyName, short literal) {
+    return anyNumber(propertyName, value -> value >= literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThanOrEqualTo(String propertyName, long literal) {
+    return anyNumber(propertyName, value -> value >= literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThanOrEqualTo(String propertyName, float literal) {
+    return anyNumber(propertyName, value -> value >= literal);
+  }
+
+  @Override
+  public Boolean propertyIsGreaterThanOrEqualTo(String propertyName, double literal) {
+    return anyNumber(propertyName, value -> value >= literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThan(String propertyName, String literal) {
+    return anyText(propertyName, value -> value.compareTo(literal) < 0);
+  }
+
+  @Override
+  public Boolean propertyIsLessThan(String propertyName, Date literal) {
+    return anyDate(propertyName, value -> value.before(literal));
+  }
+
+  @Override
+  public Boolean propertyIsLessThan(String propertyName, int literal) {
+    return anyNumber(propertyName, value -> value < literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThan(String propertyName, short literal) {
+    return anyNumber(propertyName, value -> value < literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThan(String propertyName, long literal) {
+    return anyNumber(propertyName, value -> value < literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThan(String propertyName, float literal) {
+    return anyNumber(propertyName, value -> value < literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThan(String propertyName, double literal) {
+    return anyNumber(propertyName, value -> value < literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThanOrEqualTo(String propertyName, String literal) {
+    return anyText(propertyName, value -> value.compareTo(literal) <= 0);
+  }
+
+  @Override
+  public Boolean propertyIsLessThanOrEqualTo(String propertyName, Date literal) {
+    return anyDate(propertyName, value -> !value.after(literal));
+  }
+
+  @Override
+  public Boolean propertyIsLessThanOrEqualTo(String propertyName, int literal) {
+    return anyNumber(propertyName, value -> value <= literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThanOrEqualTo(String propertyName, short literal) {
+    return anyNumber(propertyName, value -> value <= literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThanOrEqualTo(String propertyName, long literal) {
+    return anyNumber(propertyName, value -> value <= literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThanOrEqualTo(String propertyName, float literal) {
+    return anyNumber(propertyName, value -> value <= literal);
+  }
+
+  @Override
+  public Boolean propertyIsLessThanOrEqualTo(String propertyName, double literal) {
+    return anyNumber(propertyName, value -> value <= literal);
+  }
+
+  @Override
+  public Boolean propertyIsBetween(
+      String propertyName, String lowerBoundary, String upperBoundary) {
+    return anyText(
+        propertyName,
+        value -> value.compareTo(lowerBoundary) >= 0 && value.compareTo(upperBoundary) <= 0);
+  }
+
+  @Override
+  public Boolean propertyIsBetween(String propertyName, Date lowerBoundary, Date upperBoundary) {
+    return anyDate(
+        propertyName, value -> !value.before(lowerBoundary) && !value.after(upperBoundary));
+  }
+
+  @Override
+  public Boolean propertyIsBetween(String propertyName, int lowerBoundary, int upperBoundary) {
+    return anyNumber(propertyName, value -> value >= lowerBoundary && value <= upperBoundary);
+  }
+
+  @Override
+  public Boolean propertyIsBetween(String propertyName, short lowerBoundary, short upperBoundary) {
+    return anyNumber(propertyName, value -> value >= lowerBoundary && value <= upperBoundary);
+  }
+
+  @Override
+  public Boolean propertyIsBetween(String propertyName, long lowerBoundary, long upperBoundary) {
+    return anyNumber(propertyName, value -> value >= lowerBoundary && value <= upperBoundary);
+  }
+
+  @Override
+  public Boolean propertyIsBetween(String propertyName, float lowerBoundary, float upperBoundary) {
+    return anyNumber(propertyName, value -> value >= lowerBoundary && value <= upperBoundary);
+  }
+
+  @Override
+  public Boolean propertyIsBetween(
+      String propertyName, double lowerBoundary, double upperBoundary) {
+    return anyNumber(propertyName, value -> value >= lowerBoundary && value <= upperBoundary);
+  }
+
+  @Override
+  public Boolean propertyIsNull(String propertyName) {
+    return getValues(propertyName).isEmpty();
+  }
+
+  @Override
+  public Boolean propertyIsLike(String propertyName, String pattern, boolean isCaseSensitive) {
+    Pattern likePattern = patternCompiler.apply(pattern, isCaseSensitive);
+    return anyText(propertyName, value -> likePattern.matcher(value).find());
+  }
+
+  @Override
+  public Boolean after(String propertyName, Date date) {
+    return anyDate(propertyName, value -> value.after(date));
+  }
+
+  @Override
+  public Boolean before(String propertyName, Date date) {
+    return anyDate(propertyName, value -> value.before(date));
+  }
+
+  @Override
+  public Boolean during(String propertyName, Date startDate, Date endDate) {
+    return anyDate(propertyName, value -> value.after(startDate) && value.before(endDate));
+  }
+
+  private boolean anyText(String propertyName, Predicate<String> predicate) {
+    if (Metacard.ANY_TEXT.equals(propertyName)) {
+      for (AttributeDescriptor descriptor : metacard.getMetacardType().getAttributeDescriptors()) {
+        if (String.class.equals(descriptor.getType().getBinding())
+            && anyText(descriptor.getName(), predicate)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    return getValues(propertyName)
+        .stream()
+        .anyMatch(value -> value instanceof String && predicate.test((String) value));
+  }
+
+  private boolean anyDate(String propertyName, Predicate<Date> predicate) {
+    return getValues(propertyName)
+        .stream()
+        .anyMatch(value -> value instanceof Date && predicate.test((Date) value));
+  }
+
+  private boolean anyNumber(String propertyName, Predicate<Double> predicate) {
+    return getValues(propertyName)
+        .stream()
+        .anyMatch(
+            value -> value instanceof Number && predicate.test(((Number) value).doubleValue()));
+  }
+
+  private List<Serializable> getValues(String propertyName) {
+    Attribute attribute = metacard.getAttribute(propertyName);
+    if (attribute == null || attribute.getValues() == null) {
+      return Collections.emptyList();
+    }
+    return attribute.getValues();
+  }
+}
@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.GIAS.AccessManagerHelper;
 import org.codice.alliance.nsili.common.GIAS.AvailabilityRequirement;
@@ -41,6 +42,7 @@ import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.requests.HttpDeliveryClient;
 import org.codice.alliance.nsili.endpoint.requests.OrderRequestImpl;
 import org.codice.alliance.nsili.transformer.DAGConverter;
 import org.omg.CORBA.NO_IMPLEMENT;
@@ -62,6 +64,12 @@ public class OrderMgrImpl extends OrderMgrPOA {
 
   private EmailConfiguration emailConfiguration;
 
+  private RequestTracker requestTracker;
+
+  private ExecutorService transferExecutor;
+
+  private HttpDeliveryClient deliveryClient;
+
   public void setCatalogFramework(CatalogFramework catalogFramework) {
     this.catalogFramework = catalogFramework;
   }
@@ -77,6 +85,20 @@ public class OrderMgrImpl extends OrderMgrPOA {
     }
   }
 
+  public void setRequestTracker(RequestTracker requestTracker) {
+    this.requestTracker = requestTracker;
+  }
+
+  /** @param transferExecutor the executor that retrieves and delivers the products of orders. */
+  public void setTransferExecutor(ExecutorService transferExecutor) {
+    this.transferExecutor = transferExecutor;
+  }
+
+  /** @param deliveryClient the client that sends ordered files to HTTP destinations. */
+  public void setDeliveryClient(HttpDeliveryClient deliveryClient) {
+    this.deliveryClient = deliveryClient;
+  }
+
   @Override
   public String[] get_package_specifications() throws ProcessingFault, SystemFault {
     List<String> supportedPackagingSpecs = new ArrayList<>(PackagingSpecFormatType.values().length);
@@ -111,25 +133,17 @@ public class OrderMgrImpl extends OrderMgrPOA {
 
     OrderRequestImpl orderRequestImpl =
         new OrderRequestImpl(
-            order, protocol, port, getAccessManager(), catalogFramework, emailConfiguration);
-
-    String id = UUID.randomUUID().toString();
-    try {
-      _poa()
-          .activate_object_with_id(
-              id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), orderRequestImpl);
-    } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
-      LOGGER.debug("order : Unable to activate orderRequest object.", e);
-    }
-
-    org.omg.CORBA.Object obj =
-        _poa()
-            .create_reference_with_id(
-                id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), OrderRequestHelper.id());
-
-    OrderRequest orderRequest = OrderRequestHelper.narrow(obj);
-
-    return orderRequest;
+            order,
+            protocol,
+            port,
+            getAccessManager(),
+            catalogFramework,
+            emailConfiguration,
+            deliveryClient);
+    orderRequestImpl.setTransferExecutor(transferExecutor);
+
+    return requestTracker.activate(
+        this, orderRequestImpl, OrderRequestHelper.id(), OrderRequestHelper::narrow);
   }
 
   // Access Mgr
@@ -169,36 +183,36 @@ public class OrderMgrImpl extends OrderMgrPOA {
   // Request
   @Override
   public Request[] get_active_requests() throws ProcessingFault, SystemFault {
-    return new Request[0];
+    return requestTracker.getActiveRequests(this);
   }
 
   @Override
   public int get_default_timeout() throws ProcessingFault, SystemFault {
-    return getAccessManager().get_default_timeout();
+    return requestTracker.getDefaultTimeout(this);
   }
 
   @Override
   public void set_default_timeout(int new_default)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    getAccessManager().set_default_timeout(new_default);
+    requestTracker.setDefaultTimeout(this, new_default);
   }
 
   @Override
   public int get_timeout(Request aRequest)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    return getAccessManager().get_timeout(aRequest);
+    return requestTracker.getTimeout(this, aRequest);
   }
 
   @Override
   public void set_timeout(Request aRequest, int new_lifetime)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    // This method is not expected to be called
+    requestTracker.setTimeout(this, aRequest, new_lifetime);
   }
 
   @Override
   public void delete_request(Request aRequest)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    // This method is not expected to be called
+    requestTracker.delete(this, aRequest);
   }
 
   // LibraryMgr
@@ -249,4 +263,5 @@ public class OrderMgrImpl extends OrderMgrPOA {
   public void setEmailConfiguration(EmailConfiguration emailConfiguration) {
     this.emailConfiguration = emailConfiguration;
   }
+
 }
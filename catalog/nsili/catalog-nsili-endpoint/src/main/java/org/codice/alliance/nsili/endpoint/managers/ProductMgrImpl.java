@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.GIAS.AccessManagerHelper;
 import org.codice.alliance.nsili.common.GIAS.AvailabilityRequirement;
@@ -45,6 +46,7 @@ import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
 import org.codice.alliance.nsili.endpoint.requests.GetParametersRequestImpl;
 import org.codice.alliance.nsili.endpoint.requests.GetRelatedFilesRequestImpl;
+import org.codice.alliance.nsili.endpoint.requests.HttpDeliveryClient;
 import org.omg.CORBA.NO_IMPLEMENT;
 import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
 import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
@@ -60,8 +62,6 @@ public class ProductMgrImpl extends ProductMgrPOA {
 
   private static final int QUERY_AVAILABILITY_DELAY = 10;
 
-  private static final int TIMEOUT = 1;
-
   private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ProductMgrImpl.class);
 
   private CatalogFramework catalogFramework;
@@ -74,6 +74,12 @@ public class ProductMgrImpl extends ProductMgrPOA {
 
   private boolean outgoingValidationEnabled;
 
+  private RequestTracker requestTracker;
+
+  private ExecutorService transferExecutor;
+
+  private HttpDeliveryClient deliveryClient;
+
   public ProductMgrImpl(Set<String> querySources) {
     if (querySources != null) {
       this.querySources = new HashSet<>(querySources);
@@ -92,6 +98,20 @@ public class ProductMgrImpl extends ProductMgrPOA {
     this.outgoingValidationEnabled = outgoingValidationEnabled;
   }
 
+  /** @param transferExecutor the executor that stores related files at client locations. */
+  public void setTransferExecutor(ExecutorService transferExecutor) {
+    this.transferExecutor = transferExecutor;
+  }
+
+  /** @param deliveryClient the client that stores related files at client locations. */
+  public void setDeliveryClient(HttpDeliveryClient deliveryClient) {
+    this.deliveryClient = deliveryClient;
+  }
+
+  public void setRequestTracker(RequestTracker requestTracker) {
+    this.requestTracker = requestTracker;
+  }
+
   @Override
   public GetParametersRequest get_parameters(
       Product prod, String[] desired_parameters, NameValue[] properties)
@@ -99,8 +119,6 @@ public class ProductMgrImpl extends ProductMgrPOA {
 
     GetParametersRequest getParamRequest = null;
 
-    String id = UUID.randomUUID().toString();
-
     try {
       String productIdStr = getAccessManager().getProductId(prod);
 
@@ -112,27 +130,18 @@ public class ProductMgrImpl extends ProductMgrPOA {
               filterBuilder,
               querySources,
               outgoingValidationEnabled);
-      _poa()
-          .activate_object_with_id(
-              id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), getParametersRequest);
-
-      org.omg.CORBA.Object obj =
-          _poa()
-              .create_reference_with_id(
-                  id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
-                  GetParametersRequestHelper.id());
-      getParamRequest = GetParametersRequestHelper.narrow(obj);
+      getParamRequest =
+          requestTracker.activate(
+              this,
+              getParametersRequest,
+              GetParametersRequestHelper.id(),
+              GetParametersRequestHelper::narrow);
 
     } catch (WrongAdapter | WrongPolicy | UnsupportedEncodingException e) {
       LOGGER.debug(
           "Unable to get ID from product reference: {}",
           NsilCorbaExceptionUtil.getExceptionDetails(e),
           e);
-    } catch (ServantAlreadyActive | ObjectAlreadyActive e) {
-      LOGGER.debug(
-          "get_parameters : Unable to activate getParametersRequest object. {}",
-          NsilCorbaExceptionUtil.getExceptionDetails(e),
-          e);
     }
 
     return getParamRequest;
@@ -148,10 +157,8 @@ public class ProductMgrImpl extends ProductMgrPOA {
   public GetRelatedFilesRequest get_related_files(
       Product[] products, FileLocation location, String type, NameValue[] properties)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    String id = UUID.randomUUID().toString();
-
+    List<Metacard> metacards = new ArrayList<>();
     try {
-      List<Metacard> metacards = new ArrayList<>();
       AccessManagerImpl accessMgr = getAccessManager();
       for (Product product : products) {
         Metacard metacard = accessMgr.getMetacard(accessMgr.getProductId(product));
@@ -159,29 +166,19 @@ public class ProductMgrImpl extends ProductMgrPOA {
           metacards.add(metacard);
         }
       }
-
-      Integer port = getPort(properties);
-      GetRelatedFilesRequestImpl getRelatedFilesRequest =
-          new GetRelatedFilesRequestImpl(metacards, location, type, port);
-      _poa()
-          .activate_object_with_id(
-              id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), getRelatedFilesRequest);
-    } catch (ServantAlreadyActive
-        | ObjectAlreadyActive
-        | WrongPolicy
-        | WrongAdapter
-        | UnsupportedEncodingException e) {
-      LOGGER.debug("get_related_files : Unable to activate getRelatedFilesRequest object.", e);
+    } catch (WrongPolicy | WrongAdapter | UnsupportedEncodingException e) {
+      LOGGER.debug("get_related_files : Unable to get ID from product reference.", e);
     }
 
-    org.omg.CORBA.Object obj =
-        _poa()
-            .create_reference_with_id(
-                id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
-                GetRelatedFilesRequestHelper.id());
-    GetRelatedFilesRequest queryRequest = GetRelatedFilesRequestHelper.narrow(obj);
-
-    return queryRequest;
+    Integer port = getPort(properties);
+    GetRelatedFilesRequestImpl getRelatedFilesRequest =
+        new GetRelatedFilesRequestImpl(metacards, location, type, port, deliveryClient);
+    getRelatedFilesRequest.setTransferExecutor(transferExecutor);
+    return requestTracker.activate(
+        this,
+        getRelatedFilesRequest,
+        GetRelatedFilesRequestHelper.id(),
+        GetRelatedFilesRequestHelper::narrow);
   }
 
   // Access Mgr
@@ -221,36 +218,36 @@ public class ProductMgrImpl extends ProductMgrPOA {
   // Request
   @Override
   public Request[] get_active_requests() throws ProcessingFault, SystemFault {
-    return new Request[0];
+    return requestTracker.getActiveRequests(this);
   }
 
   @Override
   public int get_default_timeout() throws ProcessingFault, SystemFault {
-    return TIMEOUT;
+    return requestTracker.getDefaultTimeout(this);
   }
 
   @Override
   public void set_default_timeout(int new_default)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    // This method is not expected to be called
+    requestTracker.setDefaultTimeout(this, new_default);
   }
 
   @Override
   public int get_timeout(Request aRequest)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    return TIMEOUT;
+    return requestTracker.getTimeout(this, aRequest);
   }
 
   @Override
   public void set_timeout(Request aRequest, int new_lifetime)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    // This method is not expected to be called
+    requestTracker.setTimeout(this, aRequest, new_lifetime);
   }
 
   @Override
   public void delete_request(Request aRequest)
       throws ProcessingFault, InvalidInputParameter, SystemFault {
-    // This method is not expected to be called
+    requestTracker.delete(this, aRequest);
   }
 
   // LibraryMgr
@@ -314,4 +311,5 @@ public class ProductMgrImpl extends ProductMgrPOA {
 
     return accessManager;
   }
+
 }
@@ -31,38 +31,51 @@ import org.omg.CORBA.SetOverrideType;
 
 public class RequestManagerImpl extends RequestManagerPOA implements RequestManager {
 
+  private final RequestTracker requestTracker;
+
+  private final java.lang.Object owner;
+
+  /**
+   * @param requestTracker the tracker of the requests.
+   * @param owner the manager whose requests are managed.
+   */
+  public RequestManagerImpl(RequestTracker requestTracker, java.lang.Object owner) {
+    this.requestTracker = requestTracker;
+    this.owner = owner;
+  }
+
   @Override
   public Request[] get_active_requests() throws ProcessingFault, SystemFault {
-    return new Request[0];
+    return requestTracker.getActiveRequests(owner);
   }
 
   @Override
   public int get_default_timeout() throws ProcessingFault, SystemFault {
-    return 0;
+    return requestTracker.getDefaultTimeout(owner);
   }
 
   @Override
   public void set_default_timeout(int new_default)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    // This method is not expected to be called
+    requestTracker.setDefaultTimeout(owner, new_default);
   }
 
   @Override
   public int get_timeout(Request aRequest)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    return 0;
+    return requestTracker.getTimeout(owner, aRequest);
   }
 
   @Override
   public void set_timeout(Request aRequest, int new_lifetime)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    // This method is not expected to be called
+    requestTracker.setTimeout(owner, aRequest, new_lifetime);
   }
 
   @Override
   public void delete_request(Request aRequest)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    // This method is not expected to be called
+    requestTracker.delete(owner, aRequest);
   }
 
   @Override
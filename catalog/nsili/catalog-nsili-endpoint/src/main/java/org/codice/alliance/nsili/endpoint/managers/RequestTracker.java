@@ -0,0 +1,455 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import org.codice.alliance.nsili.common.GIAS.Request;
+import org.codice.alliance.nsili.common.GIAS.RequestManager;
+import org.codice.alliance.nsili.common.GIAS.RequestManagerHelper;
+import org.codice.alliance.nsili.common.GIAS.RequestOperations;
+import org.codice.alliance.nsili.common.NsilCorbaExceptionUtil;
+import org.codice.alliance.nsili.common.UCO.ProcessingFault;
+import org.codice.alliance.nsili.common.UCO.SystemFault;
+import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.omg.PortableServer.POA;
+import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
+import org.omg.PortableServer.POAPackage.ObjectNotActive;
+import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
+import org.omg.PortableServer.POAPackage.WrongAdapter;
+import org.omg.PortableServer.POAPackage.WrongPolicy;
+import org.omg.PortableServer.Servant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Activates the request servants of the NSILI library and keeps track of them until they are
+ * deleted by a client or their lifetime expires. Expired requests are cancelled and deactivated by
+ * a background reaper once {@link #start()} has been called.
+ *
+ * <p>Each request belongs to the manager that created it, and a manager only sees, changes and
+ * deletes its own requests. A manager may override the default lifetime of the requests it creates
+ * without changing the default lifetime configured for the library. Once a manager is deactivated,
+ * its requests are deleted along with its request manager and lifetime, see {@link
+ * #removeOwner(Object)}.
+ *
+ * <p>Lifetimes are in seconds. A negative lifetime never expires.
+ */
+public class RequestTracker implements RequestTrackerMBean {
+
+  public static final int NO_TIMEOUT = AccessManagerImpl.DEFAULT_TIMEOUT;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequestTracker.class);
+
+  private static final long REAP_INTERVAL_SECONDS = 60;
+
+  private final POA poa;
+
+  private final Map<String, TrackedRequest> requests = new ConcurrentHashMap<>();
+
+  private final Map<Object, Integer> ownerDefaultTimeouts = new ConcurrentHashMap<>();
+
+  private final Map<Object, RequestManager> requestManagers = new HashMap<>();
+
+  private final AtomicLong createdCount = new AtomicLong();
+
+  private final AtomicLong deletedCount = new AtomicLong();
+
+  private final AtomicLong expiredCount = new AtomicLong();
+
+  private volatile int defaultTimeout = NO_TIMEOUT;
+
+  private ScheduledExecutorService reaper;
+
+  private ObjectName objectName;
+
+  private MBeanServer mBeanServer;
+
+  public RequestTracker(POA poa) {
+    this.poa = poa;
+  }
+
+  /** Starts the background reaper and registers the request counts for monitoring. */
+  public synchronized void start() {
+    if (reaper == null) {
+      reaper = Executors.newSingleThreadScheduledExecutor();
+      reaper.scheduleWithFixedDelay(
+          this::reap, REAP_INTERVAL_SECONDS, REAP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+      registerMbean();
+    }
+  }
+
+  /** Stops the background reaper. Requests that are still active are left to the POA. */
+  public synchronized void shutdown() {
+    if (reaper != null) {
+      reaper.shutdownNow();
+      reaper = null;
+    }
+    unregisterMbean();
+  }
+
+  /**
+   * Activates a request servant with the default lifetime.
+   *
+   * @param owner the manager that created the request.
+   * @param servant the request servant.
+   * @param repositoryId the repository id of the request interface.
+   * @param narrow narrows the reference to the request interface.
+   * @return the reference to the request.
+   */
+  public <T extends Request> T activate(
+      Object owner,
+      Servant servant,
+      String repositoryId,
+      Function<org.omg.CORBA.Object, T> narrow) {
+    return activate(owner, servant, repositoryId, narrow, getDefaultTimeout(owner));
+  }
+
+  /**
+   * Activates a request servant.
+   *
+   * @param owner the manager that created the request.
+   * @param servant the request servant.
+   * @param repositoryId the repository id of the request interface.
+   * @param narrow narrows the reference to the request interface.
+   * @param lifetime the lifetime of the request in seconds.
+   * @return the reference to the request.
+   */
+  public <T extends Request> T activate(
+      Object owner,
+      Servant servant,
+      String repositoryId,
+      Function<org.omg.CORBA.Object, T> narrow,
+      int lifetime) {
+    String id = UUID.randomUUID().toString();
+    byte[] oid = id.getBytes(Charset.forName(NsiliEndpoint.ENCODING));
+    try {
+      poa.activate_object_with_id(oid, servant);
+    } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
+      LOGGER.debug("Unable to activate request object: {}", id, e);
+    }
+
+    T request = narrow.apply(poa.create_reference_with_id(oid, repositoryId));
+    requests.put(id, new TrackedRequest(owner, servant, request, lifetime));
+    createdCount.incrementAndGet();
+    return request;
+  }
+
+  /**
+   * @param owner the manager that created the requests.
+   * @return the requests of the manager that are active.
+   */
+  public Request[] getActiveRequests(Object owner) {
+    List<Request> activeRequests = new ArrayList<>();
+    for (TrackedRequest trackedRequest : requests.values()) {
+      if (trackedRequest.owner == owner) {
+        activeRequests.add(trackedRequest.request);
+      }
+    }
+    return activeRequests.toArray(new Request[0]);
+  }
+
+  /** @return the lifetime of requests of managers that have not overridden it, in seconds. */
+  @Override
+  public int getDefaultTimeout() {
+    return defaultTimeout;
+  }
+
+  /**
+   * @param defaultTimeout the lifetime of requests activated from now on by managers that have not
+   *     overridden it, in seconds.
+   */
+  public void setDefaultTimeout(int defaultTimeout) {
+    this.defaultTimeout = defaultTimeout;
+  }
+
+  /** @return the lifetime of requests activated by the manager, in seconds. */
+  public int getDefaultTimeout(Object owner) {
+    return ownerDefaultTimeouts.getOrDefault(owner, defaultTimeout);
+  }
+
+  /** @param defaultTimeout the lifetime of requests activated from now on by the manager. */
+  public void setDefaultTimeout(Object owner, int defaultTimeout) {
+    ownerDefaultTimeouts.put(owner, defaultTimeout);
+  }
+
+  /**
+   * @return the lifetime of the request, or the default lifetime of the manager if the request is
+   *     not one of its requests.
+   */
+  public int getTimeout(Object owner, Request request) {
+    TrackedRequest trackedRequest = getTrackedRequest(owner, request);
+    if (trackedRequest == null) {
+      return getDefaultTimeout(owner);
+    }
+    return trackedRequest.lifetime;
+  }
+
+  /**
+   * Gives the request a new lifetime that starts now. Requests that are not requests of the
+   * manager are ignored.
+   */
+  public void setTimeout(Object owner, Request request, int lifetime) {
+    TrackedRequest trackedRequest = getTrackedRequest(owner, request);
+    if (trackedRequest != null) {
+      trackedRequest.setLifetime(lifetime);
+    }
+  }
+
+  /**
+   * Cancels and deactivates the request. Requests that are not requests of the manager are
+   * ignored.
+   */
+  public void delete(Object owner, Request request) {
+    String id = getId(request);
+    if (id == null) {
+      return;
+    }
+
+    TrackedRequest trackedRequest = requests.get(id);
+    if (trackedRequest != null && trackedRequest.owner == owner && remove(id)) {
+      deletedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Cancels and deactivates the requests whose lifetime has expired.
+   *
+   * @return the number of requests that were deactivated.
+   */
+  public int reap() {
+    long now = System.currentTimeMillis();
+    int reaped = 0;
+    for (Map.Entry<String, TrackedRequest> entry : requests.entrySet()) {
+      if (entry.getValue().isExpired(now) && remove(entry.getKey())) {
+        reaped++;
+      }
+    }
+
+    if (reaped > 0) {
+      expiredCount.addAndGet(reaped);
+      LOGGER.debug("Deactivated {} expired requests, {} remain active", reaped, requests.size());
+    }
+    return reaped;
+  }
+
+  /**
+   * Deletes the requests, the request manager and the default lifetime of a manager that has been
+   * deactivated, since no client can manage them any more.
+   *
+   * @param owner the manager that was deactivated.
+   * @return the number of requests that were deleted.
+   */
+  public int removeOwner(Object owner) {
+    ownerDefaultTimeouts.remove(owner);
+
+    RequestManager requestManager;
+    synchronized (this) {
+      requestManager = requestManagers.remove(owner);
+    }
+    String requestManagerId = getId(requestManager);
+    if (requestManagerId != null) {
+      try {
+        poa.deactivate_object(requestManagerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)));
+      } catch (ObjectNotActive | WrongPolicy e) {
+        LOGGER.debug("Unable to deactivate request manager: {}", requestManagerId, e);
+      }
+    }
+
+    int removed = 0;
+    for (Map.Entry<String, TrackedRequest> entry : requests.entrySet()) {
+      if (entry.getValue().owner == owner && remove(entry.getKey())) {
+        removed++;
+      }
+    }
+    deletedCount.addAndGet(removed);
+    return removed;
+  }
+
+  /** @return the request manager that manages the requests of the manager. */
+  public synchronized RequestManager getRequestManager(Object owner) {
+    RequestManager requestManager = requestManagers.get(owner);
+    if (requestManager == null) {
+      String id = UUID.randomUUID().toString();
+      byte[] oid = id.getBytes(Charset.forName(NsiliEndpoint.ENCODING));
+      try {
+        poa.activate_object_with_id(oid, new RequestManagerImpl(this, owner));
+      } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
+        LOGGER.debug("Error activating RequestManager: ", e);
+      }
+      requestManager =
+          RequestManagerHelper.narrow(
+              poa.create_reference_with_id(oid, RequestManagerHelper.id()));
+      requestManagers.put(owner, requestManager);
+    }
+    return requestManager;
+  }
+
+  @Override
+  public int getActiveRequestCount() {
+    return requests.size();
+  }
+
+  @Override
+  public long getCreatedRequestCount() {
+    return createdCount.get();
+  }
+
+  @Override
+  public long getDeletedRequestCount() {
+    return deletedCount.get();
+  }
+
+  @Override
+  public long getExpiredRequestCount() {
+    return expiredCount.get();
+  }
+
+  private boolean remove(String id) {
+    TrackedRequest trackedRequest = requests.remove(id);
+    if (trackedRequest == null) {
+      return false;
+    }
+
+    if (trackedRequest.servant instanceof RequestOperations) {
+      try {
+        ((RequestOperations) trackedRequest.servant).cancel();
+      } catch (ProcessingFault | SystemFault e) {
+        LOGGER.debug(
+            "Unable to cancel request {}: {}",
+            id,
+            NsilCorbaExceptionUtil.getExceptionDetails(e),
+            e);
+      }
+    }
+
+    try {
+      poa.deactivate_object(id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)));
+    } catch (ObjectNotActive | WrongPolicy e) {
+      LOGGER.debug("Unable to deactivate request object: {}", id, e);
+    }
+    return true;
+  }
+
+  private TrackedRequest getTrackedRequest(Object owner, Request request) {
+    String id = getId(request);
+    if (id == null) {
+      return null;
+    }
+
+    TrackedRequest trackedRequest = requests.get(id);
+    if (trackedRequest == null || trackedRequest.owner != owner) {
+      return null;
+    }
+    return trackedRequest;
+  }
+
+  private String getId(org.omg.CORBA.Object reference) {
+    if (reference == null) {
+      return null;
+    }
+
+    try {
+      return new String(poa.reference_to_id(reference), Charset.forName(NsiliEndpoint.ENCODING));
+    } catch (WrongAdapter | WrongPolicy e) {
+      LOGGER.debug("Object was not created by this library", e);
+      return null;
+    }
+  }
+
+  private void registerMbean() {
+    try {
+      objectName = new ObjectName(RequestTracker.class.getName() + ":service=requests");
+      mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    } catch (MalformedObjectNameException e) {
+      LOGGER.info("Unable to create NSILI Request Tracker MBean.", e);
+    }
+    if (mBeanServer == null) {
+      return;
+    }
+    try {
+      try {
+        mBeanServer.registerMBean(this, objectName);
+      } catch (InstanceAlreadyExistsException e) {
+        mBeanServer.unregisterMBean(objectName);
+        mBeanServer.registerMBean(this, objectName);
+      }
+    } catch (MBeanRegistrationException
+        | InstanceNotFoundException
+        | InstanceAlreadyExistsException
+        | NotCompliantMBeanException e) {
+      LOGGER.info("Could not register MBean [{}].", objectName, e);
+    }
+  }
+
+  private void unregisterMbean() {
+    try {
+      if (objectName != null && mBeanServer != null && mBeanServer.isRegistered(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+    } catch (MBeanRegistrationException | InstanceNotFoundException e) {
+      LOGGER.debug("Exception unregistering MBean: ", e);
+    }
+  }
+
+  private static class TrackedRequest {
+
+    private final Object owner;
+
+    private final Servant servant;
+
+    private final Request request;
+
+    private volatile int lifetime;
+
+    private volatile long expiresAt;
+
+    TrackedRequest(Object owner, Servant servant, Request request, int lifetime) {
+      this.owner = owner;
+      this.servant = servant;
+      this.request = request;
+      setLifetime(lifetime);
+    }
+
+    void setLifetime(int lifetime) {
+      this.lifetime = lifetime;
+      this.expiresAt =
+          lifetime < 0
+              ? Long.MAX_VALUE
+              : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(lifetime);
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+  }
+}
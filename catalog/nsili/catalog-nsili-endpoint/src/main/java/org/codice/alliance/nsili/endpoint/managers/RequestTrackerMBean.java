@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+/** Request counts of the NSILI endpoint, exposed for monitoring. */
+public interface RequestTrackerMBean {
+
+  /** @return the number of request servants that are currently active. */
+  int getActiveRequestCount();
+
+  /** @return the number of request servants activated since the endpoint started. */
+  long getCreatedRequestCount();
+
+  /** @return the number of request servants deleted by clients. */
+  long getDeletedRequestCount();
+
+  /** @return the number of request servants deactivated because their lifetime expired. */
+  long getExpiredRequestCount();
+
+  /** @return the lifetime given to new requests in seconds, or a negative value for no limit. */
+  int getDefaultTimeout();
+}
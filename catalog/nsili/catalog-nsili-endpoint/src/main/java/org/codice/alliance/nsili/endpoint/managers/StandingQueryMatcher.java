@@ -0,0 +1,344 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.core.versioning.MetacardVersion;
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.filter.FilterAdapter;
+import ddf.catalog.filter.FilterBuilder;
+import ddf.catalog.operation.QueryResponse;
+import ddf.catalog.operation.impl.QueryImpl;
+import ddf.catalog.operation.impl.QueryRequestImpl;
+import ddf.catalog.source.UnsupportedQueryException;
+import ddf.security.service.SecurityServiceException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.shiro.subject.ExecutionException;
+import org.codice.alliance.nsili.common.ResultDAGConverter;
+import org.codice.alliance.nsili.endpoint.LibraryImpl;
+import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.requests.SubmitStandingQueryRequestImpl;
+import org.opengis.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches ingested metacards against the filters of the registered standing queries in memory and
+ * hands the matched products to the queries, so that new products are returned without waiting
+ * for the next poll of the catalog. The match only decides which queries get the products: the
+ * matched products of each ingest are queried from the catalog once, as the guest subject, so that
+ * the access and policy plugins of the catalog decide what is returned. Only local standing
+ * queries whose filters can be evaluated in memory are registered.
+ *
+ * <p>Ingested metacards are matched on a background thread, in the order they were ingested. The
+ * matched products are queried on a separate pool of threads.
+ */
+public class StandingQueryMatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StandingQueryMatcher.class);
+
+  private static final int MAX_CACHED_PATTERNS = 10000;
+
+  private final Map<String, SubmitStandingQueryRequestImpl> requests = new ConcurrentHashMap<>();
+
+  private final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+  private static final int QUERY_THREADS = 4;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  private final ExecutorService queryExecutor;
+
+  private volatile FilterAdapter filterAdapter;
+
+  private volatile FilterBuilder filterBuilder;
+
+  private volatile CatalogFramework catalogFramework;
+
+  public StandingQueryMatcher() {
+    this(Executors.newFixedThreadPool(QUERY_THREADS));
+  }
+
+  /** @param queryExecutor queries the catalog for the products that matched standing queries. */
+  public StandingQueryMatcher(ExecutorService queryExecutor) {
+    this.queryExecutor = queryExecutor;
+  }
+
+  public void setFilterAdapter(FilterAdapter filterAdapter) {
+    this.filterAdapter = filterAdapter;
+  }
+
+  public void setFilterBuilder(FilterBuilder filterBuilder) {
+    this.filterBuilder = filterBuilder;
+  }
+
+  public void setCatalogFramework(CatalogFramework catalogFramework) {
+    this.catalogFramework = catalogFramework;
+  }
+
+  /**
+   * Registers a standing query if its filter can be evaluated in memory.
+   *
+   * @param request the standing query.
+   * @return whether the standing query will be told about matching ingested products.
+   */
+  public boolean register(SubmitStandingQueryRequestImpl request) {
+    if (filterAdapter == null || !request.isLocal()) {
+      return false;
+    }
+
+    try {
+      filterAdapter.adapt(
+          new QueryImpl(request.getIngestFilter()),
+          new MetacardMatchDelegate(new MetacardImpl(), this::getPattern));
+    } catch (UnsupportedQueryException | RuntimeException e) {
+      LOGGER.debug(
+          "Standing query {} can not be matched in memory and will poll the catalog",
+          request.getId(),
+          e);
+      return false;
+    }
+
+    requests.put(request.getId(), request);
+    return true;
+  }
+
+  public void unregister(SubmitStandingQueryRequestImpl request) {
+    requests.remove(request.getId());
+  }
+
+  /** @return the number of standing queries that ingested metacards are matched against. */
+  public int getRegisteredCount() {
+    return requests.size();
+  }
+
+  /** Matches created or updated metacards on the background thread. */
+  public void submitIngested(List<Metacard> metacards) {
+    submit(() -> matchIngested(metacards));
+  }
+
+  /** Matches deleted metacards on the background thread. */
+  public void submitDeleted(List<Metacard> metacards) {
+    submit(() -> matchDeleted(metacards));
+  }
+
+  /**
+   * Tells the standing queries that created or updated resource metacards match about them.
+   *
+   * @param metacards the metacards that were created or updated.
+   */
+  public void matchIngested(List<Metacard> metacards) {
+    match(
+        metacards.stream().filter(StandingQueryMatcher::isResource).collect(Collectors.toList()),
+        false);
+  }
+
+  /**
+   * Tells the standing queries that report deleted products about the deleted resource metacards
+   * that they match.
+   *
+   * @param metacards the metacards that were deleted.
+   */
+  public void matchDeleted(List<Metacard> metacards) {
+    match(
+        metacards.stream().filter(StandingQueryMatcher::isResource).collect(Collectors.toList()),
+        true);
+  }
+
+  /** Stops matching ingested metacards. */
+  public void shutdown() {
+    executor.shutdownNow();
+    queryExecutor.shutdownNow();
+    requests.clear();
+  }
+
+  private void submit(Runnable matching) {
+    if (requests.isEmpty()) {
+      return;
+    }
+
+    try {
+      executor.execute(matching);
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Standing query matcher has been shut down, metacards were not matched", e);
+    }
+  }
+
+  private void match(List<Metacard> metacards, boolean deleted) {
+    if (metacards.isEmpty()
+        || requests.isEmpty()
+        || filterAdapter == null
+        || filterBuilder == null
+        || catalogFramework == null) {
+      return;
+    }
+
+    Map<SubmitStandingQueryRequestImpl, List<String>> matches = new LinkedHashMap<>();
+    Set<String> productIds = new LinkedHashSet<>();
+    for (Metacard metacard : metacards) {
+      MetacardMatchDelegate delegate = new MetacardMatchDelegate(metacard, this::getPattern);
+      for (SubmitStandingQueryRequestImpl request : requests.values()) {
+        if ((!deleted || request.includesDeleted()) && matches(request, delegate)) {
+          matches.computeIfAbsent(request, k -> new ArrayList<>()).add(metacard.getId());
+          productIds.add(metacard.getId());
+        }
+      }
+    }
+
+    LOGGER.trace("{} metacards matched {} standing queries", metacards.size(), matches.size());
+
+    if (matches.isEmpty()) {
+      return;
+    }
+
+    long ingestedSince =
+        metacards
+            .stream()
+            .map(Metacard::getModifiedDate)
+            .filter(Objects::nonNull)
+            .mapToLong(Date::getTime)
+            .min()
+            .orElse(System.currentTimeMillis());
+    try {
+      queryExecutor.execute(() -> addIngestedProducts(matches, productIds, deleted, ingestedSince));
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Standing query matcher has been shut down, products were not queried", e);
+    }
+  }
+
+  /**
+   * Queries the catalog once for the products that matched any standing query and hands each query
+   * the returned products that it matched. If the catalog can not be queried, the queries poll the
+   * catalog for the products instead.
+   */
+  private void addIngestedProducts(
+      Map<SubmitStandingQueryRequestImpl, List<String>> matches,
+      Set<String> productIds,
+      boolean deleted,
+      long ingestedSince) {
+    Map<String, Result> results = new HashMap<>();
+    try {
+      for (Result result : LibraryImpl.getLatestResults(queryCatalog(productIds, deleted))) {
+        results.put(ResultDAGConverter.getMetacardId(result.getMetacard()), result);
+      }
+    } catch (SecurityServiceException | ExecutionException | RuntimeException e) {
+      LOGGER.debug("Unable to query catalog for ingested products, they are left to polling", e);
+      matches.keySet().forEach(request -> request.missIngestedProducts(ingestedSince));
+      return;
+    }
+
+    matches.forEach(
+        (request, matchedIds) -> {
+          List<Result> matchedResults =
+              matchedIds
+                  .stream()
+                  .map(results::get)
+                  .filter(Objects::nonNull)
+                  .collect(Collectors.toList());
+          try {
+            request.addIngestedResults(matchedResults);
+          } catch (RuntimeException e) {
+            LOGGER.debug(
+                "Unable to add ingested products to standing query {}", request.getId(), e);
+          }
+        });
+  }
+
+  private List<Result> queryCatalog(Set<String> productIds, boolean deleted)
+      throws SecurityServiceException {
+    QueryImpl query = new QueryImpl(getProductsFilter(productIds, deleted));
+    query.setRequestsTotalResultsCount(false);
+    query.setPageSize(productIds.size() * 2);
+    query.setStartIndex(1);
+
+    QueryRequestImpl queryRequest = new QueryRequestImpl(query);
+    Callable<QueryResponse> queryCallable = () -> catalogFramework.query(queryRequest);
+    return NsiliEndpoint.getGuestSubject().execute(queryCallable).getResults();
+  }
+
+  /**
+   * @return the filter for the resource metacards of the products, or for the versions that
+   *     record the deletion of the products.
+   */
+  private Filter getProductsFilter(Set<String> productIds, boolean deleted) {
+    String idAttribute = deleted ? MetacardVersion.VERSION_OF_ID : Metacard.ID;
+    List<Filter> idFilters = new ArrayList<>(productIds.size());
+    for (String productId : productIds) {
+      idFilters.add(filterBuilder.attribute(idAttribute).is().equalTo().text(productId));
+    }
+
+    if (!deleted) {
+      return filterBuilder.allOf(
+          filterBuilder.anyOf(idFilters),
+          filterBuilder.attribute(Metacard.TAGS).is().like().text(Metacard.DEFAULT_TAG));
+    }
+    return filterBuilder.allOf(
+        filterBuilder.anyOf(idFilters),
+        filterBuilder.attribute(Metacard.TAGS).is().like().text(MetacardVersion.VERSION_TAG),
+        filterBuilder
+            .attribute(MetacardVersion.VERSION_TAGS)
+            .is()
+            .like()
+            .text(Metacard.DEFAULT_TAG),
+        filterBuilder
+            .attribute(MetacardVersion.ACTION)
+            .is()
+            .like()
+            .text(MetacardVersion.Action.DELETED.getKey()));
+  }
+
+  private boolean matches(SubmitStandingQueryRequestImpl request, MetacardMatchDelegate delegate) {
+    try {
+      return filterAdapter.adapt(new QueryImpl(request.getIngestFilter()), delegate);
+    } catch (UnsupportedQueryException | RuntimeException e) {
+      LOGGER.debug("Unable to match metacard against standing query {}", request.getId(), e);
+      return false;
+    }
+  }
+
+  private Pattern getPattern(String pattern, boolean isCaseSensitive) {
+    if (patterns.size() > MAX_CACHED_PATTERNS) {
+      patterns.clear();
+    }
+    return patterns.computeIfAbsent(
+        (isCaseSensitive ? "C:" : "I:") + pattern,
+        key -> MetacardMatchDelegate.compileLikePattern(pattern, isCaseSensitive));
+  }
+
+  private static boolean isResource(Metacard metacard) {
+    Attribute tags = metacard.getAttribute(Metacard.TAGS);
+    return tags == null
+        || tags.getValues() == null
+        || tags.getValues().isEmpty()
+        || tags.getValues().contains(Metacard.DEFAULT_TAG);
+  }
+}
@@ -15,10 +15,9 @@ package org.codice.alliance.nsili.endpoint.managers;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.filter.FilterBuilder;
-import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.UUID;
+import org.codice.alliance.nsili.common.BqsFilterCache;
 import org.codice.alliance.nsili.common.GIAS.Event;
 import org.codice.alliance.nsili.common.GIAS.Library;
 import org.codice.alliance.nsili.common.GIAS.NamedEventType;
@@ -34,12 +33,9 @@ import org.codice.alliance.nsili.common.UCO.NameValue;
 import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UCO.exception_details;
-import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.requests.StandingQueryData;
 import org.codice.alliance.nsili.endpoint.requests.SubmitStandingQueryRequestImpl;
 import org.omg.CORBA.NO_IMPLEMENT;
-import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
-import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
-import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.slf4j.LoggerFactory;
 
 public class StandingQueryMgrImpl extends StandingQueryMgrPOA {
@@ -57,6 +53,8 @@ public class StandingQueryMgrImpl extends StandingQueryMgrPOA {
 
   private int maxPendingResults;
 
+  private StandingQueryData.OverflowPolicy overflowPolicy = StandingQueryData.OverflowPolicy.PAUSE;
+
   private Set<String> querySources = new HashSet<>();
 
   private boolean removeSourceLibrary;
@@ -65,7 +63,13 @@ public class StandingQueryMgrImpl extends StandingQueryMgrPOA {
 
   private long maxWaitToStartTimeMsecs;
 
-  private long defaultTimeout = AccessManagerImpl.DEFAULT_TIMEOUT;
+  private RequestTracker requestTracker;
+
+  private StandingQueryScheduler standingQueryScheduler;
+
+  private StandingQueryMatcher standingQueryMatcher;
+
+  private BqsFilterCache bqsFilterCache;
 
   public StandingQueryMgrImpl(Set<String> querySources) {
     if (querySources != null) {
@@ -90,6 +94,10 @@ public class StandingQueryMgrImpl extends StandingQueryMgrPOA {
     this.maxPendingResults = maxPendingResults;
   }
 
+  public void setOverflowPolicy(StandingQueryData.OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
   public void setRemoveSourceLibrary(boolean removeSourceLibrary) {
     this.removeSourceLibrary = removeSourceLibrary;
   }
@@ -102,6 +110,23 @@ public class StandingQueryMgrImpl extends StandingQueryMgrPOA {
     this.maxWaitToStartTimeMsecs = maxWaitToStartTimeMsecs;
   }
 
+  public void setRequestTracker(RequestTracker requestTracker) {
+    this.requestTracker = requestTracker;
+  }
+
+  public void setStandingQueryScheduler(StandingQueryScheduler standingQueryScheduler) {
+    this.standingQueryScheduler = standingQueryScheduler;
+  }
+
+  public void setStandingQueryMatcher(StandingQueryMatcher standingQueryMatcher) {
+    this.standingQueryMatcher = standingQueryMatcher;
+  }
+
+  /** @param bqsFilterCache the filters of queries converted before, or null to not cache them. */
+  public void setBqsFilterCache(BqsFilterCache bqsFilterCache) {
+    this.bqsFilterCache = bqsFilterCache;
+  }
+
   protected void init() {
     NamedEventType startEventType = NamedEventType.from_int(NamedEventType._START_EVENT);
     Event startEvent = new Event("START_EVENT", startEventType, "");
@@ -151,27 +176,26 @@ public class StandingQueryMgrImpl extends StandingQueryMgrPOA {
             maxPendingResults,
             removeSourceLibrary,
             outgoingValidationEnabled,
-            maxWaitToStartTimeMsecs);
-
-    String id = UUID.randomUUID().toString();
-    try {
-      _poa()
-          .activate_object_with_id(
-              id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), standingQueryRequest);
-    } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
-      LOGGER.debug(
-          "submit_standing_query : Unable to activate submitStandingQueryRequest object.", e);
-    }
+            maxWaitToStartTimeMsecs,
+            standingQueryScheduler,
+            bqsFilterCache);
 
-    org.omg.CORBA.Object obj =
-        _poa()
-            .create_reference_with_id(
-                id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
-                SubmitStandingQueryRequestHelper.id());
+    standingQueryRequest.setRequestTracker(requestTracker, this);
+    standingQueryRequest.setOverflowPolicy(overflowPolicy);
 
+    // Standing queries run until their lifespan ends or they are deleted, so they do not expire
     SubmitStandingQueryRequest submitStandingQueryRequest =
-        SubmitStandingQueryRequestHelper.narrow(obj);
-
+        requestTracker.activate(
+            this,
+            standingQueryRequest,
+            SubmitStandingQueryRequestHelper.id(),
+            SubmitStandingQueryRequestHelper::narrow,
+            RequestTracker.NO_TIMEOUT);
+
+    // Ingested metacards are converted by the activated request
+    if (standingQueryMatcher != null) {
+      standingQueryRequest.setStandingQueryMatcher(standingQueryMatcher);
+    }
     return submitStandingQueryRequest;
   }
 
@@ -193,35 +217,36 @@ public class StandingQueryMgrImpl extends StandingQueryMgrPOA {
 
   @Override
   public Request[] get_active_requests() throws ProcessingFault, SystemFault {
-    return new Request[0];
+    return requestTracker.getActiveRequests(this);
   }
 
   @Override
   public int get_default_timeout() throws ProcessingFault, SystemFault {
-    return (int) defaultTimeout;
+    return requestTracker.getDefaultTimeout(this);
   }
 
   @Override
   public void set_default_timeout(int new_default)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    this.defaultTimeout = new_default;
+    requestTracker.setDefaultTimeout(this, new_default);
   }
 
   @Override
   public int get_timeout(Request aRequest)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    return (int) defaultTimeout;
+    return requestTracker.getTimeout(this, aRequest);
   }
 
   @Override
   public void set_timeout(Request aRequest, int new_lifetime)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    // This method is not expected to be called
+    requestTracker.setTimeout(this, aRequest, new_lifetime);
   }
 
   @Override
   public void delete_request(Request aRequest)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
-    // This method is not expected to be called
+    requestTracker.delete(this, aRequest);
   }
+
 }
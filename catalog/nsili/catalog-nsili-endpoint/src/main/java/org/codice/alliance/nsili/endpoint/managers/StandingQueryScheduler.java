@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the executions of all standing queries on a bounded pool of threads, so the number of
+ * threads does not grow with the number of standing queries. Intervals are jittered so that
+ * queries submitted together do not keep querying the catalog at the same moment.
+ *
+ * <p>The lag between the scheduled and the actual start of each execution and the time each
+ * execution takes are recorded for monitoring.
+ */
+public class StandingQueryScheduler implements StandingQuerySchedulerMBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StandingQueryScheduler.class);
+
+  private static final double MAX_JITTER_FRACTION = 0.1;
+
+  private final ScheduledThreadPoolExecutor executor;
+
+  private final AtomicLong executionCount = new AtomicLong();
+
+  private final AtomicLong skippedExecutionCount = new AtomicLong();
+
+  private final AtomicLong totalLagMsec = new AtomicLong();
+
+  private final AtomicLong maxLagMsec = new AtomicLong();
+
+  private final AtomicLong totalExecutionTimeMsec = new AtomicLong();
+
+  private final AtomicLong maxExecutionTimeMsec = new AtomicLong();
+
+  private ObjectName objectName;
+
+  private MBeanServer mBeanServer;
+
+  /** @param poolSize the maximum number of standing queries that execute at the same time. */
+  public StandingQueryScheduler(int poolSize) {
+    executor = new ScheduledThreadPoolExecutor(Math.max(1, poolSize));
+    executor.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Schedules one execution of a standing query.
+   *
+   * @param execution the execution, which schedules the next execution when it is done.
+   * @param delayMsec the delay before the execution starts, in milliseconds.
+   * @return the scheduled execution, or null if the scheduler has been shut down.
+   */
+  public ScheduledFuture<?> schedule(Runnable execution, long delayMsec) {
+    long delay = Math.max(0, delayMsec);
+    long scheduledTime = System.currentTimeMillis() + delay;
+    try {
+      return executor.schedule(
+          () -> execute(execution, scheduledTime), delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Standing query scheduler has been shut down, execution was not scheduled", e);
+      return null;
+    }
+  }
+
+  /**
+   * @param intervalMsec the update interval of a standing query, in milliseconds.
+   * @return the interval lengthened by a random amount of up to a tenth of the interval.
+   */
+  public long jitter(long intervalMsec) {
+    long maxJitter = (long) (intervalMsec * MAX_JITTER_FRACTION);
+    if (maxJitter <= 0) {
+      return intervalMsec;
+    }
+    return intervalMsec + ThreadLocalRandom.current().nextLong(maxJitter + 1);
+  }
+
+  /** Records an execution that did not query because the backlog of the query was full. */
+  public void recordSkippedExecution() {
+    skippedExecutionCount.incrementAndGet();
+  }
+
+  /** Stops executing standing queries. Executions in progress are interrupted. */
+  public void shutdown() {
+    executor.shutdownNow();
+    unregisterMbean();
+  }
+
+  @Override
+  public int getPoolSize() {
+    return executor.getCorePoolSize();
+  }
+
+  @Override
+  public int getPendingExecutionCount() {
+    return executor.getQueue().size();
+  }
+
+  @Override
+  public long getExecutionCount() {
+    return executionCount.get();
+  }
+
+  @Override
+  public long getSkippedExecutionCount() {
+    return skippedExecutionCount.get();
+  }
+
+  @Override
+  public long getAverageLagMsec() {
+    long count = executionCount.get();
+    return count == 0 ? 0 : totalLagMsec.get() / count;
+  }
+
+  @Override
+  public long getMaxLagMsec() {
+    return maxLagMsec.get();
+  }
+
+  @Override
+  public long getAverageExecutionTimeMsec() {
+    long count = executionCount.get();
+    return count == 0 ? 0 : totalExecutionTimeMsec.get() / count;
+  }
+
+  @Override
+  public long getMaxExecutionTimeMsec() {
+    return maxExecutionTimeMsec.get();
+  }
+
+  /** Registers the execution statistics for monitoring. */
+  public void registerMbean() {
+    try {
+      objectName = new ObjectName(StandingQueryScheduler.class.getName() + ":service=scheduler");
+      mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    } catch (MalformedObjectNameException e) {
+      LOGGER.info("Unable to create NSILI Standing Query Scheduler MBean.", e);
+    }
+    if (mBeanServer == null) {
+      return;
+    }
+    try {
+      try {
+        mBeanServer.registerMBean(this, objectName);
+      } catch (InstanceAlreadyExistsException e) {
+        mBeanServer.unregisterMBean(objectName);
+        mBeanServer.registerMBean(this, objectName);
+      }
+    } catch (MBeanRegistrationException
+        | InstanceNotFoundException
+        | InstanceAlreadyExistsException
+        | NotCompliantMBeanException e) {
+      LOGGER.info("Could not register MBean [{}].", objectName, e);
+    }
+  }
+
+  private void execute(Runnable execution, long scheduledTime) {
+    long startTime = System.currentTimeMillis();
+    long lag = Math.max(0, startTime - scheduledTime);
+    try {
+      execution.run();
+    } catch (RuntimeException e) {
+      LOGGER.debug("Standing query execution failed", e);
+    } finally {
+      long executionTime = System.currentTimeMillis() - startTime;
+      executionCount.incrementAndGet();
+      totalLagMsec.addAndGet(lag);
+      maxLagMsec.accumulateAndGet(lag, Math::max);
+      totalExecutionTimeMsec.addAndGet(executionTime);
+      maxExecutionTimeMsec.accumulateAndGet(executionTime, Math::max);
+      if (lag > 0) {
+        LOGGER.trace("Standing query execution started {} ms late, took {} ms", lag, executionTime);
+      }
+    }
+  }
+
+  private void unregisterMbean() {
+    try {
+      if (objectName != null && mBeanServer != null && mBeanServer.isRegistered(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+    } catch (MBeanRegistrationException | InstanceNotFoundException e) {
+      LOGGER.debug("Exception unregistering MBean: ", e);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+/** Standing query execution statistics of the NSILI endpoint, exposed for monitoring. */
+public interface StandingQuerySchedulerMBean {
+
+  /** @return the number of threads that execute standing queries. */
+  int getPoolSize();
+
+  /** @return the number of standing query executions waiting for their scheduled time. */
+  int getPendingExecutionCount();
+
+  /** @return the number of standing query executions since the endpoint started. */
+  long getExecutionCount();
+
+  /** @return the number of executions that did not query because the backlog was full. */
+  long getSkippedExecutionCount();
+
+  /** @return the average time executions started after their scheduled time, in milliseconds. */
+  long getAverageLagMsec();
+
+  /** @return the longest time an execution started after its scheduled time, in milliseconds. */
+  long getMaxLagMsec();
+
+  /** @return the average time an execution took, in milliseconds. */
+  long getAverageExecutionTimeMsec();
+
+  /** @return the longest time an execution took, in milliseconds. */
+  long getMaxExecutionTimeMsec();
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.requests;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Submits the tasks of a single request to a shared executor, keeping at most a given number of
+ * them queued or running at the same time, so that a large request does not take over the executor.
+ */
+class BoundedSubmitter {
+
+  private final ExecutorService executor;
+
+  private final Semaphore permits;
+
+  BoundedSubmitter(ExecutorService executor, int maxConcurrentTasks) {
+    this.executor = executor;
+    this.permits = new Semaphore(Math.max(1, maxConcurrentTasks));
+  }
+
+  /**
+   * Waits until fewer than the maximum number of tasks are queued or running, then submits the
+   * task.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   * @throws RejectedExecutionException if the executor does not accept the task.
+   */
+  <T> Future<T> submit(Callable<T> task) throws InterruptedException {
+    permits.acquire();
+    try {
+      return executor.submit(
+          () -> {
+            try {
+              return task.call();
+            } finally {
+              permits.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      permits.release();
+      throw e;
+    }
+  }
+}
@@ -13,13 +13,32 @@
  */
 package org.codice.alliance.nsili.endpoint.requests;
 
+import com.google.common.io.ByteSource;
 import ddf.catalog.data.Metacard;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 
 public interface DestinationSink {
 
+  /** Amount of data kept in memory when a file has to be written out before it is sent. */
+  int MAX_MEMORY_SIZE = 100 * 1024 * 1024;
+
+  /** Produces the contents of a file as it is written. */
+  @FunctionalInterface
+  interface ContentWriter {
+
+    /**
+     * Writes the contents of the file. The stream must be left open.
+     *
+     * @param outputStream the stream to write the contents to
+     * @throws IOException exception indicating that the contents could not be written
+     */
+    void writeTo(OutputStream outputStream) throws IOException;
+  }
+
   /**
    * Write a data stream to a destination.
    *
@@ -33,4 +52,30 @@ public interface DestinationSink {
   void writeFile(
       InputStream fileData, long size, String name, String contentType, List<Metacard> metacards)
       throws IOException;
+
+  /**
+   * Write a file whose contents are produced as they are written, such as an archive of several
+   * products. Sinks that can send data of unknown length should stream the contents directly.
+   * Otherwise the contents are written to memory, or a temporary file once they get large, to
+   * determine their size.
+   *
+   * @param contents writes the data
+   * @param name the name of the file to be written
+   * @param contentType the content type of the file to be written
+   * @param metacards the metacards associated with the data
+   * @throws IOException exception indicating that data could not be written
+   */
+  default void writeFile(
+      ContentWriter contents, String name, String contentType, List<Metacard> metacards)
+      throws IOException {
+    try (TemporaryFileBackedOutputStream fos =
+        new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE)) {
+      contents.writeTo(fos);
+      fos.flush();
+      ByteSource data = fos.asByteSource();
+      try (InputStream inputStream = data.openStream()) {
+        writeFile(inputStream, data.size(), name, contentType, metacards);
+      }
+    }
+  }
 }
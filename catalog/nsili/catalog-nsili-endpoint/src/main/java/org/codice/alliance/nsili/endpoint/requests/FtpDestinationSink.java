@@ -16,18 +16,12 @@ package org.codice.alliance.nsili.endpoint.requests;
 import ddf.catalog.data.Metacard;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.List;
-import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.InputStreamEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.protocol.HTTP;
 import org.codice.alliance.nsili.common.GIAS.Destination;
 import org.codice.alliance.nsili.common.UCO.FileLocation;
 import org.slf4j.LoggerFactory;
@@ -44,17 +38,49 @@ public class FtpDestinationSink implements DestinationSink {
 
   private int port;
 
-  FtpDestinationSink(FileLocation fileLocation, int port, String protocol) {
+  private HttpDeliveryClient deliveryClient;
+
+  /**
+   * @param deliveryClient the shared client that sends the files, or null to send them with a
+   *     client of their own.
+   */
+  FtpDestinationSink(
+      FileLocation fileLocation, int port, String protocol, HttpDeliveryClient deliveryClient) {
     this.fileLocation = fileLocation;
     this.protocol = protocol;
     this.port = port;
+    this.deliveryClient = deliveryClient;
   }
 
   @Override
   public void writeFile(
       InputStream fileData, long size, String name, String contentType, List<Metacard> metacards)
       throws IOException {
-    CloseableHttpClient httpClient = null;
+    try {
+      put(name, contentType, new InputStreamEntity(fileData, size));
+    } finally {
+      fileData.close();
+    }
+  }
+
+  /** Streams the contents to the server as they are produced, using chunked transfer encoding. */
+  @Override
+  public void writeFile(
+      ContentWriter contents, String name, String contentType, List<Metacard> metacards)
+      throws IOException {
+    // The contents can only be produced once, so the request is not repeated
+    EntityTemplate httpEntity =
+        new EntityTemplate(contents::writeTo) {
+          @Override
+          public boolean isRepeatable() {
+            return false;
+          }
+        };
+    httpEntity.setChunked(true);
+    put(name, contentType, httpEntity);
+  }
+
+  private void put(String name, String contentType, HttpEntity httpEntity) throws IOException {
     String urlPath =
         protocol
             + "://"
@@ -68,28 +94,19 @@ public class FtpDestinationSink implements DestinationSink {
 
     LOGGER.debug("Writing ordered file to URL: {}", urlPath);
 
+    URI uri;
     try {
-      HttpPut putMethod = new HttpPut(urlPath);
-      putMethod.addHeader(HTTP.CONTENT_TYPE, contentType);
-      HttpEntity httpEntity = new InputStreamEntity(fileData, size);
-      putMethod.setEntity(httpEntity);
-
-      if (StringUtils.isNotEmpty(fileLocation.user_name) && fileLocation.password != null) {
-        CredentialsProvider credsProvider = new BasicCredentialsProvider();
-        credsProvider.setCredentials(
-            new AuthScope(fileLocation.host_name, port),
-            new UsernamePasswordCredentials(fileLocation.user_name, fileLocation.password));
-        httpClient = HttpClients.custom().setDefaultCredentialsProvider(credsProvider).build();
-      } else {
-        httpClient = HttpClients.createDefault();
-      }
+      uri = new URI(urlPath);
+    } catch (URISyntaxException e) {
+      throw new IOException("Invalid destination URL: " + urlPath, e);
+    }
 
-      httpClient.execute(putMethod);
-      fileData.close();
-      putMethod.releaseConnection();
-    } finally {
-      if (httpClient != null) {
-        httpClient.close();
+    if (deliveryClient != null) {
+      deliveryClient.put(
+          uri, contentType, httpEntity, fileLocation.user_name, fileLocation.password);
+    } else {
+      try (HttpDeliveryClient client = new HttpDeliveryClient()) {
+        client.put(uri, contentType, httpEntity, fileLocation.user_name, fileLocation.password);
       }
     }
   }
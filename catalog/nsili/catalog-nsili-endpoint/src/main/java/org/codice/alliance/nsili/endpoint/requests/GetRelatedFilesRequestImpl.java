@@ -15,18 +15,21 @@ package org.codice.alliance.nsili.endpoint.requests;
 
 import ddf.catalog.data.Metacard;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
-import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.message.BasicHeader;
 import org.apache.tika.config.TikaConfig;
 import org.apache.tika.detect.DefaultDetector;
 import org.apache.tika.detect.Detector;
@@ -59,6 +62,9 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
 
   private static final Detector DETECTOR = new DefaultDetector(MimeTypes.getDefaultMimeTypes());
 
+  /** The maximum number of thumbnails of a request that are stored at the same time. */
+  public static final int MAX_CONCURRENT_UPLOADS = 4;
+
   private static final org.slf4j.Logger LOGGER =
       LoggerFactory.getLogger(GetRelatedFilesRequestImpl.class);
 
@@ -70,12 +76,21 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
 
   private Integer port;
 
-  private HttpClient httpClient;
+  private HttpDeliveryClient deliveryClient;
+
+  private ExecutorService transferExecutor;
 
+  /**
+   * @param deliveryClient the shared client that stores the thumbnails, or null to store them with
+   *     a client of their own that is closed once the request completes.
+   */
   public GetRelatedFilesRequestImpl(
-      List<Metacard> metacards, FileLocation location, String type, Integer port) {
-    HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-    httpClient = clientBuilder.build();
+      List<Metacard> metacards,
+      FileLocation location,
+      String type,
+      Integer port,
+      HttpDeliveryClient deliveryClient) {
+    this.deliveryClient = deliveryClient;
 
     setMetacards(metacards);
     setFileLocation(location);
@@ -99,13 +114,27 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
     this.port = port;
   }
 
+  /**
+   * @param transferExecutor the executor that stores the thumbnails, or null to store them one at a
+   *     time on the calling thread.
+   */
+  public void setTransferExecutor(ExecutorService transferExecutor) {
+    this.transferExecutor = transferExecutor;
+  }
+
   @Override
   public State complete(NameListHolder locations) throws ProcessingFault, SystemFault {
     List<String> fileNames = new ArrayList<>();
     if (type.equals(ProductMgrImpl.THUMBNAIL_RELATED_FILE)
         && StringUtils.isNotBlank(location.host_name)) {
-      for (Metacard metacard : metacards) {
-        evaluateThumbnailNames(fileNames, metacard);
+      if (deliveryClient != null) {
+        fileNames = storeThumbnails(deliveryClient);
+      } else {
+        try (HttpDeliveryClient client = new HttpDeliveryClient()) {
+          fileNames = storeThumbnails(client);
+        } catch (IOException e) {
+          LOGGER.debug("Unable to close the thumbnail delivery client", e);
+        }
       }
     }
 
@@ -117,17 +146,84 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
     return State.COMPLETED;
   }
 
-  private void evaluateThumbnailNames(List<String> fileNames, Metacard metacard) {
-    if (metacard.getThumbnail() != null) {
+  /**
+   * Stores the thumbnails of the metacards, up to {@link #MAX_CONCURRENT_UPLOADS} at the same time
+   * when a transfer executor is set. A thumbnail that cannot be stored is reported and left out.
+   *
+   * @return the names of the stored thumbnails, in the order of the metacards.
+   */
+  private List<String> storeThumbnails(HttpDeliveryClient client) {
+    List<Metacard> thumbnailMetacards =
+        metacards
+            .stream()
+            .filter(metacard -> metacard.getThumbnail() != null)
+            .collect(Collectors.toList());
+
+    BoundedSubmitter submitter =
+        transferExecutor == null
+            ? null
+            : new BoundedSubmitter(transferExecutor, MAX_CONCURRENT_UPLOADS);
+    List<Future<String>> stores = new ArrayList<>(thumbnailMetacards.size());
+    try {
+      for (Metacard metacard : thumbnailMetacards) {
+        stores.add(submitStore(submitter, () -> storeThumbnail(client, metacard)));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stores.forEach(store -> store.cancel(true));
+      LOGGER.debug("Interrupted while storing thumbnails");
+      return new ArrayList<>();
+    }
+
+    List<String> fileNames = new ArrayList<>(stores.size());
+    int failedCount = 0;
+    for (int i = 0; i < stores.size(); i++) {
+      String thumbnailName = getStoredName(thumbnailMetacards.get(i), stores.get(i));
+      if (thumbnailName != null) {
+        fileNames.add(thumbnailName);
+      } else {
+        failedCount++;
+      }
+    }
+
+    if (failedCount > 0) {
+      LOGGER.info(
+          "Unable to store {} of {} thumbnails at {}",
+          failedCount,
+          stores.size(),
+          location.host_name);
+    }
+    return fileNames;
+  }
+
+  private Future<String> submitStore(BoundedSubmitter submitter, Callable<String> store)
+      throws InterruptedException {
+    if (submitter != null) {
       try {
-        String thumbnailName = storeThumbnail(metacard);
-        if (thumbnailName != null) {
-          fileNames.add(thumbnailName);
-        }
-      } catch (IOException | MimeTypeException e) {
-        LOGGER.debug("Unable to store thumbnail:", e);
+        return submitter.submit(store);
+      } catch (RejectedExecutionException e) {
+        LOGGER.debug("Unable to store thumbnail in the background, storing it now", e);
       }
     }
+    FutureTask<String> storeNow = new FutureTask<>(store);
+    storeNow.run();
+    return storeNow;
+  }
+
+  /** @return the name of the stored thumbnail, or null if it could not be stored. */
+  private String getStoredName(Metacard metacard, Future<String> store) {
+    try {
+      return store.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      store.cancel(true);
+      LOGGER.debug("Interrupted while storing thumbnail for {}", metacard.getId());
+    } catch (ExecutionException e) {
+      LOGGER.debug("Unable to store thumbnail for {}:", metacard.getId(), e.getCause());
+    } catch (CancellationException e) {
+      LOGGER.debug("Storing thumbnail for {} was cancelled", metacard.getId());
+    }
+    return null;
   }
 
   @Override
@@ -172,7 +268,8 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
     return new _RequestManagerStub();
   }
 
-  private String storeThumbnail(Metacard metacard) throws IOException, MimeTypeException {
+  private String storeThumbnail(HttpDeliveryClient client, Metacard metacard)
+      throws IOException, MimeTypeException, URISyntaxException {
     String id = metacard.getId();
 
     byte[] thumbnailBytes = metacard.getThumbnail();
@@ -194,29 +291,10 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
 
     LOGGER.debug("Storing thumbnail for {} at location: {}", metacard.getTitle(), urlStr);
 
-    HttpPut httpPut = new HttpPut(urlStr);
     HttpEntity entity = new ByteArrayEntity(thumbnailBytes);
-    httpPut.setEntity(entity);
-
-    Header contentTypeHeader = new BasicHeader("Content-Type", mediaType.toString());
-    httpPut.addHeader(contentTypeHeader);
-    HttpResponse response = httpClient.execute(httpPut);
-    int statusCode = response.getStatusLine().getStatusCode();
-    if (!(statusCode == HttpStatus.SC_OK
-        || statusCode == HttpStatus.SC_CREATED
-        || statusCode == HttpStatus.SC_ACCEPTED
-        || statusCode == HttpStatus.SC_NO_CONTENT)) {
-      fileName = null;
-      LOGGER.debug(
-          "Unable to PUT file: code: {}, status: {}",
-          statusCode,
-          response.getStatusLine().getReasonPhrase());
-    }
+    client.put(
+        new URI(urlStr), mediaType.toString(), entity, location.user_name, location.password);
 
     return fileName;
   }
-
-  public void setHttpClient(HttpClient httpClient) {
-    this.httpClient = httpClient;
-  }
 }
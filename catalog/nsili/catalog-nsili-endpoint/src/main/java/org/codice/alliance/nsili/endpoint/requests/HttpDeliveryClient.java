@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.requests;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLException;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends ordered files to HTTP destinations. Connections are pooled and kept alive per destination
+ * host, and the number of files sent to a host at the same time is capped, so large orders do not
+ * open a connection per file or overload the destination.
+ *
+ * <p>A failed transfer is attempted again when the failure is likely to be temporary and the
+ * file can still be sent in full: either its contents can be produced again, or the transfer
+ * failed before any of its contents were read.
+ */
+public class HttpDeliveryClient implements Closeable {
+
+  private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(HttpDeliveryClient.class);
+
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  private static final int MAX_TOTAL_CONNECTIONS = 50;
+
+  private static final int CONNECT_TIMEOUT_MSEC = (int) TimeUnit.SECONDS.toMillis(30);
+
+  private static final int SOCKET_TIMEOUT_MSEC = (int) TimeUnit.MINUTES.toMillis(5);
+
+  private static final int VALIDATE_AFTER_INACTIVITY_MSEC = (int) TimeUnit.SECONDS.toMillis(2);
+
+  private static final long RETRY_DELAY_MSEC = 500;
+
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+
+  private static final Set<Integer> TRANSIENT_STATUS_CODES =
+      new HashSet<>(
+          Arrays.asList(
+              HttpStatus.SC_REQUEST_TIMEOUT,
+              SC_TOO_MANY_REQUESTS,
+              HttpStatus.SC_INTERNAL_SERVER_ERROR,
+              HttpStatus.SC_BAD_GATEWAY,
+              HttpStatus.SC_SERVICE_UNAVAILABLE,
+              HttpStatus.SC_GATEWAY_TIMEOUT));
+
+  private final CloseableHttpClient httpClient;
+
+  private final int maxAttempts;
+
+  private final long retryDelayMsec;
+
+  public HttpDeliveryClient() {
+    this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_ATTEMPTS, RETRY_DELAY_MSEC);
+  }
+
+  /**
+   * @param maxConnectionsPerHost the maximum number of files sent to a host at the same time.
+   * @param maxAttempts the maximum number of times a file is sent.
+   * @param retryDelayMsec the delay before the first retry, doubled for each later retry.
+   */
+  public HttpDeliveryClient(int maxConnectionsPerHost, int maxAttempts, long retryDelayMsec) {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(Math.max(MAX_TOTAL_CONNECTIONS, maxConnectionsPerHost));
+    connectionManager.setDefaultMaxPerRoute(Math.max(1, maxConnectionsPerHost));
+    connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MSEC);
+
+    RequestConfig requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT_MSEC)
+            .setSocketTimeout(SOCKET_TIMEOUT_MSEC)
+            // Lets the destination reject a file before its contents are read, so it can be retried
+            .setExpectContinueEnabled(true)
+            .build();
+
+    this.httpClient =
+        HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .disableAutomaticRetries()
+            .build();
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.retryDelayMsec = retryDelayMsec;
+  }
+
+  /**
+   * Writes a file to the destination.
+   *
+   * @param uri the location of the file at the destination.
+   * @param contentType the content type of the file.
+   * @param entity the contents of the file.
+   * @param userName the user to authenticate as, or null when no authentication is needed.
+   * @param password the password of the user.
+   * @throws IOException if the file could not be written, including when the destination does not
+   *     accept it.
+   */
+  public void put(URI uri, String contentType, HttpEntity entity, String userName, String password)
+      throws IOException {
+    HttpHost host = URIUtils.extractHost(uri);
+    TrackedEntity trackedEntity = new TrackedEntity(entity);
+
+    for (int attempt = 1; ; attempt++) {
+      HttpPut putMethod = new HttpPut(uri);
+      putMethod.addHeader(HTTP.CONTENT_TYPE, contentType);
+      putMethod.setEntity(trackedEntity);
+
+      IOException failure;
+      boolean transientFailure;
+      try (CloseableHttpResponse response =
+          httpClient.execute(putMethod, createContext(host, userName, password))) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        EntityUtils.consumeQuietly(response.getEntity());
+        if (statusCode >= HttpStatus.SC_OK && statusCode < HttpStatus.SC_MULTIPLE_CHOICES) {
+          return;
+        }
+        failure =
+            new HttpResponseException(
+                statusCode, "Unable to write file: " + response.getStatusLine().getReasonPhrase());
+        transientFailure = TRANSIENT_STATUS_CODES.contains(statusCode);
+      } catch (IOException e) {
+        failure = e;
+        transientFailure = isTransient(e);
+      }
+
+      if (!transientFailure || attempt >= maxAttempts || !trackedEntity.canBeSentAgain()) {
+        throw failure;
+      }
+
+      LOGGER.debug("Attempt {} to write file to {} failed, retrying.", attempt, uri, failure);
+      sleep(retryDelayMsec << (attempt - 1));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+
+  private HttpClientContext createContext(HttpHost host, String userName, String password) {
+    HttpClientContext context = HttpClientContext.create();
+    if (StringUtils.isNotEmpty(userName) && password != null) {
+      CredentialsProvider credsProvider = new BasicCredentialsProvider();
+      credsProvider.setCredentials(
+          new AuthScope(host.getHostName(), host.getPort()),
+          new UsernamePasswordCredentials(userName, password));
+      context.setCredentialsProvider(credsProvider);
+
+      // Authenticate up front, a challenge after the contents were sent would need them again
+      AuthCache authCache = new BasicAuthCache();
+      authCache.put(host, new BasicScheme());
+      context.setAuthCache(authCache);
+    }
+    return context;
+  }
+
+  private boolean isTransient(IOException e) {
+    return !(e instanceof UnknownHostException
+        || e instanceof SSLException
+        || e instanceof ClientProtocolException);
+  }
+
+  private void sleep(long delayMsec) throws InterruptedIOException {
+    try {
+      Thread.sleep(delayMsec);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry writing a file");
+    }
+  }
+
+  /** Keeps track of whether the contents of an entity were read. */
+  private static class TrackedEntity extends HttpEntityWrapper {
+
+    private volatile boolean written = false;
+
+    TrackedEntity(HttpEntity entity) {
+      super(entity);
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+      written = true;
+      super.writeTo(outputStream);
+    }
+
+    boolean canBeSentAgain() {
+      return !written || isRepeatable();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.requests;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.filter.impl.SortByImpl;
+import ddf.security.service.SecurityServiceException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.codice.alliance.nsili.common.ResultDAGConverter;
+import org.codice.alliance.nsili.endpoint.LibraryImpl;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+/**
+ * Reads catalog results page by page, returning only the latest version of each product. Older
+ * versions are dropped as the results are read, and more results are read until the page is full,
+ * so every page except the last has exactly the requested number of results. The position in the
+ * catalog results is kept separately from the number of results returned, so no result is skipped
+ * or read twice.
+ *
+ * <p>A product is returned once. When versions of a product are read for the same page, the latest
+ * one is returned in the position of the first one. Versions read after the product was returned
+ * are dropped, so the catalog must be read in {@link #LATEST_FIRST} order for the latest version
+ * of each product to be the one returned.
+ */
+class LatestResultsPager {
+
+  /** The order the catalog results are read in, so that later versions are read first. */
+  static final SortBy LATEST_FIRST = new SortByImpl(Metacard.MODIFIED, SortOrder.DESCENDING);
+
+  /** Reads results from the catalog. */
+  @FunctionalInterface
+  interface ResultSource {
+    /**
+     * @param startIndex the index of the first result to read, starting at 1.
+     * @param count the number of results to read.
+     * @return the results, fewer than requested only when there are no more results.
+     */
+    List<Result> getResults(int startIndex, int count) throws SecurityServiceException;
+  }
+
+  private final ResultSource resultSource;
+
+  private final Set<String> returnedIds = new HashSet<>();
+
+  private int nextIndex = 1;
+
+  private boolean exhausted = false;
+
+  LatestResultsPager(ResultSource resultSource) {
+    this.resultSource = resultSource;
+  }
+
+  /**
+   * Reads the next page of results. If reading fails, the position is left unchanged, so the
+   * next call reads the same results again.
+   *
+   * @param pageSize the number of results to return.
+   * @return the results, fewer than requested only when there are no more results to read.
+   */
+  List<Result> nextPage(int pageSize) throws SecurityServiceException {
+    List<Result> page = new ArrayList<>(Math.max(0, pageSize));
+    Map<String, Integer> pagePositions = new HashMap<>();
+    int index = nextIndex;
+    boolean endReached = exhausted;
+
+    while (page.size() < pageSize && !endReached) {
+      int requested = pageSize - page.size();
+      List<Result> results = resultSource.getResults(index, requested);
+      if (results == null) {
+        results = new ArrayList<>();
+      }
+      index += results.size();
+      endReached = results.size() < requested;
+
+      for (Result result : results) {
+        String metacardId = ResultDAGConverter.getMetacardId(result.getMetacard());
+        Integer position = pagePositions.get(metacardId);
+        if (position != null) {
+          if (LibraryImpl.isLaterVersion(result, page.get(position))) {
+            page.set(position, result);
+          }
+        } else if (!returnedIds.contains(metacardId)) {
+          pagePositions.put(metacardId, page.size());
+          page.add(result);
+        }
+      }
+    }
+
+    nextIndex = index;
+    exhausted = endReached;
+    returnedIds.addAll(pagePositions.keySet());
+    return page;
+  }
+
+  /** @return whether all of the results have been read. */
+  boolean isExhausted() {
+    return exhausted;
+  }
+
+  /** @return the index of the next result to read, starting at 1. */
+  int getNextIndex() {
+    return nextIndex;
+  }
+}
@@ -13,7 +13,6 @@
  */
 package org.codice.alliance.nsili.endpoint.requests;
 
-import com.google.common.io.ByteSource;
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.operation.ResourceRequest;
@@ -25,18 +24,27 @@ import ddf.catalog.resource.ResourceNotSupportedException;
 import ddf.security.service.SecurityServiceException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.shiro.subject.ExecutionException;
 import org.codice.alliance.nsili.common.CB.Callback;
 import org.codice.alliance.nsili.common.GIAS.DelayEstimate;
@@ -62,7 +70,6 @@ import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.managers.EmailConfiguration;
-import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.kamranzafar.jtar.TarEntry;
 import org.kamranzafar.jtar.TarHeader;
 import org.kamranzafar.jtar.TarOutputStream;
@@ -80,9 +87,9 @@ public class OrderRequestImpl extends OrderRequestPOA {
 
   private static final int DEFAULT_TAR_PERMISSION = 660;
 
-  private static final int MB = 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
 
-  private static final int MAX_MEMORY_SIZE = 100 * MB;
+  static final int MAX_CONCURRENT_TRANSFERS_PER_ORDER = 4;
 
   private final Function<Destination, Optional<DestinationSink>> destinationSinkFactory;
 
@@ -92,6 +99,8 @@ public class OrderRequestImpl extends OrderRequestPOA {
 
   private CatalogFramework catalogFramework;
 
+  private ExecutorService transferExecutor;
+
   /** This constructor is only intended for unit testing. */
   OrderRequestImpl(
       OrderContents order,
@@ -111,6 +120,21 @@ public class OrderRequestImpl extends OrderRequestPOA {
       AccessManagerImpl accessManager,
       CatalogFramework catalogFramework,
       EmailConfiguration emailConfiguration) {
+    this(order, protocol, port, accessManager, catalogFramework, emailConfiguration, null);
+  }
+
+  /**
+   * @param deliveryClient the shared client that sends ordered files to HTTP destinations, or null
+   *     to send each file with a client of its own.
+   */
+  public OrderRequestImpl(
+      OrderContents order,
+      String protocol,
+      int port,
+      AccessManagerImpl accessManager,
+      CatalogFramework catalogFramework,
+      EmailConfiguration emailConfiguration,
+      HttpDeliveryClient deliveryClient) {
     this(
         order,
         accessManager,
@@ -118,7 +142,8 @@ public class OrderRequestImpl extends OrderRequestPOA {
         destination -> {
           switch (destination.discriminator().value()) {
             case DestinationType._FTP:
-              return Optional.of(new FtpDestinationSink(destination.f_dest(), port, protocol));
+              return Optional.of(
+                  new FtpDestinationSink(destination.f_dest(), port, protocol, deliveryClient));
             case DestinationType._EMAIL:
               return Optional.of(
                   new EmailDestinationSink(destination.e_dest(), emailConfiguration));
@@ -128,6 +153,14 @@ public class OrderRequestImpl extends OrderRequestPOA {
         });
   }
 
+  /**
+   * @param transferExecutor the executor that retrieves and delivers the products of orders, or
+   *     null to transfer them one at a time on the calling thread.
+   */
+  public void setTransferExecutor(ExecutorService transferExecutor) {
+    this.transferExecutor = transferExecutor;
+  }
+
   @Override
   public State complete(DeliveryManifestHolder deliveryManifestHolder)
       throws ProcessingFault, SystemFault {
@@ -141,14 +174,11 @@ public class OrderRequestImpl extends OrderRequestPOA {
       String filename = null;
       PackagingSpecFormatType packageFormatType = PackagingSpecFormatType.FILESUNC;
 
-      List<ResourceContainer> files = new ArrayList<>();
-
       if (order.prod_list == null) {
         throw new BAD_OPERATION("No products specified for the order");
       }
-      for (ProductDetails productDetails : order.prod_list) {
-        requestProductResource(files, productDetails);
-      }
+      Map<String, Metacard> metacards = getMetacards(order.prod_list);
+      List<ResourceContainer> files = requestProductResources(order.prod_list, metacards);
 
       if (order.pSpec != null) {
         PackagingSpec packagingSpec = order.pSpec;
@@ -187,10 +217,105 @@ public class OrderRequestImpl extends OrderRequestPOA {
     return State.COMPLETED;
   }
 
-  private void requestProductResource(List<ResourceContainer> files, ProductDetails productDetails)
+  /** Resolves the metacards of all of the products of the order in as few queries as possible. */
+  private Map<String, Metacard> getMetacards(ProductDetails[] productDetailsList)
+      throws UnsupportedEncodingException, WrongAdapter, WrongPolicy {
+    List<String> ids = new ArrayList<>(productDetailsList.length);
+    for (ProductDetails productDetails : productDetailsList) {
+      if (productDetails != null && productDetails.aProduct != null) {
+        ids.add(accessManager.getProductId(productDetails.aProduct));
+      }
+    }
+    return accessManager.getMetacards(ids);
+  }
+
+  /**
+   * Retrieves the products of the order.
+   *
+   * @return the retrieved products, in the order they were requested.
+   */
+  private List<ResourceContainer> requestProductResources(
+      ProductDetails[] productDetailsList, Map<String, Metacard> metacards)
+      throws IOException, WrongAdapter, WrongPolicy, SecurityServiceException {
+    List<Callable<Optional<ResourceContainer>>> retrievals = new ArrayList<>();
+    for (ProductDetails productDetails : productDetailsList) {
+      retrievals.add(() -> requestProductResource(productDetails, metacards));
+    }
+
+    List<ResourceContainer> files = new ArrayList<>();
+    for (Optional<ResourceContainer> file :
+        transfer(
+            retrievals, file -> file.ifPresent(f -> IOUtils.closeQuietly(f.getInputStream())))) {
+      file.ifPresent(files::add);
+    }
+    return files;
+  }
+
+  /**
+   * Runs the transfers of the order. When a transfer executor is set, up to {@link
+   * #MAX_CONCURRENT_TRANSFERS_PER_ORDER} transfers run at the same time, so an order does not wait
+   * for each product in turn, and a large order does not take over the executor. Otherwise the
+   * transfers run one at a time on the calling thread.
+   *
+   * @param discard releases the result of a completed transfer when another transfer fails.
+   * @return the results of the transfers, in the order of the transfers.
+   */
+  private <T> List<T> transfer(List<Callable<T>> transfers, Consumer<T> discard)
+      throws IOException, WrongAdapter, WrongPolicy, SecurityServiceException {
+    List<T> results = new ArrayList<>(transfers.size());
+    if (transferExecutor == null) {
+      for (Callable<T> transfer : transfers) {
+        try {
+          results.add(transfer.call());
+        } catch (Exception e) {
+          results.forEach(discard);
+          throw rethrowTransferFailure(e);
+        }
+      }
+      return results;
+    }
+
+    BoundedSubmitter submitter =
+        new BoundedSubmitter(transferExecutor, MAX_CONCURRENT_TRANSFERS_PER_ORDER);
+    List<Future<T>> futures = new ArrayList<>(transfers.size());
+    boolean transferred = false;
+    try {
+      for (Callable<T> transfer : transfers) {
+        try {
+          futures.add(submitter.submit(transfer));
+        } catch (RejectedExecutionException e) {
+          throw new IOException("Order transfers have been shut down", e);
+        }
+      }
+
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      transferred = true;
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while transferring products");
+    } catch (java.util.concurrent.ExecutionException e) {
+      throw rethrowTransferFailure(e.getCause());
+    } finally {
+      if (!transferred) {
+        discardTransfers(futures, discard);
+      }
+    }
+  }
+
+  private Optional<ResourceContainer> requestProductResource(
+      ProductDetails productDetails, Map<String, Metacard> metacards)
       throws UnsupportedEncodingException, WrongAdapter, WrongPolicy, SecurityServiceException {
     if (productDetails != null) {
-      Metacard metacard = accessManager.getMetacard(productDetails.aProduct);
+      Metacard metacard = null;
+      if (productDetails.aProduct != null) {
+        metacard = metacards.get(accessManager.getProductId(productDetails.aProduct));
+      }
+      if (metacard == null) {
+        metacard = accessManager.getMetacard(productDetails.aProduct);
+      }
       ResourceRequest resourceRequest = new ResourceRequestById(metacard.getId());
       ResourceResponse resourceResponse;
 
@@ -200,19 +325,50 @@ public class OrderRequestImpl extends OrderRequestPOA {
 
       if (resourceResponse != null && resourceResponse.getResource() != null) {
         Resource resource = resourceResponse.getResource();
-        ResourceContainer file =
+        // Alterations aren't supported, so we will only return original content
+        return Optional.of(
             new ResourceContainer(
                 resource.getInputStream(),
                 resource.getName(),
                 resource.getSize(),
                 resource.getMimeTypeValue(),
-                metacard);
-        files.add(file);
-        // Alterations aren't supported, so we will only return original content
+                metacard));
       }
     } else {
       LOGGER.debug("Order requested for a null product detail");
     }
+    return Optional.empty();
+  }
+
+  private RuntimeException rethrowTransferFailure(Throwable cause)
+      throws IOException, WrongAdapter, WrongPolicy, SecurityServiceException {
+    if (cause instanceof IOException) {
+      throw (IOException) cause;
+    } else if (cause instanceof WrongAdapter) {
+      throw (WrongAdapter) cause;
+    } else if (cause instanceof WrongPolicy) {
+      throw (WrongPolicy) cause;
+    } else if (cause instanceof SecurityServiceException) {
+      throw (SecurityServiceException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    throw new IOException("Unable to transfer product", cause);
+  }
+
+  /** Stops the remaining transfers of a failed order and releases the completed ones. */
+  private <T> void discardTransfers(List<Future<T>> futures, Consumer<T> discard) {
+    for (Future<T> future : futures) {
+      if (!future.cancel(true)) {
+        try {
+          discard.accept(future.get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (java.util.concurrent.ExecutionException | CancellationException e) {
+          LOGGER.trace("Transfer of a failed order did not complete", e);
+        }
+      }
+    }
   }
 
   @Override
@@ -319,84 +475,51 @@ public class OrderRequestImpl extends OrderRequestPOA {
         }
         break;
       case FILESCOMPRESS:
-        {
-          try (TemporaryFileBackedOutputStream fos =
-                  new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-              ZipOutputStream zipOut = new ZipOutputStream(fos);
-              InputStream fileInputStream = file.getInputStream()) {
-            getZip(zipOut, fileInputStream, file.getName());
-            ByteSource contents = fos.asByteSource();
-
-            writeFile(
-                destinationSink, packagingSpecFormatType, filename, sentFiles, contents, metacards);
-          }
-        }
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeZip(out, file.getName(), content(file)),
+            metacards);
         break;
       case TARUNC:
-        try (TemporaryFileBackedOutputStream fos =
-                new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-            TarOutputStream tarOut = new TarOutputStream(fos)) {
-          getTar(tarOut, file);
-          ByteSource contents = fos.asByteSource();
-          writeFile(
-              destinationSink, packagingSpecFormatType, filename, sentFiles, contents, metacards);
-        }
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeTar(out, files),
+            metacards);
         break;
       case TARZIP:
-        {
-          writeTarFile(
-              destinationSink, packagingSpecFormatType, filename, sentFiles, file, metacards);
-        }
+      case TARCOMPRESS:
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeZip(out, filename + ".tar", tarOut -> writeTar(tarOut, files)),
+            metacards);
         break;
       case FILESZIP:
-        try (TemporaryFileBackedOutputStream fos =
-                new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-            GZIPOutputStream zipOut = new GZIPOutputStream(fos);
-            InputStream fileInputStream = file.getInputStream()) {
-          getGzip(zipOut, fileInputStream);
-          ByteSource contents = fos.asByteSource();
-          writeFile(
-              destinationSink, packagingSpecFormatType, filename, sentFiles, contents, metacards);
-        }
-        break;
-      case TARGZIP:
-        {
-          try (TemporaryFileBackedOutputStream tarFos =
-                  new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-              TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-            getTar(tarOut, file);
-            try (TemporaryFileBackedOutputStream gzipFos =
-                    new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-                GZIPOutputStream zipOut = new GZIPOutputStream(gzipFos)) {
-              getGzip(zipOut, tarFos.asByteSource().openStream());
-              ByteSource contents = gzipFos.asByteSource();
-              writeFile(
-                  destinationSink,
-                  packagingSpecFormatType,
-                  filename,
-                  sentFiles,
-                  contents,
-                  metacards);
-            }
-          }
-        }
-        break;
       case FILESGZIP:
-        try (TemporaryFileBackedOutputStream fos =
-                new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-            GZIPOutputStream zipOut = new GZIPOutputStream(fos);
-            InputStream fileInputStream = file.getInputStream()) {
-          getGzip(zipOut, fileInputStream);
-          ByteSource contents = fos.asByteSource();
-          writeFile(
-              destinationSink, packagingSpecFormatType, filename, sentFiles, contents, metacards);
-        }
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeGzip(out, content(file)),
+            metacards);
         break;
-      case TARCOMPRESS:
-        {
-          writeTarFile(
-              destinationSink, packagingSpecFormatType, filename, sentFiles, file, metacards);
-        }
+      case TARGZIP:
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeGzip(out, gzipOut -> writeTar(gzipOut, files)),
+            metacards);
         break;
       default:
         LOGGER.debug("Unknown packaging format type, skipping");
@@ -413,189 +536,108 @@ public class OrderRequestImpl extends OrderRequestPOA {
       throws IOException {
     int totalNum = files.size() + 1;
     String totalNumPortion = String.format(FILE_COUNT_FORMAT, totalNum);
+    List<Metacard> metacards =
+        files.stream().map(ResourceContainer::getMetacard).collect(Collectors.toList());
 
     switch (packagingSpecFormatType) {
       case FILESUNC:
         {
+          List<Callable<String>> writes = new ArrayList<>();
           int currNum = 1;
           for (ResourceContainer file : files) {
             String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
             String currFileName = filename + "." + currNumPortion + "." + totalNumPortion;
-            try (InputStream fileInputStream = file.getInputStream()) {
-              destinationSink.writeFile(
-                  fileInputStream,
-                  file.getSize(),
-                  currFileName,
-                  file.getMimeTypeValue(),
-                  Collections.singletonList(file.getMetacard()));
-              currNum++;
-              sentFiles.add(currFileName);
-            }
+            writes.add(
+                () -> {
+                  try (InputStream fileInputStream = file.getInputStream()) {
+                    destinationSink.writeFile(
+                        fileInputStream,
+                        file.getSize(),
+                        currFileName,
+                        file.getMimeTypeValue(),
+                        Collections.singletonList(file.getMetacard()));
+                  }
+                  return currFileName;
+                });
+            currNum++;
           }
+          sentFiles.addAll(writeEachFile(writes));
         }
         break;
       case FILESCOMPRESS:
         {
+          List<Callable<String>> writes = new ArrayList<>();
           int currNum = 1;
           for (ResourceContainer file : files) {
-            try (TemporaryFileBackedOutputStream fos =
-                    new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-                ZipOutputStream zipOut = new ZipOutputStream(fos);
-                InputStream fileInputStream = file.getInputStream()) {
-              getZip(zipOut, fileInputStream, file.getName());
-              ByteSource contents = fos.asByteSource();
-              String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
-              String currFileName =
-                  filename
-                      + "."
-                      + currNumPortion
-                      + "."
-                      + totalNumPortion
-                      + packagingSpecFormatType.getExtension();
-              try (InputStream inputStream = contents.openStream()) {
-                destinationSink.writeFile(
-                    inputStream,
-                    contents.size(),
-                    currFileName,
-                    packagingSpecFormatType.getContentType(),
-                    Collections.singletonList(file.getMetacard()));
-                sentFiles.add(currFileName);
-              }
-              currNum++;
-            }
+            String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
+            writes.add(
+                () ->
+                    sendFile(
+                        destinationSink,
+                        packagingSpecFormatType,
+                        filename + "." + currNumPortion + "." + totalNumPortion,
+                        out -> writeZip(out, file.getName(), content(file)),
+                        Collections.singletonList(file.getMetacard())));
+            currNum++;
           }
+          sentFiles.addAll(writeEachFile(writes));
         }
         break;
       case FILESZIP:
-        {
-          try (TemporaryFileBackedOutputStream fos =
-                  new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-              ZipOutputStream zipOut = new ZipOutputStream(fos)) {
-            getZip(zipOut, files);
-            ByteSource zip = fos.asByteSource();
-            writeFile(
-                destinationSink,
-                packagingSpecFormatType,
-                filename,
-                sentFiles,
-                zip,
-                files.stream().map(ResourceContainer::getMetacard).collect(Collectors.toList()));
-          }
-        }
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeZip(out, files),
+            metacards);
         break;
       case FILESGZIP:
         {
+          List<Callable<String>> writes = new ArrayList<>();
           int currNum = 1;
           for (ResourceContainer file : files) {
-            try (TemporaryFileBackedOutputStream fos =
-                    new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-                GZIPOutputStream zipOut = new GZIPOutputStream(fos);
-                InputStream fileInputStream = file.getInputStream()) {
-              getGzip(zipOut, fileInputStream);
-              ByteSource contents = fos.asByteSource();
-              String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
-              String currFileName =
-                  filename
-                      + "."
-                      + currNumPortion
-                      + "."
-                      + totalNumPortion
-                      + packagingSpecFormatType.getExtension();
-              try (InputStream inputStream = contents.openStream()) {
-                destinationSink.writeFile(
-                    inputStream,
-                    contents.size(),
-                    currFileName,
-                    packagingSpecFormatType.getContentType(),
-                    Collections.singletonList(file.getMetacard()));
-                sentFiles.add(currFileName);
-              }
-              currNum++;
-            }
+            String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
+            writes.add(
+                () ->
+                    sendFile(
+                        destinationSink,
+                        packagingSpecFormatType,
+                        filename + "." + currNumPortion + "." + totalNumPortion,
+                        out -> writeGzip(out, content(file)),
+                        Collections.singletonList(file.getMetacard())));
+            currNum++;
           }
+          sentFiles.addAll(writeEachFile(writes));
         }
         break;
       case TARUNC:
-        {
-          try (TemporaryFileBackedOutputStream fos =
-                  new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-              TarOutputStream tarOut = new TarOutputStream(fos)) {
-            getTar(tarOut, files);
-            ByteSource tar = fos.asByteSource();
-            writeFile(
-                destinationSink,
-                packagingSpecFormatType,
-                filename,
-                sentFiles,
-                tar,
-                files.stream().map(ResourceContainer::getMetacard).collect(Collectors.toList()));
-          }
-        }
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeTar(out, files),
+            metacards);
         break;
       case TARZIP:
-        {
-          try (TemporaryFileBackedOutputStream tarFos =
-                  new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-              TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-            getTar(tarOut, files);
-            try (TemporaryFileBackedOutputStream zipFos =
-                    new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-                ZipOutputStream zipOut = new ZipOutputStream(zipFos)) {
-              getZip(zipOut, tarFos.asByteSource().openStream(), filename + ".tar");
-              ByteSource zip = zipFos.asByteSource();
-              writeFile(
-                  destinationSink,
-                  packagingSpecFormatType,
-                  filename,
-                  sentFiles,
-                  zip,
-                  files.stream().map(ResourceContainer::getMetacard).collect(Collectors.toList()));
-            }
-          }
-        }
+      case TARCOMPRESS:
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeZip(out, filename + ".tar", tarOut -> writeTar(tarOut, files)),
+            metacards);
         break;
       case TARGZIP:
-        {
-          try (TemporaryFileBackedOutputStream tarFos =
-                  new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-              TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-            getTar(tarOut, files);
-            try (TemporaryFileBackedOutputStream gzipFos =
-                    new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-                GZIPOutputStream zipOut = new GZIPOutputStream(gzipFos)) {
-              getGzip(zipOut, tarFos.asByteSource().openStream());
-              ByteSource zip = gzipFos.asByteSource();
-              writeFile(
-                  destinationSink,
-                  packagingSpecFormatType,
-                  filename,
-                  sentFiles,
-                  zip,
-                  files.stream().map(ResourceContainer::getMetacard).collect(Collectors.toList()));
-            }
-          }
-        }
-        break;
-      case TARCOMPRESS:
-        {
-          try (TemporaryFileBackedOutputStream tarFos =
-                  new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-              TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-            getTar(tarOut, files);
-            try (TemporaryFileBackedOutputStream zipFos =
-                    new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-                ZipOutputStream zipOut = new ZipOutputStream(zipFos)) {
-              getZip(zipOut, tarFos.asByteSource().openStream(), filename + ".tar");
-              writeFile(
-                  destinationSink,
-                  packagingSpecFormatType,
-                  filename,
-                  sentFiles,
-                  zipFos.asByteSource(),
-                  files.stream().map(ResourceContainer::getMetacard).collect(Collectors.toList()));
-            }
-          }
-        }
+        writeFile(
+            destinationSink,
+            packagingSpecFormatType,
+            filename,
+            sentFiles,
+            out -> writeGzip(out, gzipOut -> writeTar(gzipOut, files)),
+            metacards);
         break;
       default:
         LOGGER.debug("Unknown packaging format type, skipping");
@@ -603,109 +645,105 @@ public class OrderRequestImpl extends OrderRequestPOA {
     }
   }
 
-  private void writeTarFile(
+  /**
+   * Writes one file per product to the destination.
+   *
+   * @return the names of the files written, in the order of the products.
+   */
+  private List<String> writeEachFile(List<Callable<String>> writes) throws IOException {
+    try {
+      return transfer(writes, name -> {});
+    } catch (WrongAdapter | WrongPolicy | SecurityServiceException e) {
+      throw new IOException("Unable to write ordered file", e);
+    }
+  }
+
+  /**
+   * Writes a packaged file to the destination in a single pass. The package is written directly
+   * to the destination as it is produced, unless the destination needs to know its size first.
+   */
+  private void writeFile(
       DestinationSink destinationSink,
       PackagingSpecFormatType packagingSpecFormatType,
       String filename,
       List<String> sentFiles,
-      ResourceContainer file,
+      DestinationSink.ContentWriter contents,
       List<Metacard> metacards)
       throws IOException {
-    try (TemporaryFileBackedOutputStream tarFos =
-            new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-        TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-      getTar(tarOut, file);
-      try (TemporaryFileBackedOutputStream zipFos =
-              new TemporaryFileBackedOutputStream(MAX_MEMORY_SIZE);
-          ZipOutputStream zipOut = new ZipOutputStream(zipFos)) {
-        getZip(zipOut, tarFos.asByteSource().openStream(), filename + ".tar");
-        ByteSource contents = zipFos.asByteSource();
-
-        writeFile(
-            destinationSink, packagingSpecFormatType, filename, sentFiles, contents, metacards);
-      }
-    }
+    sentFiles.add(
+        sendFile(destinationSink, packagingSpecFormatType, filename, contents, metacards));
   }
 
-  private void writeFile(
+  /** @return the name of the file written to the destination. */
+  private String sendFile(
       DestinationSink destinationSink,
       PackagingSpecFormatType packagingSpecFormatType,
       String filename,
-      List<String> sentFiles,
-      ByteSource contents,
+      DestinationSink.ContentWriter contents,
       List<Metacard> metacards)
       throws IOException {
     String filenameWithExt = filename + packagingSpecFormatType.getExtension();
-    try (InputStream inputStream = contents.openStream()) {
-      destinationSink.writeFile(
-          inputStream,
-          contents.size(),
-          filenameWithExt,
-          packagingSpecFormatType.getContentType(),
-          metacards);
-      sentFiles.add(filenameWithExt);
-    }
+    destinationSink.writeFile(
+        contents, filenameWithExt, packagingSpecFormatType.getContentType(), metacards);
+    return filenameWithExt;
   }
 
-  private void getTar(TarOutputStream tarOut, List<ResourceContainer> files) throws IOException {
-    long modTime = System.currentTimeMillis() / 1000;
-    int permissions = DEFAULT_TAR_PERMISSION;
-
-    for (ResourceContainer file : files) {
-      TarHeader fileHeader =
-          TarHeader.createHeader(file.getName(), file.getSize(), modTime, false, permissions);
-      tarOut.putNextEntry(new TarEntry(fileHeader));
+  private DestinationSink.ContentWriter content(ResourceContainer file) {
+    return out -> {
       try (InputStream fileInputStream = file.getInputStream()) {
-        IOUtils.copy(fileInputStream, tarOut);
+        IOUtils.copy(fileInputStream, out);
       }
-    }
-
-    tarOut.flush();
+    };
   }
 
-  private void getTar(TarOutputStream tarOut, ResourceContainer file) throws IOException {
+  private void writeTar(OutputStream out, List<ResourceContainer> files) throws IOException {
     long modTime = System.currentTimeMillis() / 1000;
     int permissions = DEFAULT_TAR_PERMISSION;
 
-    TarHeader fileHeader =
-        TarHeader.createHeader(file.getName(), file.getSize(), modTime, false, permissions);
-    tarOut.putNextEntry(new TarEntry(fileHeader));
-    try (InputStream fileInputStream = file.getInputStream()) {
-      IOUtils.copy(fileInputStream, tarOut);
+    // Closing the tar stream writes its end of archive blocks, the underlying stream stays open
+    try (TarOutputStream tarOut = new TarOutputStream(new CloseShieldOutputStream(out))) {
+      for (ResourceContainer file : files) {
+        TarHeader fileHeader =
+            TarHeader.createHeader(file.getName(), file.getSize(), modTime, false, permissions);
+        tarOut.putNextEntry(new TarEntry(fileHeader));
+        try (InputStream fileInputStream = file.getInputStream()) {
+          IOUtils.copy(fileInputStream, tarOut);
+        }
+      }
     }
-
-    tarOut.flush();
   }
 
-  private void getGzip(GZIPOutputStream zipOut, InputStream data) throws IOException {
-    IOUtils.copy(data, zipOut);
-    zipOut.flush();
+  private void writeGzip(OutputStream out, DestinationSink.ContentWriter contents)
+      throws IOException {
+    try (GZIPOutputStream gzipOut =
+        new GZIPOutputStream(new CloseShieldOutputStream(out), BUFFER_SIZE)) {
+      contents.writeTo(gzipOut);
+    }
   }
 
-  private void getZip(ZipOutputStream zipOut, InputStream data, String name) throws IOException {
-
-    ZipEntry zipEntry = new ZipEntry(name);
-    zipOut.putNextEntry(zipEntry);
-    IOUtils.copy(data, zipOut);
-
-    zipOut.flush();
+  private void writeZip(OutputStream out, String name, DestinationSink.ContentWriter contents)
+      throws IOException {
+    try (ZipOutputStream zipOut = new ZipOutputStream(new CloseShieldOutputStream(out))) {
+      zipOut.putNextEntry(new ZipEntry(name));
+      contents.writeTo(zipOut);
+      zipOut.closeEntry();
+    }
   }
 
-  private void getZip(ZipOutputStream zipOut, List<ResourceContainer> files) throws IOException {
-
-    List<String> addedFiles = new ArrayList<>();
-    for (ResourceContainer file : files) {
-      if (!addedFiles.contains(file.getName())) {
-        ZipEntry zipEntry = new ZipEntry(file.getName());
-        zipOut.putNextEntry(zipEntry);
-        try (InputStream fileInputStream = file.getInputStream()) {
-          IOUtils.copy(fileInputStream, zipOut);
+  private void writeZip(OutputStream out, List<ResourceContainer> files) throws IOException {
+    try (ZipOutputStream zipOut = new ZipOutputStream(new CloseShieldOutputStream(out))) {
+      List<String> addedFiles = new ArrayList<>();
+      for (ResourceContainer file : files) {
+        if (!addedFiles.contains(file.getName())) {
+          zipOut.putNextEntry(new ZipEntry(file.getName()));
+          try (InputStream fileInputStream = file.getInputStream()) {
+            IOUtils.copy(fileInputStream, zipOut);
+          }
+          zipOut.closeEntry();
+          addedFiles.add(file.getName());
         }
-        addedFiles.add(file.getName());
       }
     }
-
-    zipOut.flush();
   }
 
   class ResourceContainer {
@@ -14,67 +14,129 @@
 package org.codice.alliance.nsili.endpoint.requests;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.codice.alliance.nsili.common.UCO.DAG;
 
+/**
+ * Pending results of a standing query, kept as intervals ordered by the time they were added. The
+ * intervals are stored in an array whose consumed head is compacted lazily, so intervals can be
+ * looked up by position or by time without scanning, and the oldest intervals can be removed
+ * without shifting the remaining ones.
+ *
+ * <p>The number of pending results is capped. What happens once the cap is reached is decided by
+ * the {@link OverflowPolicy}.
+ */
 public class StandingQueryData {
 
+  /** What to do when a standing query has more pending results than it may keep. */
+  public enum OverflowPolicy {
+    /**
+     * Stop collecting results until the client retrieves some. The standing query resumes from
+     * where it stopped, so no results are lost, they are only delivered later.
+     */
+    PAUSE,
+
+    /** Keep collecting results and drop the oldest pending results to make room. */
+    DROP_OLDEST
+  }
+
+  private static final int MIN_COMPACT_SIZE = 64;
+
+  private final List<DAGQueryResult> intervals = new ArrayList<>();
+
+  private int head = 0;
+
   private int totalSize = 0;
 
-  private List<DAGQueryResult> resultOfResultsList = new ArrayList<>();
+  private long droppedCount = 0;
+
+  private int maxSize;
+
+  private OverflowPolicy overflowPolicy = OverflowPolicy.PAUSE;
 
   private final Object dataLockObj = new Object();
 
+  private boolean released = false;
+
+  public StandingQueryData() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /** @param maxSize the maximum number of pending results. */
+  public StandingQueryData(int maxSize) {
+    this.maxSize = Math.max(1, maxSize);
+  }
+
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    synchronized (dataLockObj) {
+      if (overflowPolicy != null) {
+        this.overflowPolicy = overflowPolicy;
+      }
+      trimToMaxSize();
+    }
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    synchronized (dataLockObj) {
+      return overflowPolicy;
+    }
+  }
+
   public int size() {
     synchronized (dataLockObj) {
       return totalSize;
     }
   }
 
+  /**
+   * @return whether no more results should be collected until the client retrieves some. Never
+   *     true when the oldest results are dropped to make room.
+   */
+  public boolean isFull() {
+    synchronized (dataLockObj) {
+      return overflowPolicy == OverflowPolicy.PAUSE && totalSize >= maxSize;
+    }
+  }
+
+  /** @return the number of results that were dropped to make room for newer results. */
+  public long getDroppedCount() {
+    synchronized (dataLockObj) {
+      return droppedCount;
+    }
+  }
+
   public void clearAll() {
     synchronized (dataLockObj) {
-      resultOfResultsList.clear();
+      intervals.clear();
+      head = 0;
       totalSize = 0;
     }
   }
 
   public void clearIntervals(int num_intervals) {
     synchronized (dataLockObj) {
-      Iterator<DAGQueryResult> resultListIT = resultOfResultsList.iterator();
-      int currItem = 0;
-      while (resultListIT.hasNext() && currItem < num_intervals) {
-        totalSize = totalSize - resultListIT.next().getResults().size();
-        resultListIT.remove();
-        currItem++;
-      }
+      removeFirst(Math.max(0, Math.min(num_intervals, intervals.size() - head)));
     }
   }
 
   public void clearBefore(long time) {
     synchronized (dataLockObj) {
       long offsetTime = System.currentTimeMillis() - time;
-      Iterator<DAGQueryResult> resultIT = resultOfResultsList.iterator();
-      while (resultIT.hasNext()) {
-        DAGQueryResult result = resultIT.next();
-        if (result.getTimeOfResult() < offsetTime) {
-          totalSize = totalSize - resultIT.next().getResults().size();
-          resultIT.remove();
-        }
-      }
+      removeFirst(indexAfter(offsetTime - 1) - head);
     }
   }
 
   public int getNumberOfIntervals() {
     synchronized (dataLockObj) {
-      return resultOfResultsList.size();
+      return intervals.size() - head;
     }
   }
 
   public int getNumberOfHitsInInterval(int interval) {
     synchronized (dataLockObj) {
-      if (resultOfResultsList.size() >= interval) {
-        return resultOfResultsList.get(interval).getResults().size();
+      if (interval >= 0 && interval < intervals.size() - head) {
+        return intervals.get(head + interval).getResults().size();
       } else {
         return 0;
       }
@@ -83,44 +145,130 @@ public class StandingQueryData {
 
   public void add(DAGQueryResult queryResult) {
     synchronized (dataLockObj) {
-      resultOfResultsList.add(queryResult);
+      // Results pushed on ingest and results found by polling can arrive slightly out of order.
+      intervals.add(indexAfter(queryResult.getTimeOfResult()), queryResult);
       totalSize += queryResult.getResults().size();
+      trimToMaxSize();
+      dataLockObj.notifyAll();
     }
   }
 
-  public List<DAG> getResultData(int maxNumResults) {
+  /**
+   * Waits until results are available, the timeout expires, or the waiting callers are released.
+   *
+   * @param timeoutMsec the maximum time to wait, in milliseconds.
+   * @return whether results are available.
+   */
+  public boolean awaitResults(long timeoutMsec) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMsec);
     synchronized (dataLockObj) {
-      List<DAG> dagResults = new ArrayList<>();
-      if (totalSize <= maxNumResults) {
-        for (DAGQueryResult result : resultOfResultsList) {
-          dagResults.addAll(result.getResults());
+      try {
+        long remainingNanos = deadline - System.nanoTime();
+        while (totalSize == 0 && !released && remainingNanos > 0) {
+          TimeUnit.NANOSECONDS.timedWait(dataLockObj, remainingNanos);
+          remainingNanos = deadline - System.nanoTime();
         }
-        resultOfResultsList.clear();
-        totalSize = 0;
-      } else {
-        int remainingCountNeeded = maxNumResults;
-        Iterator<DAGQueryResult> resultIT = resultOfResultsList.iterator();
-        while (resultIT.hasNext() && remainingCountNeeded > 0) {
-          DAGQueryResult result = resultIT.next();
-          List<DAG> results = result.getResults();
-          if (results.size() <= remainingCountNeeded) {
-            dagResults.addAll(result.getResults());
-            remainingCountNeeded = remainingCountNeeded - results.size();
-            totalSize = totalSize - results.size();
-            resultIT.remove();
-          } else {
-            Iterator<DAG> dagResultIT = result.getResults().iterator();
-            while (dagResultIT.hasNext() && remainingCountNeeded > 0) {
-              dagResults.add(dagResultIT.next());
-              dagResultIT.remove();
-              remainingCountNeeded--;
-              totalSize--;
-            }
-          }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return totalSize > 0;
+    }
+  }
+
+  /** Releases the callers waiting for results, and keeps later callers from waiting. */
+  public void release() {
+    synchronized (dataLockObj) {
+      released = true;
+      dataLockObj.notifyAll();
+    }
+  }
+
+  public List<DAG> getResultData(int maxNumResults) {
+    synchronized (dataLockObj) {
+      List<DAG> dagResults = new ArrayList<>(Math.max(0, Math.min(maxNumResults, totalSize)));
+      int completeIntervals = 0;
+      int index = head;
+      while (index < intervals.size() && dagResults.size() < maxNumResults) {
+        List<DAG> results = intervals.get(index).getResults();
+        int remainingCountNeeded = maxNumResults - dagResults.size();
+        if (results.size() <= remainingCountNeeded) {
+          dagResults.addAll(results);
+          completeIntervals++;
+        } else {
+          List<DAG> returned = results.subList(0, remainingCountNeeded);
+          dagResults.addAll(returned);
+          returned.clear();
+          totalSize -= remainingCountNeeded;
         }
+        index++;
       }
+      removeFirst(completeIntervals);
 
       return dagResults;
     }
   }
+
+  private void trimToMaxSize() {
+    if (overflowPolicy != OverflowPolicy.DROP_OLDEST) {
+      return;
+    }
+
+    int completeIntervals = 0;
+    int index = head;
+    int excess = totalSize - maxSize;
+    while (excess > 0 && index < intervals.size()) {
+      List<DAG> results = intervals.get(index).getResults();
+      if (results.size() <= excess) {
+        excess -= results.size();
+        completeIntervals++;
+      } else {
+        results.subList(0, excess).clear();
+        totalSize -= excess;
+        droppedCount += excess;
+        excess = 0;
+      }
+      index++;
+    }
+
+    droppedCount += removeFirst(completeIntervals);
+  }
+
+  /**
+   * Removes the oldest intervals.
+   *
+   * @return the number of results that were removed.
+   */
+  private int removeFirst(int count) {
+    int removed = 0;
+    for (int i = head; i < head + count; i++) {
+      removed += intervals.get(i).getResults().size();
+      intervals.set(i, null);
+    }
+    head += count;
+    totalSize -= removed;
+
+    if (head == intervals.size()) {
+      intervals.clear();
+      head = 0;
+    } else if (head >= MIN_COMPACT_SIZE && head * 2 >= intervals.size()) {
+      intervals.subList(0, head).clear();
+      head = 0;
+    }
+    return removed;
+  }
+
+  /** @return the index of the first interval added after the given time. */
+  private int indexAfter(long time) {
+    int low = head;
+    int high = intervals.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (intervals.get(mid).getTimeOfResult() <= time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
 }
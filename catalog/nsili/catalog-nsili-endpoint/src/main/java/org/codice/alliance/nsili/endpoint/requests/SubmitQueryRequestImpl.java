@@ -31,7 +31,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
-import org.apache.shiro.subject.ExecutionException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import org.codice.alliance.nsili.common.BqsConverter;
 import org.codice.alliance.nsili.common.CB.Callback;
 import org.codice.alliance.nsili.common.DagParsingException;
@@ -42,6 +46,7 @@ import org.codice.alliance.nsili.common.GIAS.SubmitQueryRequestPOA;
 import org.codice.alliance.nsili.common.GIAS._RequestManagerStub;
 import org.codice.alliance.nsili.common.NsilCorbaExceptionUtil;
 import org.codice.alliance.nsili.common.NsiliConstants;
+import org.codice.alliance.nsili.common.ResultAttributeProjection;
 import org.codice.alliance.nsili.common.ResultDAGConverter;
 import org.codice.alliance.nsili.common.UCO.DAG;
 import org.codice.alliance.nsili.common.UCO.DAGListHolder;
@@ -56,6 +61,8 @@ import org.codice.alliance.nsili.common.datamodel.NsiliDataModel;
 import org.codice.alliance.nsili.endpoint.LibraryImpl;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
 import org.omg.CORBA.NO_IMPLEMENT;
+import org.omg.CORBA.ORB;
+import org.omg.PortableServer.POA;
 import org.opengis.filter.Filter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,7 +83,8 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
   private CatalogFramework catalogFramework;
 
-  private int totalHitsReturned = 0;
+  private final LatestResultsPager resultsPager =
+      new LatestResultsPager((startIndex, count) -> getResults(query, startIndex, count));
 
   private Set<String> querySources = new HashSet<>();
 
@@ -86,6 +94,10 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
   private boolean outgoingValidationEnabled;
 
+  private ResultAttributeProjection resultAttributeProjection;
+
+  private ExecutorService conversionExecutor;
+
   public SubmitQueryRequestImpl(
       Query query,
       FilterBuilder filterBuilder,
@@ -119,14 +131,24 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
     }
   }
 
-  public void setResultAttributes(String[] resultAttributes) {
+  public synchronized void setResultAttributes(String[] resultAttributes) {
     if (resultAttributes != null) {
       this.resultAttributes.addAll(Arrays.asList(resultAttributes));
+      resultAttributeProjection = null;
     }
   }
 
-  public void setOutgoingValidationEnabled(boolean outgoingValidationEnabled) {
+  public synchronized void setOutgoingValidationEnabled(boolean outgoingValidationEnabled) {
     this.outgoingValidationEnabled = outgoingValidationEnabled;
+    resultAttributeProjection = null;
+  }
+
+  /**
+   * @param conversionExecutor the pool that converts results to DAGs in parallel, or null to
+   *     convert them on the calling thread.
+   */
+  public void setConversionExecutor(ExecutorService conversionExecutor) {
+    this.conversionExecutor = conversionExecutor;
   }
 
   @Override
@@ -136,32 +158,28 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
     List<DAG> dags = new ArrayList<>();
     int totalHits = 0;
-    List<Result> queryResults = getResults(query, totalHitsReturned);
+    List<Result> queryResults = getNextResults();
 
     LOGGER.debug("Query: {} return NSILI results: {}", query.bqs_query, queryResults.size());
 
-    Map<String, List<String>> mandatoryAttributes = new HashMap<>();
-    if (outgoingValidationEnabled) {
-      NsiliDataModel nsiliDataModel = new NsiliDataModel();
-      mandatoryAttributes = nsiliDataModel.getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW);
-    }
-    for (Result result : queryResults) {
-      try {
-        DAG dag =
-            ResultDAGConverter.convertResult(
-                result, _orb(), _poa(), resultAttributes, mandatoryAttributes);
+    List<FutureTask<DAG>> conversions = submitConversions(queryResults);
+    try {
+      for (FutureTask<DAG> conversion : conversions) {
+        DAG dag = getConvertedResult(conversion);
         if (dag != null) {
           dags.add(dag);
           totalHits++;
-          totalHitsReturned++;
         }
-      } catch (DagParsingException dpe) {
-        LOGGER.debug("DAG could not be parsed and will not be returned to caller:", dpe);
-      }
 
-      if (totalHits >= maxNumReturnedHits) {
-        break;
+        if (totalHits >= maxNumReturnedHits) {
+          break;
+        }
       }
+    } catch (InterruptedException e) {
+      LOGGER.debug("Interrupted while converting results", e);
+      Thread.currentThread().interrupt();
+    } finally {
+      conversions.forEach(conversion -> conversion.cancel(false));
     }
     if (!dags.isEmpty()) {
       results.value = dags.toArray(new DAG[0]);
@@ -248,9 +266,22 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
     }
   }
 
-  protected List<Result> getResults(Query aQuery, int offset) {
-    List<Result> results = new ArrayList<>();
+  /** @return the next page of results, with only the latest version of each product. */
+  private List<Result> getNextResults() {
+    try {
+      return resultsPager.nextPage(maxNumReturnedHits);
+    } catch (org.apache.shiro.subject.ExecutionException | SecurityServiceException e) {
+      LOGGER.debug("Unable to query catalog", e);
+      return new ArrayList<>();
+    }
+  }
 
+  /**
+   * @param startIndex the index of the first result to read, starting at 1.
+   * @param count the number of results to read.
+   */
+  protected List<Result> getResults(Query aQuery, int startIndex, int count)
+      throws SecurityServiceException {
     Filter parsedFilter = bqsConverter.convertBQSToDDF(aQuery);
 
     // Always need to ask for the DEFAULT_TAG or we get non-resource metacards
@@ -284,11 +315,9 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
     QueryImpl catalogQuery = new QueryImpl(parsedFilter);
     catalogQuery.setRequestsTotalResultsCount(false);
-    catalogQuery.setPageSize(maxNumReturnedHits);
-
-    if (offset > 0) {
-      catalogQuery.setStartIndex(offset);
-    }
+    catalogQuery.setPageSize(count);
+    catalogQuery.setStartIndex(startIndex);
+    catalogQuery.setSortBy(LatestResultsPager.LATEST_FIRST);
 
     if (timeout > 0) {
       catalogQuery.setTimeoutMillis(timeout * 1000);
@@ -301,17 +330,67 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
       catalogQueryRequest = new QueryRequestImpl(catalogQuery, false, querySources, null);
     }
 
+    QueryResultsCallable queryCallable = new QueryResultsCallable(catalogQueryRequest);
+    return NsiliEndpoint.getGuestSubject().execute(queryCallable);
+  }
+
+  /**
+   * Creates a conversion task for each result, in result order. The tasks are handed to the
+   * conversion pool when there is one, and are otherwise run by the caller when it needs them.
+   */
+  private List<FutureTask<DAG>> submitConversions(List<Result> queryResults) {
+    ResultAttributeProjection projection = getResultAttributeProjection();
+    ORB orb = _orb();
+    POA poa = _poa();
+
+    List<FutureTask<DAG>> conversions = new ArrayList<>(queryResults.size());
+    for (Result result : queryResults) {
+      FutureTask<DAG> conversion =
+          new FutureTask<>(() -> convertResult(result, orb, poa, projection));
+      if (conversionExecutor != null) {
+        try {
+          conversionExecutor.execute(conversion);
+        } catch (RejectedExecutionException e) {
+          LOGGER.debug("Result will be converted on the request thread", e);
+        }
+      }
+      conversions.add(conversion);
+    }
+    return conversions;
+  }
+
+  private static DAG getConvertedResult(FutureTask<DAG> conversion) throws InterruptedException {
+    // Converts the result on this thread if the pool has not started it yet
+    conversion.run();
     try {
-      QueryResultsCallable queryCallable = new QueryResultsCallable(catalogQueryRequest);
-      List<Result> queryResults =
-          LibraryImpl.getLatestResults(NsiliEndpoint.getGuestSubject().execute(queryCallable));
-      results.addAll(queryResults);
+      return conversion.get();
+    } catch (ExecutionException | CancellationException e) {
+      LOGGER.debug("Result could not be converted and will not be returned to caller:", e);
+      return null;
+    }
+  }
 
-    } catch (ExecutionException | SecurityServiceException e) {
-      LOGGER.debug("Unable to query catalog", e);
+  private static DAG convertResult(
+      Result result, ORB orb, POA poa, ResultAttributeProjection projection) {
+    try {
+      return ResultDAGConverter.convertResult(result, orb, poa, projection);
+    } catch (DagParsingException dpe) {
+      LOGGER.debug("DAG could not be parsed and will not be returned to caller:", dpe);
+      return null;
     }
+  }
 
-    return results;
+  private synchronized ResultAttributeProjection getResultAttributeProjection() {
+    if (resultAttributeProjection == null) {
+      Map<String, List<String>> mandatoryAttributes = new HashMap<>();
+      if (outgoingValidationEnabled) {
+        mandatoryAttributes =
+            NsiliDataModel.getInstance().getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW);
+      }
+      resultAttributeProjection =
+          ResultAttributeProjection.compile(resultAttributes, mandatoryAttributes);
+    }
+    return resultAttributeProjection;
   }
 
   class QueryResultsCallable implements Callable<List<Result>> {
@@ -23,7 +23,6 @@ import ddf.catalog.operation.QueryResponse;
 import ddf.catalog.operation.impl.QueryImpl;
 import ddf.catalog.operation.impl.QueryRequestImpl;
 import ddf.security.service.SecurityServiceException;
-import java.nio.charset.Charset;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -35,13 +34,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.shiro.subject.ExecutionException;
 import org.codice.alliance.nsili.common.BqsConverter;
+import org.codice.alliance.nsili.common.BqsFilterCache;
 import org.codice.alliance.nsili.common.CB.Callback;
 import org.codice.alliance.nsili.common.DagParsingException;
 import org.codice.alliance.nsili.common.GIAS.DayEvent;
@@ -52,10 +54,10 @@ import org.codice.alliance.nsili.common.GIAS.LifeEventType;
 import org.codice.alliance.nsili.common.GIAS.Query;
 import org.codice.alliance.nsili.common.GIAS.QueryLifeSpan;
 import org.codice.alliance.nsili.common.GIAS.RequestManager;
-import org.codice.alliance.nsili.common.GIAS.RequestManagerHelper;
 import org.codice.alliance.nsili.common.GIAS.SortAttribute;
 import org.codice.alliance.nsili.common.GIAS.SubmitStandingQueryRequestPOA;
 import org.codice.alliance.nsili.common.NsiliConstants;
+import org.codice.alliance.nsili.common.ResultAttributeProjection;
 import org.codice.alliance.nsili.common.ResultDAGConverter;
 import org.codice.alliance.nsili.common.UCO.AbsTime;
 import org.codice.alliance.nsili.common.UCO.DAG;
@@ -72,15 +74,14 @@ import org.codice.alliance.nsili.common.UCO.Time;
 import org.codice.alliance.nsili.common.datamodel.NsiliDataModel;
 import org.codice.alliance.nsili.endpoint.LibraryImpl;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
-import org.codice.alliance.nsili.endpoint.managers.RequestManagerImpl;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryMatcher;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryScheduler;
 import org.codice.alliance.nsili.transformer.DAGConverter;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.omg.CORBA.NO_IMPLEMENT;
 import org.omg.CORBA.StringHolder;
-import org.omg.PortableServer.POAPackage.ObjectAlreadyActive;
-import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
-import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.opengis.filter.Filter;
 import org.slf4j.LoggerFactory;
 
@@ -92,6 +93,9 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   private static final int MINUTE_MSEC = 60 * 1000;
 
+  /** Longest time a completion call waits for results, so idle callers release ORB threads. */
+  private static final long MAX_RESULTS_WAIT_MSEC = 10L * 1000L;
+
   private String id;
 
   private Map<String, Callback> callbacks = new HashMap<>();
@@ -108,9 +112,11 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   private String user = "alliance";
 
-  private boolean paused = false;
+  private volatile boolean paused = false;
+
+  private final Execution execution;
 
-  private ExecutionThread executionThread;
+  private final StandingQueryScheduler scheduler;
 
   private int pageSize = NsiliEndpoint.DEFAULT_MAX_NUM_RESULTS;
 
@@ -118,8 +124,6 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   private FilterBuilder filterBuilder;
 
-  private int maxPendingResults;
-
   private Date startDate = null;
 
   private Date endDate = null;
@@ -128,11 +132,28 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   private Query query = null;
 
-  private StandingQueryData standingQueryData = new StandingQueryData();
+  private StandingQueryData standingQueryData;
 
   private final Object callbackLockObj = new Object();
 
-  private RequestManager requestManager;
+  private final Object ingestLockObj = new Object();
+
+  private StandingQueryMatcher standingQueryMatcher;
+
+  private volatile boolean ingestDriven = false;
+
+  private boolean caughtUp = false;
+
+  private long missedSince = 0;
+
+  private long lastMissedTime = 0;
+
+  // The modified times of the products returned to the client, by product key
+  private final Map<String, Long> returnedProducts = new HashMap<>();
+
+  private RequestTracker requestTracker;
+
+  private Object requestOwner;
 
   private long updateFrequencyMsec;
 
@@ -140,11 +161,51 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   private boolean outgoingValidationEnabled;
 
+  private ResultAttributeProjection resultAttributeProjection;
+
   private long maxWaitToStartTimeMsecs;
 
   private static final org.slf4j.Logger LOGGER =
       LoggerFactory.getLogger(SubmitStandingQueryRequestImpl.class);
 
+  /** @param standingQueryScheduler runs the executions of the query. */
+  public SubmitStandingQueryRequestImpl(
+      Query aQuery,
+      String[] resultAttributes,
+      SortAttribute[] sortAttributes,
+      QueryLifeSpan lifespan,
+      NameValue[] properties,
+      CatalogFramework catalogFramework,
+      FilterBuilder filterBuilder,
+      long defaultUpdateFrequencyMsec,
+      Set<String> querySources,
+      int maxPendingResults,
+      boolean removeSourceLibrary,
+      boolean outgoingValidationEnabled,
+      long maxWaitToStartTimeMsecs,
+      StandingQueryScheduler standingQueryScheduler) {
+    this(
+        aQuery,
+        resultAttributes,
+        sortAttributes,
+        lifespan,
+        properties,
+        catalogFramework,
+        filterBuilder,
+        defaultUpdateFrequencyMsec,
+        querySources,
+        maxPendingResults,
+        removeSourceLibrary,
+        outgoingValidationEnabled,
+        maxWaitToStartTimeMsecs,
+        standingQueryScheduler,
+        null);
+  }
+
+  /**
+   * @param standingQueryScheduler runs the executions of the query.
+   * @param bqsFilterCache the filters of queries converted before, or null to convert the query.
+   */
   public SubmitStandingQueryRequestImpl(
       Query aQuery,
       String[] resultAttributes,
@@ -158,7 +219,9 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
       int maxPendingResults,
       boolean removeSourceLibrary,
       boolean outgoingValidationEnabled,
-      long maxWaitToStartTimeMsecs) {
+      long maxWaitToStartTimeMsecs,
+      StandingQueryScheduler standingQueryScheduler,
+      BqsFilterCache bqsFilterCache) {
     id = UUID.randomUUID().toString();
     if (resultAttributes != null) {
       this.resultAttributes.addAll(Arrays.asList(resultAttributes));
@@ -168,8 +231,7 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
     this.properties = properties;
     this.catalogFramework = catalogFramework;
     this.filterBuilder = filterBuilder;
-    this.maxPendingResults = maxPendingResults;
-    this.bqsConverter = new BqsConverter(filterBuilder, removeSourceLibrary);
+    this.bqsConverter = new BqsConverter(filterBuilder, removeSourceLibrary, bqsFilterCache);
     this.query = aQuery;
     if (querySources != null) {
       this.querySources = new HashSet<>(querySources);
@@ -189,16 +251,94 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
     }
 
     this.updateFrequencyMsec = defaultUpdateFrequencyMsec;
+    this.standingQueryData = new StandingQueryData(maxPendingResults);
+
+    this.scheduler = standingQueryScheduler;
 
-    executionThread = new ExecutionThread();
-    executionThread.setUpdateRate(defaultUpdateFrequencyMsec);
-    executionThread.start();
+    execution = new Execution();
+    execution.setUpdateRate(defaultUpdateFrequencyMsec);
   }
 
   public String getId() {
     return id;
   }
 
+  /**
+   * @param requestTracker tracks the requests of the library.
+   * @param requestOwner the manager that submitted this request, whose request manager is returned
+   *     by {@link #get_request_manager()}.
+   */
+  public void setRequestTracker(RequestTracker requestTracker, Object requestOwner) {
+    this.requestTracker = requestTracker;
+    this.requestOwner = requestOwner;
+  }
+
+  /** @param overflowPolicy what to do once the query has the maximum number of pending results. */
+  public void setOverflowPolicy(StandingQueryData.OverflowPolicy overflowPolicy) {
+    standingQueryData.setOverflowPolicy(overflowPolicy);
+  }
+
+  /**
+   * Registers the query with the matcher, which hands the query the ingested products that match
+   * it so that they are returned without waiting for the next poll of the catalog. Once the query
+   * has caught up with the catalog it stops polling the catalog, unless ingested products are
+   * missed because the query was paused or its backlog was full.
+   */
+  public void setStandingQueryMatcher(StandingQueryMatcher standingQueryMatcher) {
+    synchronized (ingestLockObj) {
+      this.standingQueryMatcher = standingQueryMatcher;
+      lastMissedTime = System.currentTimeMillis();
+    }
+    ingestDriven = standingQueryMatcher != null && standingQueryMatcher.register(this);
+  }
+
+  /** @return the filter that ingested metacards are matched against. */
+  public Filter getIngestFilter() {
+    return bqsFilter;
+  }
+
+  /** @return whether the query only queries the local catalog. */
+  public boolean isLocal() {
+    return (querySources == null || querySources.isEmpty())
+        && !query.view.equals(NsiliConstants.NSIL_ASSOCIATION_VIEW);
+  }
+
+  /** @return whether deleted products are reported as obsolete. */
+  public boolean includesDeleted() {
+    return !LibraryImpl.queryContainsStatus(query.bqs_query);
+  }
+
+  /**
+   * Adds ingested products that matched the query to the pending results. Products that are not
+   * added because the query is paused or its backlog is full are found by polling the catalog
+   * later.
+   *
+   * @param results the ingested products that matched the query, as returned by the catalog to the
+   *     guest subject.
+   */
+  public void addIngestedResults(List<Result> results) {
+    if (execution.isRunning() && !results.isEmpty()) {
+      execution.addIngestedResults(results);
+    }
+  }
+
+  /**
+   * Polls the catalog for products modified since the given time, because ingested products that
+   * matched the query could not be added.
+   *
+   * @param modifiedSince the oldest modified time of the missed products.
+   */
+  public void missIngestedProducts(long modifiedSince) {
+    if (!ingestDriven) {
+      return;
+    }
+    synchronized (ingestLockObj) {
+      missedSince = missedSince == 0 ? modifiedSince : Math.min(missedSince, modifiedSince);
+      lastMissedTime = System.currentTimeMillis();
+      caughtUp = false;
+    }
+  }
+
   @Override
   public void set_number_of_hits(int hits)
       throws InvalidInputParameter, ProcessingFault, SystemFault {
@@ -250,28 +390,25 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
   @Override
   public void resume() throws ProcessingFault, SystemFault {
     this.paused = false;
-    executionThread.interrupt();
+    execution.scheduleNext(0);
   }
 
   @Override
   public AbsTime get_time_last_executed() throws ProcessingFault, SystemFault {
-    long lastExecMillis = executionThread.getLastCompletedExecutionTime();
+    long lastExecMillis = execution.getLastCompletedExecutionTime();
     return ResultDAGConverter.getAbsTime(new Date(lastExecMillis));
   }
 
   @Override
   public AbsTime get_time_next_execution() throws ProcessingFault, SystemFault {
-    long nextExecMillis = executionThread.getNextExecutionTime();
+    long nextExecMillis = execution.getNextExecutionTime();
     return ResultDAGConverter.getAbsTime(new Date(nextExecMillis));
   }
 
   @Override
   public State complete_DAG_results(DAGListHolder results) throws ProcessingFault, SystemFault {
     if (standingQueryData.size() == 0) {
-      try {
-        Thread.sleep(updateFrequencyMsec);
-      } catch (Exception ignore) {
-      }
+      standingQueryData.awaitResults(Math.min(updateFrequencyMsec, MAX_RESULTS_WAIT_MSEC));
     }
 
     List<DAG> returnData = standingQueryData.getResultData(pageSize);
@@ -312,7 +449,7 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   @Override
   public Status get_status() throws ProcessingFault, SystemFault {
-    if (!executionThread.isRunning()) {
+    if (!execution.isRunning()) {
       return new Status(State.CANCELED, false, "Request has been cancelled");
     }
     if (paused) {
@@ -327,14 +464,14 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   @Override
   public DelayEstimate get_remaining_delay() throws ProcessingFault, SystemFault {
-    long delayUntilNextExec = executionThread.getNextExecutionTime() - System.currentTimeMillis();
+    long delayUntilNextExec = execution.getNextExecutionTime() - System.currentTimeMillis();
     int delayTimeSecs = (int) delayUntilNextExec / 1000;
     return new DelayEstimate(delayTimeSecs, delayTimeSecs > 0);
   }
 
   @Override
   public void cancel() throws ProcessingFault, SystemFault {
-    executionThread.stopRunning();
+    execution.stopRunning();
   }
 
   @Override
@@ -362,205 +499,358 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
   @Override
   public RequestManager get_request_manager() throws ProcessingFault, SystemFault {
-    if (requestManager == null) {
-      String requestManagerId = UUID.randomUUID().toString();
-      RequestManagerImpl requestManagerImpl = new RequestManagerImpl();
+    return requestTracker.getRequestManager(requestOwner);
+  }
+
+  private synchronized ResultAttributeProjection getResultAttributeProjection() {
+    if (resultAttributeProjection == null) {
+      Map<String, List<String>> mandatoryAttributes = new HashMap<>();
+      if (outgoingValidationEnabled) {
+        mandatoryAttributes =
+            NsiliDataModel.getInstance().getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW);
+      }
+      resultAttributeProjection =
+          ResultAttributeProjection.compile(resultAttributes, mandatoryAttributes);
+    }
+    return resultAttributeProjection;
+  }
+
+  private void stopMatchingIngest() {
+    StandingQueryMatcher matcher;
+    synchronized (ingestLockObj) {
+      matcher = standingQueryMatcher;
+    }
+    if (matcher != null) {
+      matcher.unregister(this);
+    }
+  }
 
+  private List<DAG> convertResults(List<Result> results) {
+    List<DAG> dags = new ArrayList<>();
+    ResultAttributeProjection projection = getResultAttributeProjection();
+    for (Result result : results) {
       try {
-        _poa()
-            .activate_object_with_id(
-                requestManagerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
-                requestManagerImpl);
-      } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
-        LOGGER.debug("Error activating RequestManager: ", e);
+        dags.add(ResultDAGConverter.convertResult(result, _orb(), _poa(), projection));
+      } catch (DagParsingException dpe) {
+        LOGGER.debug("DAG could not be parsed and will not be returned to caller:", dpe);
       }
+    }
+    return dags;
+  }
+
+  private static String getProductKey(Metacard metacard) {
+    return ResultDAGConverter.getMetacardId(metacard) + ":" + getModifiedTime(metacard);
+  }
 
-      org.omg.CORBA.Object obj =
-          _poa()
-              .create_reference_with_id(
-                  requestManagerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
-                  RequestManagerHelper.id());
+  private static long getOldestModifiedTime(List<Result> results) {
+    return results
+        .stream()
+        .map(Result::getMetacard)
+        .map(Metacard::getModifiedDate)
+        .filter(Objects::nonNull)
+        .mapToLong(Date::getTime)
+        .min()
+        .orElse(System.currentTimeMillis());
+  }
+
+  private static long getModifiedTime(Metacard metacard) {
+    Date modified = metacard.getModifiedDate();
+    return modified == null ? 0 : modified.getTime();
+  }
 
-      requestManager = RequestManagerHelper.narrow(obj);
+  /**
+   * Removes the results that were already returned to the client, since products are found both
+   * when they are ingested and when the catalog is polled, and remembers the remaining results.
+   */
+  private List<Result> removeReturnedResults(List<Result> results) {
+    if (!ingestDriven) {
+      return results;
+    }
+    synchronized (ingestLockObj) {
+      List<Result> newResults = new ArrayList<>();
+      for (Result result : results) {
+        Metacard metacard = result.getMetacard();
+        if (returnedProducts.putIfAbsent(getProductKey(metacard), getModifiedTime(metacard))
+            == null) {
+          newResults.add(result);
+        }
+      }
+      return newResults;
     }
-    return requestManager;
   }
 
-  class ExecutionThread extends Thread {
+  /**
+   * Decides whether the next execution queries the catalog. Queries that are not driven by ingest
+   * always do; ingest driven queries only until they have caught up with the catalog.
+   *
+   * @param takeMissedSince whether the execution starts a new query window, in which case the time
+   *     since which ingested products were missed is returned and reset.
+   * @return the time since which ingested products were missed, 0 if none were missed, or -1 if the
+   *     catalog does not need to be queried.
+   */
+  private long startPolling(boolean takeMissedSince) {
+    if (!ingestDriven) {
+      return 0;
+    }
+    synchronized (ingestLockObj) {
+      if (caughtUp) {
+        return -1;
+      }
+      long since = takeMissedSince ? missedSince : 0;
+      if (takeMissedSince) {
+        missedSince = 0;
+      }
+      return since;
+    }
+  }
+
+  private void finishPolling(long pollStartTime) {
+    if (!ingestDriven) {
+      return;
+    }
+    synchronized (ingestLockObj) {
+      if (missedSince == 0 && lastMissedTime < pollStartTime) {
+        caughtUp = true;
+        LOGGER.debug("Standing query {} caught up, results are added on ingest", id);
+      }
+    }
+  }
+
+  /** Forgets the returned products that polls of the catalog after the query time do not find. */
+  private void forgetReturnedProducts(long queryTime) {
+    if (!ingestDriven) {
+      return;
+    }
+    synchronized (ingestLockObj) {
+      returnedProducts.values().removeIf(modified -> modified <= queryTime);
+    }
+  }
+
+  class Execution implements Runnable {
 
     private static final String UNABLE_TO_NOTIFY_CALLBACK = "Unable to notify callback";
 
-    private boolean running = true;
+    private volatile boolean running = true;
+
+    private volatile long updateRate = DEFAULT_UPDATE_RATE;
+
+    private volatile long lastExecutionTime = 0;
 
-    private long updateRate = DEFAULT_UPDATE_RATE;
+    private volatile long lastCompletedExecutionTime = 0;
 
-    private long lastExecutionTime = 0;
+    private volatile boolean moreResultsAvailOnLastQuery = false;
 
-    private long lastCompletedExecutionTime = 0;
+    private boolean waitedForStart = false;
 
-    private boolean moreResultsAvailOnLastQuery = false;
+    private boolean lastQuerySucceeded = false;
 
-    private int startIndex = 1;
+    private LatestResultsPager resultsPager = null;
 
     private QueryImpl catalogQuery = null;
 
+    private final Object executionLock = new Object();
+
+    private ScheduledFuture<?> nextExecution;
+
     public boolean hasMoreResultsAvailOnLastQuery() {
       return moreResultsAvailOnLastQuery;
     }
 
+    @Override
     public void run() {
-      while (running) {
-        long queryTime = lastExecutionTime - 1000;
+      if (!running) {
+        return;
+      }
 
-        // Don't want to change the query time until we process all of the results from the
-        // last query
-        if (!moreResultsAvailOnLastQuery && !paused) {
-          lastExecutionTime = System.currentTimeMillis();
-        }
+      long delay;
+      synchronized (executionLock) {
+        delay = execute();
+      }
 
-        if (endDate != null && lastExecutionTime > endDate.getTime()) {
-          running = false;
-          break;
+      if (running) {
+        scheduleNext(delay);
+      } else {
+        stopMatchingIngest();
+        standingQueryData.release();
+        synchronized (callbackLockObj) {
+          callbacks.clear();
         }
+      }
+    }
 
-        if (startDate != null) {
-          long now = System.currentTimeMillis();
-          if (startDate.getTime() > now) {
-            long waitToStart = startDate.getTime() - now;
-            long waitSecs = TimeUnit.MILLISECONDS.toSeconds(waitToStart);
-            waitToStart = Math.min(waitToStart, maxWaitToStartTimeMsecs);
-            LOGGER.debug(
-                "Start time for subscription is in the future, waiting {} seconds", waitSecs);
-            try {
-              Thread.sleep(waitToStart);
-            } catch (Exception ignore) {
-            }
-          }
+    /** @return the delay before the next execution, in milliseconds. */
+    private long execute() {
+      long executionStartTime = System.currentTimeMillis();
+      if (endDate != null && executionStartTime > endDate.getTime()) {
+        running = false;
+        return 0;
+      }
+
+      if (startDate != null && !waitedForStart) {
+        long now = System.currentTimeMillis();
+        if (startDate.getTime() > now) {
+          long waitToStart = startDate.getTime() - now;
+          long waitSecs = TimeUnit.MILLISECONDS.toSeconds(waitToStart);
+          LOGGER.debug(
+              "Start time for subscription is in the future, waiting {} seconds", waitSecs);
+          waitedForStart = true;
+          return Math.min(waitToStart, maxWaitToStartTimeMsecs);
         }
+      }
+      waitedForStart = false;
+
+      // Results are not collected while the backlog is full, so the query window is kept until
+      // the client has retrieved enough results for the query to resume.
+      boolean backlogFull = standingQueryData.isFull();
+      boolean newQueryWindow = !moreResultsAvailOnLastQuery && !paused && !backlogFull;
+      long missedIngestSince = startPolling(newQueryWindow);
+      boolean polling = missedIngestSince >= 0;
+      if (missedIngestSince > 0) {
+        lastExecutionTime = Math.min(lastExecutionTime, missedIngestSince);
+      }
+
+      long queryTime = lastExecutionTime - 1000;
 
-        // Right now we don't produce the Association View
-        if (!query.view.equals(NsiliConstants.NSIL_ASSOCIATION_VIEW) && !paused) {
-          if (standingQueryData.size() <= maxPendingResults) {
+      // Don't want to change the query time until we process all of the results from the
+      // last query
+      if (newQueryWindow) {
+        lastExecutionTime = executionStartTime;
+        forgetReturnedProducts(queryTime);
+      }
+
+      // Right now we don't produce the Association View
+      if (!query.view.equals(NsiliConstants.NSIL_ASSOCIATION_VIEW) && !paused) {
+        if (!backlogFull) {
+          if (polling) {
             DAGQueryResult queryResult = getData(queryTime);
             if (queryResult != null) {
               standingQueryData.add(queryResult);
             }
-          }
-
-          if (standingQueryData.size() > 0) {
-            List<Callback> failedCallbacks = new ArrayList<>();
-            for (Callback callback : callbacks.values()) {
-              try {
-                if (standingQueryData.size() > 0) {
-                  LOGGER.trace(
-                      "Notifying callback that results are available: {}",
-                      standingQueryData.size());
-                  callback._notify(
-                      org.codice.alliance.nsili.common.UCO.State.RESULTS_AVAILABLE,
-                      get_request_description());
-                }
-              } catch (InvalidInputParameter | ProcessingFault | SystemFault fault) {
-                LOGGER.debug(UNABLE_TO_NOTIFY_CALLBACK, fault);
-              } catch (Exception e) {
-                failedCallbacks.add(callback);
-              }
+            if (lastQuerySucceeded && !moreResultsAvailOnLastQuery) {
+              finishPolling(executionStartTime);
             }
-
-            failedCallbacks.stream().forEach(SubmitStandingQueryRequestImpl.this::freeCallback);
           }
-          lastCompletedExecutionTime = System.currentTimeMillis();
+        } else {
+          scheduler.recordSkippedExecution();
+          LOGGER.debug(
+              "Standing query {} has {} pending results, waiting for the client to retrieve them",
+              id,
+              standingQueryData.size());
         }
 
-        // Don't sleep if more results available. Need client to pick up results as fast
-        // as possible to catch up.
-        if (!executionThread.hasMoreResultsAvailOnLastQuery()) {
-          try {
-            Thread.sleep(updateRate);
-          } catch (Exception ignore) {
-          }
+        if (standingQueryData.size() > 0) {
+          notifyCallbacks();
         }
+        lastCompletedExecutionTime = System.currentTimeMillis();
       }
 
+      // Don't wait if more results available. Need client to pick up results as fast
+      // as possible to catch up.
+      if (moreResultsAvailOnLastQuery && !backlogFull && !paused) {
+        return 0;
+      }
+      return scheduler.jitter(updateRate);
+    }
+
+    private void notifyCallbacks() {
+      List<Callback> failedCallbacks = new ArrayList<>();
+      List<Callback> currentCallbacks;
       synchronized (callbackLockObj) {
-        callbacks.clear();
+        currentCallbacks = new ArrayList<>(callbacks.values());
       }
+      for (Callback callback : currentCallbacks) {
+        try {
+          if (standingQueryData.size() > 0) {
+            LOGGER.trace(
+                "Notifying callback that results are available: {}", standingQueryData.size());
+            callback._notify(
+                org.codice.alliance.nsili.common.UCO.State.RESULTS_AVAILABLE,
+                get_request_description());
+          }
+        } catch (InvalidInputParameter | ProcessingFault | SystemFault fault) {
+          LOGGER.debug(UNABLE_TO_NOTIFY_CALLBACK, fault);
+        } catch (Exception e) {
+          failedCallbacks.add(callback);
+        }
+      }
+
+      failedCallbacks.stream().forEach(SubmitStandingQueryRequestImpl.this::freeCallback);
+    }
+
+    synchronized void scheduleNext(long delayMsec) {
+      if (!running) {
+        return;
+      }
+      if (nextExecution != null) {
+        nextExecution.cancel(false);
+      }
+      nextExecution = scheduler.schedule(this, delayMsec);
     }
 
     protected DAGQueryResult getData(long queryTime) {
       DAGQueryResult result = null;
+      lastQuerySucceeded = false;
 
       List<Result> catalogResults = new ArrayList<>();
 
-      Filter parsedFilter = getFilter(queryTime);
-
-      catalogQuery = new QueryImpl(parsedFilter);
-      catalogQuery.setRequestsTotalResultsCount(true);
-      catalogQuery.setPageSize(pageSize);
-      if (moreResultsAvailOnLastQuery) {
-        catalogQuery.setStartIndex(startIndex);
+      if (resultsPager == null || !moreResultsAvailOnLastQuery) {
+        Filter parsedFilter = getFilter(queryTime);
+        resultsPager =
+            new LatestResultsPager(
+                (startIndex, count) -> queryCatalog(parsedFilter, startIndex, count));
       }
 
-      QueryRequestImpl catalogQueryRequest;
-      catalogQueryRequest = getQueryRequest(parsedFilter);
-
       try {
-        QueryResultsCallable queryCallable = new QueryResultsCallable(catalogQueryRequest);
-
-        try {
-          QueryResponse queryResponse = NsiliEndpoint.getGuestSubject().execute(queryCallable);
-          int numHits = (int) queryResponse.getHits();
-          List<Result> results = queryResponse.getResults();
-          int origResultSize = results.size();
-          results = LibraryImpl.getLatestResults(results);
-          catalogResults.addAll(results);
-          int accumResults = origResultSize + (startIndex - 1);
-
-          LOGGER.trace("Processing Result {} of {}", accumResults, numHits);
-
-          if (results.isEmpty()) {
-            moreResultsAvailOnLastQuery = false;
-            startIndex = 1;
-          } else {
-            if (accumResults < numHits) {
-              moreResultsAvailOnLastQuery = true;
-              startIndex = accumResults + 1;
-            } else {
-              moreResultsAvailOnLastQuery = false;
-              startIndex = 1;
-            }
-          }
-        } catch (SecurityServiceException e) {
-          LOGGER.debug("Unable to update subject on NSILI Library", e);
-        }
-
+        List<Result> results = resultsPager.nextPage(pageSize);
+        catalogResults.addAll(removeReturnedResults(results));
+        moreResultsAvailOnLastQuery = !resultsPager.isExhausted();
+        lastQuerySucceeded = true;
+
+        LOGGER.trace("Processed results up to {}", resultsPager.getNextIndex() - 1);
+      } catch (SecurityServiceException e) {
+        LOGGER.debug("Unable to update subject on NSILI Library", e);
       } catch (ExecutionException e) {
         LOGGER.debug("Unable to query catalog", e);
       }
 
-      List<DAG> dags = new ArrayList<>();
-
-      Map<String, List<String>> mandatoryAttributes = new HashMap<>();
-      if (outgoingValidationEnabled) {
-        NsiliDataModel nsiliDataModel = new NsiliDataModel();
-        mandatoryAttributes = nsiliDataModel.getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW);
-      }
-      for (Result catalogResult : catalogResults) {
-        try {
-          DAG dag =
-              ResultDAGConverter.convertResult(
-                  catalogResult, _orb(), _poa(), resultAttributes, mandatoryAttributes);
-          dags.add(dag);
-        } catch (DagParsingException dpe) {
-          LOGGER.debug("DAG could not be parsed and will not be returned to caller:", dpe);
-        }
-      }
-
+      List<DAG> dags = convertResults(catalogResults);
       if (!dags.isEmpty()) {
         result = new DAGQueryResult(System.currentTimeMillis(), dags);
       }
       return result;
     }
 
+    void addIngestedResults(List<Result> results) {
+      synchronized (executionLock) {
+        if (paused || standingQueryData.isFull()) {
+          LOGGER.debug(
+              "Standing query {} is not taking results, {} ingested products are left to polling",
+              id,
+              results.size());
+          missIngestedProducts(getOldestModifiedTime(results));
+          return;
+        }
+
+        List<DAG> dags = convertResults(removeReturnedResults(results));
+        if (!dags.isEmpty()) {
+          standingQueryData.add(new DAGQueryResult(System.currentTimeMillis(), dags));
+          notifyCallbacks();
+        }
+      }
+    }
+
+    private List<Result> queryCatalog(Filter parsedFilter, int startIndex, int count)
+        throws SecurityServiceException {
+      catalogQuery = new QueryImpl(parsedFilter);
+      catalogQuery.setRequestsTotalResultsCount(false);
+      catalogQuery.setPageSize(count);
+      catalogQuery.setStartIndex(startIndex);
+      catalogQuery.setSortBy(LatestResultsPager.LATEST_FIRST);
+
+      QueryResultsCallable queryCallable = new QueryResultsCallable(getQueryRequest(parsedFilter));
+      return NsiliEndpoint.getGuestSubject().execute(queryCallable).getResults();
+    }
+
     private QueryRequestImpl getQueryRequest(Filter parsedFilter) {
       QueryRequestImpl catalogQueryRequest;
       if (querySources == null || querySources.isEmpty()) {
@@ -660,7 +950,7 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
 
     public void setUpdateRate(long updateRate) {
       this.updateRate = updateRate;
-      interrupt();
+      scheduleNext(0);
     }
 
     public boolean isRunning() {
@@ -668,8 +958,17 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
     }
 
     public void stopRunning() {
-      this.running = false;
-      interrupt();
+      synchronized (this) {
+        this.running = false;
+        if (nextExecution != null) {
+          nextExecution.cancel(false);
+        }
+      }
+      stopMatchingIngest();
+      standingQueryData.release();
+      synchronized (callbackLockObj) {
+        callbacks.clear();
+      }
     }
   }
 
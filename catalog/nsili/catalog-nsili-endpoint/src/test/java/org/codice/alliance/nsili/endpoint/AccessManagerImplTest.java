@@ -17,6 +17,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ddf.catalog.data.Metacard;
@@ -34,6 +36,7 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.GIAS.ProductMgrHelper;
@@ -190,6 +193,30 @@ public class AccessManagerImplTest extends NsiliTestCommon {
     assertThat(timeout, is(-1));
   }
 
+  @Test
+  public void testGetMetacardsBatchesAndCaches() throws Exception {
+    int productCount = 250;
+    List<String> ids = new ArrayList<>(productCount);
+    List<Result> results = new ArrayList<>(productCount);
+    for (int i = 0; i < productCount; i++) {
+      MetacardImpl metacard = new MetacardImpl();
+      metacard.setId(String.valueOf(i));
+      ids.add(metacard.getId());
+      results.add(new ResultImpl(metacard));
+    }
+    when(mockCatalogFramework.query(any(QueryRequest.class)))
+        .thenReturn(new QueryResponseImpl(null, results, results.size()));
+
+    Map<String, Metacard> metacards = accessManager.getMetacards(ids);
+    assertThat(metacards.size(), is(productCount));
+    assertThat(metacards.get("42").getId(), is("42"));
+    verify(mockCatalogFramework, times(3)).query(any(QueryRequest.class));
+
+    assertThat(accessManager.getMetacard("42").getId(), is("42"));
+    assertThat(accessManager.getMetacards(ids).size(), is(productCount));
+    verify(mockCatalogFramework, times(3)).query(any(QueryRequest.class));
+  }
+
   private void setupAccessMgrMocks() throws Exception {
     int testTotalHits = 5;
     List<Result> results = new ArrayList<>(testTotalHits);
@@ -28,18 +28,23 @@ import ddf.catalog.operation.impl.QueryResponseImpl;
 import ddf.security.service.SecurityServiceException;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.codice.alliance.nsili.common.GIAS.HitCountRequest;
 import org.codice.alliance.nsili.common.GIAS.Query;
 import org.codice.alliance.nsili.common.GIAS.Request;
 import org.codice.alliance.nsili.common.GIAS.SortAttribute;
 import org.codice.alliance.nsili.common.GIAS.SubmitQueryRequest;
 import org.codice.alliance.nsili.common.NsiliConstants;
+import org.codice.alliance.nsili.common.ResultDAGConverter;
+import org.codice.alliance.nsili.common.UCO.DAG;
 import org.codice.alliance.nsili.common.UCO.DAGListHolder;
 import org.codice.alliance.nsili.common.UCO.InvalidInputParameter;
 import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.managers.CatalogMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -80,8 +85,9 @@ public class CatalogMgrImplTest extends NsiliTestCommon {
 
     testQuery = new Query(NsiliConstants.NSIL_ALL_VIEW, bqsQuery);
 
-    catalogMgr = new CatalogMgrImpl(rootPOA, new GeotoolsFilterBuilder(), null);
+    catalogMgr = new CatalogMgrImpl(new GeotoolsFilterBuilder(), null);
     catalogMgr.setCatalogFramework(mockCatalogFramework);
+    catalogMgr.setRequestTracker(new RequestTracker(rootPOA));
   }
 
   @Test
@@ -100,6 +106,18 @@ public class CatalogMgrImplTest extends NsiliTestCommon {
     catalogMgr.delete_request(null);
   }
 
+  @Test
+  public void testDeleteRequest() throws InvalidInputParameter, SystemFault, ProcessingFault {
+    HitCountRequest hitCountRequest = catalogMgr.hit_count(testQuery, null);
+    assertThat(catalogMgr.get_active_requests().length, is(1));
+
+    catalogMgr.set_timeout(hitCountRequest, 60);
+    assertThat(catalogMgr.get_timeout(hitCountRequest), is(60));
+
+    catalogMgr.delete_request(hitCountRequest);
+    assertThat(catalogMgr.get_active_requests().length, is(0));
+  }
+
   @Test
   public void testHitCount() throws InvalidInputParameter, SystemFault, ProcessingFault {
     catalogMgr.set_default_timeout(AccessManagerImpl.DEFAULT_TIMEOUT);
@@ -139,6 +157,27 @@ public class CatalogMgrImplTest extends NsiliTestCommon {
     assertThat(dagListHolder.value.length, is(2));
   }
 
+  @Test
+  public void testQueryWithConversionExecutor() throws Exception {
+    catalogMgr.setMaxNumResults(999);
+    DAG[] sequentialResults = completeQuery();
+
+    ExecutorService conversionExecutor = Executors.newFixedThreadPool(4);
+    try {
+      catalogMgr.setConversionExecutor(conversionExecutor);
+      DAG[] parallelResults = completeQuery();
+
+      assertThat(parallelResults.length, is(sequentialResults.length));
+      for (int i = 0; i < parallelResults.length; i++) {
+        assertThat(
+            ResultDAGConverter.getAttributes(parallelResults[i]),
+            is(ResultDAGConverter.getAttributes(sequentialResults[i])));
+      }
+    } finally {
+      conversionExecutor.shutdownNow();
+    }
+  }
+
   @Test
   public void testGetDefaultTimeout() throws Exception {
     int defaultTimeout = catalogMgr.get_default_timeout();
@@ -166,6 +205,13 @@ public class CatalogMgrImplTest extends NsiliTestCommon {
     catalogMgr.get_libraries();
   }
 
+  private DAG[] completeQuery() throws Exception {
+    SubmitQueryRequest submitQueryRequest = catalogMgr.submit_query(testQuery, null, null, null);
+    DAGListHolder dagListHolder = new DAGListHolder();
+    submitQueryRequest.complete_DAG_results(dagListHolder);
+    return dagListHolder.value;
+  }
+
   private void setupCatalogMgrMocks() throws Exception {
     List<Result> results = getHistoryTestResults();
     QueryResponse testResponse = new QueryResponseImpl(null, results, results.size());
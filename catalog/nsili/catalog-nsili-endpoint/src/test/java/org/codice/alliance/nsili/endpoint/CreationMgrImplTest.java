@@ -35,6 +35,7 @@ import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.managers.CreationMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
 import org.junit.Before;
 import org.junit.Test;
 import org.omg.CORBA.NO_IMPLEMENT;
@@ -71,6 +72,7 @@ public class CreationMgrImplTest extends NsiliTestCommon {
     creationMgr = new CreationMgrImpl();
     creationMgr.setFilterBuilder(new GeotoolsFilterBuilder());
     creationMgr.setCatalogFramework(mockCatalogFramework);
+    creationMgr.setRequestTracker(new RequestTracker(rootPOA));
 
     if (!CorbaUtils.isIdActive(
         rootPOA, managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
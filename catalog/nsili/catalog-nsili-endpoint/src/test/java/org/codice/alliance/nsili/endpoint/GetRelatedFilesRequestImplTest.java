@@ -16,29 +16,35 @@ package org.codice.alliance.nsili.endpoint;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.MetacardImpl;
+import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
-import org.apache.http.Header;
-import org.apache.http.HeaderIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.ProtocolVersion;
-import org.apache.http.StatusLine;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.params.HttpParams;
+import org.apache.http.client.HttpResponseException;
 import org.codice.alliance.nsili.common.UCO.FileLocation;
 import org.codice.alliance.nsili.common.UCO.NameListHolder;
 import org.codice.alliance.nsili.common.UCO.State;
 import org.codice.alliance.nsili.endpoint.requests.GetRelatedFilesRequestImpl;
+import org.codice.alliance.nsili.endpoint.requests.HttpDeliveryClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.omg.CORBA.NO_IMPLEMENT;
@@ -47,50 +53,28 @@ public class GetRelatedFilesRequestImplTest {
 
   private static final int TEST_PORT = 21000;
 
+  private static final int NUM_THUMBNAILS = 12;
+
   private GetRelatedFilesRequestImpl relatedFilesRequest;
 
-  private HttpClient mockHttpClient = mock(HttpClient.class);
+  private HttpDeliveryClient mockDeliveryClient = mock(HttpDeliveryClient.class);
 
   @Before
   public void setUp() throws Exception {
     List<Metacard> testMetacards = getTestMetacards();
     FileLocation location = getTestFileLocation();
     relatedFilesRequest =
-        new GetRelatedFilesRequestImpl(testMetacards, location, "THUMBNAIL", TEST_PORT);
-    relatedFilesRequest.setHttpClient(mockHttpClient);
-    setupMocks();
-  }
-
-  @Test
-  public void testComplete200() throws Exception {
-    when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(getGoodResponse(200));
-    NameListHolder locations = new NameListHolder();
-    State state = relatedFilesRequest.complete(locations);
-    assertValidState(state, locations);
-  }
-
-  @Test
-  public void testComplete201() throws Exception {
-    when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(getGoodResponse(201));
-    NameListHolder locations = new NameListHolder();
-    State state = relatedFilesRequest.complete(locations);
-    assertValidState(state, locations);
-  }
-
-  @Test
-  public void testComplete202() throws Exception {
-    when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(getGoodResponse(202));
-    NameListHolder locations = new NameListHolder();
-    State state = relatedFilesRequest.complete(locations);
-    assertValidState(state, locations);
+        new GetRelatedFilesRequestImpl(
+            testMetacards, location, "THUMBNAIL", TEST_PORT, mockDeliveryClient);
   }
 
   @Test
-  public void testComplete204() throws Exception {
-    when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(getGoodResponse(204));
+  public void testComplete() throws Exception {
     NameListHolder locations = new NameListHolder();
     State state = relatedFilesRequest.complete(locations);
     assertValidState(state, locations);
+    verify(mockDeliveryClient)
+        .put(any(URI.class), anyString(), any(HttpEntity.class), eq("user"), eq("pass"));
   }
 
   @Test
@@ -98,15 +82,16 @@ public class GetRelatedFilesRequestImplTest {
     NameListHolder locations = new NameListHolder();
     GetRelatedFilesRequestImpl noPortRequest =
         new GetRelatedFilesRequestImpl(
-            getTestMetacards(), getTestFileLocation(), "THUMBNAIL", null);
-    noPortRequest.setHttpClient(mockHttpClient);
+            getTestMetacards(), getTestFileLocation(), "THUMBNAIL", null, mockDeliveryClient);
     State state = noPortRequest.complete(locations);
     assertValidState(state, locations);
   }
 
   @Test
   public void testCompleteBadStatus() throws Exception {
-    when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(getBadResponse());
+    doThrow(new HttpResponseException(404, "Unable to write file: Test Bad Response"))
+        .when(mockDeliveryClient)
+        .put(any(URI.class), anyString(), any(HttpEntity.class), anyString(), anyString());
     NameListHolder locations = new NameListHolder();
     State state = relatedFilesRequest.complete(locations);
     assertValidStateNoLocs(state, locations);
@@ -118,30 +103,91 @@ public class GetRelatedFilesRequestImplTest {
     fileLocation.host_name = "";
     NameListHolder locations = new NameListHolder();
     GetRelatedFilesRequestImpl noPortRequest =
-        new GetRelatedFilesRequestImpl(getTestMetacards(), fileLocation, "THUMBNAIL", null);
-    noPortRequest.setHttpClient(mockHttpClient);
+        new GetRelatedFilesRequestImpl(
+            getTestMetacards(), fileLocation, "THUMBNAIL", null, mockDeliveryClient);
     State state = noPortRequest.complete(locations);
     assertValidStateNoLocs(state, locations);
+    verifyNothingStored();
   }
 
   @Test
   public void testNoThumbnail() throws Exception {
     NameListHolder locations = new NameListHolder();
     GetRelatedFilesRequestImpl noPortRequest =
-        new GetRelatedFilesRequestImpl(getBadMetacards(), getTestFileLocation(), "THUMBNAIL", null);
-    noPortRequest.setHttpClient(mockHttpClient);
+        new GetRelatedFilesRequestImpl(
+            getBadMetacards(), getTestFileLocation(), "THUMBNAIL", null, mockDeliveryClient);
     State state = noPortRequest.complete(locations);
     assertValidStateNoLocs(state, locations);
+    verifyNothingStored();
   }
 
   @Test
   public void testNotThumbnailType() throws Exception {
     NameListHolder locations = new NameListHolder();
     GetRelatedFilesRequestImpl noPortRequest =
-        new GetRelatedFilesRequestImpl(getBadMetacards(), getTestFileLocation(), "OVERVIEW", null);
-    noPortRequest.setHttpClient(mockHttpClient);
+        new GetRelatedFilesRequestImpl(
+            getBadMetacards(), getTestFileLocation(), "OVERVIEW", null, mockDeliveryClient);
     State state = noPortRequest.complete(locations);
     assertValidStateNoLocs(state, locations);
+    verifyNothingStored();
+  }
+
+  @Test
+  public void testThumbnailsAreStoredConcurrentlyInOrder() throws Exception {
+    List<Metacard> testMetacards = new ArrayList<>();
+    for (int i = 0; i < NUM_THUMBNAILS; i++) {
+      MetacardImpl testMetacard = new MetacardImpl();
+      testMetacard.setId(String.format("card%02d", i));
+      testMetacard.setThumbnail(new byte[0]);
+      testMetacards.add(testMetacard);
+    }
+
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    doAnswer(
+            invocation -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              try {
+                Thread.sleep(20);
+                String path = ((URI) invocation.getArguments()[0]).getPath();
+                // Some thumbnails fail, either with an error or with a bad status
+                if (path.contains("card00") || path.contains("card09")) {
+                  throw new IOException("Connection reset");
+                }
+                if (path.contains("card03")) {
+                  throw new HttpResponseException(404, "Unable to write file: Not Found");
+                }
+                return null;
+              } finally {
+                inFlight.decrementAndGet();
+              }
+            })
+        .when(mockDeliveryClient)
+        .put(any(URI.class), anyString(), any(HttpEntity.class), anyString(), anyString());
+
+    ExecutorService transferExecutor = Executors.newFixedThreadPool(NUM_THUMBNAILS);
+    NameListHolder locations = new NameListHolder();
+    try {
+      GetRelatedFilesRequestImpl request =
+          new GetRelatedFilesRequestImpl(
+              testMetacards, getTestFileLocation(), "THUMBNAIL", TEST_PORT, mockDeliveryClient);
+      request.setTransferExecutor(transferExecutor);
+      assertThat(request.complete(locations), is(State.COMPLETED));
+    } finally {
+      transferExecutor.shutdownNow();
+    }
+
+    assertThat(locations.value.length, is(NUM_THUMBNAILS - 3));
+    int location = 0;
+    for (int i = 0; i < NUM_THUMBNAILS; i++) {
+      if (i != 0 && i != 3 && i != 9) {
+        assertThat(locations.value[location++], startsWith(String.format("card%02d", i)));
+      }
+    }
+    assertThat(maxInFlight.get(), greaterThan(1));
+    assertThat(
+        maxInFlight.get(),
+        lessThanOrEqualTo(GetRelatedFilesRequestImpl.MAX_CONCURRENT_UPLOADS));
   }
 
   @Test(expected = NO_IMPLEMENT.class)
@@ -154,6 +200,11 @@ public class GetRelatedFilesRequestImplTest {
     relatedFilesRequest.free_callback("123");
   }
 
+  private void verifyNothingStored() throws IOException {
+    verify(mockDeliveryClient, never())
+        .put(any(URI.class), anyString(), any(HttpEntity.class), anyString(), anyString());
+  }
+
   private void assertValidState(State state, NameListHolder locations) {
     assertThat(state, is(State.COMPLETED));
     assertThat(locations, notNullValue());
@@ -195,266 +246,4 @@ public class GetRelatedFilesRequestImplTest {
     FileLocation thumbnailLoc = new FileLocation("user", "pass", "localhost", "/nsili/file", null);
     return thumbnailLoc;
   }
-
-  private void setupMocks() throws Exception {
-    when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(getGoodResponse(200));
-  }
-
-  private HttpResponse getGoodResponse(int statusCode) {
-    HttpResponse response =
-        new HttpResponse() {
-          @Override
-          public StatusLine getStatusLine() {
-            StatusLine statusLine =
-                new StatusLine() {
-                  @Override
-                  public ProtocolVersion getProtocolVersion() {
-                    return null;
-                  }
-
-                  @Override
-                  public int getStatusCode() {
-                    return statusCode;
-                  }
-
-                  @Override
-                  public String getReasonPhrase() {
-                    return "Success";
-                  }
-                };
-            return statusLine;
-          }
-
-          @Override
-          public void setStatusLine(StatusLine statusLine) {}
-
-          @Override
-          public void setStatusLine(ProtocolVersion protocolVersion, int i) {}
-
-          @Override
-          public void setStatusLine(ProtocolVersion protocolVersion, int i, String s) {}
-
-          @Override
-          public void setStatusCode(int i) throws IllegalStateException {}
-
-          @Override
-          public void setReasonPhrase(String s) throws IllegalStateException {}
-
-          @Override
-          public HttpEntity getEntity() {
-            return null;
-          }
-
-          @Override
-          public void setEntity(HttpEntity httpEntity) {}
-
-          @Override
-          public Locale getLocale() {
-            return null;
-          }
-
-          @Override
-          public void setLocale(Locale locale) {}
-
-          @Override
-          public ProtocolVersion getProtocolVersion() {
-            return null;
-          }
-
-          @Override
-          public boolean containsHeader(String s) {
-            return false;
-          }
-
-          @Override
-          public Header[] getHeaders(String s) {
-            return new Header[0];
-          }
-
-          @Override
-          public Header getFirstHeader(String s) {
-            return null;
-          }
-
-          @Override
-          public Header getLastHeader(String s) {
-            return null;
-          }
-
-          @Override
-          public Header[] getAllHeaders() {
-            return new Header[0];
-          }
-
-          @Override
-          public void addHeader(Header header) {}
-
-          @Override
-          public void addHeader(String s, String s1) {}
-
-          @Override
-          public void setHeader(Header header) {}
-
-          @Override
-          public void setHeader(String s, String s1) {}
-
-          @Override
-          public void setHeaders(Header[] headers) {}
-
-          @Override
-          public void removeHeader(Header header) {}
-
-          @Override
-          public void removeHeaders(String s) {}
-
-          @Override
-          public HeaderIterator headerIterator() {
-            return null;
-          }
-
-          @Override
-          public HeaderIterator headerIterator(String s) {
-            return null;
-          }
-
-          @Override
-          public HttpParams getParams() {
-            return null;
-          }
-
-          @Override
-          public void setParams(HttpParams httpParams) {}
-        };
-
-    return response;
-  }
-
-  private HttpResponse getBadResponse() {
-    HttpResponse response =
-        new HttpResponse() {
-          @Override
-          public StatusLine getStatusLine() {
-            StatusLine statusLine =
-                new StatusLine() {
-                  @Override
-                  public ProtocolVersion getProtocolVersion() {
-                    return null;
-                  }
-
-                  @Override
-                  public int getStatusCode() {
-                    return 404;
-                  }
-
-                  @Override
-                  public String getReasonPhrase() {
-                    return "Test Bad Reponse";
-                  }
-                };
-            return statusLine;
-          }
-
-          @Override
-          public void setStatusLine(StatusLine statusLine) {}
-
-          @Override
-          public void setStatusLine(ProtocolVersion protocolVersion, int i) {}
-
-          @Override
-          public void setStatusLine(ProtocolVersion protocolVersion, int i, String s) {}
-
-          @Override
-          public void setStatusCode(int i) throws IllegalStateException {}
-
-          @Override
-          public void setReasonPhrase(String s) throws IllegalStateException {}
-
-          @Override
-          public HttpEntity getEntity() {
-            return null;
-          }
-
-          @Override
-          public void setEntity(HttpEntity httpEntity) {}
-
-          @Override
-          public Locale getLocale() {
-            return null;
-          }
-
-          @Override
-          public void setLocale(Locale locale) {}
-
-          @Override
-          public ProtocolVersion getProtocolVersion() {
-            return null;
-          }
-
-          @Override
-          public boolean containsHeader(String s) {
-            return false;
-          }
-
-          @Override
-          public Header[] getHeaders(String s) {
-            return new Header[0];
-          }
-
-          @Override
-          public Header getFirstHeader(String s) {
-            return null;
-          }
-
-          @Override
-          public Header getLastHeader(String s) {
-            return null;
-          }
-
-          @Override
-          public Header[] getAllHeaders() {
-            return new Header[0];
-          }
-
-          @Override
-          public void addHeader(Header header) {}
-
-          @Override
-          public void addHeader(String s, String s1) {}
-
-          @Override
-          public void setHeader(Header header) {}
-
-          @Override
-          public void setHeader(String s, String s1) {}
-
-          @Override
-          public void setHeaders(Header[] headers) {}
-
-          @Override
-          public void removeHeader(Header header) {}
-
-          @Override
-          public void removeHeaders(String s) {}
-
-          @Override
-          public HeaderIterator headerIterator() {
-            return null;
-          }
-
-          @Override
-          public HeaderIterator headerIterator(String s) {
-            return null;
-          }
-
-          @Override
-          public HttpParams getParams() {
-            return null;
-          }
-
-          @Override
-          public void setParams(HttpParams httpParams) {}
-        };
-
-    return response;
-  }
 }
@@ -15,7 +15,9 @@ package org.codice.alliance.nsili.endpoint;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -24,7 +26,11 @@ import ddf.security.service.SecurityManager;
 import ddf.security.service.SecurityServiceException;
 import java.io.IOException;
 import org.codice.alliance.core.email.EmailSender;
+import org.codice.alliance.nsili.common.CorbaUtils;
+import org.codice.alliance.nsili.common.GIAS.AccessCriteria;
 import org.codice.alliance.nsili.common.GIAS.LibraryDescription;
+import org.codice.alliance.nsili.common.GIAS.LibraryManager;
+import org.codice.alliance.nsili.common.NsiliManagerType;
 import org.codice.alliance.nsili.common.UCO.InvalidInputParameter;
 import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
@@ -79,6 +85,50 @@ public class NsiliLibraryImplTest extends NsiliTestCommon {
     assertThat(managerTypes.length, is(6));
   }
 
+  @Test
+  public void testManagersAreReused() throws Exception {
+    String catalogMgrType = NsiliManagerType.CATALOG_MGR.getSpecName();
+    LibraryManager catalogMgr = library.get_manager(catalogMgrType, null);
+
+    assertThat(library.get_manager(catalogMgrType, null), sameInstance(catalogMgr));
+
+    library.setMaxPendingResults(10);
+    assertThat(library.get_manager(catalogMgrType, null), not(sameInstance(catalogMgr)));
+    assertThat(CorbaUtils.isIdActive(rootPOA, rootPOA.reference_to_id(catalogMgr)), is(false));
+  }
+
+  @Test
+  public void testLeastRecentlyRequestedManagersAreDeactivated() throws Exception {
+    String catalogMgrType = NsiliManagerType.CATALOG_MGR.getSpecName();
+    LibraryManager firstClientMgr =
+        library.get_manager(catalogMgrType, new AccessCriteria("first", "", ""));
+    byte[] firstClientMgrId = rootPOA.reference_to_id(firstClientMgr);
+
+    for (int i = 0; i < 1000; i++) {
+      library.get_manager(catalogMgrType, new AccessCriteria("client" + i, "", ""));
+    }
+
+    assertThat(CorbaUtils.isIdActive(rootPOA, firstClientMgrId), is(false));
+    assertThat(
+        library.get_manager(catalogMgrType, new AccessCriteria("first", "", "")),
+        not(sameInstance(firstClientMgr)));
+  }
+
+  @Test
+  public void testManagersAreNotSharedBetweenClients() throws Exception {
+    String catalogMgrType = NsiliManagerType.CATALOG_MGR.getSpecName();
+    LibraryManager firstClientMgr =
+        library.get_manager(catalogMgrType, new AccessCriteria("first", "", ""));
+
+    assertThat(
+        library.get_manager(catalogMgrType, new AccessCriteria("first", "other", "")),
+        sameInstance(firstClientMgr));
+    assertThat(
+        library.get_manager(catalogMgrType, new AccessCriteria("second", "", "")),
+        not(sameInstance(firstClientMgr)));
+    assertThat(library.get_manager(catalogMgrType, null), not(sameInstance(firstClientMgr)));
+  }
+
   @Test
   public void testLibraryDescription() throws ProcessingFault, SystemFault {
     LibraryDescription libraryDescription = library.get_library_description();
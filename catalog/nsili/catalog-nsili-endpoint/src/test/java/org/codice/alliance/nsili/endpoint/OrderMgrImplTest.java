@@ -46,6 +46,7 @@ import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.common.UID.ProductHelper;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.managers.OrderMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -88,6 +89,7 @@ public class OrderMgrImplTest extends NsiliTestCommon {
     orderMgr = new OrderMgrImpl();
     orderMgr.setFilterBuilder(new GeotoolsFilterBuilder());
     orderMgr.setCatalogFramework(mockCatalogFramework);
+    orderMgr.setRequestTracker(new RequestTracker(rootPOA));
 
     if (!CorbaUtils.isIdActive(
         rootPOA, managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
@@ -51,6 +51,7 @@ import org.codice.alliance.nsili.common.UCO.NameValue;
 import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.common.UID.ProductHelper;
 import org.codice.alliance.nsili.endpoint.managers.ProductMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -95,6 +96,7 @@ public class ProductMgrImplTest extends NsiliTestCommon {
     productMgr = new ProductMgrImpl(null);
     productMgr.setFilterBuilder(new GeotoolsFilterBuilder());
     productMgr.setCatalogFramework(mockCatalogFramework);
+    productMgr.setRequestTracker(new RequestTracker(rootPOA));
     productMgr.setOutgoingValidationEnabled(false);
 
     if (!CorbaUtils.isIdActive(
@@ -256,12 +258,14 @@ public class ProductMgrImplTest extends NsiliTestCommon {
 
   @Test
   public void testGetTimeout() throws Exception {
+    productMgr.set_default_timeout(60);
     int timeout = productMgr.get_timeout(null);
     assertThat(timeout, greaterThan(0));
   }
 
   @Test
   public void testGetDefaultTimeout() throws Exception {
+    productMgr.set_default_timeout(60);
     int timeout = productMgr.get_default_timeout();
     assertThat(timeout, greaterThan(0));
   }
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import org.codice.alliance.nsili.common.CorbaUtils;
+import org.codice.alliance.nsili.common.GIAS.HitCountRequest;
+import org.codice.alliance.nsili.common.GIAS.HitCountRequestHelper;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
+import org.codice.alliance.nsili.endpoint.requests.HitCountRequestImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestTrackerTest extends NsiliTestCommon {
+
+  private static final int LIFETIME = 3600;
+
+  private final Object owner = new Object();
+
+  private RequestTracker requestTracker;
+
+  @Before
+  public void setUp() throws Exception {
+    setupCommonMocks();
+    setupOrb();
+    requestTracker = new RequestTracker(rootPOA);
+    requestTracker.setDefaultTimeout(LIFETIME);
+  }
+
+  @Test
+  public void testActivatedRequestIsTracked() throws Exception {
+    HitCountRequest request = activate(owner);
+
+    assertThat(requestTracker.getActiveRequests(owner), arrayContaining(request));
+    assertThat(requestTracker.getActiveRequests(new Object()), is(emptyArray()));
+    assertThat(requestTracker.getTimeout(owner, request), is(LIFETIME));
+    assertThat(requestTracker.getActiveRequestCount(), is(1));
+    assertThat(requestTracker.getCreatedRequestCount(), is(1L));
+    assertThat(CorbaUtils.isIdActive(rootPOA, rootPOA.reference_to_id(request)), is(true));
+  }
+
+  @Test
+  public void testDeleteDeactivatesRequest() throws Exception {
+    HitCountRequest request = activate(owner);
+    byte[] id = rootPOA.reference_to_id(request);
+
+    requestTracker.delete(owner, request);
+
+    assertThat(requestTracker.getActiveRequests(owner), is(emptyArray()));
+    assertThat(requestTracker.getDeletedRequestCount(), is(1L));
+    assertThat(CorbaUtils.isIdActive(rootPOA, id), is(false));
+  }
+
+  @Test
+  public void testExpiredRequestsAreReaped() throws Exception {
+    HitCountRequest liveRequest = activate(owner);
+    HitCountRequest expiredRequest = activate(owner);
+    HitCountRequest standingRequest =
+        requestTracker.activate(
+            owner,
+            new HitCountRequestImpl(1),
+            HitCountRequestHelper.id(),
+            HitCountRequestHelper::narrow,
+            RequestTracker.NO_TIMEOUT);
+    byte[] expiredId = rootPOA.reference_to_id(expiredRequest);
+
+    requestTracker.setTimeout(owner, expiredRequest, 0);
+
+    assertThat(requestTracker.reap(), is(1));
+    assertThat(requestTracker.getExpiredRequestCount(), is(1L));
+    assertThat(CorbaUtils.isIdActive(rootPOA, expiredId), is(false));
+    assertThat(
+        requestTracker.getActiveRequests(owner),
+        arrayContainingInAnyOrder(liveRequest, standingRequest));
+  }
+
+  @Test
+  public void testUntrackedRequestIsIgnored() throws Exception {
+    requestTracker.delete(owner, null);
+    requestTracker.setTimeout(owner, null, 0);
+
+    assertThat(requestTracker.getTimeout(owner, null), is(LIFETIME));
+    assertThat(requestTracker.getDeletedRequestCount(), is(0L));
+  }
+
+  @Test
+  public void testRequestsOfOtherManagersAreIgnored() throws Exception {
+    HitCountRequest request = activate(owner);
+    Object otherOwner = new Object();
+
+    requestTracker.delete(otherOwner, request);
+    requestTracker.setTimeout(otherOwner, request, 0);
+
+    assertThat(requestTracker.reap(), is(0));
+    assertThat(requestTracker.getActiveRequests(owner), arrayContaining(request));
+    assertThat(requestTracker.getTimeout(owner, request), is(LIFETIME));
+    assertThat(requestTracker.getDeletedRequestCount(), is(0L));
+  }
+
+  @Test
+  public void testManagerDefaultTimeoutDoesNotChangeLibraryDefault() throws Exception {
+    Object otherOwner = new Object();
+
+    requestTracker.setDefaultTimeout(owner, 60);
+    HitCountRequest request = activate(owner);
+
+    assertThat(requestTracker.getTimeout(owner, request), is(60));
+    assertThat(requestTracker.getDefaultTimeout(owner), is(60));
+    assertThat(requestTracker.getDefaultTimeout(otherOwner), is(LIFETIME));
+    assertThat(requestTracker.getDefaultTimeout(), is(LIFETIME));
+  }
+
+  @Test
+  public void testRequestManagerIsSharedByManager() throws Exception {
+    Object otherOwner = new Object();
+
+    assertThat(
+        requestTracker.getRequestManager(owner), is(requestTracker.getRequestManager(owner)));
+    assertThat(
+        requestTracker.getRequestManager(owner),
+        not(requestTracker.getRequestManager(otherOwner)));
+  }
+
+  @Test
+  public void testRemovedOwnerIsForgotten() throws Exception {
+    Object otherOwner = new Object();
+    HitCountRequest request = activate(owner);
+    HitCountRequest otherRequest = activate(otherOwner);
+    byte[] requestManagerId = rootPOA.reference_to_id(requestTracker.getRequestManager(owner));
+    requestTracker.setDefaultTimeout(owner, 60);
+
+    assertThat(requestTracker.removeOwner(owner), is(1));
+
+    assertThat(requestTracker.getActiveRequests(owner), is(emptyArray()));
+    assertThat(requestTracker.getActiveRequests(otherOwner), arrayContaining(otherRequest));
+    assertThat(CorbaUtils.isIdActive(rootPOA, rootPOA.reference_to_id(request)), is(false));
+    assertThat(CorbaUtils.isIdActive(rootPOA, requestManagerId), is(false));
+    assertThat(requestTracker.getDefaultTimeout(owner), is(LIFETIME));
+  }
+
+  private HitCountRequest activate(Object owner) {
+    return requestTracker.activate(
+        owner,
+        new HitCountRequestImpl(1),
+        HitCountRequestHelper.id(),
+        HitCountRequestHelper::narrow);
+  }
+
+  @After
+  public void tearDown() {
+    if (orb != null) {
+      orb.destroy();
+    }
+
+    orb = null;
+    library = null;
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.impl.ResultImpl;
+import ddf.catalog.filter.FilterBuilder;
+import ddf.catalog.filter.proxy.adapter.GeotoolsFilterAdapterImpl;
+import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
+import ddf.catalog.operation.QueryRequest;
+import ddf.catalog.operation.impl.QueryResponseImpl;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.codice.alliance.nsili.common.GIAS.Query;
+import org.codice.alliance.nsili.common.GIAS.QueryLifeSpan;
+import org.codice.alliance.nsili.common.GIAS.SortAttribute;
+import org.codice.alliance.nsili.common.NsiliConstants;
+import org.codice.alliance.nsili.common.UCO.NameValue;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryMatcher;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryScheduler;
+import org.codice.alliance.nsili.endpoint.requests.SubmitStandingQueryRequestImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StandingQueryMatcherTest extends NsiliTestCommon {
+
+  private static final int NUM_STANDING_QUERIES = 1000;
+
+  private static final int NUM_INGEST_BATCHES = 20;
+
+  private static final int INGEST_BATCH_SIZE = 10;
+
+  private CatalogFramework mockFramework = mock(CatalogFramework.class);
+
+  private FilterBuilder filterBuilder = new GeotoolsFilterBuilder();
+
+  // Shut down so that the standing queries never poll the catalog during the test.
+  private StandingQueryScheduler scheduler = new StandingQueryScheduler(1);
+
+  // Matched products are queried on the matching thread, so they are added once matching returns.
+  private StandingQueryMatcher matcher =
+      new StandingQueryMatcher(MoreExecutors.newDirectExecutorService());
+
+  // The metacards that the catalog returns to the standing queries.
+  private List<Metacard> catalogMetacards = new ArrayList<>();
+
+  private List<SubmitStandingQueryRequestImpl> alphaQueries = new ArrayList<>();
+
+  private List<SubmitStandingQueryRequestImpl> bravoQueries = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    setupCommonMocks();
+    setupOrb();
+    scheduler.shutdown();
+    matcher.setFilterAdapter(new GeotoolsFilterAdapterImpl());
+    matcher.setFilterBuilder(filterBuilder);
+    matcher.setCatalogFramework(mockFramework);
+    when(mockFramework.query(any(QueryRequest.class)))
+        .thenAnswer(
+            invocationOnMock -> {
+              List<Result> results =
+                  catalogMetacards.stream().map(ResultImpl::new).collect(Collectors.toList());
+              return new QueryResponseImpl(
+                  (QueryRequest) invocationOnMock.getArguments()[0], results, results.size());
+            });
+
+    for (int i = 0; i < NUM_STANDING_QUERIES; i++) {
+      if (i % 2 == 0) {
+        alphaQueries.add(createStandingQuery("NSIL_FILE.title like '%alpha%'"));
+      } else {
+        bravoQueries.add(createStandingQuery("NSIL_FILE.title like '%bravo%'"));
+      }
+    }
+  }
+
+  @Test
+  public void testIngestedMetacardsArePushedToMatchingQueries() throws Exception {
+    assertThat(matcher.getRegisteredCount(), is(NUM_STANDING_QUERIES));
+
+    for (int batch = 0; batch < NUM_INGEST_BATCHES; batch++) {
+      List<Metacard> metacards = new ArrayList<>();
+      for (int i = 0; i < INGEST_BATCH_SIZE; i++) {
+        metacards.add(createMetacard("alpha product " + batch + "-" + i));
+      }
+      catalogMetacards = new ArrayList<>(metacards);
+      matcher.matchIngested(metacards);
+    }
+
+    for (SubmitStandingQueryRequestImpl query : alphaQueries) {
+      assertThat(query.get_number_of_hits(), is(NUM_INGEST_BATCHES * INGEST_BATCH_SIZE));
+    }
+    for (SubmitStandingQueryRequestImpl query : bravoQueries) {
+      assertThat(query.get_number_of_hits(), is(0));
+    }
+  }
+
+  @Test
+  public void testCancelledQueryIsNotMatched() throws Exception {
+    SubmitStandingQueryRequestImpl cancelledQuery = alphaQueries.get(0);
+    cancelledQuery.cancel();
+
+    ingest(createMetacard("alpha product"));
+
+    assertThat(matcher.getRegisteredCount(), is(NUM_STANDING_QUERIES - 1));
+    assertThat(cancelledQuery.get_number_of_hits(), is(0));
+    assertThat(alphaQueries.get(1).get_number_of_hits(), is(1));
+  }
+
+  @Test
+  public void testMatchedProductsAreQueriedAsGuest() throws Exception {
+    ingest(createMetacard("alpha product"));
+
+    verify(mockSubject, atLeastOnce()).execute(any(Callable.class));
+    assertThat(alphaQueries.get(0).get_number_of_hits(), is(1));
+  }
+
+  @Test
+  public void testIngestBatchIsQueriedOnce() throws Exception {
+    List<Metacard> metacards = new ArrayList<>();
+    for (int i = 0; i < INGEST_BATCH_SIZE; i++) {
+      metacards.add(createMetacard("alpha product " + i));
+      metacards.add(createMetacard("bravo product " + i));
+    }
+    catalogMetacards = new ArrayList<>(metacards);
+
+    matcher.matchIngested(metacards);
+
+    verify(mockFramework, times(1)).query(any(QueryRequest.class));
+    assertThat(alphaQueries.get(0).get_number_of_hits(), is(INGEST_BATCH_SIZE));
+    assertThat(bravoQueries.get(0).get_number_of_hits(), is(INGEST_BATCH_SIZE));
+  }
+
+  @Test
+  public void testProductsNotReturnedByCatalogAreNotAdded() throws Exception {
+    // The catalog does not return products that the guest may not see
+    matcher.matchIngested(Collections.singletonList(createMetacard("alpha product")));
+
+    assertThat(alphaQueries.get(0).get_number_of_hits(), is(0));
+  }
+
+  @Test
+  public void testProductsAreNotAddedTwice() throws Exception {
+    MetacardImpl metacard = createMetacard("alpha product");
+
+    ingest(metacard);
+    ingest(metacard);
+
+    assertThat(alphaQueries.get(0).get_number_of_hits(), is(1));
+  }
+
+  @Test
+  public void testFederatedQueryIsNotRegistered() throws Exception {
+    SubmitStandingQueryRequestImpl federatedQuery =
+        new SubmitStandingQueryRequestImpl(
+            getQuery("NSIL_FILE.title like '%alpha%'"),
+            new String[0],
+            new SortAttribute[0],
+            new QueryLifeSpan(),
+            new NameValue[0],
+            mockFramework,
+            filterBuilder,
+            60000,
+            Collections.singleton("remoteSource"),
+            10000,
+            true,
+            false,
+            TimeUnit.MINUTES.toMillis(5),
+            scheduler);
+
+    assertThat(matcher.register(federatedQuery), is(false));
+  }
+
+  @After
+  public void tearDown() {
+    matcher.shutdown();
+  }
+
+  private SubmitStandingQueryRequestImpl createStandingQuery(String bqsQuery) throws Exception {
+    SubmitStandingQueryRequestImpl standingQuery =
+        new SubmitStandingQueryRequestImpl(
+            getQuery(bqsQuery),
+            new String[0],
+            new SortAttribute[0],
+            new QueryLifeSpan(),
+            new NameValue[0],
+            mockFramework,
+            filterBuilder,
+            60000,
+            null,
+            10000,
+            true,
+            false,
+            TimeUnit.MINUTES.toMillis(5),
+            scheduler);
+
+    String id = UUID.randomUUID().toString();
+    rootPOA.activate_object_with_id(
+        id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)), standingQuery);
+    standingQuery.setStandingQueryMatcher(matcher);
+    return standingQuery;
+  }
+
+  private void ingest(Metacard metacard) {
+    catalogMetacards = Collections.singletonList(metacard);
+    matcher.matchIngested(Collections.singletonList(metacard));
+  }
+
+  private Query getQuery(String bqsQuery) {
+    Query query = new Query();
+    query.bqs_query = bqsQuery;
+    query.view = NsiliConstants.NSIL_ALL_VIEW;
+    return query;
+  }
+
+  private MetacardImpl createMetacard(String title) {
+    MetacardImpl metacard = new MetacardImpl();
+    metacard.setId(UUID.randomUUID().toString().replaceAll("-", ""));
+    metacard.setTitle(title);
+    metacard.setTags(Collections.singleton(Metacard.DEFAULT_TAG));
+    metacard.setCreatedDate(new Date());
+    metacard.setModifiedDate(new Date());
+    return metacard;
+  }
+}
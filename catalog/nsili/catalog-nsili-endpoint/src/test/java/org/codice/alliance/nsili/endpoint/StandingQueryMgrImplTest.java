@@ -58,6 +58,7 @@ import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UCO.Time;
 import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
 import org.codice.alliance.nsili.endpoint.managers.StandingQueryMgrImpl;
 import org.junit.After;
 import org.junit.Before;
@@ -106,6 +107,7 @@ public class StandingQueryMgrImplTest extends NsiliTestCommon {
     standingQueryMgr = new StandingQueryMgrImpl(null);
     standingQueryMgr.setFilterBuilder(new GeotoolsFilterBuilder());
     standingQueryMgr.setCatalogFramework(mockCatalogFramework);
+    standingQueryMgr.setRequestTracker(new RequestTracker(rootPOA));
     standingQueryMgr.setDefaultUpdateFrequencyMsec(60000);
     standingQueryMgr.setMaxWaitToStartTimeMsecs(TimeUnit.MINUTES.toMillis(5));
     standingQueryMgr.setMaxPendingResults(10000);
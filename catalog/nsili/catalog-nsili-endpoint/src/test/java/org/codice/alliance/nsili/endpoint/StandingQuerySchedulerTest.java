@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StandingQuerySchedulerTest {
+
+  private StandingQueryScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    scheduler = new StandingQueryScheduler(2);
+  }
+
+  @Test
+  public void testJitterStaysWithinATenthOfTheInterval() {
+    for (int i = 0; i < 100; i++) {
+      long interval = scheduler.jitter(60000);
+      assertThat(interval, greaterThanOrEqualTo(60000L));
+      assertThat(interval, lessThanOrEqualTo(66000L));
+    }
+    assertThat(scheduler.jitter(5), is(5L));
+  }
+
+  @Test
+  public void testExecutionsAreRecorded() throws Exception {
+    ScheduledFuture<?> execution = scheduler.schedule(() -> {}, 0);
+    execution.get(5, TimeUnit.SECONDS);
+    ScheduledFuture<?> failedExecution =
+        scheduler.schedule(
+            () -> {
+              throw new IllegalStateException("test");
+            },
+            0);
+    failedExecution.get(5, TimeUnit.SECONDS);
+    scheduler.recordSkippedExecution();
+
+    assertThat(scheduler.getExecutionCount(), is(2L));
+    assertThat(scheduler.getSkippedExecutionCount(), is(1L));
+    assertThat(scheduler.getMaxLagMsec(), greaterThanOrEqualTo(scheduler.getAverageLagMsec()));
+    assertThat(
+        scheduler.getMaxExecutionTimeMsec(),
+        greaterThanOrEqualTo(scheduler.getAverageExecutionTimeMsec()));
+  }
+
+  @Test
+  public void testNothingIsScheduledAfterShutdown() {
+    scheduler.shutdown();
+
+    assertThat(scheduler.schedule(() -> {}, 0), nullValue());
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+}
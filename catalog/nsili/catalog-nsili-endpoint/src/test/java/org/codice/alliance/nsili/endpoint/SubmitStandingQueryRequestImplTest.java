@@ -64,7 +64,10 @@ import org.codice.alliance.nsili.common.UCO.Status;
 import org.codice.alliance.nsili.common.UCO.StringDAGListHolder;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UCO.Time;
+import org.codice.alliance.nsili.endpoint.managers.RequestTracker;
+import org.codice.alliance.nsili.endpoint.managers.StandingQueryScheduler;
 import org.codice.alliance.nsili.endpoint.requests.SubmitStandingQueryRequestImpl;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.omg.CORBA.NO_IMPLEMENT;
@@ -86,6 +89,8 @@ public class SubmitStandingQueryRequestImplTest extends NsiliTestCommon {
 
   private FilterBuilder filterBuilder = new GeotoolsFilterBuilder();
 
+  private StandingQueryScheduler scheduler = new StandingQueryScheduler(1);
+
   @Before
   public void setUp() throws Exception {
     setupCommonMocks();
@@ -94,6 +99,11 @@ public class SubmitStandingQueryRequestImplTest extends NsiliTestCommon {
     setupStandingQueryRequest();
   }
 
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
   @Test
   public void testRegisterCallback() throws Exception {
     String callbackId = standingQueryRequest.register_callback(mockCallback);
@@ -111,8 +121,13 @@ public class SubmitStandingQueryRequestImplTest extends NsiliTestCommon {
 
   @Test
   public void testGetRequestManager() throws SystemFault, ProcessingFault {
+    RequestTracker requestTracker = new RequestTracker(rootPOA);
+    Object owner = new Object();
+    standingQueryRequest.setRequestTracker(requestTracker, owner);
+
     RequestManager requestManager = standingQueryRequest.get_request_manager();
     assertThat(requestManager, notNullValue());
+    assertThat(requestManager, is(requestTracker.getRequestManager(owner)));
   }
 
   @Test
@@ -398,7 +413,8 @@ public class SubmitStandingQueryRequestImplTest extends NsiliTestCommon {
             maxPendingResults,
             true,
             false,
-            maxWaitToStartTimeMsecs);
+            maxWaitToStartTimeMsecs,
+            scheduler);
     standingQueryRequest.register_callback(mockCallback2);
 
     String managerId = UUID.randomUUID().toString();
@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.requests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.codice.alliance.nsili.common.UCO.FileLocation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpDeliveryClientTest {
+
+  private static final int MAX_CONNECTIONS_PER_HOST = 2;
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private static final String CONTENTS = "ordered product";
+
+  private HttpServer server;
+
+  private ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+  private HttpDeliveryClient deliveryClient =
+      new HttpDeliveryClient(MAX_CONNECTIONS_PER_HOST, MAX_ATTEMPTS, 10);
+
+  private Map<String, String> storedFiles = new ConcurrentHashMap<>();
+
+  private List<String> authorizations = new CopyOnWriteArrayList<>();
+
+  private Set<Integer> clientPorts = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  private AtomicInteger requestCount = new AtomicInteger();
+
+  private AtomicInteger failuresLeft = new AtomicInteger();
+
+  private AtomicInteger inFlight = new AtomicInteger();
+
+  private AtomicInteger maxInFlight = new AtomicInteger();
+
+  private volatile long responseDelayMsec = 0;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(serverExecutor);
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    deliveryClient.close();
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testConnectionsAreKeptAliveAndAuthenticated() throws IOException {
+    for (int i = 0; i < 10; i++) {
+      deliveryClient.put(
+          uri("file" + i),
+          "text/plain",
+          new ByteArrayEntity(CONTENTS.getBytes(StandardCharsets.UTF_8)),
+          "user",
+          "password");
+    }
+
+    assertThat(storedFiles.size(), is(10));
+    assertThat(authorizations, everyItem(startsWith("Basic ")));
+    assertThat(clientPorts.size(), is(1));
+  }
+
+  @Test
+  public void testTransientFailureIsRetried() throws IOException {
+    failuresLeft.set(MAX_ATTEMPTS - 1);
+
+    deliveryClient.put(
+        uri("retried"),
+        "text/plain",
+        new ByteArrayEntity(CONTENTS.getBytes(StandardCharsets.UTF_8)),
+        null,
+        null);
+
+    assertThat(requestCount.get(), is(MAX_ATTEMPTS));
+    assertThat(storedFiles.get("/orders/retried"), is(CONTENTS));
+  }
+
+  @Test
+  public void testConsumedStreamIsNotRetried() throws IOException {
+    failuresLeft.set(1);
+    InputStream contents = new ByteArrayInputStream(CONTENTS.getBytes(StandardCharsets.UTF_8));
+
+    try {
+      deliveryClient.put(
+          uri("streamed"), "text/plain", new InputStreamEntity(contents, -1), null, null);
+      throw new AssertionError("A failed stream should not be sent again");
+    } catch (HttpResponseException e) {
+      assertThat(e.getStatusCode(), is(503));
+    }
+
+    assertThat(requestCount.get(), is(1));
+  }
+
+  @Test
+  public void testUploadsToAHostAreBounded() throws InterruptedException, ExecutionException {
+    responseDelayMsec = 50;
+    ExecutorService uploadExecutor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> uploads = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        String name = "parallel" + i;
+        uploads.add(
+            uploadExecutor.submit(
+                () -> {
+                  deliveryClient.put(
+                      uri(name),
+                      "text/plain",
+                      new ByteArrayEntity(CONTENTS.getBytes(StandardCharsets.UTF_8)),
+                      null,
+                      null);
+                  return null;
+                }));
+      }
+      for (Future<?> upload : uploads) {
+        upload.get();
+      }
+    } finally {
+      uploadExecutor.shutdownNow();
+    }
+
+    assertThat(storedFiles.size(), is(16));
+    assertThat(maxInFlight.get(), greaterThan(1));
+    assertThat(maxInFlight.get(), lessThanOrEqualTo(MAX_CONNECTIONS_PER_HOST));
+  }
+
+  @Test
+  public void testSinkStreamsPackageToServer() throws IOException {
+    FileLocation fileLocation = new FileLocation();
+    fileLocation.host_name = server.getAddress().getHostString();
+    fileLocation.path_name = "orders";
+    fileLocation.user_name = "";
+    fileLocation.password = "";
+    FtpDestinationSink sink =
+        new FtpDestinationSink(
+            fileLocation, server.getAddress().getPort(), "http", deliveryClient);
+
+    sink.writeFile(
+        out -> out.write(CONTENTS.getBytes(StandardCharsets.UTF_8)),
+        "package.tar",
+        "application/x-tar",
+        Collections.emptyList());
+
+    assertThat(storedFiles.get("/orders/package.tar"), is(CONTENTS));
+    assertThat(authorizations.isEmpty(), is(true));
+  }
+
+  private URI uri(String name) {
+    return URI.create(
+        "http://"
+            + server.getAddress().getHostString()
+            + ":"
+            + server.getAddress().getPort()
+            + "/orders/"
+            + name);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      requestCount.incrementAndGet();
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+      String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+      if (authorization != null) {
+        authorizations.add(authorization);
+      }
+
+      String contents;
+      try (InputStream body = exchange.getRequestBody()) {
+        contents = IOUtils.toString(body, StandardCharsets.UTF_8);
+      }
+      if (responseDelayMsec > 0) {
+        Thread.sleep(responseDelayMsec);
+      }
+
+      if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+        exchange.sendResponseHeaders(503, -1);
+      } else {
+        storedFiles.put(exchange.getRequestURI().getPath(), contents);
+        exchange.sendResponseHeaders(201, -1);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exchange.sendResponseHeaders(500, -1);
+    } finally {
+      inFlight.decrementAndGet();
+      exchange.close();
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.requests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.impl.ResultImpl;
+import ddf.security.service.SecurityServiceException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.opengis.filter.sort.SortOrder;
+
+public class LatestResultsPagerTest {
+
+  private List<Result> catalogResults = new ArrayList<>();
+
+  private List<Integer> startIndexes = new ArrayList<>();
+
+  private int rowsRead = 0;
+
+  private boolean failNextRead = false;
+
+  private LatestResultsPager pager = new LatestResultsPager(this::getResults);
+
+  @Test
+  public void testPagesAreFullWhenOlderVersionsAreDropped() throws SecurityServiceException {
+    addResults("a", "b", "a", "c", "d", "e", "d", "f");
+
+    assertThat(ids(pager.nextPage(3)), contains("a", "b", "c"));
+    assertThat(ids(pager.nextPage(3)), contains("d", "e", "f"));
+    assertThat(pager.nextPage(3).isEmpty(), is(true));
+    assertThat(pager.isExhausted(), is(true));
+    assertThat(rowsRead, is(catalogResults.size()));
+  }
+
+  @Test
+  public void testLatestVersionIsReturnedInPlaceOfFirst() throws SecurityServiceException {
+    catalogResults.add(createResult("a", 2));
+    catalogResults.add(createResult("a", 3));
+    catalogResults.add(createResult("a", 1));
+    catalogResults.add(createResult("b", 1));
+
+    List<Result> page = pager.nextPage(2);
+
+    assertThat(ids(page), contains("a", "b"));
+    assertThat(page.get(0).getMetacard().getModifiedDate(), is(new Date(3)));
+  }
+
+  @Test
+  public void testReadingContinuesPastPagesOfReturnedProducts() throws SecurityServiceException {
+    addResults("a", "b", "a", "b", "c");
+
+    assertThat(ids(pager.nextPage(2)), contains("a", "b"));
+    assertThat(ids(pager.nextPage(2)), contains("c"));
+    assertThat(pager.isExhausted(), is(true));
+  }
+
+  @Test
+  public void testLatestVersionIsReturnedWhenOlderVersionIsOnLaterPage()
+      throws SecurityServiceException {
+    assertThat(
+        LatestResultsPager.LATEST_FIRST.getPropertyName().getPropertyName(),
+        is(Metacard.MODIFIED));
+    assertThat(LatestResultsPager.LATEST_FIRST.getSortOrder(), is(SortOrder.DESCENDING));
+
+    // The catalog is read newest first, so the latest version is read before older ones
+    catalogResults.add(createResult("a", 3));
+    catalogResults.add(createResult("b", 2));
+    catalogResults.add(createResult("a", 1));
+
+    List<Result> page = pager.nextPage(2);
+
+    assertThat(ids(page), contains("a", "b"));
+    assertThat(page.get(0).getMetacard().getModifiedDate(), is(new Date(3)));
+    assertThat(pager.nextPage(2).isEmpty(), is(true));
+    assertThat(pager.isExhausted(), is(true));
+  }
+
+  @Test
+  public void testReturnedProductsAreNotRepeated() throws SecurityServiceException {
+    addResults("a", "b", "c", "a", "b", "d");
+
+    List<String> returned = new ArrayList<>();
+    while (!pager.isExhausted()) {
+      returned.addAll(ids(pager.nextPage(2)));
+    }
+
+    assertThat(returned, contains("a", "b", "c", "d"));
+  }
+
+  @Test
+  public void testCatalogIsReadContiguously() throws SecurityServiceException {
+    addResults("a", "b", "b", "c", "d", "e", "f");
+
+    pager.nextPage(3);
+    pager.nextPage(3);
+
+    assertThat(startIndexes, contains(1, 4, 5));
+    assertThat(pager.getNextIndex(), is(8));
+  }
+
+  @Test
+  public void testFailedReadIsRepeated() throws SecurityServiceException {
+    addResults("a", "b", "c", "d");
+    pager.nextPage(2);
+
+    failNextRead = true;
+    try {
+      pager.nextPage(2);
+      throw new AssertionError("The failed read should be reported");
+    } catch (SecurityServiceException e) {
+      assertThat(pager.getNextIndex(), is(3));
+    }
+
+    assertThat(ids(pager.nextPage(2)), contains("c", "d"));
+  }
+
+  private List<Result> getResults(int startIndex, int count) throws SecurityServiceException {
+    if (failNextRead) {
+      failNextRead = false;
+      throw new SecurityServiceException("Unable to read results");
+    }
+    startIndexes.add(startIndex);
+    int from = Math.min(startIndex - 1, catalogResults.size());
+    int to = Math.min(from + count, catalogResults.size());
+    rowsRead += to - from;
+    return new ArrayList<>(catalogResults.subList(from, to));
+  }
+
+  private void addResults(String... ids) {
+    for (String id : ids) {
+      catalogResults.add(createResult(id, catalogResults.size()));
+    }
+  }
+
+  private Result createResult(String id, long modified) {
+    MetacardImpl metacard = new MetacardImpl();
+    metacard.setId(id);
+    metacard.setModifiedDate(new Date(modified));
+    return new ResultImpl(metacard);
+  }
+
+  private List<String> ids(List<Result> results) {
+    return results
+        .stream()
+        .map(result -> result.getMetacard().getId())
+        .collect(Collectors.toList());
+  }
+}
@@ -16,6 +16,8 @@ package org.codice.alliance.nsili.endpoint.requests;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -28,12 +30,26 @@ import ddf.catalog.operation.ResourceResponse;
 import ddf.catalog.resource.Resource;
 import ddf.security.service.SecurityServiceException;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
 import org.apache.cxf.common.i18n.Exception;
 import org.codice.alliance.core.email.EmailSender;
 import org.codice.alliance.nsili.common.GIAS.DelayEstimate;
@@ -55,7 +71,10 @@ import org.codice.alliance.nsili.endpoint.NsiliTestCommon;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.managers.EmailConfiguration;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kamranzafar.jtar.TarInputStream;
 import org.omg.CORBA.BAD_OPERATION;
 import org.omg.PortableServer.POAPackage.WrongAdapter;
 import org.omg.PortableServer.POAPackage.WrongPolicy;
@@ -66,6 +85,8 @@ public class OrderRequestImplTest extends NsiliTestCommon {
 
   private static final int PORT = 20080;
 
+  private static final int NUM_CONCURRENT_ORDER_PRODUCTS = 8;
+
   private AccessManagerImpl accessManager = mock(AccessManagerImpl.class);
 
   private CatalogFramework mockCatalogFramework = mock(CatalogFramework.class);
@@ -82,6 +103,8 @@ public class OrderRequestImplTest extends NsiliTestCommon {
 
   private String mockResName = "testresource.jpg";
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Before
   public void setUp()
       throws Exception, SecurityServiceException, URISyntaxException, UnsupportedEncodingException,
@@ -394,6 +417,121 @@ public class OrderRequestImplTest extends NsiliTestCommon {
     assertThat(holder.value.elements[0].files.length, is(1));
   }
 
+  @Test
+  public void testMultipleTarGZipOrderIsStreamedInOnePass()
+      throws IOException, SystemFault, ProcessingFault {
+    OrderContents order = getMultipleUncompressedTestOrder();
+    order.pSpec.packaging_format_and_compression = PackagingSpecFormatType.TARGZIP.name();
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    DestinationSink streamingSink =
+        new DestinationSink() {
+          @Override
+          public void writeFile(
+              InputStream fileData,
+              long size,
+              String name,
+              String contentType,
+              List<Metacard> metacards) {
+            throw new AssertionError("Package should be streamed to the destination");
+          }
+
+          @Override
+          public void writeFile(
+              ContentWriter contents, String name, String contentType, List<Metacard> metacards)
+              throws IOException {
+            contents.writeTo(sent);
+          }
+        };
+
+    OrderRequestImpl orderRequest =
+        new OrderRequestImpl(
+            order, accessManager, mockCatalogFramework, destination -> Optional.of(streamingSink));
+
+    DeliveryManifestHolder holder = new DeliveryManifestHolder();
+    orderRequest.complete(holder);
+    assertThat(holder.value.elements[0].files.length, is(1));
+
+    int entries = 0;
+    try (TarInputStream tarIn =
+        new TarInputStream(new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray())))) {
+      while (tarIn.getNextEntry() != null) {
+        assertThat(IOUtils.toString(tarIn, StandardCharsets.UTF_8), is(mockResName));
+        entries++;
+      }
+    }
+    assertThat(entries, is(2));
+  }
+
+  @Test
+  public void testMultipleFilesZipOrderIsCompleteWhenSizeIsNeeded()
+      throws IOException, SystemFault, ProcessingFault {
+    OrderContents order = getMultipleUncompressedTestOrder();
+    order.pSpec.packaging_format_and_compression = PackagingSpecFormatType.FILESZIP.name();
+    List<byte[]> sent = new ArrayList<>();
+    DestinationSink sizedSink =
+        (fileData, size, name, contentType, metacards) -> {
+          byte[] data = IOUtils.toByteArray(fileData);
+          assertThat((long) data.length, is(size));
+          sent.add(data);
+        };
+
+    OrderRequestImpl orderRequest =
+        new OrderRequestImpl(
+            order, accessManager, mockCatalogFramework, destination -> Optional.of(sizedSink));
+
+    DeliveryManifestHolder holder = new DeliveryManifestHolder();
+    orderRequest.complete(holder);
+    assertThat(sent.size(), is(1));
+
+    try (ZipFile zipFile = writeTempZip(sent.get(0))) {
+      assertThat(zipFile.size(), is(2));
+    }
+  }
+
+  @Test
+  public void testProductsAreRetrievedConcurrently() throws SystemFault, ProcessingFault {
+    OrderContents order = getMultipleUncompressedTestOrder();
+    ProductDetails[] products = new ProductDetails[NUM_CONCURRENT_ORDER_PRODUCTS];
+    for (int i = 0; i < products.length; i++) {
+      products[i] = new ProductDetails();
+      products[i].aProduct = mockProduct1;
+    }
+    order.prod_list = products;
+
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    when(mockSubject.execute(any(Callable.class)))
+        .thenAnswer(
+            invocation -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              Thread.sleep(50);
+              inFlight.decrementAndGet();
+              return mockResourceResponse;
+            });
+
+    ExecutorService transferExecutor = Executors.newFixedThreadPool(products.length);
+    try {
+      OrderRequestImpl orderRequest =
+          new OrderRequestImpl(
+              order,
+              accessManager,
+              mockCatalogFramework,
+              destination -> Optional.of(mock(DestinationSink.class)));
+      orderRequest.setTransferExecutor(transferExecutor);
+
+      DeliveryManifestHolder holder = new DeliveryManifestHolder();
+      orderRequest.complete(holder);
+      assertThat(holder.value.elements[0].files.length, is(products.length));
+    } finally {
+      transferExecutor.shutdownNow();
+    }
+
+    assertThat(maxInFlight.get(), greaterThan(1));
+    assertThat(
+        maxInFlight.get(),
+        lessThanOrEqualTo(OrderRequestImpl.MAX_CONCURRENT_TRANSFERS_PER_ORDER));
+  }
+
   @Test
   public void testSupportedEmailDelivery() throws SystemFault, ProcessingFault {
     OrderContents order = getUncompressedTestOrder();
@@ -544,6 +682,12 @@ public class OrderRequestImplTest extends NsiliTestCommon {
     orderRequest.cancel();
   }
 
+  private ZipFile writeTempZip(byte[] data) throws IOException {
+    File zip = temporaryFolder.newFile("order.zip");
+    Files.write(zip.toPath(), data);
+    return new ZipFile(zip);
+  }
+
   private Destination getTestDestination() {
     Destination destination = new Destination();
     FileLocation location = new FileLocation();
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.requests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.codice.alliance.nsili.common.UCO.DAG;
+import org.junit.After;
+import org.junit.Test;
+
+public class StandingQueryDataTest {
+
+  private static final long WAIT_MSEC = TimeUnit.SECONDS.toMillis(30);
+
+  private static final int MAX_SIZE = 500;
+
+  private static final int PAGE_SIZE = 25;
+
+  private static final int NUM_INTERVALS = 2000;
+
+  private StandingQueryData standingQueryData = new StandingQueryData();
+
+  private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+  @Test
+  public void testAwaitReturnsWhenResultsArrive() {
+    DAGQueryResult result =
+        new DAGQueryResult(System.currentTimeMillis(), Collections.singletonList(new DAG()));
+    executor.schedule(() -> standingQueryData.add(result), 100, TimeUnit.MILLISECONDS);
+
+    long start = System.currentTimeMillis();
+    assertThat(standingQueryData.awaitResults(WAIT_MSEC), is(true));
+    assertThat(System.currentTimeMillis() - start, lessThan(WAIT_MSEC));
+  }
+
+  @Test
+  public void testAwaitTimesOutWithoutResults() {
+    assertThat(standingQueryData.awaitResults(50), is(false));
+  }
+
+  @Test
+  public void testReleaseEndsWaiting() {
+    executor.schedule(() -> standingQueryData.release(), 100, TimeUnit.MILLISECONDS);
+
+    long start = System.currentTimeMillis();
+    assertThat(standingQueryData.awaitResults(WAIT_MSEC), is(false));
+    assertThat(System.currentTimeMillis() - start, lessThan(WAIT_MSEC));
+    assertThat(standingQueryData.awaitResults(WAIT_MSEC), is(false));
+  }
+
+  @Test
+  public void testIntervalOperations() {
+    long now = System.currentTimeMillis();
+    standingQueryData.add(createResult(now - 5000, 1));
+    standingQueryData.add(createResult(now - 1000, 3));
+    // Arrives late, but is kept in time order
+    standingQueryData.add(createResult(now - 3000, 2));
+
+    assertThat(standingQueryData.getNumberOfIntervals(), is(3));
+    assertThat(standingQueryData.getNumberOfHitsInInterval(1), is(2));
+    assertThat(standingQueryData.getNumberOfHitsInInterval(3), is(0));
+
+    standingQueryData.clearBefore(4000);
+    assertThat(standingQueryData.size(), is(5));
+
+    standingQueryData.clearIntervals(1);
+    assertThat(standingQueryData.size(), is(3));
+
+    assertThat(standingQueryData.getResultData(2).size(), is(2));
+    assertThat(standingQueryData.getNumberOfIntervals(), is(1));
+    assertThat(standingQueryData.getResultData(2).size(), is(1));
+    assertThat(standingQueryData.size(), is(0));
+  }
+
+  @Test
+  public void testSlowConsumerWithDropOldest() throws Exception {
+    standingQueryData = new StandingQueryData(MAX_SIZE);
+    standingQueryData.setOverflowPolicy(StandingQueryData.OverflowPolicy.DROP_OLDEST);
+    AtomicInteger maxObservedSize = new AtomicInteger();
+
+    Future<Integer> consumed = startSlowConsumer(maxObservedSize);
+    for (int i = 0; i < NUM_INTERVALS; i++) {
+      standingQueryData.add(createResult(System.currentTimeMillis(), 3));
+      maxObservedSize.accumulateAndGet(standingQueryData.size(), Math::max);
+    }
+    standingQueryData.release();
+
+    int remaining = standingQueryData.getResultData(Integer.MAX_VALUE).size();
+    assertThat(maxObservedSize.get(), lessThanOrEqualTo(MAX_SIZE));
+    assertThat(
+        consumed.get(WAIT_MSEC, TimeUnit.MILLISECONDS)
+            + standingQueryData.getDroppedCount()
+            + remaining,
+        is(NUM_INTERVALS * 3L));
+  }
+
+  @Test
+  public void testSlowConsumerWithPause() throws Exception {
+    standingQueryData = new StandingQueryData(MAX_SIZE);
+    AtomicInteger maxObservedSize = new AtomicInteger();
+
+    Future<Integer> consumed = startSlowConsumer(maxObservedSize);
+    int produced = 0;
+    for (int i = 0; i < NUM_INTERVALS; i++) {
+      // Producers check for room before they collect more results, as standing queries do
+      while (standingQueryData.isFull()) {
+        Thread.sleep(1);
+      }
+      standingQueryData.add(createResult(System.currentTimeMillis(), PAGE_SIZE));
+      produced += PAGE_SIZE;
+      maxObservedSize.accumulateAndGet(standingQueryData.size(), Math::max);
+    }
+    standingQueryData.release();
+
+    int remaining = standingQueryData.getResultData(Integer.MAX_VALUE).size();
+    assertThat(maxObservedSize.get(), lessThanOrEqualTo(MAX_SIZE + PAGE_SIZE));
+    assertThat(standingQueryData.getDroppedCount(), is(0L));
+    assertThat(consumed.get(WAIT_MSEC, TimeUnit.MILLISECONDS) + remaining, is(produced));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private Future<Integer> startSlowConsumer(AtomicInteger maxObservedSize) {
+    return executor.submit(
+        () -> {
+          int consumed = 0;
+          while (standingQueryData.awaitResults(WAIT_MSEC)) {
+            maxObservedSize.accumulateAndGet(standingQueryData.size(), Math::max);
+            consumed += standingQueryData.getResultData(PAGE_SIZE).size();
+            Thread.sleep(1);
+          }
+          return consumed;
+        });
+  }
+
+  private DAGQueryResult createResult(long time, int numResults) {
+    List<DAG> results = new ArrayList<>();
+    for (int i = 0; i < numResults; i++) {
+      results.add(new DAG());
+    }
+    return new DAGQueryResult(time, results);
+  }
+}
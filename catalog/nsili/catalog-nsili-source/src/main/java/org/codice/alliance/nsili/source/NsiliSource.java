@@ -13,6 +13,8 @@
  */
 package org.codice.alliance.nsili.source;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import ddf.catalog.data.ContentType;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.MetacardType;
@@ -41,22 +43,24 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.net.ftp.FTP;
@@ -101,6 +105,12 @@ import org.codice.ddf.spatial.ogc.catalog.common.AvailabilityTask;
 import org.omg.CORBA.Any;
 import org.omg.CORBA.IntHolder;
 import org.omg.CORBA.ORB;
+import org.omg.CORBA.ORBPackage.InvalidName;
+import org.omg.CORBA.Policy;
+import org.omg.CORBA.PolicyCurrent;
+import org.omg.CORBA.PolicyCurrentHelper;
+import org.omg.CORBA.PolicyError;
+import org.omg.CORBA.SetOverrideType;
 import org.opengis.filter.sort.SortBy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -132,6 +142,12 @@ public class NsiliSource extends MaskableImpl
 
   public static final String ACCESS_LICENSE_KEY = "accessLicenseKey";
 
+  public static final String MAX_CONCURRENT_QUERIES = "maxConcurrentQueries";
+
+  public static final String QUERY_TIMEOUT = "queryTimeout";
+
+  public static final String HIT_COUNT_CACHE_TTL = "hitCountCacheTtl";
+
   private static final Logger LOGGER = LoggerFactory.getLogger(NsiliSource.class);
 
   private static final String DESCRIBABLE_PROPERTIES_FILE = "/describable.properties";
@@ -168,6 +184,24 @@ public class NsiliSource extends MaskableImpl
 
   private static final String FTP_SCHEME = "ftp";
 
+  private static final int DEFAULT_MAX_CONCURRENT_QUERIES = 4;
+
+  private static final int DEFAULT_QUERY_TIMEOUT = 300;
+
+  private static final int DEFAULT_HIT_COUNT_CACHE_TTL = 30;
+
+  private static final int MAX_CACHED_HIT_COUNTS = 1000;
+
+  private static final int MAX_PAGED_REQUESTS = 100;
+
+  private static final long PAGED_REQUEST_EXPIRATION_MINUTES = 5;
+
+  /** The CORBA Messaging RelativeRoundtripTimeoutPolicy type. */
+  private static final int RELATIVE_RT_TIMEOUT_POLICY_TYPE = 32;
+
+  /** The number of TimeBase::TimeT units, of 100 nanoseconds each, in a second. */
+  private static final long TIME_T_PER_SECOND = 10_000_000L;
+
   private static Library library;
 
   private static Properties describableProperties = new Properties();
@@ -252,7 +286,26 @@ public class NsiliSource extends MaskableImpl
 
   private CorbaOrb corbaOrb = null;
 
-  private Object queryLockObj = new Object();
+  private ThreadPoolExecutor queryExecutor = createQueryExecutor(DEFAULT_MAX_CONCURRENT_QUERIES);
+
+  private ThreadPoolExecutor hitCountExecutor =
+      createQueryExecutor(DEFAULT_MAX_CONCURRENT_QUERIES);
+
+  private int maxConcurrentQueries = DEFAULT_MAX_CONCURRENT_QUERIES;
+
+  private int queryTimeout = DEFAULT_QUERY_TIMEOUT;
+
+  private final Cache<String, PagedQueryRequest> pagedRequests =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_PAGED_REQUESTS)
+          .expireAfterAccess(PAGED_REQUEST_EXPIRATION_MINUTES, TimeUnit.MINUTES)
+          .build();
+
+  private volatile int hitCountCacheTtl = DEFAULT_HIT_COUNT_CACHE_TTL;
+
+  // Replaced when the TTL changes while queries are running
+  private volatile Cache<String, Integer> hitCounts =
+      createHitCountCache(DEFAULT_HIT_COUNT_CACHE_TTL);
 
   private MetacardType nsiliMetacardType = null;
 
@@ -636,6 +689,10 @@ public class NsiliSource extends MaskableImpl
     }
     availabilityPollFuture.cancel(true);
     scheduler.shutdownNow();
+    queryExecutor.shutdownNow();
+    hitCountExecutor.shutdownNow();
+    pagedRequests.invalidateAll();
+    hitCounts.invalidateAll();
   }
 
   public void refresh(Map<String, Object> configuration) {
@@ -690,6 +747,18 @@ public class NsiliSource extends MaskableImpl
     if (StringUtils.isNotBlank(accessLicenseKey)) {
       setAccessLicenseKey(accessLicenseKey);
     }
+    Integer maxConcurrentQueries = (Integer) configuration.get(MAX_CONCURRENT_QUERIES);
+    if (maxConcurrentQueries != null && maxConcurrentQueries != this.maxConcurrentQueries) {
+      setMaxConcurrentQueries(maxConcurrentQueries);
+    }
+    Integer queryTimeout = (Integer) configuration.get(QUERY_TIMEOUT);
+    if (queryTimeout != null && queryTimeout != this.queryTimeout) {
+      setQueryTimeout(queryTimeout);
+    }
+    Integer hitCountCacheTtl = (Integer) configuration.get(HIT_COUNT_CACHE_TTL);
+    if (hitCountCacheTtl != null && hitCountCacheTtl != this.hitCountCacheTtl) {
+      setHitCountCacheTtl(hitCountCacheTtl);
+    }
     init();
   }
 
@@ -738,33 +807,6 @@ public class NsiliSource extends MaskableImpl
     return new org.codice.alliance.nsili.common.GIAS.Query(NsiliConstants.NSIL_ALL_VIEW, filter);
   }
 
-  /**
-   * Obtains the number of hits that the given query has received from the server.
-   *
-   * @param query - a BQS query
-   * @param properties - a list of properties for the query
-   * @return - the hit count
-   */
-  private int getHitCount(
-      org.codice.alliance.nsili.common.GIAS.Query query, NameValue[] properties) {
-    IntHolder intHolder = new IntHolder();
-    try {
-      synchronized (queryLockObj) {
-        HitCountRequest hitCountRequest = catalogMgr.hit_count(query, properties);
-        hitCountRequest.complete(intHolder);
-      }
-    } catch (ProcessingFault | SystemFault | InvalidInputParameter e) {
-      LOGGER.debug(
-          "{} : Unable to get hit count for query. : {}",
-          getId(),
-          NsilCorbaExceptionUtil.getExceptionDetails(e),
-          e);
-    }
-
-    LOGGER.debug("{} :  Received {} hit(s) from query.", getId(), intHolder.value);
-    return intHolder.value;
-  }
-
   /**
    * Submits and completes a BQS Query to the STANAG 4559 server and returns the response.
    *
@@ -785,85 +827,309 @@ public class NsiliSource extends MaskableImpl
 
     SourceResponseImpl sourceResponse = null;
 
+    int startIndex = Math.max(1, queryRequest.getQuery().getStartIndex());
+    int pageSize = queryRequest.getQuery().getPageSize();
+    if (pageSize <= 0 || pageSize > maxHitCount) {
+      pageSize = maxHitCount;
+    }
+    int querySize = pageSize;
+
     long numHits = 0;
+    // only read once the query completes, a query that times out may still write to its holder
+    DAGListHolder queryResults = new DAGListHolder();
+    Future<Integer> queryFuture = null;
     try {
-      synchronized (queryLockObj) {
-        LOGGER.debug("{} : Submit query: {}", sourceId, query.bqs_query);
-        LOGGER.debug("{} : Requesting result attributes: {}", sourceId, resultAttributes);
-        LOGGER.debug("{} : Sort Attributes: {}", sourceId, sortAttributes);
-        LOGGER.debug("{} : Properties: {}", sourceId, properties);
-        HitCountRequest hitCountRequest = catalogMgr.hit_count(query, properties);
-        IntHolder hitHolder = new IntHolder();
-        hitCountRequest.complete(hitHolder);
-        numHits = hitHolder.value;
-        SubmitQueryRequest submitQueryRequest;
-        if (hitHolder.value > 1) {
-          submitQueryRequest =
-              catalogMgr.submit_query(query, resultAttributes, sortAttributes, properties);
-        } else {
-          submitQueryRequest =
-              catalogMgr.submit_query(
-                  query, resultAttributes, new SortAttribute[0], new NameValue[0]);
-        }
-        submitQueryRequest.set_user_info(ddfOrgName);
-        submitQueryRequest.set_number_of_hits(maxHitCount);
-        submitQueryRequest.complete_DAG_results(dagListHolder);
+      queryFuture =
+          queryExecutor.submit(
+              () ->
+                  completeQuery(
+                      query,
+                      resultAttributes,
+                      sortAttributes,
+                      properties,
+                      startIndex,
+                      querySize,
+                      queryResults));
+      numHits = queryFuture.get(queryTimeout, TimeUnit.SECONDS);
+      dagListHolder.value = queryResults.value;
+    } catch (TimeoutException e) {
+      queryFuture.cancel(true);
+      LOGGER.debug(
+          "{} : Query did not complete within {} seconds. {} queries waiting.",
+          sourceId,
+          queryTimeout,
+          queryExecutor.getQueue().size(),
+          e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
       }
-    } catch (ProcessingFault | SystemFault | InvalidInputParameter e) {
+      Exception cause = (Exception) e.getCause();
       LOGGER.debug(
           "{} : Unable to query source. {}",
           sourceId,
-          NsilCorbaExceptionUtil.getExceptionDetails(e),
-          e);
+          NsilCorbaExceptionUtil.getExceptionDetails(cause),
+          cause);
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("{} : Unable to query source, the source has been shut down.", sourceId, e);
+    } catch (InterruptedException e) {
+      if (queryFuture != null) {
+        queryFuture.cancel(true);
+      }
+      Thread.currentThread().interrupt();
     }
 
     if (dagListHolder.value != null) {
-      List<Result> results = new ArrayList<>();
-      String id = getId();
-      List<Future<Result>> futures = new ArrayList<>(dagListHolder.value.length);
-      CompletionService<Result> completionService =
-          new ExecutorCompletionService<Result>(executorService);
-
-      for (DAG dag : dagListHolder.value) {
-        Callable<Result> convertRunner =
-            () -> {
-              DAGConverter dagConverter = new DAGConverter(resourceReader);
-              dagConverter.setNsiliMetacardType(nsiliMetacardType);
-              Metacard card = dagConverter.convertDAG(dag, swapCoordinates, id);
-              if (card != null) {
-                if (LOGGER.isTraceEnabled()) {
-                  DAGConverter.logMetacard(card, getId());
-                }
-                return new ResultImpl(card);
-              } else {
-                LOGGER.debug(
-                    "{} : Unable to convert DAG to metacard, returned card is null", getId());
-              }
-              return null;
-            };
-        futures.add(completionService.submit(convertRunner));
+      List<Result> results = convertDags(dagListHolder.value);
+      sourceResponse = new SourceResponseImpl(queryRequest, results, numHits);
+    } else {
+      LOGGER.debug("{} : Source returned empty DAG list", getId());
+    }
+
+    return sourceResponse;
+  }
+
+  /**
+   * Converts the DAGs to results on the worker threads. The results are collected in the order the
+   * server returned the DAGs, each one as soon as it and the results before it are converted.
+   *
+   * @param dags - the DAGs returned by the server
+   * @return - the results, in server order, of the DAGs that could be converted
+   */
+  private List<Result> convertDags(DAG[] dags) {
+    String id = getId();
+    List<Future<Metacard>> futures = new ArrayList<>(dags.length);
+    for (DAG dag : dags) {
+      futures.add(executorService.submit(() -> convertDag(dag, id)));
+    }
+
+    List<Result> results = new ArrayList<>(dags.length);
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        Metacard card = futures.get(i).get();
+        if (card != null) {
+          results.add(new ResultImpl(card));
+        }
+      } catch (ExecutionException e) {
+        LOGGER.debug("Unable to create result.", e);
+      } catch (InterruptedException e) {
+        futures.subList(i, futures.size()).forEach(future -> future.cancel(true));
+        Thread.currentThread().interrupt();
+        break;
       }
+    }
+    return results;
+  }
+
+  Metacard convertDag(DAG dag, String id) {
+    DAGConverter dagConverter = new DAGConverter(resourceReader);
+    dagConverter.setNsiliMetacardType(nsiliMetacardType);
+    Metacard card = dagConverter.convertDAG(dag, swapCoordinates, id);
+    if (card == null) {
+      LOGGER.debug("{} : Unable to convert DAG to metacard, returned card is null", id);
+    } else if (LOGGER.isTraceEnabled()) {
+      DAGConverter.logMetacard(card, id);
+    }
+    return card;
+  }
 
-      Future<Result> completedFuture;
-      while (!futures.isEmpty()) {
+  /**
+   * Performs the hit count and query exchange with the STANAG 4559 server. This runs on the query
+   * executor so that the number of queries in flight against the server is bounded and queries
+   * beyond that wait in arrival order.
+   *
+   * <p>Only the requested page of results is retrieved. When the page follows a page that was
+   * read from a request for the same query, the server's request is read from again rather than
+   * submitting the query a second time.
+   *
+   * @param startIndex - the 1-based index of the first result of the page
+   * @param pageSize - the maximum number of results in the page
+   * @return - the hit count of the query
+   */
+  private int completeQuery(
+      org.codice.alliance.nsili.common.GIAS.Query query,
+      String[] resultAttributes,
+      SortAttribute[] sortAttributes,
+      NameValue[] properties,
+      int startIndex,
+      int pageSize,
+      DAGListHolder dagListHolder)
+      throws ProcessingFault, SystemFault, InvalidInputParameter, InterruptedException {
+    setRequestTimeout();
+    String pagedRequestKey = getPagedRequestKey(query, resultAttributes, sortAttributes);
+    PagedQueryRequest pagedRequest = pagedRequests.asMap().remove(pagedRequestKey);
+
+    if (pagedRequest != null && pagedRequest.canRead(startIndex)) {
+      LOGGER.debug(
+          "{} : Reading results from {} of a previous query request", sourceId, startIndex);
+      try {
+        dagListHolder.value = pagedRequest.read(startIndex, pageSize);
+      } catch (ProcessingFault | SystemFault | org.omg.CORBA.SystemException e) {
+        LOGGER.debug(
+            "{} : Unable to read from the previous query request, submitting the query again.",
+            sourceId,
+            e);
+        pagedRequest = null;
+      }
+    } else {
+      pagedRequest = null;
+    }
+
+    if (pagedRequest == null) {
+      pagedRequest = submitPagedRequest(query, resultAttributes, sortAttributes, properties);
+      dagListHolder.value = pagedRequest.read(startIndex, pageSize);
+    }
+
+    if (pagedRequest.hasMore()) {
+      pagedRequests.put(pagedRequestKey, pagedRequest);
+    }
+    return pagedRequest.getHitCount();
+  }
+
+  /**
+   * Submits the query to the server. Unless the hit count of the query is cached, the hit count
+   * request is sent at the same time as the query rather than before it.
+   */
+  private PagedQueryRequest submitPagedRequest(
+      org.codice.alliance.nsili.common.GIAS.Query query,
+      String[] resultAttributes,
+      SortAttribute[] sortAttributes,
+      NameValue[] properties)
+      throws ProcessingFault, SystemFault, InvalidInputParameter, InterruptedException {
+    LOGGER.debug("{} : Submit query: {}", sourceId, query.bqs_query);
+    LOGGER.debug("{} : Requesting result attributes: {}", sourceId, resultAttributes);
+    LOGGER.debug("{} : Sort Attributes: {}", sourceId, sortAttributes);
+    LOGGER.debug("{} : Properties: {}", sourceId, properties);
+
+    String hitCountKey = query.view + '|' + query.bqs_query;
+    Integer cachedHitCount = hitCounts.getIfPresent(hitCountKey);
+    SubmitQueryRequest submitQueryRequest;
+    int hitCount;
+
+    if (cachedHitCount != null) {
+      LOGGER.debug("{} : Using cached hit count {} for query.", sourceId, cachedHitCount);
+      hitCount = cachedHitCount;
+      submitQueryRequest =
+          submitQuery(query, resultAttributes, sortAttributes, properties, hitCount > 1);
+    } else {
+      Future<Integer> hitCountFuture =
+          hitCountExecutor.submit(() -> completeHitCount(query, properties));
+      try {
         try {
-          completedFuture = completionService.take();
-          futures.remove(completedFuture);
-          results.add(completedFuture.get());
-        } catch (ExecutionException e) {
-          LOGGER.debug("Unable to create result.", e);
-        } catch (InterruptedException ignore) {
-          // ignore
+          submitQueryRequest =
+              submitQuery(query, resultAttributes, sortAttributes, properties, true);
+        } catch (ProcessingFault | InvalidInputParameter e) {
+          // queries with a single hit have always been sent without sorting
+          if (getHitCount(hitCountFuture) > 1) {
+            throw e;
+          }
+          LOGGER.debug("{} : Unable to submit sorted query, submitting it unsorted.", sourceId, e);
+          submitQueryRequest =
+              submitQuery(query, resultAttributes, sortAttributes, properties, false);
         }
+        hitCount = getHitCount(hitCountFuture);
+      } finally {
+        hitCountFuture.cancel(true);
       }
 
-      sourceResponse = new SourceResponseImpl(queryRequest, results, numHits);
+      if (hitCountCacheTtl > 0) {
+        hitCounts.put(hitCountKey, hitCount);
+      }
+    }
 
-    } else {
-      LOGGER.debug("{} : Source returned empty DAG list", getId());
+    submitQueryRequest.set_user_info(ddfOrgName);
+    return new PagedQueryRequest(submitQueryRequest, hitCount);
+  }
+
+  private SubmitQueryRequest submitQuery(
+      org.codice.alliance.nsili.common.GIAS.Query query,
+      String[] resultAttributes,
+      SortAttribute[] sortAttributes,
+      NameValue[] properties,
+      boolean sorted)
+      throws ProcessingFault, SystemFault, InvalidInputParameter {
+    if (sorted) {
+      return catalogMgr.submit_query(query, resultAttributes, sortAttributes, properties);
     }
+    return catalogMgr.submit_query(query, resultAttributes, new SortAttribute[0], new NameValue[0]);
+  }
 
-    return sourceResponse;
+  private int completeHitCount(
+      org.codice.alliance.nsili.common.GIAS.Query query, NameValue[] properties)
+      throws ProcessingFault, SystemFault, InvalidInputParameter {
+    setRequestTimeout();
+    HitCountRequest hitCountRequest = catalogMgr.hit_count(query, properties);
+    IntHolder hitHolder = new IntHolder();
+    hitCountRequest.complete(hitHolder);
+    LOGGER.debug("{} :  Received {} hit(s) from query.", sourceId, hitHolder.value);
+    return hitHolder.value;
+  }
+
+  /**
+   * Limits the round trip of each CORBA request made by the current thread to the query timeout.
+   * Cancelling a query cannot interrupt a request that is waiting on the server, so without this
+   * the worker thread is not freed until the server replies. ORBs that do not support the policy
+   * are left to the TCP read timeouts configured on the ORB.
+   */
+  private void setRequestTimeout() {
+    ORB currentOrb = orb;
+    if (currentOrb == null) {
+      return;
+    }
+
+    try {
+      Any timeout = currentOrb.create_any();
+      timeout.insert_ulonglong(queryTimeout * TIME_T_PER_SECOND);
+      Policy timeoutPolicy = currentOrb.create_policy(RELATIVE_RT_TIMEOUT_POLICY_TYPE, timeout);
+      PolicyCurrent policyCurrent =
+          PolicyCurrentHelper.narrow(currentOrb.resolve_initial_references("PolicyCurrent"));
+      policyCurrent.set_policy_overrides(
+          new Policy[] {timeoutPolicy}, SetOverrideType.SET_OVERRIDE);
+    } catch (InvalidName | PolicyError | org.omg.CORBA.SystemException e) {
+      LOGGER.trace("{} : Unable to set the CORBA request timeout.", sourceId, e);
+    }
+  }
+
+  private int getHitCount(Future<Integer> hitCountFuture)
+      throws ProcessingFault, SystemFault, InvalidInputParameter, InterruptedException {
+    try {
+      return hitCountFuture.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ProcessingFault) {
+        throw (ProcessingFault) cause;
+      } else if (cause instanceof SystemFault) {
+        throw (SystemFault) cause;
+      } else if (cause instanceof InvalidInputParameter) {
+        throw (InvalidInputParameter) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private String getPagedRequestKey(
+      org.codice.alliance.nsili.common.GIAS.Query query,
+      String[] resultAttributes,
+      SortAttribute[] sortAttributes) {
+    StringBuilder key =
+        new StringBuilder(query.view)
+            .append('|')
+            .append(query.bqs_query)
+            .append('|')
+            .append(Arrays.toString(resultAttributes));
+    for (SortAttribute sortAttribute : sortAttributes) {
+      key.append('|')
+          .append(sortAttribute.attribute_name)
+          .append(' ')
+          .append(sortAttribute.sort_polarity.value());
+    }
+    return key.toString();
   }
 
   private void setFilterDelegate() {
@@ -1070,6 +1336,73 @@ public class NsiliSource extends MaskableImpl
     }
   }
 
+  public int getMaxConcurrentQueries() {
+    return maxConcurrentQueries;
+  }
+
+  public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+    if (maxConcurrentQueries < 1) {
+      LOGGER.debug(
+          "Invalid `maxConcurrentQueries` value [{}], must be at least 1. Default value [{}] will be used instead.",
+          maxConcurrentQueries,
+          DEFAULT_MAX_CONCURRENT_QUERIES);
+      this.maxConcurrentQueries = DEFAULT_MAX_CONCURRENT_QUERIES;
+    } else {
+      this.maxConcurrentQueries = maxConcurrentQueries;
+    }
+
+    resize(queryExecutor, this.maxConcurrentQueries);
+    resize(hitCountExecutor, this.maxConcurrentQueries);
+  }
+
+  private static void resize(ThreadPoolExecutor threadPoolExecutor, int threads) {
+    if (threads > threadPoolExecutor.getMaximumPoolSize()) {
+      threadPoolExecutor.setMaximumPoolSize(threads);
+      threadPoolExecutor.setCorePoolSize(threads);
+    } else {
+      threadPoolExecutor.setCorePoolSize(threads);
+      threadPoolExecutor.setMaximumPoolSize(threads);
+    }
+  }
+
+  public int getQueryTimeout() {
+    return queryTimeout;
+  }
+
+  public void setQueryTimeout(int queryTimeout) {
+    if (queryTimeout < 1) {
+      LOGGER.debug(
+          "Invalid `queryTimeout` value [{}], must be at least 1. Default value [{}] will be used instead.",
+          queryTimeout,
+          DEFAULT_QUERY_TIMEOUT);
+      this.queryTimeout = DEFAULT_QUERY_TIMEOUT;
+    } else {
+      this.queryTimeout = queryTimeout;
+    }
+  }
+
+  public int getHitCountCacheTtl() {
+    return hitCountCacheTtl;
+  }
+
+  /** @param hitCountCacheTtl the seconds a hit count is reused for, or 0 to not cache them */
+  public void setHitCountCacheTtl(int hitCountCacheTtl) {
+    this.hitCountCacheTtl = Math.max(0, hitCountCacheTtl);
+    hitCounts = createHitCountCache(this.hitCountCacheTtl);
+  }
+
+  private static Cache<String, Integer> createHitCountCache(int ttlSeconds) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_HIT_COUNTS)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  private static ThreadPoolExecutor createQueryExecutor(int threads) {
+    return new ThreadPoolExecutor(
+        threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+  }
+
   public void setResourceReader(ResourceReader resourceReader) {
     this.resourceReader = resourceReader;
   }
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.source;
+
+import java.util.Arrays;
+import org.codice.alliance.nsili.common.GIAS.SubmitQueryRequest;
+import org.codice.alliance.nsili.common.UCO.DAG;
+import org.codice.alliance.nsili.common.UCO.DAGListHolder;
+import org.codice.alliance.nsili.common.UCO.InvalidInputParameter;
+import org.codice.alliance.nsili.common.UCO.ProcessingFault;
+import org.codice.alliance.nsili.common.UCO.SystemFault;
+
+/**
+ * A {@link SubmitQueryRequest} on a STANAG 4559 server that results are read from one page at a
+ * time. Each call to {@code complete_DAG_results} returns the next {@code number_of_hits} results
+ * of the request, so a page that follows the last page read is retrieved without submitting the
+ * query again.
+ *
+ * <p>Servers that return all of the results on every call are detected the first time more
+ * results are returned than were asked for. The page is then taken from those results and the
+ * request is not read from again.
+ */
+class PagedQueryRequest {
+
+  private static final DAG[] NO_RESULTS = new DAG[0];
+
+  private final SubmitQueryRequest submitQueryRequest;
+
+  private final int hitCount;
+
+  private int nextIndex = 1;
+
+  private boolean windowed = true;
+
+  private boolean exhausted = false;
+
+  /**
+   * @param submitQueryRequest the submitted request, with its user info already set.
+   * @param hitCount the number of hits the server reported for the query.
+   */
+  PagedQueryRequest(SubmitQueryRequest submitQueryRequest, int hitCount) {
+    this.submitQueryRequest = submitQueryRequest;
+    this.hitCount = hitCount;
+  }
+
+  int getHitCount() {
+    return hitCount;
+  }
+
+  /** @return whether the page starting at {@code startIndex} can be read from this request. */
+  boolean canRead(int startIndex) {
+    return hasMore() && startIndex >= nextIndex;
+  }
+
+  /** @return whether the request may have results that have not been read. */
+  boolean hasMore() {
+    return windowed && !exhausted && nextIndex <= hitCount;
+  }
+
+  /**
+   * Reads a page of results. Results between the last page read and {@code startIndex} are read
+   * and discarded. The hit count is trusted to end the results only once a page has been read.
+   *
+   * @param startIndex the 1-based index of the first result of the page.
+   * @param pageSize the maximum number of results in the page.
+   * @return the results of the page.
+   */
+  DAG[] read(int startIndex, int pageSize)
+      throws ProcessingFault, SystemFault, InvalidInputParameter {
+    if (startIndex > nextIndex) {
+      DAG[] skipped = complete(startIndex - nextIndex);
+      if (!windowed) {
+        return slice(skipped, startIndex - 1, pageSize);
+      }
+    }
+
+    if (nextIndex > 1 && !hasMore()) {
+      return NO_RESULTS;
+    }
+
+    DAG[] dags = complete(pageSize);
+    if (!windowed) {
+      return slice(dags, startIndex - 1, pageSize);
+    }
+    return dags;
+  }
+
+  private DAG[] complete(int count) throws ProcessingFault, SystemFault, InvalidInputParameter {
+    DAGListHolder dagListHolder = new DAGListHolder();
+    submitQueryRequest.set_number_of_hits(count);
+    submitQueryRequest.complete_DAG_results(dagListHolder);
+
+    DAG[] dags = dagListHolder.value == null ? NO_RESULTS : dagListHolder.value;
+    if (dags.length > count) {
+      windowed = false;
+    } else {
+      nextIndex += dags.length;
+      exhausted = dags.length < count;
+    }
+    return dags;
+  }
+
+  private static DAG[] slice(DAG[] dags, int from, int pageSize) {
+    if (from >= dags.length) {
+      return NO_RESULTS;
+    }
+    return Arrays.copyOfRange(dags, from, Math.min(dags.length, from + pageSize));
+  }
+}
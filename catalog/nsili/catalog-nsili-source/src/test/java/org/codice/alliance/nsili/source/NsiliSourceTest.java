@@ -15,15 +15,22 @@ package org.codice.alliance.nsili.source;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.filter.impl.SortByImpl;
 import ddf.catalog.filter.proxy.adapter.GeotoolsFilterAdapterImpl;
 import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
@@ -35,7 +42,15 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.ws.rs.core.Response;
 import org.codice.alliance.nsili.common.GIAS.AttributeInformation;
 import org.codice.alliance.nsili.common.GIAS.AttributeType;
@@ -54,6 +69,7 @@ import org.codice.alliance.nsili.common.NsiliConstants;
 import org.codice.alliance.nsili.common.UCO.DAG;
 import org.codice.alliance.nsili.common.UCO.DAGListHolder;
 import org.codice.alliance.nsili.common.UCO.NameValue;
+import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.State;
 import org.codice.alliance.nsili.common.UCO.Status;
 import org.codice.ddf.cxf.client.SecureCxfClientFactory;
@@ -302,6 +318,218 @@ public class NsiliSourceTest {
     assertThat(argumentCaptor.getValue().bqs_query, is(GMTI_LIKE_FILTER));
   }
 
+  @Test
+  public void testQueryRequestsPageSize() throws Exception {
+    SubmitQueryRequest submitQueryRequest = stubSubmitQuery(5);
+    QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+    query.setPageSize(5);
+
+    SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+    assertThat(sourceResponse.getHits(), is(LONG));
+    verify(submitQueryRequest).set_number_of_hits(5);
+  }
+
+  @Test
+  public void testNextPageReadsFromPreviousRequest() throws Exception {
+    SubmitQueryRequest submitQueryRequest = stubSubmitQuery(5);
+    QueryImpl firstPage =
+        new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+    firstPage.setPageSize(5);
+    QueryImpl secondPage =
+        new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+    secondPage.setStartIndex(6);
+    secondPage.setPageSize(5);
+
+    source.query(new QueryRequestImpl(firstPage));
+    SourceResponse sourceResponse = source.query(new QueryRequestImpl(secondPage));
+
+    assertThat(sourceResponse.getHits(), is(LONG));
+    verify(catalogMgr, times(1)).hit_count(any(Query.class), any(NameValue[].class));
+    verify(catalogMgr, times(1))
+        .submit_query(
+            any(Query.class),
+            any(String[].class),
+            any(SortAttribute[].class),
+            any(NameValue[].class));
+    verify(submitQueryRequest, times(2)).complete_DAG_results(any(DAGListHolder.class));
+  }
+
+  @Test
+  public void testHitCountCached() throws Exception {
+    QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+
+    source.query(new QueryRequestImpl(query));
+    SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+    assertThat(sourceResponse.getHits(), is(LONG));
+    verify(catalogMgr, times(1)).hit_count(any(Query.class), any(NameValue[].class));
+    verify(catalogMgr, times(2))
+        .submit_query(
+            any(Query.class),
+            any(String[].class),
+            any(SortAttribute[].class),
+            any(NameValue[].class));
+  }
+
+  @Test
+  public void testHitCountCacheDisabled() throws Exception {
+    source.setHitCountCacheTtl(0);
+    QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+
+    source.query(new QueryRequestImpl(query));
+    source.query(new QueryRequestImpl(query));
+
+    verify(catalogMgr, times(2)).hit_count(any(Query.class), any(NameValue[].class));
+  }
+
+  @Test
+  public void testSingleHitQueryResubmittedUnsorted() throws Exception {
+    stubHitCount(intHolder -> intHolder.value = 1);
+    SubmitQueryRequest submitQueryRequest = stubSubmitQuery(1);
+    doThrow(new ProcessingFault())
+        .doReturn(submitQueryRequest)
+        .when(catalogMgr)
+        .submit_query(
+            any(Query.class),
+            any(String[].class),
+            any(SortAttribute[].class),
+            any(NameValue[].class));
+
+    QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+    SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+    assertThat(sourceResponse.getHits(), is(1L));
+    ArgumentCaptor<SortAttribute[]> argumentCaptor = ArgumentCaptor.forClass(SortAttribute[].class);
+    verify(catalogMgr, times(2))
+        .submit_query(
+            any(Query.class),
+            any(String[].class),
+            argumentCaptor.capture(),
+            any(NameValue[].class));
+    assertThat(argumentCaptor.getAllValues().get(1).length, is(0));
+  }
+
+  @Test(timeout = 60000)
+  public void testResultsKeepServerOrder() throws Exception {
+    int numResults = 10000;
+    source.setMaxHitCount(numResults);
+    SubmitQueryRequest submitQueryRequest = stubSubmitQuery(numResults);
+    Map<DAG, Integer> dagIndexes = new IdentityHashMap<>();
+    doAnswer(
+            (InvocationOnMock invocationOnMock) -> {
+              DAGListHolder dagListHolder = (DAGListHolder) invocationOnMock.getArguments()[0];
+              DAG[] dags = new DAG[numResults];
+              for (int i = 0; i < numResults; i++) {
+                dags[i] = new DAG();
+                dagIndexes.put(dags[i], i);
+              }
+              dagListHolder.value = dags;
+              return State.COMPLETED;
+            })
+        .when(submitQueryRequest)
+        .complete_DAG_results(any(DAGListHolder.class));
+    doAnswer(
+            (InvocationOnMock invocationOnMock) -> {
+              int index = dagIndexes.get(invocationOnMock.getArguments()[0]);
+              if (index % 1000 == 0) {
+                // finish the early results last
+                Thread.sleep(20);
+              }
+              MetacardImpl metacard = new MetacardImpl();
+              metacard.setId(String.valueOf(index));
+              return metacard;
+            })
+        .when(source)
+        .convertDag(any(DAG.class), eq(ID));
+
+    QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+    query.setPageSize(numResults);
+    List<Result> results = source.query(new QueryRequestImpl(query)).getResults();
+
+    assertThat(results.size(), is(numResults));
+    for (int i = 0; i < numResults; i++) {
+      assertThat(results.get(i).getMetacard().getId(), is(String.valueOf(i)));
+    }
+  }
+
+  @Test
+  public void testUnconvertedResultsAreSkipped() throws Exception {
+    stubSubmitQuery(3);
+    doReturn(null).when(source).convertDag(any(DAG.class), eq(ID));
+
+    QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+    SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+    assertThat(sourceResponse.getResults().size(), is(0));
+  }
+
+  @Test(timeout = 10000)
+  public void testConcurrentQueriesOverlap() throws Exception {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    CountDownLatch bothInFlight = new CountDownLatch(2);
+    stubHitCount(
+        intHolder -> {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          bothInFlight.countDown();
+          bothInFlight.await(5, TimeUnit.SECONDS);
+          inFlight.decrementAndGet();
+          intHolder.value = 12;
+        });
+    source.setMaxConcurrentQueries(2);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+      Future<SourceResponse> first =
+          executorService.submit(() -> source.query(new QueryRequestImpl(query)));
+      Future<SourceResponse> second =
+          executorService.submit(() -> source.query(new QueryRequestImpl(query)));
+
+      assertThat(first.get().getHits(), is(LONG));
+      assertThat(second.get().getHits(), is(LONG));
+      assertThat(maxInFlight.get(), is(2));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testQueryTimeout() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    stubHitCount(intHolder -> release.await());
+    source.setMaxConcurrentQueries(1);
+    source.setQueryTimeout(1);
+
+    try {
+      QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+      assertThat(source.query(new QueryRequestImpl(query)), is(nullValue()));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void testInvalidQueryTimeoutUsesDefault() {
+    source.setQueryTimeout(10);
+    source.setQueryTimeout(0);
+    assertThat(source.getQueryTimeout(), is(300));
+
+    source.setQueryTimeout(-5);
+    assertThat(source.getQueryTimeout(), is(300));
+  }
+
+  @Test(expected = NoClassDefFoundError.class)
+  public void testQueryErrorIsRethrown() throws Exception {
+    SubmitQueryRequest submitQueryRequest = stubSubmitQuery(1);
+    when(submitQueryRequest.complete_DAG_results(any(DAGListHolder.class)))
+        .thenThrow(new NoClassDefFoundError("org/codice/alliance/nsili/Missing"));
+
+    QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT).is().like().text("*"));
+    source.query(new QueryRequestImpl(query));
+  }
+
   @Test(expected = UnsupportedQueryException.class)
   public void testBadQuery() throws Exception {
     QueryImpl propertyIsLikeQuery =
@@ -427,6 +655,41 @@ public class NsiliSourceTest {
     return catalogMgr;
   }
 
+  private void stubHitCount(HitCountAnswer answer) throws Exception {
+    HitCountRequest hitCountRequest = mock(HitCountRequest.class);
+    when(hitCountRequest.complete(any(IntHolder.class)))
+        .thenAnswer(
+            (InvocationOnMock invocationOnMock) -> {
+              answer.complete((IntHolder) invocationOnMock.getArguments()[0]);
+              return State.COMPLETED;
+            });
+    doReturn(hitCountRequest).when(catalogMgr).hit_count(any(Query.class), any(NameValue[].class));
+  }
+
+  private SubmitQueryRequest stubSubmitQuery(int resultsPerRequest) throws Exception {
+    SubmitQueryRequest submitQueryRequest = mock(SubmitQueryRequest.class);
+    when(submitQueryRequest.complete_DAG_results(any(DAGListHolder.class)))
+        .thenAnswer(
+            (InvocationOnMock invocationOnMock) -> {
+              DAG[] dags = new DAG[resultsPerRequest];
+              Arrays.setAll(dags, i -> new DAG());
+              ((DAGListHolder) invocationOnMock.getArguments()[0]).value = dags;
+              return State.COMPLETED;
+            });
+    doReturn(submitQueryRequest)
+        .when(catalogMgr)
+        .submit_query(
+            any(Query.class),
+            any(String[].class),
+            any(SortAttribute[].class),
+            any(NameValue[].class));
+    return submitQueryRequest;
+  }
+
+  private interface HitCountAnswer {
+    void complete(IntHolder intHolder) throws InterruptedException;
+  }
+
   private DataModelMgr getMockDataModelMgr() throws Exception {
     DataModelMgr dataModelMgr = mock(DataModelMgr.class);
     View[] views = new View[0];
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.source;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import org.codice.alliance.nsili.common.GIAS.SubmitQueryRequest;
+import org.codice.alliance.nsili.common.UCO.DAG;
+import org.codice.alliance.nsili.common.UCO.DAGListHolder;
+import org.codice.alliance.nsili.common.UCO.State;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+
+public class PagedQueryRequestTest {
+
+  private static final int TOTAL_RESULTS = 25;
+
+  private DAG[] serverResults;
+
+  private SubmitQueryRequest submitQueryRequest;
+
+  private int numberOfHits;
+
+  private int nextResult;
+
+  @Before
+  public void setUp() throws Exception {
+    serverResults = new DAG[TOTAL_RESULTS];
+    for (int i = 0; i < TOTAL_RESULTS; i++) {
+      serverResults[i] = new DAG();
+    }
+    submitQueryRequest = mock(SubmitQueryRequest.class);
+    doAnswer(
+            (InvocationOnMock invocationOnMock) -> {
+              numberOfHits = (int) invocationOnMock.getArguments()[0];
+              return null;
+            })
+        .when(submitQueryRequest)
+        .set_number_of_hits(anyInt());
+  }
+
+  @Test
+  public void testReadsConsecutivePages() throws Exception {
+    windowedServer();
+    PagedQueryRequest pagedRequest = new PagedQueryRequest(submitQueryRequest, TOTAL_RESULTS);
+
+    assertThat(pagedRequest.read(1, 10), arrayContaining(results(0, 10)));
+    assertThat(pagedRequest.canRead(11), is(true));
+    assertThat(pagedRequest.canRead(1), is(false));
+    assertThat(pagedRequest.read(11, 10), arrayContaining(results(10, 20)));
+    assertThat(pagedRequest.read(21, 10), arrayContaining(results(20, 25)));
+    assertThat(pagedRequest.hasMore(), is(false));
+    verify(submitQueryRequest, times(3)).complete_DAG_results(any(DAGListHolder.class));
+  }
+
+  @Test
+  public void testSkipsToStartIndex() throws Exception {
+    windowedServer();
+    PagedQueryRequest pagedRequest = new PagedQueryRequest(submitQueryRequest, TOTAL_RESULTS);
+
+    assertThat(pagedRequest.read(16, 5), arrayContaining(results(15, 20)));
+    assertThat(pagedRequest.hasMore(), is(true));
+  }
+
+  @Test
+  public void testSkipPastLastResult() throws Exception {
+    windowedServer();
+    PagedQueryRequest pagedRequest = new PagedQueryRequest(submitQueryRequest, TOTAL_RESULTS);
+
+    assertThat(pagedRequest.read(31, 5), is(emptyArray()));
+    assertThat(pagedRequest.hasMore(), is(false));
+    verify(submitQueryRequest, times(1)).complete_DAG_results(any(DAGListHolder.class));
+  }
+
+  @Test
+  public void testServerReturningAllResults() throws Exception {
+    when(submitQueryRequest.complete_DAG_results(any(DAGListHolder.class)))
+        .thenAnswer(
+            (InvocationOnMock invocationOnMock) -> {
+              ((DAGListHolder) invocationOnMock.getArguments()[0]).value = serverResults;
+              return State.COMPLETED;
+            });
+    PagedQueryRequest pagedRequest = new PagedQueryRequest(submitQueryRequest, TOTAL_RESULTS);
+
+    assertThat(pagedRequest.read(6, 5), arrayContaining(results(5, 10)));
+    assertThat(pagedRequest.hasMore(), is(false));
+    assertThat(pagedRequest.canRead(11), is(false));
+  }
+
+  private void windowedServer() throws Exception {
+    when(submitQueryRequest.complete_DAG_results(any(DAGListHolder.class)))
+        .thenAnswer(
+            (InvocationOnMock invocationOnMock) -> {
+              int end = Math.min(TOTAL_RESULTS, nextResult + numberOfHits);
+              ((DAGListHolder) invocationOnMock.getArguments()[0]).value =
+                  results(nextResult, end);
+              nextResult = end;
+              return State.COMPLETED;
+            });
+  }
+
+  private DAG[] results(int from, int to) {
+    return Arrays.copyOfRange(serverResults, from, to);
+  }
+}